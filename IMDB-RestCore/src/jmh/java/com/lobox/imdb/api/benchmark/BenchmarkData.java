@@ -0,0 +1,76 @@
+package com.lobox.imdb.api.benchmark;
+
+import com.lobox.imdb.api.loader.ChunkedTsvReader;
+import com.lobox.imdb.api.loader.LoadProgress;
+import com.lobox.imdb.api.loader.MappedTsvLoader;
+import com.lobox.imdb.api.loader.TitlePartition;
+import com.lobox.imdb.api.loader.TsvSource;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbDataset;
+import com.lobox.imdb.api.tools.SyntheticImdbGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Seeded in-memory datasets for benchmarks.
+ */
+final class BenchmarkData {
+
+    static final int CHUNK_BYTES = 4 * 1024 * 1024;
+    private static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generates the files in memory with {@link SyntheticImdbGenerator}; scale 0.1 is about 1.1M titles.
+     */
+    static Map<String, byte[]> generate(double scale) throws IOException {
+        return new SyntheticImdbGenerator(scale, SEED).generate();
+    }
+
+    /**
+     * Loads the files with the mapped parser, as the application does on startup.
+     */
+    static ImdbDataset load(Map<String, byte[]> files, ExecutorService executor) throws IOException, InterruptedException, ExecutionException {
+        return load(files, TitlePartition.ALL, executor);
+    }
+
+    /**
+     * Loads only the titles of one partition, with their crew, principals and ratings, as a partition instance does.
+     */
+    static ImdbDataset load(Map<String, byte[]> files, TitlePartition partition, ExecutorService executor)
+            throws IOException, InterruptedException, ExecutionException {
+        MappedTsvLoader loader = new MappedTsvLoader(executor, new LoadProgress(List.of()), partition);
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        loader.loadTitlesBasics(chunks(files, "title.basics.tsv"), builder);
+        builder.sealTitles();
+        loader.loadPersons(chunks(files, "name.basics.tsv"), builder);
+        loader.loadTitlesCrew(chunks(files, "title.crew.tsv"), builder);
+        loader.loadTitlesPrincipals(chunks(files, "title.principals.tsv"), builder);
+        loader.loadTitlesRatings(chunks(files, "title.ratings.tsv"), builder);
+        return ImdbDataset.of(1, builder.build());
+    }
+
+    static TsvSource chunks(Map<String, byte[]> files, String name) throws IOException {
+        return TsvSource.of(ChunkedTsvReader.readChunks(new ByteArrayInputStream(files.get(name)), CHUNK_BYTES));
+    }
+
+    /**
+     * Raises the root log level so per-request info logging does not dominate the measurement; outside Spring Boot
+     * logback would otherwise log everything at DEBUG.
+     */
+    static void quietLogging() {
+        Logger root = LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        if (root instanceof ch.qos.logback.classic.Logger logbackRoot) {
+            logbackRoot.setLevel(ch.qos.logback.classic.Level.WARN);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.lobox.imdb.api.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.store.ImdbDataset;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Serialization of {@link Title} lists as the controllers return them, both to a byte array and streamed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    // the generated dataset has about 11k titles
+    @Param({"100", "10000"})
+    private int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Title> titles;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkData.quietLogging();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ImdbDataset dataset = BenchmarkData.load(BenchmarkData.generate(0.001), executor);
+            titles = dataset.store().toTitles(IntStream.range(0, Math.min(size, dataset.store().titleCount())).toArray());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public byte[] toBytes() throws Exception {
+        return objectMapper.writeValueAsBytes(titles);
+    }
+
+    @Benchmark
+    public void toStream() throws Exception {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), titles);
+    }
+}
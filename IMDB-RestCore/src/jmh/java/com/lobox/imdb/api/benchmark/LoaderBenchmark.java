@@ -0,0 +1,74 @@
+package com.lobox.imdb.api.benchmark;
+
+import com.lobox.imdb.api.config.LoaderProperties;
+import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.store.ImdbDataset;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full {@link DataLoaderService#loadData()} per parser: all five {@code load*} steps and the store build, with
+ * snapshots disabled and the files served from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LoaderBenchmark {
+
+    @Param({"0.01"})
+    private double scale;
+
+    @Param({"MAPPED", "OPENCSV"})
+    private LoaderProperties.Parser parser;
+
+    private Map<String, byte[]> files;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkData.quietLogging();
+        files = BenchmarkData.generate(scale);
+    }
+
+    @Benchmark
+    public ImdbDataset loadData() {
+        LoaderProperties properties = new LoaderProperties();
+        properties.setParser(parser);
+        properties.setChunkSizeBytes(BenchmarkData.CHUNK_BYTES);
+        properties.getSnapshot().setEnabled(false);
+        InMemoryDataLoaderService loader = new InMemoryDataLoaderService(properties, files);
+        try {
+            loader.loadData();
+            return loader.getDataset();
+        } finally {
+            loader.shutdownReloads();
+        }
+    }
+
+    private static final class InMemoryDataLoaderService extends DataLoaderService {
+
+        private final Map<String, byte[]> files;
+
+        InMemoryDataLoaderService(LoaderProperties properties, Map<String, byte[]> files) {
+            super(properties);
+            this.files = files;
+        }
+
+        @Override
+        public Path resolveDataFile(String path) {
+            return null;
+        }
+
+        @Override
+        public InputStream getResourceStream(String path) {
+            return new ByteArrayInputStream(files.get(path));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lobox.imdb.api.benchmark;
+
+import com.lobox.imdb.api.loader.MappedTsvLoader;
+import com.lobox.imdb.api.loader.TsvSource;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each file of the mapped parser on its own. The dependent files need sealed titles, so every invocation gets a
+ * builder that already holds them; the invocations are long enough for per-invocation setup not to skew results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MappedParserBenchmark {
+
+    @Param({"0.01"})
+    private double scale;
+
+    private final Map<String, TsvSource> chunks = new HashMap<>();
+    private ExecutorService executor;
+    private MappedTsvLoader loader;
+    private ColumnarStoreBuilder builder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkData.quietLogging();
+        Map<String, byte[]> files = BenchmarkData.generate(scale);
+        for (String name : files.keySet()) {
+            chunks.put(name, BenchmarkData.chunks(files, name));
+        }
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        loader = new MappedTsvLoader(executor);
+    }
+
+    @Setup(Level.Invocation)
+    public void newBuilder() throws Exception {
+        builder = new ColumnarStoreBuilder();
+        loader.loadTitlesBasics(chunks.get("title.basics.tsv"), builder);
+        builder.sealTitles();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public ColumnarStoreBuilder titlesBasics() throws Exception {
+        ColumnarStoreBuilder titlesOnly = new ColumnarStoreBuilder();
+        loader.loadTitlesBasics(chunks.get("title.basics.tsv"), titlesOnly);
+        titlesOnly.sealTitles();
+        return titlesOnly;
+    }
+
+    @Benchmark
+    public ColumnarStoreBuilder persons() throws Exception {
+        loader.loadPersons(chunks.get("name.basics.tsv"), builder);
+        return builder;
+    }
+
+    @Benchmark
+    public ColumnarStoreBuilder crew() throws Exception {
+        loader.loadTitlesCrew(chunks.get("title.crew.tsv"), builder);
+        return builder;
+    }
+
+    @Benchmark
+    public ColumnarStoreBuilder principals() throws Exception {
+        loader.loadTitlesPrincipals(chunks.get("title.principals.tsv"), builder);
+        return builder;
+    }
+
+    @Benchmark
+    public ColumnarStoreBuilder ratings() throws Exception {
+        loader.loadTitlesRatings(chunks.get("title.ratings.tsv"), builder);
+        return builder;
+    }
+}
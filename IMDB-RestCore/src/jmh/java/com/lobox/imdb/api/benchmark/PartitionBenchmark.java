@@ -0,0 +1,89 @@
+package com.lobox.imdb.api.benchmark;
+
+import com.lobox.imdb.api.config.LoaderProperties;
+import com.lobox.imdb.api.loader.TitlePartition;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.service.ImdbService;
+import com.lobox.imdb.api.service.impl.ImdbServiceImpl;
+import com.lobox.imdb.api.service.impl.PartitionedImdbService;
+import com.lobox.imdb.api.store.ImdbDataset;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link QueryBenchmark} queries through a {@link PartitionedImdbService} over 1, 2 and 4 title partitions held
+ * in this JVM. There is no HTTP hop, so this measures the partitions' share of the work plus the scatter-gather and
+ * merge overhead; the scaling of separate instances also depends on the cores and memory each of them gets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PartitionBenchmark {
+
+    // about 1.1M titles
+    @Param({"0.1"})
+    private double scale;
+
+    @Param({"1", "2", "4"})
+    private int partitions;
+
+    private PartitionedImdbService imdbService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkData.quietLogging();
+        Map<String, byte[]> files = BenchmarkData.generate(scale);
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<ImdbService> services = new ArrayList<>();
+        try {
+            for (int index = 0; index < partitions; index++) {
+                ImdbDataset dataset = BenchmarkData.load(files, new TitlePartition(index, partitions), executor);
+                services.add(new ImdbServiceImpl(new DataLoaderService(new LoaderProperties()) {
+                    @Override
+                    public ImdbDataset getDataset() {
+                        return dataset;
+                    }
+                }));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        imdbService = new PartitionedImdbService(services);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        imdbService.close();
+    }
+
+    @Benchmark
+    public List<Title> sameDirectorWriterAlive() {
+        return imdbService.getTitlesBySameDirectorWriterAndAlive();
+    }
+
+    @Benchmark
+    public List<Title> commonActors() {
+        return imdbService.getTitlesByTwoActors("nm0000001", "nm0000002");
+    }
+
+    @Benchmark
+    public Map<Integer, Title> bestByGenre() {
+        return imdbService.getBestTitlesByGenreAndYear("Drama");
+    }
+
+    @Benchmark
+    public Map<Integer, List<Title>> topTenByGenre() {
+        return imdbService.getTopTitlesByGenreAndYear("Drama", 10, null, null, null, 0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.lobox.imdb.api.benchmark;
+
+import com.lobox.imdb.api.config.LoaderProperties;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.service.ImdbService;
+import com.lobox.imdb.api.service.impl.ImdbServiceImpl;
+import com.lobox.imdb.api.store.ImdbDataset;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The three {@link ImdbServiceImpl} queries over a seeded dataset. The most frequent cast members are the lowest
+ * nconsts, so the common-actors pair intersects two of the longest posting lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class QueryBenchmark {
+
+    // about 110k and 1.1M titles
+    @Param({"0.01", "0.1"})
+    private double scale;
+
+    private ImdbService imdbService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkData.quietLogging();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        ImdbDataset dataset;
+        try {
+            dataset = BenchmarkData.load(BenchmarkData.generate(scale), executor);
+        } finally {
+            executor.shutdown();
+        }
+        imdbService = new ImdbServiceImpl(new DataLoaderService(new LoaderProperties()) {
+            @Override
+            public ImdbDataset getDataset() {
+                return dataset;
+            }
+        });
+    }
+
+    @Benchmark
+    public List<Title> sameDirectorWriterAlive() {
+        return imdbService.getTitlesBySameDirectorWriterAndAlive();
+    }
+
+    @Benchmark
+    public List<Title> commonActors() {
+        return imdbService.getTitlesByTwoActors("nm0000001", "nm0000002");
+    }
+
+    @Benchmark
+    public Map<Integer, Title> bestByGenre() {
+        return imdbService.getBestTitlesByGenreAndYear("Drama");
+    }
+
+    @Benchmark
+    public Map<Integer, List<Title>> topTenByGenre() {
+        return imdbService.getTopTitlesByGenreAndYear("Drama", 10, null, null, null, 0);
+    }
+}
@@ -0,0 +1,42 @@
+package com.lobox.imdb.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "imdb.admission")
+public class AdmissionProperties {
+
+    private static final int CPUS = Runtime.getRuntime().availableProcessors();
+
+    private boolean enabled = true;
+
+    /**
+     * Concurrent requests allowed per route. Only the listed routes are limited; keys are request paths without
+     * path variables.
+     */
+    private Map<String, Integer> limits = new LinkedHashMap<>(Map.of(
+            "/api/v1/imdb/titles/same-director-writer-alive", Math.max(2, CPUS / 2),
+            "/api/v1/imdb/titles/common-actors", 2 * CPUS,
+            "/api/v1/imdb/titles/common-actors/batch", CPUS,
+            "/api/v1/imdb/titles/query", 2 * CPUS,
+            "/api/v1/imdb/persons/path", CPUS));
+
+    /**
+     * Requests allowed to wait for a permit per route; further requests are rejected at once.
+     */
+    private int queueCapacity = 32;
+
+    /**
+     * How long a queued request waits for a permit before it is rejected.
+     */
+    private long queueTimeoutMs = 200;
+
+    /**
+     * Sent as {@code Retry-After} with every 503.
+     */
+    private int retryAfterSeconds = 1;
+}
@@ -0,0 +1,44 @@
+package com.lobox.imdb.api.config;
+
+import com.lobox.imdb.api.service.ImdbService;
+import com.lobox.imdb.api.service.impl.PartitionedImdbService;
+import com.lobox.imdb.api.service.impl.RemoteImdbService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * On a coordinator ({@code imdb.coordinator.enabled}), the {@link ImdbService} sends every query to the partitions
+ * in {@link CoordinatorProperties} and merges their answers, in place of the local service.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "imdb.coordinator", name = "enabled", havingValue = "true")
+public class CoordinatorConfig {
+
+    @Bean
+    public PartitionedImdbService partitionedImdbService(CoordinatorProperties properties, RestClient.Builder restClientBuilder) {
+        if (properties.getPartitions().isEmpty()) {
+            throw new IllegalStateException("imdb.coordinator.partitions must list the partition URLs");
+        }
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(properties.getConnectTimeoutMs()))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(properties.getReadTimeoutMs()));
+        RestClient restClient = restClientBuilder.requestFactory(requestFactory).build();
+        List<ImdbService> partitions = properties.getPartitions().stream()
+                .<ImdbService>map(url -> new RemoteImdbService(restClient, url))
+                .toList();
+        log.info("Coordinating {} partitions: {}", partitions.size(), properties.getPartitions());
+        return new PartitionedImdbService(partitions);
+    }
+}
@@ -0,0 +1,30 @@
+package com.lobox.imdb.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs this instance as a coordinator in front of partitioned instances ({@code imdb.loader.partition}): it loads
+ * no data itself, sends every query to all partitions over HTTP and merges the answers.
+ */
+@Data
+@ConfigurationProperties(prefix = "imdb.coordinator")
+public class CoordinatorProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Base URLs of the partition instances, e.g. {@code http://localhost:8081}; one per partition.
+     */
+    private List<String> partitions = new ArrayList<>();
+
+    private long connectTimeoutMs = 2_000;
+
+    /**
+     * How long to wait for a partition's answer; a partition that does not answer in time fails the query.
+     */
+    private long readTimeoutMs = 30_000;
+}
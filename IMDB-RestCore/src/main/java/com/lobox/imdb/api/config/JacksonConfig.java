@@ -0,0 +1,37 @@
+package com.lobox.imdb.api.config;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.service.TitleJsonService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jackson customizations picked up by the application's {@code ObjectMapper}. CBOR responses come from
+ * {@code jackson-dataformat-cbor} being on the classpath: Spring MVC then answers {@code Accept: application/cbor}.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Module titleFragmentModule(TitleJsonService titleJsonService) {
+        SimpleModule module = new SimpleModule("TitleFragments");
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+                                                      JsonSerializer<?> serializer) {
+                if (beanDesc.getBeanClass() != Title.class) {
+                    return serializer;
+                }
+                return new TitleFragmentSerializer((JsonSerializer<Object>) serializer, titleJsonService);
+            }
+        });
+        return module;
+    }
+}
@@ -0,0 +1,164 @@
+package com.lobox.imdb.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@Data
+@ConfigurationProperties(prefix = "imdb.loader")
+public class LoaderProperties {
+
+    public enum Parser {
+        /**
+         * Memory-mapped, newline-aligned chunks parsed in parallel straight from bytes.
+         */
+        MAPPED,
+        /**
+         * Single-threaded OpenCSV reader per file, kept for comparison.
+         */
+        OPENCSV
+    }
+
+    public enum TextStorage {
+        /**
+         * One {@code String} per title and name.
+         */
+        HEAP,
+        /**
+         * Titles and names as UTF-8 in one direct buffer, decoded when a title or person is returned. Needs
+         * {@code -XX:MaxDirectMemorySize} room for the text (about 0.5 GB for the full dataset).
+         */
+        OFF_HEAP
+    }
+
+    private Parser parser = Parser.MAPPED;
+
+    /**
+     * Where the loaded titles and names are kept. Off-heap storage leaves the old generation tens of millions of
+     * objects lighter, which shortens full collections, at the cost of decoding the strings per response.
+     */
+    private TextStorage textStorage = TextStorage.HEAP;
+
+    /**
+     * Size of the chunks memory-mapped files are split into for parallel parsing; they are views of the page cache.
+     */
+    private long chunkSizeBytes = 64L * 1024 * 1024;
+
+    /**
+     * Size of the chunks read from sources that cannot be mapped ({@code .tsv.gz} dumps, the classpath). Each is a
+     * heap buffer and up to one per core plus one are waiting to be parsed, so they are kept small.
+     */
+    private int streamChunkSizeBytes = 4 * 1024 * 1024;
+
+    /**
+     * Directory holding the five data files, each either as {@code .tsv} or as the official {@code .tsv.gz} dump.
+     * When empty they are read from {@code imdbData/} on the classpath.
+     */
+    private String dataDir;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Co-star and collaboration path searches that may run at once; further ones wait. Each keeps three arrays of
+     * the person count (about 170 MB for the full dataset) for the life of the generation, reported as part of the
+     * co-star graph at {@code /admin/loader}.
+     */
+    private int coStarSearchScratches = 2;
+
+    /**
+     * Load the first generation in the background so the application starts serving right away; data endpoints
+     * answer 503 and the readiness probe stays down until it is published.
+     */
+    private boolean asyncStartup = true;
+
+    private Partition partition = new Partition();
+
+    private LazyCast lazyCast = new LazyCast();
+
+    private Snapshot snapshot = new Snapshot();
+
+    private Reload reload = new Reload();
+
+    /**
+     * Hash partition of the titles loaded by this instance, for running several instances behind a coordinator
+     * ({@code imdb.coordinator}). Crew, principal and rating rows follow their titles; persons are loaded in full.
+     */
+    @Data
+    public static class Partition {
+
+        /**
+         * Number of partitions the titles are split into; 1 loads every title.
+         */
+        private int count = 1;
+
+        /**
+         * The partition this instance loads, from 0 to {@code count - 1}.
+         */
+        private int index = 0;
+    }
+
+    /**
+     * Leave title.crew.tsv and title.principals.tsv in their files at startup, indexing only where each title's rows
+     * are, and parse those rows on first access into a bounded cache. The person titles and the indexes that need
+     * the whole cast (the same director/writer list, co-stars, person search, filtered title queries) are built in
+     * the background once the generation is published; until then the queries using them are answered with 503 and
+     * {@code Retry-After}, and a failed build is retried with backoff while the dataset health reports it. Both files
+     * must be plain {@code .tsv} on the filesystem and sorted by tconst, as the official dumps are; they stay mapped
+     * while the generation is served, so replace them by moving new files in rather than rewriting them. Snapshots
+     * are not used in this mode.
+     */
+    @Data
+    public static class LazyCast {
+
+        private boolean enabled = false;
+
+        /**
+         * Target size of the blocks the files are indexed and parsed by.
+         */
+        private int blockBytes = 256 * 1024;
+
+        /**
+         * Bytes of parsed blocks kept in memory.
+         */
+        private long cacheMaxBytes = 64L * 1024 * 1024;
+    }
+
+    /**
+     * Binary copy of the loaded store, written after ingesting the data files and read instead of them on the next
+     * start while they are unchanged. Opt-in, as the file is several hundred MB for the full dataset.
+     */
+    @Data
+    public static class Snapshot {
+
+        private boolean enabled = false;
+
+        private String path = Path.of(System.getProperty("java.io.tmpdir"), "imdb-snapshot", "imdb-data.snapshot").toString();
+
+        /**
+         * Hash the whole source files instead of their first and last MiB when checking snapshot freshness.
+         */
+        private boolean fullSourceHash = false;
+    }
+
+    @Data
+    public static class Reload {
+
+        /**
+         * Parse threads for reloads while the application is serving; kept below {@code parallelism} so queries still
+         * get CPU while the next generation is built.
+         */
+        private int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        /**
+         * Reload automatically when one of the data files changes on disk.
+         */
+        private boolean watchFiles = false;
+
+        /**
+         * Quiet period after the last file change before a watch-triggered reload starts, so half-copied files are
+         * not picked up.
+         */
+        private long watchDebounceMs = 10_000;
+    }
+}
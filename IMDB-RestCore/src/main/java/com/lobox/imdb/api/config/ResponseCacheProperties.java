@@ -0,0 +1,16 @@
+package com.lobox.imdb.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "imdb.response-cache")
+public class ResponseCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Upper bound on the total size of the cached response bodies.
+     */
+    private long maxBytes = 64L * 1024 * 1024;
+}
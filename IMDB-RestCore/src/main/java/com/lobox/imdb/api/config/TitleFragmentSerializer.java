@@ -0,0 +1,191 @@
+package com.lobox.imdb.api.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.service.TitleJsonService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a {@link Title} as its pre-rendered fragment from {@link TitleJsonService}. Binary formats, pretty
+ * printing and titles without a fragment go through the regular bean serializer, which also renders the fragments.
+ */
+final class TitleFragmentSerializer extends StdSerializer<Title> implements ContextualSerializer, ResolvableSerializer {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final JsonFactory FRAGMENT_FACTORY = new JsonFactory();
+
+    // serializers are Serializable only through StdSerializer; this one is never written out
+    @SuppressWarnings("serial")
+    private final JsonSerializer<Object> delegate;
+    @SuppressWarnings("serial")
+    private final TitleJsonService titleJsonService;
+
+    TitleFragmentSerializer(JsonSerializer<Object> delegate, TitleJsonService titleJsonService) {
+        super(Title.class);
+        this.delegate = delegate;
+        this.titleJsonService = titleJsonService;
+    }
+
+    @Override
+    public void serialize(Title title, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        byte[] json = gen instanceof JsonGeneratorImpl && gen.getPrettyPrinter() == null
+                ? titleJsonService.fragment(title.getTconst(), current -> render(current, gen, provider))
+                : null;
+        if (json == null) {
+            delegate.serialize(title, gen, provider);
+        } else {
+            gen.writeRawValue(new RawJson(json));
+        }
+    }
+
+    // Renders with the features of the generator the fragment is written to, so spliced output matches the rest
+    private byte[] render(Title title, JsonGenerator target, SerializerProvider provider) throws IOException {
+        ByteArrayBuilder bytes = new ByteArrayBuilder();
+        try (JsonGenerator gen = FRAGMENT_FACTORY.createGenerator(bytes)) {
+            gen.overrideStdFeatures(target.getFeatureMask(), -1);
+            gen.overrideFormatFeatures(target.getFormatFeatures(), -1);
+            if (target.getCharacterEscapes() != null) {
+                gen.setCharacterEscapes(target.getCharacterEscapes());
+            }
+            delegate.serialize(title, gen, provider);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        if (!(delegate instanceof ContextualSerializer contextual)) {
+            return this;
+        }
+        @SuppressWarnings("unchecked")
+        JsonSerializer<Object> contextualDelegate = (JsonSerializer<Object>) contextual.createContextual(provider, property);
+        return contextualDelegate == delegate ? this : new TitleFragmentSerializer(contextualDelegate, titleJsonService);
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (delegate instanceof ResolvableSerializer resolvable) {
+            resolvable.resolve(provider);
+        }
+    }
+
+    /**
+     * Already-encoded JSON for {@link JsonGenerator#writeRawValue(SerializableString)}. Raw values are written
+     * unquoted; the quoted forms escape the JSON as a string value, for any other caller.
+     */
+    private record RawJson(byte[] utf8) implements SerializableString {
+
+        @Override
+        public String getValue() {
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int charLength() {
+            return getValue().length();
+        }
+
+        @Override
+        public byte[] asUnquotedUTF8() {
+            return utf8;
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (offset + utf8.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(utf8, 0, buffer, offset, utf8.length);
+            return utf8.length;
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            String value = getValue();
+            if (offset + value.length() > buffer.length) {
+                return -1;
+            }
+            value.getChars(0, value.length(), buffer, offset);
+            return value.length();
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(utf8);
+            return utf8.length;
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            if (utf8.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(utf8);
+            return utf8.length;
+        }
+
+        @Override
+        public char[] asQuotedChars() {
+            return JsonStringEncoder.getInstance().quoteAsString(getValue());
+        }
+
+        @Override
+        public byte[] asQuotedUTF8() {
+            return JsonStringEncoder.getInstance().quoteAsUTF8(getValue());
+        }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            byte[] quoted = asQuotedUTF8();
+            if (offset + quoted.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(quoted, 0, buffer, offset, quoted.length);
+            return quoted.length;
+        }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            char[] quoted = asQuotedChars();
+            if (offset + quoted.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(quoted, 0, buffer, offset, quoted.length);
+            return quoted.length;
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            byte[] quoted = asQuotedUTF8();
+            out.write(quoted);
+            return quoted.length;
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) {
+            byte[] quoted = asQuotedUTF8();
+            if (quoted.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(quoted);
+            return quoted.length;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.lobox.imdb.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "imdb.title-json")
+public class TitleJsonProperties {
+
+    /**
+     * Render each title's JSON once per dataset generation and reuse the bytes in every response.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Upper bound on the total size of the rendered titles; titles beyond it are serialized per response.
+     */
+    private long maxBytes = 256L * 1024 * 1024;
+}
@@ -0,0 +1,40 @@
+package com.lobox.imdb.api.controller;
+
+import com.lobox.imdb.api.model.LoaderStatus;
+import com.lobox.imdb.api.model.ReloadStatus;
+import com.lobox.imdb.api.service.DataLoaderService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/imdb/admin")
+public class AdminController {
+
+    private final DataLoaderService dataLoaderService;
+
+    public AdminController(DataLoaderService dataLoaderService) {
+        this.dataLoaderService = dataLoaderService;
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<ReloadStatus> reload() {
+        if (!dataLoaderService.triggerReload("admin")) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(dataLoaderService.getReloadStatus());
+        }
+        return ResponseEntity.accepted().body(dataLoaderService.getReloadStatus());
+    }
+
+    @GetMapping("/reload")
+    public ResponseEntity<ReloadStatus> getReloadStatus() {
+        return ResponseEntity.ok(dataLoaderService.getReloadStatus());
+    }
+
+    @GetMapping("/loader")
+    public ResponseEntity<LoaderStatus> getLoaderStatus() {
+        return ResponseEntity.ok(dataLoaderService.getLoaderStatus());
+    }
+}
@@ -1,27 +1,80 @@
 package com.lobox.imdb.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lobox.imdb.api.model.ActorPair;
+import com.lobox.imdb.api.model.AdmissionMetrics;
+import com.lobox.imdb.api.model.CoStar;
+import com.lobox.imdb.api.model.CollaborationPath;
+import com.lobox.imdb.api.model.EndpointMetrics;
+import com.lobox.imdb.api.model.Person;
+import com.lobox.imdb.api.model.ResponseCacheStats;
 import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.model.TitlePage;
+import com.lobox.imdb.api.model.TitleQuery;
+import com.lobox.imdb.api.model.TitleQueryResult;
+import com.lobox.imdb.api.service.AdmissionControlService;
 import com.lobox.imdb.api.service.HttpRequestCounterService;
 import com.lobox.imdb.api.service.ImdbService;
+import com.lobox.imdb.api.service.PartitionQueryUnsupportedException;
+import com.lobox.imdb.api.service.ResponseCacheService;
+import com.lobox.imdb.api.store.CastIndexesNotReadyException;
+import com.lobox.imdb.api.util.ImdbIds;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/v1/imdb")
 public class ImdbController {
 
+    private static final int MAX_TOP_K = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_CO_STARS = 1000;
+    private static final int MAX_PATH_DEPTH = 10;
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int CAST_INDEXES_RETRY_AFTER_SECONDS = 5;
+
     private final ImdbService imdbService;
     private final HttpRequestCounterService requestCounterService;
+    private final ResponseCacheService responseCacheService;
+    private final AdmissionControlService admissionControlService;
+    // one JSON document per line; the generator is flushed by the servlet buffer, not after every title
+    private final ObjectWriter ndjsonWriter;
 
-    public ImdbController(ImdbService imdbService, HttpRequestCounterService requestCounterService) {
+    public ImdbController(ImdbService imdbService, HttpRequestCounterService requestCounterService,
+                          ResponseCacheService responseCacheService, AdmissionControlService admissionControlService,
+                          ObjectMapper objectMapper) {
         this.imdbService = imdbService;
         this.requestCounterService = requestCounterService;
+        this.responseCacheService = responseCacheService;
+        this.admissionControlService = admissionControlService;
+        this.ndjsonWriter = objectMapper.writerFor(Title.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
     }
 
     @GetMapping("/titles/same-director-writer-alive")
@@ -30,7 +83,31 @@ public class ImdbController {
         return ResponseEntity.ok(titles);
     }
 
-    @GetMapping("/titles/common-actors")
+    @GetMapping(value = "/titles/same-director-writer-alive", params = "limit")
+    public ResponseEntity<TitlePage> getTitlesBySameDirectorWriterAndAlive(@RequestParam("limit") int limit,
+                                                                           @RequestParam(value = "cursor", required = false) String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE || (cursor != null && ImdbIds.parseTconst(cursor) < 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(imdbService.getTitlesBySameDirectorWriterAndAlive(cursor, limit));
+    }
+
+    @GetMapping(value = "/titles/same-director-writer-alive", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTitlesBySameDirectorWriterAndAlive() {
+        Stream<Title> titles = imdbService.streamTitlesBySameDirectorWriterAndAlive();
+        StreamingResponseBody body = out -> {
+            try (titles; JsonGenerator generator = ndjsonWriter.createGenerator(out)) {
+                Iterator<Title> iterator = titles.iterator();
+                while (iterator.hasNext()) {
+                    ndjsonWriter.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping(value = "/titles/common-actors", params = {"actor1Id", "actor2Id"})
     public ResponseEntity<List<Title>> getTitlesByTwoActors(@RequestParam("actor1Id") String actor1Id, @RequestParam("actor2Id") String actor2Id) {
         List<Title> titles = imdbService.getTitlesByTwoActors(actor1Id, actor2Id);
         if (titles.isEmpty()) {
@@ -39,17 +116,254 @@ public class ImdbController {
         return ResponseEntity.ok(titles);
     }
 
+    @GetMapping(value = "/titles/common-actors", params = "actorIds")
+    public ResponseEntity<List<Title>> getTitlesByActors(@RequestParam("actorIds") List<String> actorIds) {
+        if (actorIds.stream().distinct().count() < 2) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Title> titles = imdbService.getTitlesByActors(actorIds);
+        if (titles.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(titles);
+    }
+
+    /**
+     * Answers many actor pairs in one call, keyed by {@code actor1Id,actor2Id} in input order. Pairs without a
+     * common title map to an empty list.
+     */
+    @PostMapping("/titles/common-actors/batch")
+    public ResponseEntity<Map<String, List<Title>>> getTitlesByActorPairs(@RequestBody List<ActorPair> pairs) {
+        if (pairs == null || pairs.isEmpty() || pairs.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<List<String>> actorGroups = new ArrayList<>(pairs.size());
+        for (ActorPair pair : pairs) {
+            if (pair == null || pair.getActor1Id() == null || pair.getActor2Id() == null
+                    || pair.getActor1Id().equals(pair.getActor2Id())) {
+                return ResponseEntity.badRequest().build();
+            }
+            actorGroups.add(List.of(pair.getActor1Id(), pair.getActor2Id()));
+        }
+        List<List<Title>> results = imdbService.getTitlesByActorsBatch(actorGroups);
+        Map<String, List<Title>> titlesByPair = new LinkedHashMap<>();
+        for (int i = 0; i < actorGroups.size(); i++) {
+            titlesByPair.put(String.join(",", actorGroups.get(i)), results.get(i));
+        }
+        return ResponseEntity.ok(titlesByPair);
+    }
+
     @GetMapping("/titles/best-by-genre")
-    public ResponseEntity<Map<Integer, Title>> getBestTitlesByGenre(@RequestParam("genre") String genre) {
-        Map<Integer, Title> bestTitles = imdbService.getBestTitlesByGenreAndYear(genre);
+    public ResponseEntity<Map<Integer, Title>> getBestTitlesByGenre(@RequestParam("genre") String genre,
+                                                                    @RequestParam(value = "fromYear", required = false) Integer fromYear,
+                                                                    @RequestParam(value = "toYear", required = false) Integer toYear,
+                                                                    @RequestParam(value = "titleType", required = false) String titleType,
+                                                                    @RequestParam(value = "minVotes", defaultValue = "0") int minVotes) {
+        if (minVotes < 0 || (fromYear != null && toYear != null && fromYear > toYear)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<Integer, Title> bestTitles = imdbService.getBestTitlesByGenreAndYear(genre, fromYear, toYear, titleType, minVotes);
         if (bestTitles.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.ok(bestTitles);
     }
 
+    @GetMapping(value = "/titles/best-by-genre", params = "k")
+    public ResponseEntity<Map<Integer, List<Title>>> getTopTitlesByGenre(@RequestParam("genre") String genre,
+                                                                         @RequestParam("k") int k,
+                                                                         @RequestParam(value = "fromYear", required = false) Integer fromYear,
+                                                                         @RequestParam(value = "toYear", required = false) Integer toYear,
+                                                                         @RequestParam(value = "titleType", required = false) String titleType,
+                                                                         @RequestParam(value = "minVotes", defaultValue = "0") int minVotes) {
+        if (k < 1 || k > MAX_TOP_K || minVotes < 0 || (fromYear != null && toYear != null && fromYear > toYear)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<Integer, List<Title>> topTitles = imdbService.getTopTitlesByGenreAndYear(genre, k, fromYear, toYear, titleType, minVotes);
+        if (topTitles.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(topTitles);
+    }
+
+    /**
+     * Top {@code k} titles per year for each genre in the body, keyed by genre. Unknown genres map to an empty object.
+     */
+    @PostMapping("/titles/best-by-genre/batch")
+    public ResponseEntity<Map<String, Map<Integer, List<Title>>>> getTopTitlesByGenres(@RequestBody List<String> genres,
+                                                                                       @RequestParam(value = "k", defaultValue = "1") int k,
+                                                                                       @RequestParam(value = "fromYear", required = false) Integer fromYear,
+                                                                                       @RequestParam(value = "toYear", required = false) Integer toYear,
+                                                                                       @RequestParam(value = "titleType", required = false) String titleType,
+                                                                                       @RequestParam(value = "minVotes", defaultValue = "0") int minVotes) {
+        if (genres == null || genres.isEmpty() || genres.size() > MAX_BATCH_SIZE || genres.stream().anyMatch(genre -> genre == null || genre.isBlank())
+                || k < 1 || k > MAX_TOP_K || minVotes < 0 || (fromYear != null && toYear != null && fromYear > toYear)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(imdbService.getTopTitlesByGenresAndYear(genres, k, fromYear, toYear, titleType, minVotes));
+    }
+
+    /**
+     * Top {@code k} titles matching every given filter, sorted by {@code sort} ({@code votes}, {@code rating} or
+     * {@code year}) in {@code order}. The body reports how many titles were examined and how long the query took,
+     * and is returned even when no title matches.
+     */
+    @GetMapping("/titles/query")
+    public ResponseEntity<TitleQueryResult> queryTitles(@RequestParam(value = "genres", required = false) List<String> genres,
+                                                        @RequestParam(value = "genreMatch", defaultValue = "all") String genreMatch,
+                                                        @RequestParam(value = "titleType", required = false) List<String> titleTypes,
+                                                        @RequestParam(value = "fromYear", required = false) Integer fromYear,
+                                                        @RequestParam(value = "toYear", required = false) Integer toYear,
+                                                        @RequestParam(value = "adult", required = false) Boolean adult,
+                                                        @RequestParam(value = "minVotes", defaultValue = "0") int minVotes,
+                                                        @RequestParam(value = "minRating", required = false) Double minRating,
+                                                        @RequestParam(value = "maxRating", required = false) Double maxRating,
+                                                        @RequestParam(value = "director", required = false) List<String> directors,
+                                                        @RequestParam(value = "writer", required = false) List<String> writers,
+                                                        @RequestParam(value = "actor", required = false) List<String> actors,
+                                                        @RequestParam(value = "sort", defaultValue = "votes") String sort,
+                                                        @RequestParam(value = "order", defaultValue = "desc") String order,
+                                                        @RequestParam(value = "k", defaultValue = "10") int k) {
+        TitleQuery.GenreMatch match = parseEnum(TitleQuery.GenreMatch.class, genreMatch);
+        TitleQuery.Sort sortBy = parseEnum(TitleQuery.Sort.class, sort);
+        if (match == null || sortBy == null || !(order.equalsIgnoreCase("asc") || order.equalsIgnoreCase("desc"))
+                || k < 1 || k > MAX_TOP_K || minVotes < 0 || (fromYear != null && toYear != null && fromYear > toYear)
+                || !isRating(minRating) || !isRating(maxRating) || (minRating != null && maxRating != null && minRating > maxRating)
+                || !isFilterList(genres) || !isFilterList(titleTypes) || !isFilterList(directors) || !isFilterList(writers)
+                || !isFilterList(actors)) {
+            return ResponseEntity.badRequest().build();
+        }
+        TitleQuery query = new TitleQuery(orEmpty(genres), match, orEmpty(titleTypes), fromYear, toYear, adult, minVotes,
+                minRating, maxRating, orEmpty(directors), orEmpty(writers), orEmpty(actors), sortBy,
+                order.equalsIgnoreCase("asc"), k);
+        return ResponseEntity.ok(imdbService.queryTitles(query));
+    }
+
+    @GetMapping("/titles/search")
+    public ResponseEntity<List<Title>> searchTitles(@RequestParam("q") String query,
+                                                    @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (query.isBlank() || query.length() > MAX_QUERY_LENGTH || limit < 1 || limit > MAX_TOP_K) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Title> titles = imdbService.searchTitles(query, limit);
+        if (titles.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(titles);
+    }
+
+    @GetMapping("/persons/search")
+    public ResponseEntity<List<Person>> searchPersons(@RequestParam("q") String query,
+                                                      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (query.isBlank() || query.length() > MAX_QUERY_LENGTH || limit < 1 || limit > MAX_TOP_K) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Person> persons = imdbService.searchPersons(query, limit);
+        if (persons.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(persons);
+    }
+
+    @GetMapping("/persons/{nconst}/co-stars")
+    public ResponseEntity<List<CoStar>> getTopCoStars(@PathVariable("nconst") String nconst,
+                                                      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_CO_STARS) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<CoStar> coStars = imdbService.getTopCoStars(nconst, limit);
+        if (coStars.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(coStars);
+    }
+
+    @GetMapping("/persons/path")
+    public ResponseEntity<CollaborationPath> getCollaborationPath(@RequestParam("from") String from,
+                                                                  @RequestParam("to") String to,
+                                                                  @RequestParam(value = "maxDepth", defaultValue = "6") int maxDepth) {
+        if (maxDepth < 1 || maxDepth > MAX_PATH_DEPTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        CollaborationPath path = imdbService.getCollaborationPath(from, to, maxDepth);
+        if (path == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(path);
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<List<EndpointMetrics>> getEndpointMetrics() {
+        return ResponseEntity.ok(requestCounterService.getEndpointMetrics());
+    }
+
+    @GetMapping("/metrics/response-cache")
+    public ResponseEntity<ResponseCacheStats> getResponseCacheStats() {
+        return ResponseEntity.ok(responseCacheService.getStats());
+    }
+
+    @GetMapping("/metrics/admission")
+    public ResponseEntity<List<AdmissionMetrics>> getAdmissionMetrics() {
+        return ResponseEntity.ok(admissionControlService.getAdmissionMetrics());
+    }
+
     @GetMapping("/metrics/http-requests-count")
     public ResponseEntity<Long> getHttpRequestCount() {
         return ResponseEntity.ok(requestCounterService.getCount());
     }
-}
\ No newline at end of file
+
+    /**
+     * On a coordinator: queries that need every partition's data at once. Any other exception keeps its usual status.
+     */
+    @ExceptionHandler(PartitionQueryUnsupportedException.class)
+    public ResponseEntity<Void> notSupported() {
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+    }
+
+    /**
+     * With lazy cast loading: queries that need a cast index the new generation is still building in the background.
+     */
+    @ExceptionHandler(CastIndexesNotReadyException.class)
+    public ResponseEntity<Void> castIndexesNotReady() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Integer.toString(CAST_INDEXES_RETRY_AFTER_SECONDS))
+                .build();
+    }
+
+    /**
+     * On a coordinator: a partition that is still loading passes its 503 and {@code Retry-After} on; any other
+     * partition failure is a 502.
+     */
+    @ExceptionHandler(RestClientException.class)
+    public ResponseEntity<Void> partitionFailed(RestClientException e) {
+        if (e instanceof RestClientResponseException response && response.getStatusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+            String retryAfter = response.getResponseHeaders() == null ? null : response.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+            ResponseEntity.BodyBuilder unavailable = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE);
+            if (retryAfter != null) {
+                unavailable.header(HttpHeaders.RETRY_AFTER, retryAfter);
+            }
+            return unavailable.build();
+        }
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isRating(Double rating) {
+        return rating == null || (rating >= 0 && rating <= 10);
+    }
+
+    private static boolean isFilterList(List<String> values) {
+        return values == null || (values.size() <= MAX_BATCH_SIZE && values.stream().noneMatch(value -> value == null || value.isBlank()));
+    }
+
+    private static List<String> orEmpty(List<String> values) {
+        return values == null ? List.of() : values;
+    }
+}
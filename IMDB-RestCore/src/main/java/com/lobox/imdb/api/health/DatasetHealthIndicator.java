@@ -0,0 +1,61 @@
+package com.lobox.imdb.api.health;
+
+import com.lobox.imdb.api.model.ReloadStatus;
+import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.store.ImdbDataset;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the {@code dataset} health component: down until the first generation is published, up afterwards.
+ * It is part of the readiness group, so Kubernetes only routes traffic once the data can be queried. A failed
+ * background reload keeps it up, since the previous generation is still served; a failed startup load leaves it down
+ * with state {@code FAILED}, and liveness broken (see {@link DataLoaderService#startLoading()}). A coordinator holds no dataset and
+ * is always up; a partition that cannot answer fails the queries sent to it instead.
+ * <p>
+ * With the cast read on demand, {@code castIndexes} tells whether the background build is done. While a failed build
+ * is retried the component is {@code DEGRADED}, with the error: the queries needing the cast indexes answer 503, the
+ * others are served. The status is not one the readiness group aggregates, so the instance keeps receiving traffic.
+ */
+@Component("dataset")
+public class DatasetHealthIndicator implements HealthIndicator {
+
+    private static final Status DEGRADED = new Status("DEGRADED", "Cast indexes failed to build and are being retried");
+
+    private final DataLoaderService dataLoaderService;
+
+    public DatasetHealthIndicator(DataLoaderService dataLoaderService) {
+        this.dataLoaderService = dataLoaderService;
+    }
+
+    @Override
+    public Health health() {
+        if (!dataLoaderService.holdsData()) {
+            return Health.up().withDetail("role", "coordinator").build();
+        }
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        ReloadStatus status = dataLoaderService.getReloadStatus();
+        Health.Builder health = dataset == null ? Health.down() : Health.up()
+                .withDetail("generation", dataset.generation())
+                .withDetail("titles", dataset.store().titleCount())
+                .withDetail("persons", dataset.store().personCount());
+        if (dataset != null && dataset.store().castOnDemand()) {
+            boolean built = dataset.castIndexes().isBuilt();
+            health.withDetail("castIndexes", built ? "built" : "building");
+            String castIndexError = dataLoaderService.getCastIndexError();
+            if (!built && castIndexError != null) {
+                health.status(DEGRADED).withDetail("castIndexError", castIndexError);
+            }
+        }
+        health.withDetail("state", status.getState());
+        if (status.getPhase() != null) {
+            health.withDetail("phase", status.getPhase());
+        }
+        if (status.getLastError() != null) {
+            health.withDetail("lastError", status.getLastError());
+        }
+        return health.build();
+    }
+}
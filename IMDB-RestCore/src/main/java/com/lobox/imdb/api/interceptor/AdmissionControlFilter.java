@@ -0,0 +1,104 @@
+package com.lobox.imdb.api.interceptor;
+
+import com.lobox.imdb.api.config.AdmissionProperties;
+import com.lobox.imdb.api.service.AdmissionControlService;
+import com.lobox.imdb.api.service.AdmissionControlService.Gate;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Applies {@link AdmissionControlService} limits to the request threads: a request to a limited route runs only
+ * while it holds a permit, and is answered with 503 and {@code Retry-After} when none frees up in time.
+ * <p>
+ * Runs after the response cache, so cached and not-modified responses never wait. Streamed responses keep their
+ * permit until the async request completes.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final AdmissionControlService admissionService;
+    private final AdmissionProperties properties;
+
+    public AdmissionControlFilter(AdmissionControlService admissionService, AdmissionProperties properties) {
+        this.admissionService = admissionService;
+        this.properties = properties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || admissionService.gate(RequestRoutes.route(request)) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String route = RequestRoutes.route(request);
+        Gate gate = admissionService.gate(route);
+        if (!admissionService.tryAcquire(gate)) {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, route);
+            // no error dispatch: the shed request should cost as little as possible and keep its route in the metrics
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(admissionService.retryAfterSeconds()));
+            return;
+        }
+        Release release = new Release(gate);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(release);
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    // Returns the permit exactly once, whichever way the request ends.
+    private static final class Release implements AsyncListener {
+
+        private final Gate gate;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Release(Gate gate) {
+            this.gate = gate;
+        }
+
+        void run() {
+            if (released.compareAndSet(false, true)) {
+                gate.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
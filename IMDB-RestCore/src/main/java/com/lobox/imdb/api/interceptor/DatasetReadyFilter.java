@@ -0,0 +1,50 @@
+package com.lobox.imdb.api.interceptor;
+
+import com.lobox.imdb.api.service.DataLoaderService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Answers data requests with 503 and {@code Retry-After} until the first dataset is published, so clients that
+ * reach the application during an asynchronous startup load are told to come back instead of failing. The admin
+ * and metrics routes stay open to follow the load. Runs right after {@link RequestMetricsFilter}, so the rejected
+ * requests are still counted. A coordinator has no dataset of its own and is never held back.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class DatasetReadyFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/v1/imdb/";
+    private static final int RETRY_AFTER_SECONDS = 5;
+
+    private final DataLoaderService dataLoaderService;
+
+    public DatasetReadyFilter(DataLoaderService dataLoaderService) {
+        this.dataLoaderService = dataLoaderService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!dataLoaderService.holdsData() || dataLoaderService.getDataset() != null) {
+            return true;
+        }
+        String route = RequestRoutes.route(request);
+        return !route.startsWith(API_PREFIX) || route.startsWith(API_PREFIX + "admin")
+                || route.startsWith(API_PREFIX + "metrics");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(RETRY_AFTER_SECONDS));
+    }
+}
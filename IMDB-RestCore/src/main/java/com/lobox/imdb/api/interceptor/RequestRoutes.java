@@ -0,0 +1,19 @@
+package com.lobox.imdb.api.interceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Resolves the route the filters match on the way the handler mapping does: within the application, decoded and
+ * without {@code ;} parameters, so {@code /titles/query;x=1} or a percent-encoded path is the same route as
+ * {@code /titles/query}.
+ */
+final class RequestRoutes {
+
+    private RequestRoutes() {
+    }
+
+    static String route(HttpServletRequest request) {
+        return UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+    }
+}
@@ -0,0 +1,124 @@
+package com.lobox.imdb.api.interceptor;
+
+import com.lobox.imdb.api.config.ResponseCacheProperties;
+import com.lobox.imdb.api.service.HttpRequestCounterService;
+import com.lobox.imdb.api.service.ResponseCacheService;
+import com.lobox.imdb.api.service.ResponseCacheService.CachedResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Serves repeated requests to the cacheable routes from {@link ResponseCacheService}, and answers
+ * {@code If-None-Match} with 304 when the client already has the cached response of the current dataset generation.
+ * <p>
+ * A response can only change when the dataset does, so its ETag is the generation plus the representation: responses
+ * are negotiated (JSON or CBOR), and each has its own validator, as well as its own entry keyed by the
+ * {@code Accept} header.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    // routes without path variables, so the path is also the route pattern
+    private static final Set<String> CACHED_ROUTES = Set.of(
+            "/api/v1/imdb/titles/common-actors",
+            "/api/v1/imdb/titles/best-by-genre");
+
+    private final ResponseCacheService cacheService;
+    private final ResponseCacheProperties properties;
+    private final HttpRequestCounterService counterService;
+
+    public ResponseCacheFilter(ResponseCacheService cacheService, ResponseCacheProperties properties,
+                               HttpRequestCounterService counterService) {
+        this.cacheService = cacheService;
+        this.properties = properties;
+        this.counterService = counterService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || !HttpMethod.GET.matches(request.getMethod())
+                || !CACHED_ROUTES.contains(RequestRoutes.route(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        long generation = cacheService.currentGeneration();
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (generation == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String key = cacheKey(request);
+        CachedResponse cached = cacheService.get(key, generation);
+        if (cached != null) {
+            answeredForHandler(request);
+            if (new ServletWebRequest(request, response).checkNotModified(cacheService.etag(generation, cached.contentType()))) {
+                cacheService.recordNotModified();
+            } else {
+                write(cached, response);
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        int status = wrapper.getStatus();
+        if (status == HttpServletResponse.SC_OK || status == HttpServletResponse.SC_NO_CONTENT) {
+            // the body is still buffered, so the header can follow the negotiated content type
+            wrapper.setHeader(HttpHeaders.ETAG, cacheService.etag(generation, wrapper.getContentType()));
+            cacheService.put(key, new CachedResponse(generation, status, wrapper.getContentType(), wrapper.getContentAsByteArray()));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    // Requests answered here never reach their handler; count them as RequestCounterInterceptor would have, and
+    // record the route for the request metrics.
+    private void answeredForHandler(HttpServletRequest request) {
+        counterService.increment();
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, RequestRoutes.route(request));
+    }
+
+    // Route plus re-encoded parameters in name order, so reordered query strings share an entry and decoded
+    // values cannot forge the key of another request. The Accept header follows the only '#' in the key.
+    private static String cacheKey(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(RequestRoutes.route(request));
+        char separator = '?';
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            for (String value : parameter.getValue()) {
+                key.append(separator).append(URLEncoder.encode(parameter.getKey(), StandardCharsets.UTF_8))
+                        .append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+                separator = '&';
+            }
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept == null ? key.toString() : key.append('#').append(accept).toString();
+    }
+
+    private static void write(CachedResponse cached, HttpServletResponse response) throws IOException {
+        response.setStatus(cached.status());
+        if (cached.contentType() != null) {
+            response.setContentType(cached.contentType());
+        }
+        response.setContentLength(cached.body().length);
+        response.getOutputStream().write(cached.body());
+    }
+}
@@ -0,0 +1,215 @@
+package com.lobox.imdb.api.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Splits TSV files into newline-aligned chunks and parses the chunks in parallel, one {@link TsvRow} cursor per
+ * chunk. Files are memory-mapped chunk by chunk, so files larger than 2 GB are fine and nothing is copied to heap.
+ */
+public final class ChunkedTsvReader {
+
+    private static final long MAX_CHUNK_BYTES = Integer.MAX_VALUE - (1 << 20);
+    // enough to keep every worker busy while the next chunk is read
+    private static final int MAX_PENDING_CHUNKS = Runtime.getRuntime().availableProcessors() + 1;
+    // longest line a stream may have; IMDB lines are well under 64 KB, anything longer is a broken file
+    static final int MAX_LINE_BYTES = 1 << 20;
+
+    @FunctionalInterface
+    public interface RowHandler<C> {
+        void handle(C chunkState, TsvRow row);
+    }
+
+    private ChunkedTsvReader() {
+    }
+
+    public static List<TsvChunk> mapChunks(Path file, long chunkBytes) throws IOException {
+        long targetBytes = Math.max(1, Math.min(chunkBytes, MAX_CHUNK_BYTES));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<TsvChunk> chunks = new ArrayList<>();
+            ByteBuffer probe = ByteBuffer.allocate(64 * 1024);
+            long start = 0;
+            while (start < size) {
+                long end = start + targetBytes >= size ? size : nextLineStart(channel, start + targetBytes, size, probe);
+                chunks.add(new TsvChunk(chunks.size(), start, channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+                start = end;
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * Reads a stream into newline-aligned heap chunks, for sources that cannot be mapped (classpath jars, tests).
+     *
+     * @throws IOException also when a line is longer than {@link #MAX_LINE_BYTES}
+     */
+    public static List<TsvChunk> readChunks(InputStream inputStream, int chunkBytes) throws IOException {
+        List<TsvChunk> chunks = new ArrayList<>();
+        readChunks(inputStream, chunkBytes, chunks::add);
+        return chunks;
+    }
+
+    /**
+     * A one-shot {@link TsvSource} over a stream that hands out each chunk as soon as it has been read, so the
+     * first chunks are parsed while the rest of the stream is still being read or decompressed.
+     */
+    public static TsvSource streamChunks(InputStream inputStream, int chunkBytes) {
+        return consumer -> readChunks(inputStream, chunkBytes, consumer);
+    }
+
+    private static void readChunks(InputStream inputStream, int chunkBytes, Consumer<TsvChunk> consumer) throws IOException {
+        int index = 0;
+        byte[] carry = new byte[0];
+        long offset = 0;
+        try (InputStream in = inputStream) {
+            while (true) {
+                byte[] buffer = new byte[Math.max(chunkBytes, Math.min(carry.length * 2, MAX_LINE_BYTES + 1))];
+                System.arraycopy(carry, 0, buffer, 0, carry.length);
+                int length = carry.length + in.readNBytes(buffer, carry.length, buffer.length - carry.length);
+                if (length == 0) {
+                    break;
+                }
+                boolean last = length < buffer.length;
+                int cut = last ? length : lastLineEnd(buffer, length);
+                if (cut == 0) {
+                    // a single line longer than the buffer, grow and keep reading up to the line limit
+                    if (length > MAX_LINE_BYTES) {
+                        throw new IOException("Line at byte " + offset + " is longer than " + MAX_LINE_BYTES + " bytes");
+                    }
+                    carry = Arrays.copyOf(buffer, length);
+                    continue;
+                }
+                consumer.accept(new TsvChunk(index++, offset, ByteBuffer.wrap(buffer, 0, cut).slice()));
+                offset += cut;
+                carry = Arrays.copyOfRange(buffer, cut, length);
+                if (last) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses every chunk on the executor, skipping the header line of the file, and returns the per-chunk states
+     * in file order so that callers can merge them deterministically.
+     */
+    public static <C> List<C> parse(TsvSource source, ExecutorService executor, Supplier<C> chunkState,
+                                    RowHandler<C> handler) throws IOException, InterruptedException, ExecutionException {
+        return parse(source, executor, chunkState, handler, null);
+    }
+
+    /**
+     * {@link #parse(TsvSource, ExecutorService, Supplier, RowHandler)} that also adds the rows and bytes of every
+     * parsed chunk to {@code progress}, when it is not null.
+     * <p>
+     * Chunks are submitted as the source produces them. At most {@link #MAX_PENDING_CHUNKS} are submitted and not
+     * yet parsed; when the source reads faster than the workers parse, it waits instead of piling heap chunks up.
+     */
+    public static <C> List<C> parse(TsvSource source, ExecutorService executor, Supplier<C> chunkState,
+                                    RowHandler<C> handler, LoadProgress.FileProgress progress)
+            throws IOException, InterruptedException, ExecutionException {
+        List<Future<C>> futures = new ArrayList<>();
+        Semaphore pending = new Semaphore(MAX_PENDING_CHUNKS);
+        try {
+            source.forEachChunk(chunk -> {
+                pending.acquireUninterruptibly();
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            return parseChunk(chunk, chunk.index() == 0, chunkState.get(), handler, progress);
+                        } finally {
+                            pending.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    pending.release();
+                    throw e;
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            futures.forEach(future -> future.cancel(false));
+            throw e;
+        }
+        List<C> states = new ArrayList<>(futures.size());
+        for (Future<C> future : futures) {
+            states.add(future.get());
+        }
+        return states;
+    }
+
+    static <C> C parseChunk(TsvChunk chunk, boolean skipHeader, C state, RowHandler<C> handler,
+                            LoadProgress.FileProgress progress) {
+        ByteBuffer data = chunk.data();
+        int limit = data.limit();
+        TsvRow row = new TsvRow();
+        long rows = 0;
+        int lineStart = skipHeader ? indexOfNewline(data, 0, limit) + 1 : 0;
+        while (lineStart < limit) {
+            int lineEnd = indexOfNewline(data, lineStart, limit);
+            int contentEnd = lineEnd > lineStart && data.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > lineStart) {
+                row.reset(data, lineStart, contentEnd, chunk.offset() + lineStart);
+                handler.handle(state, row);
+                rows++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (progress != null) {
+            progress.addRows(rows);
+            progress.addBytes(limit);
+        }
+        return state;
+    }
+
+    // Returns the index of the next '\n' at or after from, or limit if there is none.
+    private static int indexOfNewline(ByteBuffer data, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (data.get(i) == '\n') {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private static int lastLineEnd(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,507 @@
+package com.lobox.imdb.api.loader;
+
+import com.lobox.imdb.api.store.CastIndexesNotReadyException;
+import com.lobox.imdb.api.store.CsrPostings;
+import com.lobox.imdb.api.store.ImdbStore;
+import com.lobox.imdb.api.store.IntPostings;
+import com.lobox.imdb.api.store.StringDictionary;
+import com.lobox.imdb.api.util.IntArrayList;
+import com.lobox.imdb.api.util.SegmentedLruCache;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * {@link ImdbStore} whose crew and principals stay in their memory-mapped TSV files until they are asked for. Only
+ * a {@link TsvBlockIndex} of each file is built up front; a title's rows are parsed with the rest of their block on
+ * first access and the parsed blocks are kept in a {@link SegmentedLruCache} bounded by bytes. Everything else
+ * comes from the eagerly loaded store passed in, which is expected to hold no crew or principals.
+ * <p>
+ * The person side of the principals cannot be located by tconst, so {@link #personTitles()} is built once by
+ * {@link #buildPersonTitles()}, parsing the whole principals file, and throws {@link CastIndexesNotReadyException}
+ * until then. Rows that do not parse are skipped without the eager loader's warnings.
+ */
+@Slf4j
+public final class LazyCastStore implements ImdbStore {
+
+    private final ImdbStore base;
+    private final CastFile crew;
+    private final CastFile principals;
+    // key: file id << 32 | block
+    private final SegmentedLruCache<Long, CastBlock> cache;
+    private final IntPostings directors;
+    private final IntPostings writers;
+    private final IntPostings principalIds;
+    private volatile CsrPostings personTitles;
+
+    private LazyCastStore(ImdbStore base, TsvBlockIndex crewIndex, TsvBlockIndex principalsIndex, long cacheBytes) {
+        this.base = base;
+        this.crew = new CastFile(0, crewIndex, false);
+        this.principals = new CastFile(1, principalsIndex, true);
+        this.cache = new SegmentedLruCache<>(cacheBytes, CastBlock::bytes);
+        this.directors = crew.column(0);
+        this.writers = crew.column(1);
+        this.principalIds = principals.column(0);
+    }
+
+    /**
+     * Indexes title.crew.tsv and title.principals.tsv for {@code base}, which must hold every other file.
+     */
+    public static LazyCastStore open(ImdbStore base, Path crewFile, Path principalsFile, int blockBytes, long cacheBytes)
+            throws IOException {
+        return new LazyCastStore(base, TsvBlockIndex.build(crewFile, blockBytes),
+                TsvBlockIndex.build(principalsFile, blockBytes), cacheBytes);
+    }
+
+    @Override
+    public boolean castOnDemand() {
+        return true;
+    }
+
+    /**
+     * Parsed blocks currently cached, and their estimated bytes.
+     */
+    public long cachedBlocks() {
+        return cache.size();
+    }
+
+    public long cachedBytes() {
+        return cache.weight();
+    }
+
+    @Override
+    public IntPostings directors() {
+        return directors;
+    }
+
+    @Override
+    public IntPostings writers() {
+        return writers;
+    }
+
+    @Override
+    public IntPostings principals() {
+        return principalIds;
+    }
+
+    @Override
+    public IntPostings personTitles() {
+        CsrPostings postings = personTitles;
+        if (postings == null) {
+            throw new CastIndexesNotReadyException();
+        }
+        return postings;
+    }
+
+    @Override
+    public synchronized void buildPersonTitles() {
+        if (personTitles == null) {
+            long start = System.currentTimeMillis();
+            CsrPostings postings = groupPersonTitles();
+            personTitles = postings;
+            log.info("Built person titles from title.principals.tsv in {} ms: {} pairs.",
+                    System.currentTimeMillis() - start, postings.valueCount());
+        }
+    }
+
+    // Same grouping as ColumnarStoreBuilder.build, from the (nconst, title) pairs of every principals block.
+    private CsrPostings groupPersonTitles() {
+        long[][] blockPairs = new long[principals.index.blockCount()][];
+        IntStream.range(0, blockPairs.length).parallel().forEach(b -> {
+            CastBlock block = cache.get(principals.key(b));
+            blockPairs[b] = (block == null ? principals.parse(b) : block).nconstTitlePairs();
+        });
+        long size = 0;
+        for (long[] part : blockPairs) {
+            size += part.length;
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many principals: " + size);
+        }
+        long[] pairs = new long[(int) size];
+        int offset = 0;
+        for (long[] part : blockPairs) {
+            System.arraycopy(part, 0, pairs, offset, part.length);
+            offset += part.length;
+        }
+        return CsrPostings.byPersonRow(pairs, base);
+    }
+
+    /**
+     * Crew and principals are reported as their block indexes plus whatever is parsed at the moment.
+     */
+    @Override
+    public Map<String, Long> estimatedBytes() {
+        Map<String, Long> bytes = new LinkedHashMap<>(base.estimatedBytes());
+        CsrPostings builtPersonTitles = personTitles;
+        bytes.put("crew", crew.index.estimatedBytes());
+        bytes.put("principals", principals.index.estimatedBytes() + (builtPersonTitles == null ? 0 : builtPersonTitles.estimatedBytes()));
+        bytes.put("castCache", cache.weight());
+        return bytes;
+    }
+
+    /**
+     * One indexed file. Crew blocks have the directors and writers columns in file order; principal blocks have one
+     * column of ascending, distinct nconst ids, as the eager store keeps them.
+     */
+    private final class CastFile {
+
+        private final int id;
+        private final TsvBlockIndex index;
+        private final boolean principals;
+        // last block looked up, so that scans in title order skip the cache
+        private volatile CastBlock recent;
+
+        CastFile(int id, TsvBlockIndex index, boolean principals) {
+            this.id = id;
+            this.index = index;
+            this.principals = principals;
+        }
+
+        long key(int block) {
+            return (long) id << 32 | block;
+        }
+
+        CastBlock block(int block) {
+            CastBlock cached = recent;
+            if (cached != null && cached.block() == block) {
+                return cached;
+            }
+            cached = cache.get(key(block));
+            if (cached == null) {
+                cached = parse(block);
+                cache.put(key(block), cached);
+            }
+            recent = cached;
+            return cached;
+        }
+
+        CastBlock parse(int block) {
+            int columns = principals ? 1 : 2;
+            CastBlock.Builder builder = new CastBlock.Builder(block, columns);
+            ChunkedTsvReader.parseChunk(index.block(block), false, builder, (state, row) -> {
+                if (row.fieldCount() < 3) {
+                    return;
+                }
+                int titleRow = base.titleRow(row.imdbId(0, 't', 't'));
+                if (titleRow == NOT_FOUND) {
+                    return;
+                }
+                if (principals) {
+                    int nconstId = row.imdbId(2, 'n', 'm');
+                    if (nconstId >= 0) {
+                        state.add(titleRow, 0, nconstId);
+                    }
+                } else {
+                    state.addAll(titleRow, 0, row.imdbIds(1, 'n', 'm'));
+                    state.addAll(titleRow, 1, row.imdbIds(2, 'n', 'm'));
+                }
+            }, null);
+            return builder.build(principals);
+        }
+
+        int[] values(int titleRow, int column) {
+            int tconstId = base.tconstId(titleRow);
+            int first = index.firstBlock(tconstId);
+            int last = index.lastBlock(tconstId);
+            if (first == last) {
+                return block(first).values(titleRow, column);
+            }
+            int[] values = new int[0];
+            for (int b = first; b <= last; b++) {
+                int[] part = block(b).values(titleRow, column);
+                if (part.length > 0) {
+                    int length = values.length;
+                    values = Arrays.copyOf(values, length + part.length);
+                    System.arraycopy(part, 0, values, length, part.length);
+                }
+            }
+            if (principals && values.length > 1) {
+                values = IntStream.of(values).sorted().distinct().toArray();
+            }
+            return values;
+        }
+
+        // a title within one block, as almost all are, is read in place; one straddling blocks is merged
+        int length(int titleRow, int column) {
+            int tconstId = base.tconstId(titleRow);
+            int first = index.firstBlock(tconstId);
+            if (first == index.lastBlock(tconstId)) {
+                return block(first).length(titleRow, column);
+            }
+            return values(titleRow, column).length;
+        }
+
+        int get(int titleRow, int column, int i) {
+            int tconstId = base.tconstId(titleRow);
+            int first = index.firstBlock(tconstId);
+            if (first == index.lastBlock(tconstId)) {
+                return block(first).get(titleRow, column, i);
+            }
+            return values(titleRow, column)[i];
+        }
+
+        IntPostings column(int column) {
+            return new IntPostings() {
+                @Override
+                public int keyCount() {
+                    return base.titleCount();
+                }
+
+                @Override
+                public int length(int key) {
+                    return CastFile.this.length(key, column);
+                }
+
+                @Override
+                public int get(int key, int index) {
+                    return CastFile.this.get(key, column, index);
+                }
+
+                @Override
+                public int[] toArray(int key) {
+                    return values(key, column);
+                }
+            };
+        }
+    }
+
+    /**
+     * Parsed rows of one block: ascending title rows, and per column the values of each title in CSR form.
+     */
+    private record CastBlock(int block, int[] titleRows, int[][] offsets, int[][] values) {
+
+        int[] values(int titleRow, int column) {
+            int key = Arrays.binarySearch(titleRows, titleRow);
+            if (key < 0) {
+                return new int[0];
+            }
+            return Arrays.copyOfRange(values[column], offsets[column][key], offsets[column][key + 1]);
+        }
+
+        int length(int titleRow, int column) {
+            int key = Arrays.binarySearch(titleRows, titleRow);
+            return key < 0 ? 0 : offsets[column][key + 1] - offsets[column][key];
+        }
+
+        int get(int titleRow, int column, int index) {
+            int key = Arrays.binarySearch(titleRows, titleRow);
+            if (key < 0) {
+                throw new IndexOutOfBoundsException("Title row " + titleRow + " has no values in block " + block);
+            }
+            return values[column][offsets[column][key] + index];
+        }
+
+        // (nconst id, title row) pairs of the single principals column, packed for sorting by nconst
+        long[] nconstTitlePairs() {
+            long[] pairs = new long[values[0].length];
+            for (int key = 0; key < titleRows.length; key++) {
+                for (int i = offsets[0][key]; i < offsets[0][key + 1]; i++) {
+                    pairs[i] = CsrPostings.pack(values[0][i], titleRows[key]);
+                }
+            }
+            return pairs;
+        }
+
+        int bytes() {
+            long bytes = 64 + 4L * titleRows.length;
+            for (int column = 0; column < values.length; column++) {
+                bytes += 4L * offsets[column].length + 4L * values[column].length;
+            }
+            return (int) Math.min(bytes, Integer.MAX_VALUE);
+        }
+
+        static final class Builder {
+
+            private final int block;
+            private final IntArrayList titleRows = new IntArrayList();
+            private final IntArrayList[] offsets;
+            private final IntArrayList[] values;
+
+            Builder(int block, int columns) {
+                this.block = block;
+                this.offsets = new IntArrayList[columns];
+                this.values = new IntArrayList[columns];
+                for (int column = 0; column < columns; column++) {
+                    offsets[column] = new IntArrayList();
+                    values[column] = new IntArrayList();
+                }
+            }
+
+            void add(int titleRow, int column, int value) {
+                startTitle(titleRow);
+                values[column].add(value);
+            }
+
+            void addAll(int titleRow, int column, int[] ids) {
+                startTitle(titleRow);
+                for (int id : ids) {
+                    values[column].add(id);
+                }
+            }
+
+            // rows of a title are adjacent, so a new title row closes the previous one
+            private void startTitle(int titleRow) {
+                if (titleRows.isEmpty() || titleRows.get(titleRows.size() - 1) != titleRow) {
+                    titleRows.add(titleRow);
+                    for (int column = 0; column < values.length; column++) {
+                        offsets[column].add(values[column].size());
+                    }
+                }
+            }
+
+            CastBlock build(boolean sortUnique) {
+                int[][] builtOffsets = new int[values.length][];
+                int[][] builtValues = new int[values.length][];
+                for (int column = 0; column < values.length; column++) {
+                    offsets[column].add(values[column].size());
+                    builtOffsets[column] = offsets[column].toArray();
+                    builtValues[column] = values[column].toArray();
+                    if (sortUnique) {
+                        sortUnique(builtOffsets[column], builtValues[column]);
+                    }
+                }
+                return new CastBlock(block, titleRows.toArray(), builtOffsets, builtValues);
+            }
+
+            // sorts and de-duplicates each title's values in place, as CsrPostings.fromPackedPairs does
+            private static void sortUnique(int[] offsets, int[] values) {
+                int write = 0;
+                for (int key = 0; key + 1 < offsets.length; key++) {
+                    int start = offsets[key];
+                    int end = offsets[key + 1];
+                    Arrays.sort(values, start, end);
+                    offsets[key] = write;
+                    for (int i = start; i < end; i++) {
+                        if (write == offsets[key] || values[write - 1] != values[i]) {
+                            values[write++] = values[i];
+                        }
+                    }
+                }
+                offsets[offsets.length - 1] = write;
+            }
+        }
+    }
+
+    // Everything else is the eagerly loaded store
+
+    @Override
+    public int titleCount() {
+        return base.titleCount();
+    }
+
+    @Override
+    public int personCount() {
+        return base.personCount();
+    }
+
+    @Override
+    public int titleRow(int tconstId) {
+        return base.titleRow(tconstId);
+    }
+
+    @Override
+    public int personRow(int nconstId) {
+        return base.personRow(nconstId);
+    }
+
+    @Override
+    public int tconstId(int titleRow) {
+        return base.tconstId(titleRow);
+    }
+
+    @Override
+    public int titleTypeCode(int titleRow) {
+        return base.titleTypeCode(titleRow);
+    }
+
+    @Override
+    public StringDictionary titleTypes() {
+        return base.titleTypes();
+    }
+
+    @Override
+    public String primaryTitle(int titleRow) {
+        return base.primaryTitle(titleRow);
+    }
+
+    @Override
+    public String originalTitle(int titleRow) {
+        return base.originalTitle(titleRow);
+    }
+
+    @Override
+    public boolean isAdult(int titleRow) {
+        return base.isAdult(titleRow);
+    }
+
+    @Override
+    public int startYear(int titleRow) {
+        return base.startYear(titleRow);
+    }
+
+    @Override
+    public int endYear(int titleRow) {
+        return base.endYear(titleRow);
+    }
+
+    @Override
+    public int runtimeMinutes(int titleRow) {
+        return base.runtimeMinutes(titleRow);
+    }
+
+    @Override
+    public long genreMask(int titleRow) {
+        return base.genreMask(titleRow);
+    }
+
+    @Override
+    public StringDictionary genres() {
+        return base.genres();
+    }
+
+    @Override
+    public float averageRating(int titleRow) {
+        return base.averageRating(titleRow);
+    }
+
+    @Override
+    public int numVotes(int titleRow) {
+        return base.numVotes(titleRow);
+    }
+
+    @Override
+    public int nconstId(int personRow) {
+        return base.nconstId(personRow);
+    }
+
+    @Override
+    public String primaryName(int personRow) {
+        return base.primaryName(personRow);
+    }
+
+    @Override
+    public int birthYear(int personRow) {
+        return base.birthYear(personRow);
+    }
+
+    @Override
+    public int deathYear(int personRow) {
+        return base.deathYear(personRow);
+    }
+
+    @Override
+    public String primaryProfession(int personRow) {
+        return base.primaryProfession(personRow);
+    }
+
+    @Override
+    public IntPostings knownForTitles() {
+        return base.knownForTitles();
+    }
+}
@@ -0,0 +1,156 @@
+package com.lobox.imdb.api.loader;
+
+import com.lobox.imdb.api.model.LoaderFileStats;
+import com.lobox.imdb.api.model.LoaderStageStats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of one load: rows, bytes and parse errors per file, and the wall time of each stage. Parser
+ * workers update the counters while the admin endpoint reads them, so everything here is safe to share.
+ */
+public final class LoadProgress {
+
+    private final Map<String, FileProgress> files = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    public LoadProgress(List<String> fileNames) {
+        fileNames.forEach(this::file);
+    }
+
+    public FileProgress file(String name) {
+        return files.computeIfAbsent(name, FileProgress::new);
+    }
+
+    /**
+     * Ends the running stage, if any, and starts the next one.
+     */
+    public synchronized void stage(String name) {
+        endStage();
+        stages.add(new Stage(name, System.currentTimeMillis()));
+    }
+
+    public synchronized void endStage() {
+        if (!stages.isEmpty()) {
+            stages.get(stages.size() - 1).end();
+        }
+    }
+
+    public String currentStage() {
+        if (stages.isEmpty()) {
+            return null;
+        }
+        Stage last = stages.get(stages.size() - 1);
+        return last.endedAt == 0 ? last.name : null;
+    }
+
+    public List<LoaderFileStats> fileStats() {
+        synchronized (files) {
+            List<LoaderFileStats> stats = new ArrayList<>(files.size());
+            files.values().forEach(file -> stats.add(file.stats()));
+            return stats;
+        }
+    }
+
+    public List<LoaderStageStats> stageStats() {
+        List<LoaderStageStats> stats = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            long endedAt = stage.endedAt;
+            stats.add(new LoaderStageStats(stage.name, stage.startedAt,
+                    (endedAt == 0 ? System.currentTimeMillis() : endedAt) - stage.startedAt, endedAt == 0));
+        }
+        return stats;
+    }
+
+    private static final class Stage {
+
+        private final String name;
+        private final long startedAt;
+        private volatile long endedAt;
+
+        private Stage(String name, long startedAt) {
+            this.name = name;
+            this.startedAt = startedAt;
+        }
+
+        private void end() {
+            if (endedAt == 0) {
+                endedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Counters of one source file. Chunked parsers report rows and bytes once per chunk; parse errors are counted
+     * as they happen.
+     */
+    public static final class FileProgress {
+
+        private final String name;
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder parseErrors = new LongAdder();
+        private volatile long totalBytes = -1;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+
+        private FileProgress(String name) {
+            this.name = name;
+        }
+
+        public void start() {
+            startedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * Marks the file done; a source whose size was not known up front gets the bytes read as its total.
+         */
+        public void finish() {
+            if (totalBytes < 0) {
+                totalBytes = bytesRead.sum();
+            }
+            finishedAt = System.currentTimeMillis();
+        }
+
+        public void setTotalBytes(long totalBytes) {
+            this.totalBytes = totalBytes;
+        }
+
+        public void addRows(long count) {
+            rows.add(count);
+        }
+
+        public void addBytes(long count) {
+            bytesRead.add(count);
+        }
+
+        public void parseError() {
+            parseErrors.increment();
+        }
+
+        public long rows() {
+            return rows.sum();
+        }
+
+        public long parseErrors() {
+            return parseErrors.sum();
+        }
+
+        LoaderFileStats stats() {
+            long started = startedAt;
+            long finished = finishedAt;
+            LoaderFileStats.State state = started == 0 ? LoaderFileStats.State.PENDING
+                    : finished == 0 ? LoaderFileStats.State.RUNNING : LoaderFileStats.State.DONE;
+            long wallMs = started == 0 ? 0 : (finished == 0 ? System.currentTimeMillis() : finished) - started;
+            long rowCount = rows.sum();
+            return new LoaderFileStats(name, state, totalBytes, bytesRead.sum(), rowCount, parseErrors.sum(), wallMs,
+                    wallMs == 0 ? 0 : rowCount * 1000 / wallMs);
+        }
+    }
+}
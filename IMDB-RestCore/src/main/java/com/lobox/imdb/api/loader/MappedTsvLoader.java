@@ -0,0 +1,149 @@
+package com.lobox.imdb.api.loader;
+
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Parses the five IMDB TSV files from newline-aligned chunks on a worker pool, one {@link ColumnarStoreBuilder}
+ * chunk per slice, and merges the slices into the target builder in file order. Chunks of streamed sources are
+ * parsed while the rest of the file is still being read.
+ */
+@Slf4j
+public final class MappedTsvLoader {
+
+    private final ExecutorService executor;
+    private final LoadProgress progress;
+    private final TitlePartition partition;
+
+    public MappedTsvLoader(ExecutorService executor) {
+        this(executor, new LoadProgress(List.of()));
+    }
+
+    /**
+     * Reports rows, bytes and parse errors of every file to {@code progress}.
+     */
+    public MappedTsvLoader(ExecutorService executor, LoadProgress progress) {
+        this(executor, progress, TitlePartition.ALL);
+    }
+
+    /**
+     * Keeps only the titles of {@code partition}; rows of the other files that refer to other titles are skipped.
+     */
+    public MappedTsvLoader(ExecutorService executor, LoadProgress progress, TitlePartition partition) {
+        this.executor = executor;
+        this.progress = progress;
+        this.partition = partition;
+    }
+
+    public void loadPersons(TsvSource source, ColumnarStoreBuilder builder) throws IOException, InterruptedException, ExecutionException {
+        LoadProgress.FileProgress file = progress.file("name.basics.tsv");
+        List<ColumnarStoreBuilder> parts = ChunkedTsvReader.parse(source, executor, builder::newChunk, (chunk, row) -> {
+            if (row.fieldCount() < 6) {
+                file.parseError();
+                log.warn("Skipping malformed line at byte {} in name.basics.tsv. Expected 6 fields, got {}: {}", row.position(), row.fieldCount(), row);
+                return;
+            }
+            try {
+                int nconstId = row.imdbId(0, 'n', 'm');
+                if (nconstId < 0) {
+                    file.parseError();
+                    log.warn("Skipping line at byte {} in name.basics.tsv with invalid nconst: {}", row.position(), row);
+                    return;
+                }
+                chunk.addPerson(nconstId, row.string(1), row.intField(2), row.intField(3), row.strings(4), row.imdbIds(5, 't', 't'));
+            } catch (NumberFormatException e) {
+                file.parseError();
+                log.error("NumberFormatException at byte {} in name.basics.tsv: {}. Full line: {}", row.position(), e.getMessage(), row);
+            }
+        }, file);
+        parts.forEach(builder::appendPersons);
+    }
+
+    public void loadTitlesBasics(TsvSource source, ColumnarStoreBuilder builder) throws IOException, InterruptedException, ExecutionException {
+        LoadProgress.FileProgress file = progress.file("title.basics.tsv");
+        List<ColumnarStoreBuilder> parts = ChunkedTsvReader.parse(source, executor, builder::newChunk, (chunk, row) -> {
+            if (row.fieldCount() < 9) {
+                file.parseError();
+                log.warn("Skipping malformed line at byte {} in title.basics.tsv. Expected 9 fields, got {}: {}", row.position(), row.fieldCount(), row);
+                return;
+            }
+            try {
+                int tconstId = row.imdbId(0, 't', 't');
+                if (tconstId < 0) {
+                    file.parseError();
+                    log.warn("Skipping line at byte {} in title.basics.tsv with invalid tconst: {}", row.position(), row);
+                    return;
+                }
+                if (!partition.contains(tconstId)) {
+                    return;
+                }
+                chunk.addTitle(tconstId, row.string(1), row.string(2), row.string(3), row.isByte(4, '1'),
+                        row.intField(5), row.intField(6), row.intField(7), row.strings(8));
+            } catch (NumberFormatException e) {
+                file.parseError();
+                log.error("NumberFormatException at byte {} in title.basics.tsv: {}. Full line: {}", row.position(), e.getMessage(), row);
+            }
+        }, file);
+        parts.forEach(builder::appendTitles);
+    }
+
+    public void loadTitlesCrew(TsvSource source, ColumnarStoreBuilder builder) throws IOException, InterruptedException, ExecutionException {
+        LoadProgress.FileProgress file = progress.file("title.crew.tsv");
+        List<ColumnarStoreBuilder> parts = ChunkedTsvReader.parse(source, executor, builder::newChunk, (chunk, row) -> {
+            if (row.fieldCount() < 3) {
+                file.parseError();
+                log.warn("Skipping malformed line at byte {} in title.crew.tsv. Expected 3 fields, got {}: {}", row.position(), row.fieldCount(), row);
+                return;
+            }
+            int titleRow = builder.titleRow(row.imdbId(0, 't', 't'));
+            if (titleRow != ImdbStore.NOT_FOUND) {
+                chunk.addCrew(titleRow, row.imdbIds(1, 'n', 'm'), row.imdbIds(2, 'n', 'm'));
+            }
+        }, file);
+        parts.forEach(builder::appendCrew);
+    }
+
+    public void loadTitlesPrincipals(TsvSource source, ColumnarStoreBuilder builder) throws IOException, InterruptedException, ExecutionException {
+        LoadProgress.FileProgress file = progress.file("title.principals.tsv");
+        List<ColumnarStoreBuilder> parts = ChunkedTsvReader.parse(source, executor, builder::newChunk, (chunk, row) -> {
+            if (row.fieldCount() < 3) {
+                file.parseError();
+                log.warn("Skipping malformed line at byte {} in title.principals.tsv. Expected at least 3 fields, got {}: {}", row.position(), row.fieldCount(), row);
+                return;
+            }
+            int titleRow = builder.titleRow(row.imdbId(0, 't', 't'));
+            int nconstId = row.imdbId(2, 'n', 'm');
+            if (titleRow != ImdbStore.NOT_FOUND && nconstId >= 0) {
+                chunk.addPrincipal(titleRow, nconstId);
+            }
+        }, file);
+        parts.forEach(builder::appendPrincipals);
+    }
+
+    public void loadTitlesRatings(TsvSource source, ColumnarStoreBuilder builder) throws IOException, InterruptedException, ExecutionException {
+        LoadProgress.FileProgress file = progress.file("title.ratings.tsv");
+        // rows of different chunks never share a title, so the workers can write the rating columns directly
+        ChunkedTsvReader.parse(source, executor, () -> builder, (target, row) -> {
+            if (row.fieldCount() < 3) {
+                file.parseError();
+                log.warn("Skipping malformed line at byte {} in title.ratings.tsv. Expected 3 fields, got {}: {}", row.position(), row.fieldCount(), row);
+                return;
+            }
+            try {
+                int titleRow = target.titleRow(row.imdbId(0, 't', 't'));
+                if (titleRow != ImdbStore.NOT_FOUND) {
+                    target.setRating(titleRow, row.floatField(1), row.intField(2));
+                }
+            } catch (NumberFormatException e) {
+                file.parseError();
+                log.error("NumberFormatException at byte {} in title.ratings.tsv: {}. Full line: {}", row.position(), e.getMessage(), row);
+            }
+        }, file);
+    }
+}
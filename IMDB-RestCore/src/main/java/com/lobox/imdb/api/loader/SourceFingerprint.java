@@ -0,0 +1,62 @@
+package com.lobox.imdb.api.loader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Identifies a set of source files by name, size, modification time and content hash. By default the hash covers
+ * the first and last MiB of each file, which catches a replaced dump without reading gigabytes on every boot.
+ */
+public final class SourceFingerprint {
+
+    private static final int SAMPLE_BYTES = 1 << 20;
+
+    private SourceFingerprint() {
+    }
+
+    public static String of(List<Path> files, boolean fullHash) throws IOException {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Path file : files) {
+            long size = Files.size(file);
+            fingerprint.append(file.getFileName()).append(':')
+                    .append(size).append(':')
+                    .append(Files.getLastModifiedTime(file).toMillis()).append(':')
+                    .append(Long.toHexString(hash(file, size, fullHash))).append(';');
+        }
+        return fingerprint.toString();
+    }
+
+    private static long hash(Path file, long size, boolean fullHash) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SAMPLE_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (fullHash || size <= 2L * SAMPLE_BYTES) {
+                update(channel, crc, buffer, 0, size);
+            } else {
+                update(channel, crc, buffer, 0, SAMPLE_BYTES);
+                update(channel, crc, buffer, size - SAMPLE_BYTES, size);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void update(FileChannel channel, CRC32C crc, ByteBuffer buffer, long from, long to) throws IOException {
+        long position = from;
+        while (position < to) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), to - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            buffer.flip();
+            crc.update(buffer);
+            position += read;
+        }
+    }
+}
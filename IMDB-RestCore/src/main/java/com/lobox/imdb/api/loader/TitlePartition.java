@@ -0,0 +1,37 @@
+package com.lobox.imdb.api.loader;
+
+/**
+ * One of {@code count} hash partitions of the titles by tconst. A partitioned instance loads only the titles of
+ * its partition, and the crew, principal and rating rows of other titles are dropped with them since they no longer
+ * resolve to a title row. Persons are loaded in full by every partition, so names and death years resolve
+ * everywhere.
+ */
+public record TitlePartition(int index, int count) {
+
+    public static final TitlePartition ALL = new TitlePartition(0, 1);
+
+    public TitlePartition {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid title partition " + index + " of " + count);
+        }
+    }
+
+    public boolean contains(int tconstId) {
+        return count == 1 || Math.floorMod(mix(tconstId), count) == index;
+    }
+
+    public boolean isPartial() {
+        return count > 1;
+    }
+
+    // Consecutive tconsts are often episodes of one series, so ids are mixed before taking the remainder
+    private static int mix(int tconstId) {
+        int hash = tconstId * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "partition " + index + " of " + count;
+    }
+}
@@ -0,0 +1,137 @@
+package com.lobox.imdb.api.loader;
+
+import com.lobox.imdb.api.util.IntArrayList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sparse tconst -> file offset index of a TSV file whose rows are sorted by the tconst in their first column, as
+ * title.crew.tsv and title.principals.tsv are. The file is memory-mapped and cut at line starts into blocks of about
+ * {@code blockBytes}, keeping only the first tconst of each block; building reads one line per block. The rows of
+ * a title are in the last block starting at or before its tconst, and in the block before that too when they
+ * straddle the boundary.
+ */
+public final class TsvBlockIndex {
+
+    // mapped regions are newline-aligned and addressed by int, see ChunkedTsvReader.mapChunks
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final List<TsvChunk> segments;
+    // per block: its segment, where it starts and ends in the segment, and the tconst id of its first row
+    private final int[] segmentOf;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] firstTconstIds;
+    private final long fileBytes;
+
+    private TsvBlockIndex(List<TsvChunk> segments, int[] segmentOf, int[] starts, int[] ends, int[] firstTconstIds,
+                          long fileBytes) {
+        this.segments = segments;
+        this.segmentOf = segmentOf;
+        this.starts = starts;
+        this.ends = ends;
+        this.firstTconstIds = firstTconstIds;
+        this.fileBytes = fileBytes;
+    }
+
+    /**
+     * Maps {@code file} and indexes it, skipping the header line.
+     *
+     * @throws IllegalStateException when a block does not start with a tconst or the blocks are not in tconst order
+     */
+    public static TsvBlockIndex build(Path file, int blockBytes) throws IOException {
+        List<TsvChunk> segments = ChunkedTsvReader.mapChunks(file, SEGMENT_BYTES);
+        IntArrayList segmentOf = new IntArrayList();
+        IntArrayList starts = new IntArrayList();
+        IntArrayList ends = new IntArrayList();
+        IntArrayList firstTconstIds = new IntArrayList();
+        TsvRow row = new TsvRow();
+        for (TsvChunk segment : segments) {
+            ByteBuffer data = segment.data();
+            int limit = data.limit();
+            int start = segment.index() == 0 ? lineEnd(data, 0, limit) + 1 : 0;
+            while (start < limit) {
+                int end = limit - start <= blockBytes ? limit : Math.min(limit, lineEnd(data, start + blockBytes, limit) + 1);
+                int firstLineEnd = lineEnd(data, start, end);
+                row.reset(data, start, firstLineEnd > start && data.get(firstLineEnd - 1) == '\r' ? firstLineEnd - 1 : firstLineEnd,
+                        segment.offset() + start);
+                int tconstId = row.imdbId(0, 't', 't');
+                if (tconstId < 0) {
+                    throw new IllegalStateException(file + ": no tconst at byte " + row.position());
+                }
+                if (!firstTconstIds.isEmpty() && tconstId < firstTconstIds.get(firstTconstIds.size() - 1)) {
+                    throw new IllegalStateException(file + " is not sorted by tconst at byte " + row.position());
+                }
+                segmentOf.add(segment.index());
+                starts.add(start);
+                ends.add(end);
+                firstTconstIds.add(tconstId);
+                start = end;
+            }
+        }
+        return new TsvBlockIndex(segments, segmentOf.toArray(), starts.toArray(), ends.toArray(),
+                firstTconstIds.toArray(), Files.size(file));
+    }
+
+    public int blockCount() {
+        return firstTconstIds.length;
+    }
+
+    /**
+     * First block that may hold rows of {@code tconstId}; greater than {@link #lastBlock} when none does.
+     */
+    public int firstBlock(int tconstId) {
+        return Math.max(0, lowerBound(tconstId) - 1);
+    }
+
+    /**
+     * Last block that may hold rows of {@code tconstId}, or -1 when it sorts before every block.
+     */
+    public int lastBlock(int tconstId) {
+        return lowerBound(tconstId + 1) - 1;
+    }
+
+    /**
+     * The rows of one block, ready for {@link ChunkedTsvReader#parseChunk}; the header is never part of a block.
+     */
+    public TsvChunk block(int block) {
+        TsvChunk segment = segments.get(segmentOf[block]);
+        int start = starts[block];
+        return new TsvChunk(block, segment.offset() + start, segment.data().slice(start, ends[block] - start));
+    }
+
+    public long fileBytes() {
+        return fileBytes;
+    }
+
+    public long estimatedBytes() {
+        return 16L * firstTconstIds.length;
+    }
+
+    // index of the first block whose first tconst is at least tconstId
+    private int lowerBound(int tconstId) {
+        int index = Arrays.binarySearch(firstTconstIds, tconstId);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && firstTconstIds[index - 1] == tconstId) {
+            index--;
+        }
+        return index;
+    }
+
+    // index of the '\n' ending the line at from, or limit
+    private static int lineEnd(ByteBuffer data, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (data.get(i) == '\n') {
+                return i;
+            }
+        }
+        return limit;
+    }
+}
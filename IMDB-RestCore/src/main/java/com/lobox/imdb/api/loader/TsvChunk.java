@@ -0,0 +1,10 @@
+package com.lobox.imdb.api.loader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A newline-aligned slice of a TSV file. {@code data} is addressed from 0 to its limit, {@code offset} is
+ * where the slice starts in the file.
+ */
+public record TsvChunk(int index, long offset, ByteBuffer data) {
+}
@@ -0,0 +1,219 @@
+package com.lobox.imdb.api.loader;
+
+import com.lobox.imdb.api.util.PostingLists;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable cursor over one line of an IMDB TSV file, read straight from the underlying bytes.
+ * IMDB files are not quoted and mark missing values with {@code \N}.
+ */
+public final class TsvRow {
+
+    private static final int MAX_FIELDS = 32;
+
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+    private byte[] scratch = new byte[256];
+    private ByteBuffer buffer;
+    private int lineStart;
+    private int lineEnd;
+    private int fieldCount;
+    private long position;
+
+    void reset(ByteBuffer buffer, int lineStart, int lineEnd, long position) {
+        this.buffer = buffer;
+        this.lineStart = lineStart;
+        this.lineEnd = lineEnd;
+        this.position = position;
+        int count = 0;
+        int start = lineStart;
+        for (int i = lineStart; i < lineEnd && count < MAX_FIELDS - 1; i++) {
+            if (buffer.get(i) == '\t') {
+                starts[count] = start;
+                ends[count] = i;
+                count++;
+                start = i + 1;
+            }
+        }
+        starts[count] = start;
+        ends[count] = lineEnd;
+        fieldCount = count + 1;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Byte offset of this line in its file, for error reporting.
+     */
+    public long position() {
+        return position;
+    }
+
+    public boolean isNull(int field) {
+        int start = starts[field];
+        int length = ends[field] - start;
+        return length == 0 || (length == 2 && buffer.get(start) == '\\' && buffer.get(start + 1) == 'N');
+    }
+
+    public boolean isByte(int field, char value) {
+        return ends[field] - starts[field] == 1 && buffer.get(starts[field]) == value;
+    }
+
+    /**
+     * Parses a decimal int, returning 0 for missing values.
+     */
+    public int intField(int field) {
+        if (isNull(field)) {
+            return 0;
+        }
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            throw numberFormat(field);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+                throw numberFormat(field);
+            }
+            value = value * 10 + digit;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw numberFormat(field);
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Parses a plain decimal such as "7.4", returning 0 for missing values.
+     */
+    public float floatField(int field) {
+        if (isNull(field)) {
+            return 0f;
+        }
+        long mantissa = 0;
+        int scale = -1;
+        for (int i = starts[field]; i < ends[field]; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b >= '0' && b <= '9' && mantissa < 100_000_000_000L) {
+                mantissa = mantissa * 10 + (b - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                // exponents and other rare shapes
+                return Float.parseFloat(string(field));
+            }
+        }
+        return (float) (mantissa / Math.pow(10, Math.max(scale, 0)));
+    }
+
+    /**
+     * Parses an IMDB identifier such as "tt0000001" into its numeric suffix, or -1 if malformed.
+     */
+    public int imdbId(int field, char first, char second) {
+        return imdbId(starts[field], ends[field], first, second);
+    }
+
+    /**
+     * Parses a comma separated identifier list such as "nm0000001,nm0000002". Malformed entries are skipped.
+     */
+    public int[] imdbIds(int field, char first, char second) {
+        if (isNull(field)) {
+            return PostingLists.EMPTY;
+        }
+        int count = 1;
+        for (int i = starts[field]; i < ends[field]; i++) {
+            if (buffer.get(i) == ',') {
+                count++;
+            }
+        }
+        int[] ids = new int[count];
+        int size = 0;
+        int start = starts[field];
+        for (int i = start; i <= ends[field]; i++) {
+            if (i == ends[field] || buffer.get(i) == ',') {
+                int id = imdbId(start, i, first, second);
+                if (id >= 0) {
+                    ids[size++] = id;
+                }
+                start = i + 1;
+            }
+        }
+        return size == count ? ids : Arrays.copyOf(ids, size);
+    }
+
+    public String string(int field) {
+        return isNull(field) ? null : decode(starts[field], ends[field]);
+    }
+
+    /**
+     * Splits a comma separated field into strings, or returns null when the field is missing.
+     */
+    public String[] strings(int field) {
+        if (isNull(field)) {
+            return null;
+        }
+        int count = 1;
+        for (int i = starts[field]; i < ends[field]; i++) {
+            if (buffer.get(i) == ',') {
+                count++;
+            }
+        }
+        String[] values = new String[count];
+        int index = 0;
+        int start = starts[field];
+        for (int i = start; i <= ends[field]; i++) {
+            if (i == ends[field] || buffer.get(i) == ',') {
+                values[index++] = decode(start, i);
+                start = i + 1;
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return decode(lineStart, lineEnd);
+    }
+
+    private int imdbId(int start, int end, char first, char second) {
+        if (end - start < 3 || buffer.get(start) != first || buffer.get(start + 1) != second) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start + 2; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private String decode(int start, int end) {
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private NumberFormatException numberFormat(int field) {
+        return new NumberFormatException("For input string: \"" + decode(starts[field], ends[field]) + "\"");
+    }
+}
@@ -0,0 +1,19 @@
+package com.lobox.imdb.api.loader;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The newline-aligned chunks of one TSV file, handed out in file order as they become available, so parsing can
+ * start before a streamed file has been read to the end. A streamed source can only be walked once.
+ */
+@FunctionalInterface
+public interface TsvSource {
+
+    void forEachChunk(Consumer<TsvChunk> consumer) throws IOException;
+
+    static TsvSource of(List<TsvChunk> chunks) {
+        return chunks::forEach;
+    }
+}
@@ -0,0 +1,108 @@
+package com.lobox.imdb.api.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets: each power of two of microseconds is split into eight
+ * buckets, so a reported quantile is within 12.5% of the true value. Buckets and maximum are striped cells, so
+ * threads recording the same route concurrently do not contend on one cache line; once the cells exist, recording
+ * never allocates.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // covers up to 2^40 us (about 12 days); larger values land in the last bucket
+    private static final int MAX_POWER = 40;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_POWER - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts[bucket(micros)].increment();
+        max.accumulate(micros);
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int power = 63 - Long.numberOfLeadingZeros(micros);
+        if (power > MAX_POWER) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (power - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (power - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    // largest value that maps to the bucket
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts[i].sum();
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, max.get());
+    }
+
+    /**
+     * Point-in-time copy of the buckets; concurrent recordings may be partially included.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long total;
+        private final long maxMicros;
+
+        private Snapshot(long[] counts, long total, long maxMicros) {
+            this.counts = counts;
+            this.total = total;
+            this.maxMicros = maxMicros;
+        }
+
+        public long count() {
+            return total;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile, in microseconds, capped at the recorded maximum.
+         */
+        public long quantileMicros(double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(rank, 1)) {
+                    return Math.min(upperBound(i), maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+
+        public long maxMicros() {
+            return maxMicros;
+        }
+    }
+}
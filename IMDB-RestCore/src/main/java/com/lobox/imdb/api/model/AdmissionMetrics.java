@@ -0,0 +1,20 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdmissionMetrics {
+    private String route;
+    private int limit;
+    private int inFlight;
+    private int queued;
+    private long admitted;
+    // turned away because the queue was full
+    private long rejected;
+    // gave up waiting in the queue
+    private long timedOut;
+}
@@ -0,0 +1,13 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoStar {
+    private Person person;
+    private int sharedTitles;
+}
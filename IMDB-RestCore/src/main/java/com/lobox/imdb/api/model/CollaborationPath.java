@@ -0,0 +1,17 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CollaborationPath {
+    private int degrees;
+    private List<Person> persons;
+    // titles.get(i) links persons.get(i) and persons.get(i + 1)
+    private List<Title> titles;
+}
@@ -0,0 +1,21 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EndpointMetrics {
+    private String method;
+    private String route;
+    private long count;
+    private Map<Integer, Long> statusCounts;
+    private double p50Ms;
+    private double p90Ms;
+    private double p99Ms;
+    private double maxMs;
+}
@@ -0,0 +1,25 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoaderFileStats {
+
+    public enum State {
+        PENDING, RUNNING, DONE
+    }
+
+    private String file;
+    private State state;
+    // -1 when the size of the source is not known up front
+    private long totalBytes;
+    private long bytesRead;
+    private long rows;
+    private long parseErrors;
+    private long wallMs;
+    private long rowsPerSecond;
+}
@@ -0,0 +1,15 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoaderStageStats {
+    private String stage;
+    private long startedAt;
+    private long wallMs;
+    private boolean running;
+}
@@ -0,0 +1,26 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoaderStatus {
+    private long generation;
+    private ReloadStatus.State state;
+    private String trigger;
+    private String stage;
+    private Long startedAt;
+    private List<LoaderFileStats> files;
+    private List<LoaderStageStats> stages;
+    // estimated heap bytes per structure of the generation being served, by structure name; offHeapText is the
+    // direct memory of titles and names in off-heap text storage
+    private Map<String, Long> memoryBytes;
+    private long heapUsedBytes;
+    private long heapMaxBytes;
+}
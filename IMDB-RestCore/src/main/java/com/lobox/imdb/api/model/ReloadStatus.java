@@ -0,0 +1,28 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReloadStatus {
+
+    public enum State {
+        IDLE, LOADING, FAILED
+    }
+
+    // generation currently served; increases by one on every successful load
+    private long generation;
+    private State state;
+    private String trigger;
+    private String phase;
+    private int filesLoaded;
+    private int fileCount;
+    private Long startedAt;
+    private Long lastCompletedAt;
+    private Long lastDurationMs;
+    private String lastSource;
+    private String lastError;
+}
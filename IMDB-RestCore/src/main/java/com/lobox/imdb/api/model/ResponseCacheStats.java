@@ -0,0 +1,20 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResponseCacheStats {
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long notModified;
+    private long invalidations;
+    private long entries;
+    private long bytes;
+    private long maxBytes;
+}
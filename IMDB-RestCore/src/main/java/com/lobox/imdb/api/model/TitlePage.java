@@ -0,0 +1,16 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TitlePage {
+    private List<Title> titles;
+    // tconst to pass as the next cursor, null on the last page
+    private String nextCursor;
+}
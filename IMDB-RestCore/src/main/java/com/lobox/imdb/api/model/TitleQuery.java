@@ -0,0 +1,42 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Filters, sort and size of a {@code /titles/query} request. Empty lists and null bounds do not filter.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TitleQuery {
+
+    public enum Sort {
+        VOTES, RATING, YEAR
+    }
+
+    public enum GenreMatch {
+        ALL, ANY
+    }
+
+    private List<String> genres = List.of();
+    private GenreMatch genreMatch = GenreMatch.ALL;
+    // titles of any of these types
+    private List<String> titleTypes = List.of();
+    private Integer fromYear;
+    private Integer toYear;
+    private Boolean adult;
+    private int minVotes;
+    private Double minRating;
+    private Double maxRating;
+    // each listed person must have directed, written or played in the title
+    private List<String> directors = List.of();
+    private List<String> writers = List.of();
+    private List<String> actors = List.of();
+    private Sort sort = Sort.VOTES;
+    private boolean ascending;
+    private int k = 10;
+}
@@ -0,0 +1,19 @@
+package com.lobox.imdb.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TitleQueryResult {
+    private List<Title> titles;
+    // titles left by the bitmap filters and checked one by one
+    private long candidates;
+    // candidates that passed the vote and rating bounds and were offered to the top-k heap
+    private long matches;
+    private double elapsedMs;
+}
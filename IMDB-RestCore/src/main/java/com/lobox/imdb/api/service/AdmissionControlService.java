@@ -0,0 +1,103 @@
+package com.lobox.imdb.api.service;
+
+import com.lobox.imdb.api.config.AdmissionProperties;
+import com.lobox.imdb.api.model.AdmissionMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-route concurrency limits for the expensive endpoints. A request either gets a permit, waits a bounded time
+ * in a bounded queue for one, or is turned away, so a burst on one route cannot take every request thread and
+ * starve the cheap lookups.
+ */
+@Service
+@Slf4j
+public class AdmissionControlService {
+
+    private final AdmissionProperties properties;
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+
+    public AdmissionControlService(AdmissionProperties properties) {
+        this.properties = properties;
+        properties.getLimits().forEach((route, limit) -> gates.put(route, new Gate(Math.max(1, limit))));
+        log.info("Admission limits: {}", properties.getLimits());
+    }
+
+    /**
+     * Returns the gate of a limited route, or null if the route is not limited.
+     */
+    public Gate gate(String route) {
+        return gates.get(route);
+    }
+
+    public int retryAfterSeconds() {
+        return properties.getRetryAfterSeconds();
+    }
+
+    /**
+     * Waits up to the queue timeout for a permit of the gate. A true result must be paired with
+     * {@link Gate#release()}.
+     */
+    public boolean tryAcquire(Gate gate) {
+        if (gate.permits.tryAcquire()) {
+            gate.admitted.increment();
+            return true;
+        }
+        if (gate.queued.incrementAndGet() > properties.getQueueCapacity()) {
+            gate.queued.decrementAndGet();
+            gate.rejected.increment();
+            return false;
+        }
+        try {
+            if (gate.permits.tryAcquire(properties.getQueueTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                gate.admitted.increment();
+                return true;
+            }
+            gate.timedOut.increment();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            gate.timedOut.increment();
+            return false;
+        } finally {
+            gate.queued.decrementAndGet();
+        }
+    }
+
+    public List<AdmissionMetrics> getAdmissionMetrics() {
+        List<AdmissionMetrics> result = new ArrayList<>();
+        gates.forEach((route, gate) -> result.add(new AdmissionMetrics(route, gate.limit,
+                gate.limit - gate.permits.availablePermits(), gate.queued.get(), gate.admitted.sum(),
+                gate.rejected.sum(), gate.timedOut.sum())));
+        result.sort((a, b) -> a.getRoute().compareTo(b.getRoute()));
+        return result;
+    }
+
+    public static final class Gate {
+
+        private final int limit;
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+
+        private Gate(int limit) {
+            this.limit = limit;
+            this.permits = new Semaphore(limit, true);
+        }
+
+        public void release() {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.lobox.imdb.api.service;
+
+import com.lobox.imdb.api.config.LoaderProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Triggers a background reload once the data files have stopped changing for the configured quiet period.
+ * Disabled unless {@code imdb.loader.reload.watch-files} is set and the files live on the filesystem.
+ */
+@Service
+@Slf4j
+public class DataFileWatcher {
+
+    private final DataLoaderService dataLoaderService;
+    private final LoaderProperties properties;
+    private WatchService watchService;
+    private Thread watchThread;
+
+    public DataFileWatcher(DataLoaderService dataLoaderService, LoaderProperties properties) {
+        this.dataLoaderService = dataLoaderService;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.getReload().isWatchFiles()) {
+            return;
+        }
+        List<Path> files = dataLoaderService.resolveDataFiles();
+        if (files.isEmpty()) {
+            log.warn("Data file watching disabled: the data files are not on the filesystem.");
+            return;
+        }
+        Set<Path> fileNames = new HashSet<>();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            Set<Path> directories = new HashSet<>();
+            for (Path file : files) {
+                fileNames.add(file.getFileName());
+                if (directories.add(file.getParent())) {
+                    file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                }
+            }
+            log.info("Watching {} for data file changes.", directories);
+        } catch (IOException e) {
+            log.warn("Data file watching disabled: {}", e.getMessage());
+            return;
+        }
+        watchThread = new Thread(() -> watch(fileNames), "imdb-data-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void watch(Set<Path> fileNames) {
+        long debounceMs = properties.getReload().getWatchDebounceMs();
+        long lastChange = 0;
+        boolean pending = false;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = pending ? watchService.poll(debounceMs, TimeUnit.MILLISECONDS) : watchService.take();
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileNames.contains((Path) event.context())) {
+                            pending = true;
+                            lastChange = System.currentTimeMillis();
+                        }
+                    }
+                    key.reset();
+                } else if (pending && System.currentTimeMillis() - lastChange >= debounceMs) {
+                    // a load in progress keeps the change pending until the next quiet period
+                    pending = !dataLoaderService.triggerReload("file watch");
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.debug("Data file watcher stopped.");
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
@@ -1,251 +1,894 @@
 package com.lobox.imdb.api.service;
 
-import com.lobox.imdb.api.model.Person;
-import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.config.CoordinatorProperties;
+import com.lobox.imdb.api.config.LoaderProperties;
+import com.lobox.imdb.api.loader.ChunkedTsvReader;
+import com.lobox.imdb.api.loader.LazyCastStore;
+import com.lobox.imdb.api.loader.LoadProgress;
+import com.lobox.imdb.api.loader.MappedTsvLoader;
+import com.lobox.imdb.api.loader.SourceFingerprint;
+import com.lobox.imdb.api.loader.TitlePartition;
+import com.lobox.imdb.api.loader.TsvSource;
+import com.lobox.imdb.api.model.LoaderStatus;
+import com.lobox.imdb.api.model.ReloadStatus;
+import com.lobox.imdb.api.store.ColumnarImdbStore;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbDataset;
+import com.lobox.imdb.api.store.ImdbStore;
+import com.lobox.imdb.api.store.StoreSnapshot;
+import com.lobox.imdb.api.util.ImdbIds;
 import com.opencsv.CSVParser;
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
 import com.opencsv.exceptions.CsvValidationException;
 import jakarta.annotation.PostConstruct;
-import lombok.Data;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPInputStream;
 
 @Service
 @Slf4j
-@Data
 public class DataLoaderService {
 
-    private final Map<String, Person> persons = new ConcurrentHashMap<>(2_000_000);
-    private final Map<String, Title> titles = new ConcurrentHashMap<>(10_000_000);
-    private final Map<String, List<String>> titleDirectors = new ConcurrentHashMap<>(10_000_000);
-    private final Map<String, List<String>> titleWriters = new ConcurrentHashMap<>(10_000_000);
-    private final Map<String, Set<String>> titleActors = new ConcurrentHashMap<>(20_000_000);
-    private final ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    private static final List<String> DATA_FILES = List.of("title.basics.tsv", "name.basics.tsv", "title.crew.tsv",
+            "title.principals.tsv", "title.ratings.tsv");
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final int GZIP_BUFFER_BYTES = 1 << 16;
+    private static final long CAST_INDEX_RETRY_MIN_MS = 1_000;
+    private static final long CAST_INDEX_RETRY_MAX_MS = 60_000;
 
+    // the published generation; readers take it once per query and keep a consistent view while a reload swaps it
+    private final AtomicReference<ImdbDataset> dataset = new AtomicReference<>();
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "imdb-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // builds the cast indexes of a generation loaded with a LazyCastStore after it is published, and retries failures
+    private final ScheduledExecutorService castIndexExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "imdb-cast-indexes");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+    private final LoaderProperties properties;
+    private final TitlePartition partition;
+    private final boolean coordinator;
+    private final ApplicationEventPublisher eventPublisher;
+    // set when the startup load failed before any generation was published, until a later load succeeds
+    private volatile boolean livenessBroken;
+    // created per load and shut down when it ends, so nothing lingers between reloads
+    private ExecutorService executorService;
+    // chunk parsing runs on its own pool, the file-level tasks above block on it
+    private ExecutorService parseExecutorService;
+    private MappedTsvLoader mappedLoader;
+
+    // progress of the running or last load, see getReloadStatus()
+    private volatile ReloadStatus.State state = ReloadStatus.State.IDLE;
+    private volatile String trigger;
+    private volatile String phase;
+    private final AtomicInteger filesLoaded = new AtomicInteger();
+    private volatile Long startedAt;
+    private volatile Long lastCompletedAt;
+    private volatile Long lastDurationMs;
+    private volatile String lastSource;
+    private volatile String lastError;
+    // why the last cast index build of the served generation failed, until a retry succeeds or a new one is published
+    private volatile String castIndexError;
+    // rows, bytes, errors and stage timings of the running or last load, see getLoaderStatus()
+    private volatile LoadProgress progress = new LoadProgress(DATA_FILES);
+
+    public DataLoaderService(LoaderProperties properties) {
+        this(properties, new CoordinatorProperties(), event -> {
+        });
+    }
+
+    /**
+     * A coordinator ({@code imdb.coordinator.enabled}) never loads data; its queries go to the partitions.
+     * {@code eventPublisher} receives the liveness changes of a failed startup load.
+     */
+    @Autowired
+    public DataLoaderService(LoaderProperties properties, CoordinatorProperties coordinatorProperties,
+                             ApplicationEventPublisher eventPublisher) {
+        this.properties = properties;
+        this.partition = new TitlePartition(properties.getPartition().getIndex(), properties.getPartition().getCount());
+        this.coordinator = coordinatorProperties.isEnabled();
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Loads the first generation. With {@code imdb.loader.async-startup} the load runs in the background, so the
+     * application starts listening right away: {@code /admin/loader} shows its progress, data endpoints answer 503
+     * and the readiness probe stays down until the dataset is published. If that load fails the state stays
+     * {@code FAILED} and liveness turns {@code BROKEN}, so the orchestrator restarts the instance instead of leaving
+     * it up without data; a successful {@code /admin/reload} in the meantime restores it. A failing synchronous
+     * load stops the application.
+     */
     @PostConstruct
+    public void startLoading() {
+        if (coordinator) {
+            log.info("Running as coordinator: no data is loaded, queries are sent to the partitions.");
+        } else if (!properties.isAsyncStartup()) {
+            loadData();
+        } else if (!submitLoad("startup", properties.getParallelism())) {
+            throw new IllegalStateException("Could not start loading IMDB data");
+        }
+    }
+
+    /**
+     * Loads a generation on the calling thread and returns once it is published.
+     */
     public void loadData() {
-        long startTime = System.currentTimeMillis();
-        log.info("Starting data loading...");
+        if (!loading.compareAndSet(false, true)) {
+            throw new IllegalStateException("IMDB data is already being loaded");
+        }
+        try {
+            loadGeneration("startup", properties.getParallelism());
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    /**
+     * Starts building a new generation in the background and returns immediately. Queries keep being served from
+     * the current generation until the new one is swapped in; if the reload fails the current one stays.
+     *
+     * @return false when a load is already running
+     */
+    public boolean triggerReload(String reason) {
+        return submitLoad(reason, properties.getReload().getParallelism());
+    }
 
+    private boolean submitLoad(String reason, int parallelism) {
+        if (coordinator) {
+            log.info("Ignoring reload requested by {}: a coordinator holds no data.", reason);
+            return false;
+        }
+        if (!loading.compareAndSet(false, true)) {
+            log.info("Ignoring reload requested by {}: a load is already running.", reason);
+            return false;
+        }
         try {
-            log.info("Submitting loadTitlesBasics task...");
-            Future<Void> titlesBasicsFuture = executorService.submit(() -> {
-                loadTitlesBasics();
-                return null;
-            });
-            titlesBasicsFuture.get();
-            log.info("Finished loading basic titles. Proceeding with dependent tasks...");
-            List<Callable<Void>> dependentTasks = List.of(() -> {
-                loadPersons();
-                return null;
-            }, () -> {
-                loadTitlesCrew();
-                return null;
-            }, () -> {
-                loadTitlesPrincipals();
-                return null;
-            }, () -> {
-                loadTitlesRatings();
-                return null;
+            reloadExecutor.execute(() -> {
+                try {
+                    loadGeneration(reason, parallelism);
+                } catch (RuntimeException e) {
+                    if (dataset.get() == null) {
+                        log.error("Load requested by {} failed with no dataset published, marking liveness broken: {}", reason, e.getMessage());
+                        livenessBroken = true;
+                        AvailabilityChangeEvent.publish(eventPublisher, this, LivenessState.BROKEN);
+                    } else {
+                        log.error("Load requested by {} failed, still serving generation {}: {}", reason, currentGeneration(), e.getMessage());
+                    }
+                } finally {
+                    loading.set(false);
+                }
             });
-            List<Future<Void>> futures = executorService.invokeAll(dependentTasks);
-            for (Future<Void> future : futures) {
-                future.get();
+        } catch (RejectedExecutionException e) {
+            loading.set(false);
+            log.warn("Reload requested by {} rejected: {}", reason, e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private void loadGeneration(String reason, int parallelism) {
+        long startTime = System.currentTimeMillis();
+        String source = "snapshot";
+        trigger = reason;
+        startedAt = startTime;
+        state = ReloadStatus.State.LOADING;
+        filesLoaded.set(0);
+        progress = new LoadProgress(DATA_FILES);
+        executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, DATA_FILES.size())));
+        parseExecutorService = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        mappedLoader = new MappedTsvLoader(parseExecutorService, progress, partition);
+        ImdbDataset next;
+
+        try {
+            stage("checking snapshot");
+            List<Path> castFiles = lazyCastFiles();
+            String fingerprint = castFiles == null ? snapshotFingerprint() : null;
+            ColumnarImdbStore loaded = fingerprint == null ? null : readSnapshot(fingerprint);
+            if (loaded == null) {
+                source = "TSV files";
+                ColumnarImdbStore ingested = ingestTsvFiles(castFiles == null);
+                if (fingerprint != null) {
+                    stage("writing snapshot");
+                    writeSnapshot(ingested, fingerprint);
+                }
+                loaded = ingested;
+            }
+            if (properties.getTextStorage() == LoaderProperties.TextStorage.OFF_HEAP) {
+                stage("moving text off-heap");
+                long textStart = System.currentTimeMillis();
+                loaded = loaded.withOffHeapText();
+                log.info("Moved titles and names off-heap in {} ms: {} bytes.", System.currentTimeMillis() - textStart,
+                        loaded.estimatedBytes().get("offHeapText"));
+            }
+            ImdbStore store = loaded;
+            if (castFiles != null) {
+                stage("indexing cast files");
+                long castStart = System.currentTimeMillis();
+                LoaderProperties.LazyCast lazyCast = properties.getLazyCast();
+                store = LazyCastStore.open(loaded, castFiles.get(0), castFiles.get(1), lazyCast.getBlockBytes(),
+                        lazyCast.getCacheMaxBytes());
+                filesLoaded.addAndGet(castFiles.size());
+                log.info("Indexed {} in {} ms; their rows are parsed on first access.", castFiles,
+                        System.currentTimeMillis() - castStart);
+            }
+            stage("building derived indexes");
+            long indexStart = System.currentTimeMillis();
+            next = ImdbDataset.of(currentGeneration() + 1, store, properties.getCoStarSearchScratches());
+            if (next.castIndexes().isBuilt()) {
+                log.info("Built derived indexes in {} ms. Leaderboard: {} bytes, co-star graph: {} edges, {} bytes, "
+                                + "search: {} title and {} person bytes",
+                        System.currentTimeMillis() - indexStart, next.leaderboard().estimatedBytes(),
+                        next.coStarGraph().edgeCount(), next.coStarGraph().estimatedBytes(),
+                        next.titleSearch().estimatedBytes(), next.personSearch().estimatedBytes());
+            } else {
+                log.info("Built derived indexes in {} ms. Leaderboard: {} bytes, title search: {} bytes; the cast "
+                                + "indexes are built in the background once it is published.",
+                        System.currentTimeMillis() - indexStart, next.leaderboard().estimatedBytes(),
+                        next.titleSearch().estimatedBytes());
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             log.error("Data loading interrupted: {}", e.getMessage(), e);
-            throw new RuntimeException("Data loading was interrupted", e);
+            throw failed(new RuntimeException("Data loading was interrupted", e));
         } catch (ExecutionException e) {
             log.error("Error during parallel data loading: {}", e.getCause().getMessage(), e.getCause());
-            throw new RuntimeException("Failed to load IMDB data", e.getCause());
+            throw failed(new RuntimeException("Failed to load IMDB data", e.getCause()));
         } catch (Exception e) {
             log.error("An unexpected error occurred during data loading: {}", e.getMessage(), e);
-            throw new RuntimeException("An unexpected error occurred during IMDB data loading", e);
+            throw failed(new RuntimeException("An unexpected error occurred during IMDB data loading", e));
         } finally {
-            executorService.shutdown();
-            try {
-                if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                    log.warn("Executor service did not terminate in the specified time.");
-                    executorService.shutdownNow();
+            progress.endStage();
+            builder = null;
+            shutdown(executorService);
+            shutdown(parseExecutorService);
+        }
+        dataset.set(next);
+        castIndexError = null;
+        long duration = System.currentTimeMillis() - startTime;
+        lastCompletedAt = System.currentTimeMillis();
+        lastDurationMs = duration;
+        lastSource = source;
+        lastError = null;
+        phase = null;
+        state = ReloadStatus.State.IDLE;
+        if (livenessBroken) {
+            livenessBroken = false;
+            AvailabilityChangeEvent.publish(eventPublisher, this, LivenessState.CORRECT);
+        }
+        log.info("Data loading complete in {} ms from {}. Generation: {}, Persons: {}, Titles: {}", duration, source, next.generation(), next.store().personCount(), next.store().titleCount());
+        if (!next.castIndexes().isBuilt()) {
+            buildCastIndexesInBackground(next);
+        }
+    }
+
+    private void buildCastIndexesInBackground(ImdbDataset published) {
+        castIndexExecutor.execute(() -> buildCastIndexes(published, 0));
+    }
+
+    // A failed build is retried with doubling delays for as long as the generation is served, since the queries
+    // needing the cast indexes are answered with 503 until it succeeds.
+    private void buildCastIndexes(ImdbDataset published, int failures) {
+        // a newer generation replaced this one before its turn came
+        if (dataset.get() != published) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            published.castIndexes().buildAll();
+            castIndexError = null;
+            log.info("Built cast indexes of generation {} in {} ms", published.generation(),
+                    System.currentTimeMillis() - start);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            // what the failed attempt allocated is garbage now, so a later attempt may fit in memory
+            if (dataset.get() != published) {
+                return;
+            }
+            long delayMs = Math.min(CAST_INDEX_RETRY_MAX_MS, CAST_INDEX_RETRY_MIN_MS << Math.min(failures, 16));
+            castIndexError = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            log.error("Building cast indexes of generation {} failed, retrying in {} ms: {}", published.generation(),
+                    delayMs, e.getMessage(), e);
+            castIndexExecutor.schedule(() -> buildCastIndexes(published, failures + 1), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void stage(String name) {
+        phase = name;
+        progress.stage(name);
+    }
+
+    private RuntimeException failed(RuntimeException e) {
+        lastError = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        state = ReloadStatus.State.FAILED;
+        return e;
+    }
+
+    public ImdbDataset getDataset() {
+        return dataset.get();
+    }
+
+    /**
+     * Why building the cast indexes of the served generation last failed, while it is being retried; null otherwise.
+     */
+    public String getCastIndexError() {
+        return castIndexError;
+    }
+
+    /**
+     * False on a coordinator, which never has a dataset of its own.
+     */
+    public boolean holdsData() {
+        return !coordinator;
+    }
+
+    public ImdbStore getStore() {
+        ImdbDataset current = dataset.get();
+        return current == null ? null : current.store();
+    }
+
+    public long currentGeneration() {
+        ImdbDataset current = dataset.get();
+        return current == null ? 0 : current.generation();
+    }
+
+    public ReloadStatus getReloadStatus() {
+        return new ReloadStatus(currentGeneration(), state, trigger, phase, filesLoaded.get(), DATA_FILES.size(),
+                startedAt, lastCompletedAt, lastDurationMs, lastSource, lastError);
+    }
+
+    /**
+     * Per-file and per-stage progress of the running or last load, and the estimated memory of the generation
+     * being served, measured now: the co-star search scratches and a cast read on demand grow with use.
+     */
+    public LoaderStatus getLoaderStatus() {
+        LoadProgress current = progress;
+        Runtime runtime = Runtime.getRuntime();
+        ImdbDataset serving = dataset.get();
+        Map<String, Long> bytes = serving != null ? serving.estimatedBytes() : Map.of();
+        return new LoaderStatus(currentGeneration(), state, trigger, current.currentStage(), startedAt,
+                current.fileStats(), current.stageStats(), bytes, runtime.totalMemory() - runtime.freeMemory(),
+                runtime.maxMemory());
+    }
+
+    /**
+     * Data files that exist on the filesystem, for change watching.
+     */
+    public List<Path> resolveDataFiles() {
+        List<Path> files = new ArrayList<>();
+        for (String dataFile : DATA_FILES) {
+            Path file = resolveDataFile(dataFile);
+            if (file != null) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    @PreDestroy
+    public void shutdownReloads() {
+        reloadExecutor.shutdownNow();
+        castIndexExecutor.shutdownNow();
+    }
+
+    // with withCast unset, title.crew.tsv and title.principals.tsv are left to a LazyCastStore
+    private ColumnarImdbStore ingestTsvFiles(boolean withCast) throws InterruptedException, ExecutionException {
+        log.info("Starting data loading with the {} parser{}...", properties.getParser(), partition.isPartial() ? ", " + partition : "");
+        builder = new ColumnarStoreBuilder();
+        stage("parsing title.basics.tsv");
+        log.info("Submitting loadTitlesBasics task...");
+        Future<Void> titlesBasicsFuture = executorService.submit(() -> {
+            loadTitlesBasics();
+            filesLoaded.incrementAndGet();
+            return null;
+        });
+        titlesBasicsFuture.get();
+        stage("parsing dependent files");
+        log.info("Finished loading basic titles. Proceeding with dependent tasks...");
+        List<Callable<Void>> dependentTasks = new ArrayList<>();
+        dependentTasks.add(() -> {
+            loadPersons();
+            filesLoaded.incrementAndGet();
+            return null;
+        });
+        if (withCast) {
+            dependentTasks.add(() -> {
+                loadTitlesCrew();
+                filesLoaded.incrementAndGet();
+                return null;
+            });
+            dependentTasks.add(() -> {
+                loadTitlesPrincipals();
+                filesLoaded.incrementAndGet();
+                return null;
+            });
+        }
+        dependentTasks.add(() -> {
+            loadTitlesRatings();
+            filesLoaded.incrementAndGet();
+            return null;
+        });
+        List<Future<Void>> futures = executorService.invokeAll(dependentTasks);
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        stage("building columnar store");
+        log.info("Building columnar store...");
+        return builder.build();
+    }
+
+    /**
+     * Fingerprints the five source files, or returns null when snapshots are disabled or some file is not on the
+     * filesystem (classpath jars, test streams) and so cannot be checked for changes.
+     */
+    private String snapshotFingerprint() {
+        if (!properties.getSnapshot().isEnabled()) {
+            return null;
+        }
+        List<Path> files = new ArrayList<>();
+        for (String dataFile : DATA_FILES) {
+            Path file = resolveDataFile(dataFile);
+            if (file == null) {
+                log.info("Snapshot disabled: {} is not a filesystem file.", dataFile);
+                return null;
+            }
+            files.add(file);
+        }
+        try {
+            String fingerprint = SourceFingerprint.of(files, properties.getSnapshot().isFullSourceHash());
+            return partition.isPartial() ? fingerprint + "/" + partition.index() + "-of-" + partition.count() : fingerprint;
+        } catch (IOException e) {
+            log.warn("Could not fingerprint data files, snapshot disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * title.crew.tsv and title.principals.tsv when they are to be read on demand, or null to load them with the
+     * other files.
+     */
+    private List<Path> lazyCastFiles() {
+        if (!properties.getLazyCast().isEnabled()) {
+            return null;
+        }
+        Path crew = resolveDataFile("title.crew.tsv");
+        Path principals = resolveDataFile("title.principals.tsv");
+        if (crew == null || principals == null || isCompressed(crew) || isCompressed(principals)) {
+            log.warn("Lazy cast loading needs title.crew.tsv and title.principals.tsv as plain files on the filesystem; loading them eagerly.");
+            return null;
+        }
+        return List.of(crew, principals);
+    }
+
+    private ColumnarImdbStore readSnapshot(String fingerprint) {
+        Path snapshotFile = snapshotPath();
+        long start = System.currentTimeMillis();
+        try {
+            Optional<ColumnarImdbStore> snapshot = StoreSnapshot.read(snapshotFile, fingerprint);
+            snapshot.ifPresent(s -> log.info("Loaded snapshot {} in {} ms.", snapshotFile, System.currentTimeMillis() - start));
+            return snapshot.orElse(null);
+        } catch (IOException e) {
+            log.warn("Discarding unreadable snapshot {}: {}", snapshotFile, e.getMessage());
+            return null;
+        }
+    }
+
+    // partitions started from the same directory must not overwrite each other's snapshot
+    private Path snapshotPath() {
+        String path = properties.getSnapshot().getPath();
+        return Path.of(partition.isPartial() ? path + "." + partition.index() + "-of-" + partition.count() : path);
+    }
+
+    private void writeSnapshot(ColumnarImdbStore ingested, String fingerprint) {
+        Path snapshotFile = snapshotPath();
+        long start = System.currentTimeMillis();
+        try {
+            StoreSnapshot.write(ingested, fingerprint, snapshotFile);
+            log.info("Wrote snapshot {} in {} ms.", snapshotFile, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.warn("Could not write snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    private static void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.warn("Executor service did not terminate in the specified time.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Executor service termination interrupted.", e);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Resolves a data file to a filesystem path, the plain {@code .tsv} or else its {@code .tsv.gz} dump, or returns
+     * null when it is not on the filesystem. With {@code imdb.loader.data-dir} set only that directory is searched,
+     * otherwise {@code imdbData/} on the classpath.
+     */
+    public Path resolveDataFile(String path) {
+        String dataDir = properties.getDataDir();
+        for (String name : List.of(path, path + GZIP_SUFFIX)) {
+            if (dataDir != null && !dataDir.isBlank()) {
+                Path file = Path.of(dataDir, name);
+                if (Files.isRegularFile(file)) {
+                    return file;
+                }
+                continue;
+            }
+            URL url = getClass().getClassLoader().getResource("imdbData/" + name);
+            if (url != null && "file".equals(url.getProtocol())) {
+                try {
+                    return Path.of(url.toURI());
+                } catch (URISyntaxException e) {
+                    return null;
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.warn("Executor service termination interrupted.", e);
-                executorService.shutdownNow();
             }
         }
-        log.info("Data loading complete in {} ms. Persons: {}, Titles: {}", System.currentTimeMillis() - startTime, persons.size(), titles.size());
+        return null;
     }
 
+    private static boolean isCompressed(Path file) {
+        return file.getFileName().toString().endsWith(GZIP_SUFFIX);
+    }
+
+    // plain files are memory-mapped; streams, compressed dumps among them, are parsed while they are still being
+    // read, so decompression on this thread overlaps with parsing on the worker pool
+    private TsvSource openChunks(String path) throws IOException {
+        Path file = resolveDataFile(path);
+        if (file != null && !isCompressed(file)) {
+            progress.file(path).setTotalBytes(Files.size(file));
+            return TsvSource.of(ChunkedTsvReader.mapChunks(file, properties.getChunkSizeBytes()));
+        }
+        return ChunkedTsvReader.streamChunks(getResourceStream(path), properties.getStreamChunkSizeBytes());
+    }
+
+    // the OpenCSV readers only see characters, so bytes are counted on the way in
+    private InputStream countingStream(String path, LoadProgress.FileProgress file) throws IOException {
+        Path resolved = resolveDataFile(path);
+        if (resolved != null && !isCompressed(resolved)) {
+            file.setTotalBytes(Files.size(resolved));
+        }
+        return new FilterInputStream(getResourceStream(path)) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    file.addBytes(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    file.addBytes(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    private boolean useMappedParser() {
+        return properties.getParser() == LoaderProperties.Parser.MAPPED;
+    }
+
+    /**
+     * Opens a data file as an uncompressed stream, from the filesystem when {@link #resolveDataFile} finds it and
+     * from the classpath otherwise. {@code .tsv.gz} dumps are decompressed on the fly.
+     */
     public InputStream getResourceStream(String path) {
+        Path file = resolveDataFile(path);
+        if (file != null) {
+            try {
+                InputStream in = Files.newInputStream(file);
+                return isCompressed(file) ? decompress(in) : in;
+            } catch (IOException e) {
+                throw new RuntimeException("Could not open data file " + file, e);
+            }
+        }
+        String dataDir = properties.getDataDir();
+        if (dataDir != null && !dataDir.isBlank()) {
+            log.error("CRITICAL ERROR: neither '{}' nor '{}{}' found in {}.", path, path, GZIP_SUFFIX, dataDir);
+            throw new RuntimeException("Required data file not found: " + path);
+        }
         InputStream inputStream = getClass().getClassLoader().getResourceAsStream("imdbData/" + path);
         if (inputStream == null) {
+            InputStream compressed = getClass().getClassLoader().getResourceAsStream("imdbData/" + path + GZIP_SUFFIX);
+            if (compressed != null) {
+                try {
+                    return decompress(compressed);
+                } catch (IOException e) {
+                    throw new RuntimeException("Could not open data file " + path + GZIP_SUFFIX, e);
+                }
+            }
             log.error("CRITICAL ERROR: '{}' not found in classpath. Please ensure it's in src/main/resources/imdbData/.", path);
             throw new RuntimeException("Required data file not found: " + path);
         }
         return inputStream;
     }
 
-    public void loadPersons() throws IOException, CsvValidationException {
+    private static InputStream decompress(InputStream in) throws IOException {
+        try {
+            return new GZIPInputStream(in, GZIP_BUFFER_BYTES);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
 
+    public void loadPersons() throws IOException, CsvValidationException, InterruptedException, ExecutionException {
         log.info("Loading persons (name.basics.tsv)...");
-        try (Reader reader = new InputStreamReader(getResourceStream("name.basics.tsv"))) {
+        long start = System.currentTimeMillis();
+        LoadProgress.FileProgress file = progress.file("name.basics.tsv");
+        file.start();
+        if (useMappedParser()) {
+            mappedLoader.loadPersons(openChunks("name.basics.tsv"), builder);
+        } else {
+            loadPersonsWithOpenCsv(file);
+        }
+        file.finish();
+        log.info("Loaded {} persons in {} ms.", builder.personCount(), System.currentTimeMillis() - start);
+    }
+
+    private void loadPersonsWithOpenCsv(LoadProgress.FileProgress file) throws IOException, CsvValidationException {
+        try (Reader reader = new InputStreamReader(countingStream("name.basics.tsv", file))) {
             CSVParser parser = new CSVParserBuilder().withSeparator('\t').build();
             CSVReader csvReader = new CSVReaderBuilder(reader).withCSVParser(parser).withSkipLines(1).build();
             String[] line;
             long lineNumber = 1;
             while ((line = csvReader.readNext()) != null) {
                 lineNumber++;
+                file.addRows(1);
                 if (line.length >= 6) {
                     try {
-                        String birthYearStr = line[2].trim();
-                        String deathYearStr = line[3].trim();
-
-                        Integer birthYear = "N".equals(birthYearStr) ? null : Integer.parseInt(birthYearStr);
-                        Integer deathYear = "N".equals(deathYearStr) ? null : Integer.parseInt(deathYearStr);
-                        List<String> primaryProfessions = "N".equals(line[5].trim()) || line[5].trim().isEmpty() ? Collections.emptyList() : List.of(line[5].split(","));
-                        Person person = new Person(line[0], line[1], birthYear, deathYear, line[4], primaryProfessions);
-                        persons.put(person.getNconst(), person);
+                        int nconstId = ImdbIds.parseNconst(line[0]);
+                        if (nconstId < 0) {
+                            file.parseError();
+                            log.warn("Skipping line {} in name.basics.tsv with invalid nconst: {}", lineNumber, line[0]);
+                            continue;
+                        }
+                        builder.addPerson(nconstId, line[1], parseIntOrZero(line[2]), parseIntOrZero(line[3]),
+                                isNull(line[4]) ? null : line[4].split(","), parseIds(line[5], ImdbIds::parseTconst));
                     } catch (NumberFormatException e) {
+                        file.parseError();
                         log.error("NumberFormatException on line {} in name.basics.tsv: For input string: '{}'. Full line: {}", lineNumber, e.getMessage().replace("For input string: \"", "").replace("\"", ""), String.join("\t", line));
                     } catch (ArrayIndexOutOfBoundsException e) {
+                        file.parseError();
                         log.error("ArrayIndexOutOfBoundsException on line {} in name.basics.tsv: Missing field. Full line: {}", lineNumber, String.join("\t", line));
                     }
                 } else {
+                    file.parseError();
                     log.warn("Skipping malformed line {} in name.basics.tsv. Expected 6 fields, got {}: {}", lineNumber, line.length, String.join("\t", line));
                 }
             }
         }
-        log.info("Loaded {} persons.", persons.size());
     }
 
-    private void loadTitlesBasics() throws IOException, CsvValidationException {
+    private void loadTitlesBasics() throws IOException, CsvValidationException, InterruptedException, ExecutionException {
         log.info("Loading basic titles (title.basics.tsv)...");
-        try (Reader reader = new InputStreamReader(getResourceStream("title.basics.tsv"))) {
+        long start = System.currentTimeMillis();
+        LoadProgress.FileProgress file = progress.file("title.basics.tsv");
+        file.start();
+        if (useMappedParser()) {
+            mappedLoader.loadTitlesBasics(openChunks("title.basics.tsv"), builder);
+        } else {
+            loadTitlesBasicsWithOpenCsv(file);
+        }
+        file.finish();
+        builder.sealTitles();
+        log.info("Loaded {} basic titles in {} ms.", builder.titleCount(), System.currentTimeMillis() - start);
+    }
+
+    private void loadTitlesBasicsWithOpenCsv(LoadProgress.FileProgress file) throws IOException, CsvValidationException {
+        try (Reader reader = new InputStreamReader(countingStream("title.basics.tsv", file))) {
             CSVParser parser = new CSVParserBuilder().withSeparator('\t').build();
             CSVReader csvReader = new CSVReaderBuilder(reader).withCSVParser(parser).withSkipLines(1).build();
             String[] line;
             long lineNumber = 1;
             while ((line = csvReader.readNext()) != null) {
                 lineNumber++;
+                file.addRows(1);
                 if (line.length >= 9) {
                     try {
-                        Title title = new Title();
-                        title.setTconst(line[0]);
-                        title.setTitleType(line[1]);
-                        title.setPrimaryTitle(line[2]);
-                        title.setOriginalTitle(line[3]);
-                        title.setAdult("1".equals(line[4]));
-                        title.setStartYear("N".equals(line[5].trim()) ? 0 : Integer.parseInt(line[5].trim()));
-                        title.setEndYear("N".equals(line[6].trim()) ? 0 : Integer.parseInt(line[6].trim()));
-                        title.setRuntimeMinutes("N".equals(line[7].trim()) ? 0 : Integer.parseInt(line[7].trim()));
-                        title.setGenres("N".equals(line[8].trim()) || line[8].trim().isEmpty() ? Collections.emptyList() : List.of(line[8].split(",")));
-                        titles.put(title.getTconst(), title);
+                        int tconstId = ImdbIds.parseTconst(line[0]);
+                        if (tconstId < 0) {
+                            file.parseError();
+                            log.warn("Skipping line {} in title.basics.tsv with invalid tconst: {}", lineNumber, line[0]);
+                            continue;
+                        }
+                        if (!partition.contains(tconstId)) {
+                            continue;
+                        }
+                        builder.addTitle(tconstId, line[1], line[2], line[3], "1".equals(line[4]), parseIntOrZero(line[5]),
+                                parseIntOrZero(line[6]), parseIntOrZero(line[7]), isNull(line[8]) ? null : line[8].split(","));
                     } catch (NumberFormatException e) {
+                        file.parseError();
                         log.error("NumberFormatException on line {} in title.basics.tsv: For input string: '{}'. Full line: {}", lineNumber, e.getMessage().replace("For input string: \"", "").replace("\"", ""), String.join("\t", line));
                     } catch (ArrayIndexOutOfBoundsException e) {
+                        file.parseError();
                         log.error("ArrayIndexOutOfBoundsException on line {} in title.basics.tsv: Missing field. Full line: {}", lineNumber, String.join("\t", line));
                     }
                 } else {
+                    file.parseError();
                     log.warn("Skipping malformed line {} in title.basics.tsv. Expected 9 fields, got {}: {}", lineNumber, line.length, String.join("\t", line));
                 }
             }
         }
-        log.info("Loaded {} basic titles.", titles.size());
     }
 
-    private void loadTitlesCrew() throws IOException, CsvValidationException {
+    private void loadTitlesCrew() throws IOException, CsvValidationException, InterruptedException, ExecutionException {
         log.info("Loading title crew (title.crew.tsv)...");
-        try (Reader reader = new InputStreamReader(getResourceStream("title.crew.tsv"))) {
+        long start = System.currentTimeMillis();
+        LoadProgress.FileProgress file = progress.file("title.crew.tsv");
+        file.start();
+        if (useMappedParser()) {
+            mappedLoader.loadTitlesCrew(openChunks("title.crew.tsv"), builder);
+        } else {
+            loadTitlesCrewWithOpenCsv(file);
+        }
+        file.finish();
+        log.info("Loaded title crew information in {} ms.", System.currentTimeMillis() - start);
+    }
+
+    private void loadTitlesCrewWithOpenCsv(LoadProgress.FileProgress file) throws IOException, CsvValidationException {
+        try (Reader reader = new InputStreamReader(countingStream("title.crew.tsv", file))) {
             CSVParser parser = new CSVParserBuilder().withSeparator('\t').build();
             CSVReader csvReader = new CSVReaderBuilder(reader).withCSVParser(parser).withSkipLines(1).build();
             String[] line;
             long lineNumber = 1;
             while ((line = csvReader.readNext()) != null) {
                 lineNumber++;
+                file.addRows(1);
                 if (line.length >= 3) {
-                    String tconst = line[0];
-                    Title title = titles.get(tconst);
-                    if (title != null) {
-                        List<String> directors = "N".equals(line[1].trim()) || line[1].trim().isEmpty() ? Collections.emptyList() : Arrays.asList(line[1].split(","));
-                        List<String> writers = "N".equals(line[2].trim()) || line[2].trim().isEmpty() ? Collections.emptyList() : Arrays.asList(line[2].split(","));
-                        title.setDirectorNconsts(directors);
-                        title.setWriterNconsts(writers);
-                        titleDirectors.put(tconst, directors);
-                        titleWriters.put(tconst, writers);
+                    int titleRow = builder.titleRow(ImdbIds.parseTconst(line[0]));
+                    if (titleRow != ImdbStore.NOT_FOUND) {
+                        builder.addCrew(titleRow, parseIds(line[1], ImdbIds::parseNconst), parseIds(line[2], ImdbIds::parseNconst));
                     }
                 } else {
+                    file.parseError();
                     log.warn("Skipping malformed line {} in title.crew.tsv. Expected 3 fields, got {}: {}", lineNumber, line.length, String.join("\t", line));
                 }
             }
         }
-        log.info("Loaded title crew information.");
     }
 
-    private void loadTitlesPrincipals() throws IOException, CsvValidationException {
+    private void loadTitlesPrincipals() throws IOException, CsvValidationException, InterruptedException, ExecutionException {
         log.info("Loading title principals (title.principals.tsv)...");
-        try (Reader reader = new InputStreamReader(getResourceStream("title.principals.tsv"))) {
+        long start = System.currentTimeMillis();
+        LoadProgress.FileProgress file = progress.file("title.principals.tsv");
+        file.start();
+        if (useMappedParser()) {
+            mappedLoader.loadTitlesPrincipals(openChunks("title.principals.tsv"), builder);
+        } else {
+            loadTitlesPrincipalsWithOpenCsv(file);
+        }
+        file.finish();
+        log.info("Loaded title principal information in {} ms.", System.currentTimeMillis() - start);
+    }
+
+    private void loadTitlesPrincipalsWithOpenCsv(LoadProgress.FileProgress file) throws IOException, CsvValidationException {
+        try (Reader reader = new InputStreamReader(countingStream("title.principals.tsv", file))) {
             CSVParser parser = new CSVParserBuilder().withSeparator('\t').build();
             CSVReader csvReader = new CSVReaderBuilder(reader).withCSVParser(parser).withSkipLines(1).build();
             String[] line;
             long lineNumber = 1;
             while ((line = csvReader.readNext()) != null) {
                 lineNumber++;
+                file.addRows(1);
                 if (line.length >= 3) { // Ensure at least tconst, ordering, nconst are present
-                    String tconst = line[0];
-                    String nconst = line[2];
-                    if (titles.containsKey(tconst)) { // Only add if the title exists
-                        // computeIfAbsent is good here for thread-safe concurrent updates
-                        titleActors.computeIfAbsent(tconst, k -> ConcurrentHashMap.newKeySet()).add(nconst);
+                    int titleRow = builder.titleRow(ImdbIds.parseTconst(line[0]));
+                    int nconstId = ImdbIds.parseNconst(line[2]);
+                    if (titleRow != ImdbStore.NOT_FOUND && nconstId >= 0) { // Only add if the title exists
+                        builder.addPrincipal(titleRow, nconstId);
                     }
                 } else {
+                    file.parseError();
                     log.warn("Skipping malformed line {} in title.principals.tsv. Expected at least 3 fields, got {}: {}", lineNumber, line.length, String.join("\t", line));
                 }
             }
         }
-        log.info("Loaded title principal information.");
     }
 
-    private void loadTitlesRatings() throws IOException, CsvValidationException {
+    private void loadTitlesRatings() throws IOException, CsvValidationException, InterruptedException, ExecutionException {
         log.info("Loading title ratings (title.ratings.tsv)...");
-        try (Reader reader = new InputStreamReader(getResourceStream("title.ratings.tsv"))) {
+        long start = System.currentTimeMillis();
+        LoadProgress.FileProgress file = progress.file("title.ratings.tsv");
+        file.start();
+        if (useMappedParser()) {
+            mappedLoader.loadTitlesRatings(openChunks("title.ratings.tsv"), builder);
+        } else {
+            loadTitlesRatingsWithOpenCsv(file);
+        }
+        file.finish();
+        log.info("Loaded title ratings in {} ms.", System.currentTimeMillis() - start);
+    }
+
+    private void loadTitlesRatingsWithOpenCsv(LoadProgress.FileProgress file) throws IOException, CsvValidationException {
+        try (Reader reader = new InputStreamReader(countingStream("title.ratings.tsv", file))) {
             CSVParser parser = new CSVParserBuilder().withSeparator('\t').build();
             CSVReader csvReader = new CSVReaderBuilder(reader).withCSVParser(parser).withSkipLines(1).build();
             String[] line;
             long lineNumber = 1;
             while ((line = csvReader.readNext()) != null) {
                 lineNumber++;
+                file.addRows(1);
                 if (line.length >= 3) {
                     try {
-                        String tconst = line[0];
-                        Title title = titles.get(tconst); // Get the already loaded Title object
-                        if (title != null) { // Only process if the title exists in our map
-                            Double averageRating = "N".equals(line[1].trim()) ? null : Double.parseDouble(line[1].trim());
-                            Integer numVotes = "N".equals(line[2].trim()) ? null : Integer.parseInt(line[2].trim());
-
-                            title.setAverageRating(averageRating);
-                            title.setNumVotes(numVotes);
+                        int titleRow = builder.titleRow(ImdbIds.parseTconst(line[0]));
+                        if (titleRow != ImdbStore.NOT_FOUND) { // Only process if the title exists
+                            float averageRating = isNull(line[1]) ? 0f : Float.parseFloat(line[1].trim());
+                            builder.setRating(titleRow, averageRating, parseIntOrZero(line[2]));
                         }
                     } catch (NumberFormatException e) {
+                        file.parseError();
                         log.error("NumberFormatException on line {} in title.ratings.tsv: For input string: '{}'. Full line: {}", lineNumber, e.getMessage().replace("For input string: \"", "").replace("\"", ""), String.join("\t", line));
                     } catch (ArrayIndexOutOfBoundsException e) {
+                        file.parseError();
                         log.error("ArrayIndexOutOfBoundsException on line {} in title.ratings.tsv: Missing field. Full line: {}", lineNumber, String.join("\t", line));
                     }
                 } else {
+                    file.parseError();
                     log.warn("Skipping malformed line {} in title.ratings.tsv. Expected 3 fields, got {}: {}", lineNumber, line.length, String.join("\t", line));
                 }
             }
         }
-        log.info("Loaded title ratings.");
+    }
+
+    // OpenCSV treats the backslash as an escape character, so IMDB's \N arrives here as "N"
+    private static boolean isNull(String field) {
+        String value = field.trim();
+        return value.isEmpty() || "N".equals(value);
+    }
+
+    private static int parseIntOrZero(String field) {
+        return isNull(field) ? 0 : Integer.parseInt(field.trim());
+    }
+
+    private static int[] parseIds(String field, ToIntFunction<String> parser) {
+        if (isNull(field)) {
+            return new int[0];
+        }
+        String[] parts = field.split(",");
+        int[] ids = new int[parts.length];
+        int size = 0;
+        for (String part : parts) {
+            int id = parser.applyAsInt(part.trim());
+            if (id >= 0) {
+                ids[size++] = id;
+            }
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
     }
 }
@@ -1,22 +1,107 @@
 package com.lobox.imdb.api.service;
 
+import com.lobox.imdb.api.metrics.LatencyHistogram;
+import com.lobox.imdb.api.model.EndpointMetrics;
 import org.springframework.stereotype.Service;
-import java.util.concurrent.atomic.AtomicLong;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counts per method, route pattern and status, with latency histograms. Once a route has been seen,
+ * recording is a few map lookups and striped adds, with no allocation and no shared hot cache line.
+ * <p>
+ * The total served at {@code /metrics/http-requests-count} keeps its original meaning: requests that reached a
+ * handler, counted on entry by {@code RequestCounterInterceptor} (or by {@code ResponseCacheFilter} when it answers
+ * for the handler), so it includes the request reading it. The per-route metrics are recorded by
+ * {@code RequestMetricsFilter} on completion and also cover requests answered before a handler, such as 404s and
+ * 503s from the readiness gate.
+ */
 @Service
 public class HttpRequestCounterService {
 
-    private final AtomicLong requestCount = new AtomicLong(0);
+    private static final String UNMAPPED_ROUTE = "unmapped";
+    private static final String OTHER_METHOD = "OTHER";
+    // bounds the method map against arbitrary method tokens sent by clients
+    private static final int MAX_METHODS = 16;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, RouteMetrics>> routesByMethod = new ConcurrentHashMap<>();
 
     public void increment() {
-        requestCount.incrementAndGet();
+        requestCount.increment();
+    }
+
+    public void record(String method, String route, int status, long nanos) {
+        routeMetrics(method, route == null ? UNMAPPED_ROUTE : route).record(status, nanos);
     }
 
     public long getCount() {
-        return requestCount.get();
+        return requestCount.sum();
     }
 
     public void reset() {
-        requestCount.set(0);
+        requestCount.reset();
+        routesByMethod.clear();
+    }
+
+    public List<EndpointMetrics> getEndpointMetrics() {
+        List<EndpointMetrics> result = new ArrayList<>();
+        routesByMethod.forEach((method, routes) -> routes.forEach((route, metrics) -> result.add(metrics.toEndpointMetrics(method, route))));
+        result.sort(Comparator.comparing(EndpointMetrics::getRoute).thenComparing(EndpointMetrics::getMethod));
+        return result;
+    }
+
+    private RouteMetrics routeMetrics(String method, String route) {
+        ConcurrentHashMap<String, RouteMetrics> routes = routesByMethod.get(method);
+        if (routes == null) {
+            String key = routesByMethod.size() < MAX_METHODS ? method : OTHER_METHOD;
+            routes = routesByMethod.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+        }
+        RouteMetrics metrics = routes.get(route);
+        if (metrics == null) {
+            metrics = routes.computeIfAbsent(route, r -> new RouteMetrics());
+        }
+        return metrics;
+    }
+
+    private static final class RouteMetrics {
+
+        private static final int MAX_STATUS = 600;
+
+        // status code -> counter, created on first use
+        private final AtomicReferenceArray<LongAdder> statusCounts = new AtomicReferenceArray<>(MAX_STATUS);
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        void record(int status, long nanos) {
+            int index = status > 0 && status < MAX_STATUS ? status : 0;
+            LongAdder counter = statusCounts.get(index);
+            if (counter == null) {
+                statusCounts.compareAndSet(index, null, new LongAdder());
+                counter = statusCounts.get(index);
+            }
+            counter.increment();
+            latency.record(nanos);
+        }
+
+        EndpointMetrics toEndpointMetrics(String method, String route) {
+            Map<Integer, Long> byStatus = new LinkedHashMap<>();
+            for (int status = 0; status < MAX_STATUS; status++) {
+                LongAdder counter = statusCounts.get(status);
+                if (counter != null) {
+                    byStatus.put(status, counter.sum());
+                }
+            }
+            LatencyHistogram.Snapshot snapshot = latency.snapshot();
+            return new EndpointMetrics(method, route, snapshot.count(), byStatus,
+                    snapshot.quantileMicros(0.50) / 1000.0, snapshot.quantileMicros(0.90) / 1000.0,
+                    snapshot.quantileMicros(0.99) / 1000.0, snapshot.maxMicros() / 1000.0);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,88 @@
 package com.lobox.imdb.api.service;
 
+import com.lobox.imdb.api.model.CoStar;
+import com.lobox.imdb.api.model.CollaborationPath;
+import com.lobox.imdb.api.model.Person;
 import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.model.TitlePage;
+import com.lobox.imdb.api.model.TitleQuery;
+import com.lobox.imdb.api.model.TitleQueryResult;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public interface ImdbService {
 
     List<Title> getTitlesBySameDirectorWriterAndAlive();
 
+    /**
+     * Returns up to {@code limit} titles following the title whose tconst is {@code cursor}, or the first page when
+     * {@code cursor} is null.
+     */
+    TitlePage getTitlesBySameDirectorWriterAndAlive(String cursor, int limit);
+
+    /**
+     * Lazily builds the titles in tconst order, so callers can write them out without holding the whole list.
+     */
+    Stream<Title> streamTitlesBySameDirectorWriterAndAlive();
+
     List<Title> getTitlesByTwoActors(String actor1Nconst, String actor2Nconst);
 
+    List<Title> getTitlesByActors(List<String> actorNconsts);
+
+    /**
+     * Answers many common-actors queries against one dataset generation. Each actor's titles are looked up once
+     * however many groups it appears in, and a title shared by several results is built once. The result list is
+     * aligned with {@code actorGroups}.
+     */
+    List<List<Title>> getTitlesByActorsBatch(List<List<String>> actorGroups);
+
     Map<Integer, Title> getBestTitlesByGenreAndYear(String genre);
+
+    Map<Integer, Title> getBestTitlesByGenreAndYear(String genre, Integer fromYear, Integer toYear, String titleType,
+                                                    int minVotes);
+
+    /**
+     * Returns, per start year in {@code [fromYear, toYear]} (either bound may be null), up to {@code k} titles of the
+     * genre ranked by votes then rating. {@code titleType} may be null to accept every type.
+     */
+    Map<Integer, List<Title>> getTopTitlesByGenreAndYear(String genre, int k, Integer fromYear, Integer toYear,
+                                                         String titleType, int minVotes);
+
+    /**
+     * {@link #getTopTitlesByGenreAndYear} for several genres against one dataset generation, keyed by genre in
+     * input order. Unknown genres map to an empty result.
+     */
+    Map<String, Map<Integer, List<Title>>> getTopTitlesByGenresAndYear(List<String> genres, int k, Integer fromYear,
+                                                                       Integer toYear, String titleType, int minVotes);
+
+    /**
+     * Returns up to {@code limit} persons who share the most titles with {@code nconst}, empty when it is unknown.
+     */
+    List<CoStar> getTopCoStars(String nconst, int limit);
+
+    /**
+     * Returns a shortest chain of persons linking the two nconsts through shared titles, with at most
+     * {@code maxDepth} links, or null when either is unknown or no such chain exists.
+     */
+    CollaborationPath getCollaborationPath(String fromNconst, String toNconst, int maxDepth);
+
+    /**
+     * Returns up to {@code limit} titles whose primary or original title contains {@code query}, ignoring case and
+     * accents, most voted first.
+     */
+    List<Title> searchTitles(String query, int limit);
+
+    /**
+     * Returns up to {@code limit} persons whose name contains {@code query}, ignoring case and accents, most
+     * prominent first.
+     */
+    List<Person> searchPersons(String query, int limit);
+
+    /**
+     * Returns the top {@code query.k} titles matching every filter of {@code query} in its sort order, with the
+     * number of titles examined and the time taken.
+     */
+    TitleQueryResult queryTitles(TitleQuery query);
 }
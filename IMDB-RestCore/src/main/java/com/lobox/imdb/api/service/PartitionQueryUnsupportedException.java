@@ -0,0 +1,14 @@
+package com.lobox.imdb.api.service;
+
+/**
+ * Thrown by a coordinator for a query that needs every partition's data at once and so cannot be answered by
+ * merging per-partition answers.
+ */
+public class PartitionQueryUnsupportedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PartitionQueryUnsupportedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,84 @@
+package com.lobox.imdb.api.service;
+
+import com.lobox.imdb.api.config.ResponseCacheProperties;
+import com.lobox.imdb.api.model.ResponseCacheStats;
+import com.lobox.imdb.api.util.SegmentedLruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serialized responses keyed by request, valid for one dataset generation. The first request that sees a new
+ * generation drops every cached response.
+ */
+@Service
+@Slf4j
+public class ResponseCacheService {
+
+    // rough per-entry overhead of key, content type, entry and map node on top of the body
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    /**
+     * A response as it was written for {@code generation}.
+     */
+    public record CachedResponse(long generation, int status, String contentType, byte[] body) {
+    }
+
+    private final DataLoaderService dataLoaderService;
+    private final SegmentedLruCache<String, CachedResponse> cache;
+    private final AtomicLong cachedGeneration = new AtomicLong();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ResponseCacheService(DataLoaderService dataLoaderService, ResponseCacheProperties properties) {
+        this.dataLoaderService = dataLoaderService;
+        this.cache = new SegmentedLruCache<>(properties.getMaxBytes(),
+                response -> response.body().length + ENTRY_OVERHEAD_BYTES);
+    }
+
+    /**
+     * Returns the generation being served, invalidating the cache if it changed since the last call.
+     */
+    public long currentGeneration() {
+        long generation = dataLoaderService.currentGeneration();
+        long cached = cachedGeneration.get();
+        if (generation != cached && cachedGeneration.compareAndSet(cached, generation)) {
+            cache.invalidateAll();
+            invalidations.increment();
+            log.info("Dataset generation changed from {} to {}, response cache cleared", cached, generation);
+        }
+        return generation;
+    }
+
+    /**
+     * Strong validator of a response of {@code generation} in the given representation, e.g. {@code "g2-cbor"}.
+     */
+    public String etag(long generation, String contentType) {
+        if (contentType == null) {
+            return "\"g" + generation + "\"";
+        }
+        return "\"g" + generation + "-" + MediaType.parseMediaType(contentType).getSubtype() + "\"";
+    }
+
+    public CachedResponse get(String key, long generation) {
+        CachedResponse response = cache.get(key);
+        return response != null && response.generation() == generation ? response : null;
+    }
+
+    public void put(String key, CachedResponse response) {
+        cache.put(key, response);
+    }
+
+    public void recordNotModified() {
+        notModified.increment();
+    }
+
+    public ResponseCacheStats getStats() {
+        return new ResponseCacheStats(cachedGeneration.get(), cache.hitCount(), cache.missCount(),
+                cache.evictionCount(), notModified.sum(), invalidations.sum(), cache.size(), cache.weight(),
+                cache.maxWeight());
+    }
+}
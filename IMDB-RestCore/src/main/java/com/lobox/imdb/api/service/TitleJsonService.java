@@ -0,0 +1,103 @@
+package com.lobox.imdb.api.service;
+
+import com.lobox.imdb.api.config.TitleJsonProperties;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.store.ImdbDataset;
+import com.lobox.imdb.api.store.ImdbStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The JSON of each title as UTF-8 bytes, rendered on first use and kept for the dataset generation. Titles do not
+ * change within a generation, so responses can copy these bytes instead of serializing the same title again.
+ * <p>
+ * Fragments are always rendered from the current store, never from the title being written, so a response that
+ * was built from the previous generation during a reload cannot leave stale bytes behind.
+ */
+@Service
+@Slf4j
+public class TitleJsonService {
+
+    // array header on top of the JSON bytes
+    private static final int ENTRY_OVERHEAD_BYTES = 16;
+
+    /**
+     * Serializes a title to JSON.
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        byte[] render(Title title) throws IOException;
+    }
+
+    private record Fragments(ImdbDataset dataset, AtomicReferenceArray<byte[]> json, AtomicLong bytes) {
+    }
+
+    private final DataLoaderService dataLoaderService;
+    private final TitleJsonProperties properties;
+    private volatile Fragments fragments;
+
+    public TitleJsonService(DataLoaderService dataLoaderService, TitleJsonProperties properties) {
+        this.dataLoaderService = dataLoaderService;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the JSON of the title with the given tconst in the current generation, rendering it on first use.
+     * Returns null when fragments are disabled, the title is not in the current generation or the size budget is
+     * spent; the caller then serializes the title itself.
+     */
+    public byte[] fragment(String tconst, Renderer renderer) throws IOException {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        Fragments current = current();
+        if (current == null) {
+            return null;
+        }
+        ImdbStore store = current.dataset().store();
+        int titleRow = store.titleRow(tconst);
+        if (titleRow == ImdbStore.NOT_FOUND) {
+            return null;
+        }
+        byte[] json = current.json().get(titleRow);
+        if (json != null) {
+            return json;
+        }
+        if (current.bytes().get() >= properties.getMaxBytes()) {
+            return null;
+        }
+        json = renderer.render(store.toTitle(titleRow));
+        if (current.json().compareAndSet(titleRow, null, json)) {
+            current.bytes().addAndGet(json.length + ENTRY_OVERHEAD_BYTES);
+            return json;
+        }
+        return current.json().get(titleRow);
+    }
+
+    private Fragments current() {
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        if (dataset == null) {
+            return null;
+        }
+        Fragments current = fragments;
+        if (current != null && current.dataset() == dataset) {
+            return current;
+        }
+        synchronized (this) {
+            current = fragments;
+            if (current == null || current.dataset() != dataset) {
+                if (current != null) {
+                    log.info("Dataset generation changed from {} to {}, title JSON fragments dropped ({} bytes)",
+                            current.dataset().generation(), dataset.generation(), current.bytes().get());
+                }
+                current = new Fragments(dataset, new AtomicReferenceArray<>(dataset.store().titleCount()), new AtomicLong());
+                fragments = current;
+            }
+            return current;
+        }
+    }
+}
@@ -1,16 +1,30 @@
 package com.lobox.imdb.api.service.impl;
 
+import com.lobox.imdb.api.model.CoStar;
+import com.lobox.imdb.api.model.CollaborationPath;
 import com.lobox.imdb.api.model.Person;
 import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.model.TitlePage;
+import com.lobox.imdb.api.model.TitleQuery;
+import com.lobox.imdb.api.model.TitleQueryResult;
 import com.lobox.imdb.api.service.DataLoaderService;
 import com.lobox.imdb.api.service.ImdbService;
+import com.lobox.imdb.api.store.CoStarGraph;
+import com.lobox.imdb.api.store.GenreYearLeaderboard;
+import com.lobox.imdb.api.store.ImdbDataset;
+import com.lobox.imdb.api.store.ImdbStore;
+import com.lobox.imdb.api.store.TitleQueryIndex;
+import com.lobox.imdb.api.util.ImdbIds;
+import com.lobox.imdb.api.util.PostingLists;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@ConditionalOnProperty(prefix = "imdb.coordinator", name = "enabled", havingValue = "false", matchIfMissing = true)
 @Slf4j
 public class ImdbServiceImpl implements ImdbService {
 
@@ -19,55 +33,243 @@ public class ImdbServiceImpl implements ImdbService {
     public ImdbServiceImpl(DataLoaderService dataLoaderService) {
         this.dataLoaderService = dataLoaderService;
     }
-                    
+
     @Override
     public List<Title> getTitlesBySameDirectorWriterAndAlive() {
         log.info("Fetching titles by same director/writer and alive.");
-        Map<String, Title> allTitles = dataLoaderService.getTitles();
-        Map<String, Person> allPersons = dataLoaderService.getPersons();
-        return allTitles.values().stream().filter(title -> title.getDirectorNconsts() != null
-                && !title.getDirectorNconsts().isEmpty()).filter(title -> title.getWriterNconsts() != null
-                && !title.getWriterNconsts().isEmpty()).filter(title -> {
-            if (title.getDirectorNconsts().size() == 1 && title.getWriterNconsts().size() == 1) {
-                String directorId = title.getDirectorNconsts().getFirst();
-                String writerId = title.getWriterNconsts().getFirst();
-
-                if (directorId.equals(writerId)) {
-                    Person person = allPersons.get(directorId);
-                    return person != null && person.getDeathYear() == 0;
-                }
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        return dataset.store().toTitles(dataset.sameDirectorWriterAlive());
+    }
+
+    @Override
+    public TitlePage getTitlesBySameDirectorWriterAndAlive(String cursor, int limit) {
+        log.info("Fetching {} titles by same director/writer and alive after {}.", limit, cursor);
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        ImdbStore store = dataset.store();
+        int[] titleRows = dataset.sameDirectorWriterAlive();
+        int from = cursor == null ? 0 : firstAfter(store, titleRows, ImdbIds.parseTconst(cursor));
+        int to = (int) Math.min((long) from + limit, titleRows.length);
+        List<Title> titles = store.toTitles(Arrays.copyOfRange(titleRows, from, to));
+        String nextCursor = to < titleRows.length && to > from ? ImdbIds.formatTconst(store.tconstId(titleRows[to - 1])) : null;
+        return new TitlePage(titles, nextCursor);
+    }
+
+    @Override
+    public Stream<Title> streamTitlesBySameDirectorWriterAndAlive() {
+        log.info("Streaming titles by same director/writer and alive.");
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        ImdbStore store = dataset.store();
+        return Arrays.stream(dataset.sameDirectorWriterAlive()).mapToObj(store::toTitle);
+    }
+
+    // Rows ascend with tconst, so the page start is a binary search for the first tconst above the cursor
+    private static int firstAfter(ImdbStore store, int[] titleRows, int tconstId) {
+        int low = 0;
+        int high = titleRows.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (store.tconstId(titleRows[mid]) <= tconstId) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
             }
-            return false;
-        }).collect(Collectors.toList());
+        }
+        return low;
     }
 
     @Override
     public List<Title> getTitlesByTwoActors(String actor1Nconst, String actor2Nconst) {
         log.info("Fetching titles where actors {} and {} both played.", actor1Nconst, actor2Nconst);
-        Map<String, Title> allTitles = dataLoaderService.getTitles();
-        Map<String, Set<String>> titleActorsMap = dataLoaderService.getTitleActors();
+        return getTitlesByActors(List.of(actor1Nconst, actor2Nconst));
+    }
 
-        if (!dataLoaderService.getPersons().containsKey(actor1Nconst) || !dataLoaderService.getPersons().containsKey(actor2Nconst)) {
-            log.warn("One or both actor IDs not found: {}, {}", actor1Nconst, actor2Nconst);
-            return Collections.emptyList();
+    @Override
+    public List<Title> getTitlesByActors(List<String> actorNconsts) {
+        log.info("Fetching titles where actors {} all played.", actorNconsts);
+        ImdbStore store = dataLoaderService.getDataset().store();
+        return store.toTitles(commonTitleRows(store, actorNconsts, new HashMap<>()));
+    }
+
+    @Override
+    public List<List<Title>> getTitlesByActorsBatch(List<List<String>> actorGroups) {
+        log.info("Fetching titles for {} actor groups.", actorGroups.size());
+        ImdbStore store = dataLoaderService.getDataset().store();
+        Map<String, int[]> postingsByActor = new HashMap<>();
+        Map<Integer, Title> titlesByRow = new HashMap<>();
+        List<List<Title>> results = new ArrayList<>(actorGroups.size());
+        for (List<String> actorNconsts : actorGroups) {
+            results.add(toTitles(store, commonTitleRows(store, actorNconsts, postingsByActor), titlesByRow));
         }
+        return results;
+    }
+
+    // Rows of the titles all the actors played in; postings are looked up through, and added to, the given map
+    private static int[] commonTitleRows(ImdbStore store, List<String> actorNconsts, Map<String, int[]> postingsByActor) {
+        List<String> distinctActors = actorNconsts.stream().distinct().toList();
+        int[][] postings = new int[distinctActors.size()][];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = postingsByActor.computeIfAbsent(distinctActors.get(i), nconst -> {
+                int personRow = store.personRow(nconst);
+                return personRow == ImdbStore.NOT_FOUND ? null : store.personTitles().toArray(personRow);
+            });
+            if (postings[i] == null) {
+                log.warn("Actor ID not found: {}", distinctActors.get(i));
+                return new int[0];
+            }
+        }
+        return PostingLists.intersect(postings);
+    }
 
-        return allTitles.values().stream().filter(title -> {
-            Set<String> actorsInTitle = titleActorsMap.get(title.getTconst());
-            return actorsInTitle != null && actorsInTitle.contains(actor1Nconst) && actorsInTitle.contains(actor2Nconst);
-        }).collect(Collectors.toList());
+    private static List<Title> toTitles(ImdbStore store, int[] titleRows, Map<Integer, Title> titlesByRow) {
+        List<Title> titles = new ArrayList<>(titleRows.length);
+        for (int titleRow : titleRows) {
+            titles.add(titlesByRow.computeIfAbsent(titleRow, store::toTitle));
+        }
+        return titles;
     }
 
     @Override
     public Map<Integer, Title> getBestTitlesByGenreAndYear(String genre) {
+        return getBestTitlesByGenreAndYear(genre, null, null, null, 0);
+    }
+
+    @Override
+    public Map<Integer, Title> getBestTitlesByGenreAndYear(String genre, Integer fromYear, Integer toYear,
+                                                           String titleType, int minVotes) {
         log.info("Fetching best titles for genre: {}", genre);
-        Map<String, Title> allTitles = dataLoaderService.getTitles();
-        return allTitles.values().stream().filter(title -> title.getGenres() != null && title.getGenres()
-                .contains(genre)).filter(title -> title.getStartYear() != 0 && title.getNumVotes() != 0 &&
-                title.getAverageRating() != 0).collect
-                (Collectors.groupingBy(Title::getStartYear, Collectors.collectingAndThen
-                        (Collectors.maxBy(Comparator.comparingInt(Title::getNumVotes)
-                                .thenComparingDouble(Title::getAverageRating))
-                                , Optional::orElseThrow)));
-    }
-}
\ No newline at end of file
+        Map<Integer, Title> result = new LinkedHashMap<>();
+        getTopTitlesByGenreAndYear(genre, 1, fromYear, toYear, titleType, minVotes).forEach((year, titles) -> result.put(year, titles.get(0)));
+        return result;
+    }
+
+    @Override
+    public Map<Integer, List<Title>> getTopTitlesByGenreAndYear(String genre, int k, Integer fromYear, Integer toYear,
+                                                                String titleType, int minVotes) {
+        log.info("Fetching top {} titles for genre {} in years {}..{}, type {}, min votes {}", k, genre, fromYear, toYear, titleType, minVotes);
+        return topTitlesByYear(dataLoaderService.getDataset(), genre, k, fromYear, toYear, titleType, minVotes, new HashMap<>());
+    }
+
+    @Override
+    public Map<String, Map<Integer, List<Title>>> getTopTitlesByGenresAndYear(List<String> genres, int k, Integer fromYear,
+                                                                              Integer toYear, String titleType, int minVotes) {
+        log.info("Fetching top {} titles for genres {} in years {}..{}, type {}, min votes {}", k, genres, fromYear, toYear, titleType, minVotes);
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        Map<Integer, Title> titlesByRow = new HashMap<>();
+        Map<String, Map<Integer, List<Title>>> result = new LinkedHashMap<>();
+        for (String genre : genres) {
+            if (!result.containsKey(genre)) {
+                result.put(genre, topTitlesByYear(dataset, genre, k, fromYear, toYear, titleType, minVotes, titlesByRow));
+            }
+        }
+        return result;
+    }
+
+    private static Map<Integer, List<Title>> topTitlesByYear(ImdbDataset dataset, String genre, int k, Integer fromYear,
+                                                             Integer toYear, String titleType, int minVotes,
+                                                             Map<Integer, Title> titlesByRow) {
+        ImdbStore store = dataset.store();
+        GenreYearLeaderboard leaderboard = dataset.leaderboard();
+        int genreCode = store.genres().code(genre);
+        if (genreCode < 0) {
+            return Collections.emptyMap();
+        }
+        int from = Math.max(fromYear == null ? leaderboard.minYear() : fromYear, leaderboard.minYear());
+        int to = Math.min(toYear == null ? leaderboard.maxYear() : toYear, leaderboard.maxYear());
+        Map<Integer, List<Title>> result = new LinkedHashMap<>();
+        for (int year = from; year <= to; year++) {
+            int[] titleRows = leaderboard.top(genreCode, year, k, minVotes, titleType);
+            if (titleRows.length > 0) {
+                result.put(year, toTitles(store, titleRows, titlesByRow));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<CoStar> getTopCoStars(String nconst, int limit) {
+        log.info("Fetching top {} co-stars of {}", limit, nconst);
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        ImdbStore store = dataset.store();
+        int personRow = store.personRow(nconst);
+        if (personRow == ImdbStore.NOT_FOUND) {
+            log.warn("Person ID not found: {}", nconst);
+            return Collections.emptyList();
+        }
+        CoStarGraph.CoStars coStars;
+        try {
+            coStars = dataset.coStarGraph().topCoStars(personRow, limit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a co-star search", e);
+        }
+        List<CoStar> result = new ArrayList<>(coStars.persons().length);
+        for (int i = 0; i < coStars.persons().length; i++) {
+            result.add(new CoStar(store.toPerson(coStars.persons()[i]), coStars.sharedTitles()[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public CollaborationPath getCollaborationPath(String fromNconst, String toNconst, int maxDepth) {
+        log.info("Fetching collaboration path from {} to {} within {} links", fromNconst, toNconst, maxDepth);
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        ImdbStore store = dataset.store();
+        CoStarGraph graph = dataset.coStarGraph();
+        int fromRow = store.personRow(fromNconst);
+        int toRow = store.personRow(toNconst);
+        if (fromRow == ImdbStore.NOT_FOUND || toRow == ImdbStore.NOT_FOUND) {
+            log.warn("Person ID not found: {} or {}", fromNconst, toNconst);
+            return null;
+        }
+        int[] path;
+        try {
+            path = graph.shortestPath(fromRow, toRow, maxDepth);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a co-star search", e);
+        }
+        if (path.length == 0) {
+            return null;
+        }
+        List<Person> persons = new ArrayList<>(path.length);
+        List<Title> titles = new ArrayList<>(path.length - 1);
+        for (int i = 0; i < path.length; i++) {
+            persons.add(store.toPerson(path[i]));
+            if (i > 0) {
+                titles.add(store.toTitle(graph.sharedTitle(path[i - 1], path[i])));
+            }
+        }
+        return new CollaborationPath(path.length - 1, persons, titles);
+    }
+
+    @Override
+    public List<Title> searchTitles(String query, int limit) {
+        log.info("Searching {} titles for {}", limit, query);
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        return dataset.store().toTitles(dataset.titleSearch().search(query, limit));
+    }
+
+    @Override
+    public TitleQueryResult queryTitles(TitleQuery query) {
+        log.info("Querying titles with {}", query);
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        long start = System.nanoTime();
+        TitleQueryIndex.Result result = dataset.queryIndex().query(query);
+        double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+        return new TitleQueryResult(dataset.store().toTitles(result.titleRows()), result.candidates(), result.matches(),
+                elapsedMs);
+    }
+
+    @Override
+    public List<Person> searchPersons(String query, int limit) {
+        log.info("Searching {} persons for {}", limit, query);
+        ImdbDataset dataset = dataLoaderService.getDataset();
+        ImdbStore store = dataset.store();
+        int[] personRows = dataset.personSearch().search(query, limit);
+        List<Person> persons = new ArrayList<>(personRows.length);
+        for (int personRow : personRows) {
+            persons.add(store.toPerson(personRow));
+        }
+        return persons;
+    }
+}
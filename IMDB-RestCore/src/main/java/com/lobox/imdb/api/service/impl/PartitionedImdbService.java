@@ -0,0 +1,296 @@
+package com.lobox.imdb.api.service.impl;
+
+import com.lobox.imdb.api.model.CoStar;
+import com.lobox.imdb.api.model.CollaborationPath;
+import com.lobox.imdb.api.model.Person;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.model.TitlePage;
+import com.lobox.imdb.api.model.TitleQuery;
+import com.lobox.imdb.api.model.TitleQueryResult;
+import com.lobox.imdb.api.service.ImdbService;
+import com.lobox.imdb.api.service.PartitionQueryUnsupportedException;
+import com.lobox.imdb.api.util.ImdbIds;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Answers queries over titles split into hash partitions ({@code imdb.loader.partition}) by sending each query to
+ * every partition at once and merging the answers. A title and its crew, principals and rating live in exactly one
+ * partition, so title lists are unions and rankings are merges of each partition's own best titles, both with the
+ * same result as a single instance holding every title.
+ * <p>
+ * Persons are in every partition but each one only knows its own titles. Co-stars add up the shared titles of each
+ * partition's top {@value #PARTITION_CO_STARS}, so a co-star outside all of those is missed. Person search interleaves
+ * the partitions' rankings. Collaboration paths may cross partitions and are not supported.
+ */
+@Slf4j
+public class PartitionedImdbService implements ImdbService, AutoCloseable {
+
+    private static final int PARTITION_CO_STARS = 1000;
+
+    private static final Comparator<Title> BY_TCONST = Comparator.comparingInt(title -> ImdbIds.parseTconst(title.getTconst()));
+    // best-by-genre ranking: votes, then rating, then tconst, as in the leaderboard
+    private static final Comparator<Title> BY_VOTES_THEN_RATING = Comparator.comparingLong(PartitionedImdbService::votes).reversed()
+            .thenComparing(Comparator.comparingLong(PartitionedImdbService::ratingTenths).reversed())
+            .thenComparing(BY_TCONST);
+    // title search ranking: votes, then tconst
+    private static final Comparator<Title> BY_VOTES = Comparator.comparingLong(PartitionedImdbService::votes).reversed()
+            .thenComparing(BY_TCONST);
+
+    private final List<ImdbService> partitions;
+    // calls to the partitions block on I/O, one virtual thread each
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param partitions one service per partition, usually {@link RemoteImdbService}s
+     */
+    public PartitionedImdbService(List<ImdbService> partitions) {
+        if (partitions.isEmpty()) {
+            throw new IllegalArgumentException("A coordinator needs at least one partition");
+        }
+        this.partitions = List.copyOf(partitions);
+    }
+
+    public int partitionCount() {
+        return partitions.size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // Runs the query on every partition in parallel and returns the answers in partition order
+    private <T> List<T> scatter(Function<ImdbService, T> query) {
+        if (partitions.size() == 1) {
+            return List.of(query.apply(partitions.get(0)));
+        }
+        List<Future<T>> futures = new ArrayList<>(partitions.size());
+        for (ImdbService partition : partitions) {
+            futures.add(executor.submit(() -> query.apply(partition)));
+        }
+        List<T> answers = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                answers.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the partitions", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("A partition failed to answer", e.getCause());
+        }
+        return answers;
+    }
+
+    private static List<Title> merge(List<List<Title>> lists, Comparator<Title> order, int limit) {
+        return lists.stream().flatMap(List::stream).sorted(order).limit(limit).toList();
+    }
+
+    private static long votes(Title title) {
+        return title.getNumVotes() == null ? 0 : title.getNumVotes();
+    }
+
+    private static long ratingTenths(Title title) {
+        return title.getAverageRating() == null ? 0 : Math.round(title.getAverageRating() * 10);
+    }
+
+    @Override
+    public List<Title> getTitlesBySameDirectorWriterAndAlive() {
+        log.info("Fetching titles by same director/writer and alive from {} partitions.", partitions.size());
+        return merge(scatter(ImdbService::getTitlesBySameDirectorWriterAndAlive), BY_TCONST, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public TitlePage getTitlesBySameDirectorWriterAndAlive(String cursor, int limit) {
+        log.info("Fetching {} titles by same director/writer and alive after {} from {} partitions.", limit, cursor, partitions.size());
+        List<TitlePage> pages = scatter(partition -> partition.getTitlesBySameDirectorWriterAndAlive(cursor, limit));
+        List<List<Title>> lists = new ArrayList<>(pages.size());
+        long available = 0;
+        boolean partitionHasMore = false;
+        for (TitlePage page : pages) {
+            lists.add(page.getTitles());
+            available += page.getTitles().size();
+            partitionHasMore |= page.getNextCursor() != null;
+        }
+        List<Title> titles = merge(lists, BY_TCONST, limit);
+        boolean more = (available > limit || partitionHasMore) && !titles.isEmpty();
+        return new TitlePage(titles, more ? titles.get(titles.size() - 1).getTconst() : null);
+    }
+
+    /**
+     * Not lazy on a coordinator: the partitions' lists are fetched and merged before the first title is returned.
+     */
+    @Override
+    public Stream<Title> streamTitlesBySameDirectorWriterAndAlive() {
+        return getTitlesBySameDirectorWriterAndAlive().stream();
+    }
+
+    @Override
+    public List<Title> getTitlesByTwoActors(String actor1Nconst, String actor2Nconst) {
+        log.info("Fetching titles where actors {} and {} both played from {} partitions.", actor1Nconst, actor2Nconst, partitions.size());
+        return merge(scatter(partition -> partition.getTitlesByTwoActors(actor1Nconst, actor2Nconst)), BY_TCONST, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Title> getTitlesByActors(List<String> actorNconsts) {
+        log.info("Fetching titles where actors {} all played from {} partitions.", actorNconsts, partitions.size());
+        return merge(scatter(partition -> partition.getTitlesByActors(actorNconsts)), BY_TCONST, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<List<Title>> getTitlesByActorsBatch(List<List<String>> actorGroups) {
+        log.info("Fetching titles for {} actor groups from {} partitions.", actorGroups.size(), partitions.size());
+        List<List<List<Title>>> answers = scatter(partition -> partition.getTitlesByActorsBatch(actorGroups));
+        List<List<Title>> results = new ArrayList<>(actorGroups.size());
+        for (int i = 0; i < actorGroups.size(); i++) {
+            int group = i;
+            results.add(merge(answers.stream().map(answer -> answer.get(group)).toList(), BY_TCONST, Integer.MAX_VALUE));
+        }
+        return results;
+    }
+
+    @Override
+    public Map<Integer, Title> getBestTitlesByGenreAndYear(String genre) {
+        return getBestTitlesByGenreAndYear(genre, null, null, null, 0);
+    }
+
+    @Override
+    public Map<Integer, Title> getBestTitlesByGenreAndYear(String genre, Integer fromYear, Integer toYear,
+                                                           String titleType, int minVotes) {
+        log.info("Fetching best titles for genre {} from {} partitions", genre, partitions.size());
+        Map<Integer, Title> result = new LinkedHashMap<>();
+        mergeByYear(scatter(partition -> partition.getTopTitlesByGenreAndYear(genre, 1, fromYear, toYear, titleType, minVotes)), 1)
+                .forEach((year, titles) -> result.put(year, titles.get(0)));
+        return result;
+    }
+
+    @Override
+    public Map<Integer, List<Title>> getTopTitlesByGenreAndYear(String genre, int k, Integer fromYear, Integer toYear,
+                                                                String titleType, int minVotes) {
+        log.info("Fetching top {} titles for genre {} from {} partitions", k, genre, partitions.size());
+        return mergeByYear(scatter(partition -> partition.getTopTitlesByGenreAndYear(genre, k, fromYear, toYear, titleType, minVotes)), k);
+    }
+
+    @Override
+    public Map<String, Map<Integer, List<Title>>> getTopTitlesByGenresAndYear(List<String> genres, int k, Integer fromYear,
+                                                                              Integer toYear, String titleType, int minVotes) {
+        log.info("Fetching top {} titles for genres {} from {} partitions", k, genres, partitions.size());
+        List<Map<String, Map<Integer, List<Title>>>> answers =
+                scatter(partition -> partition.getTopTitlesByGenresAndYear(genres, k, fromYear, toYear, titleType, minVotes));
+        Map<String, Map<Integer, List<Title>>> result = new LinkedHashMap<>();
+        for (String genre : genres) {
+            if (!result.containsKey(genre)) {
+                result.put(genre, mergeByYear(answers.stream().map(answer -> answer.getOrDefault(genre, Map.of())).toList(), k));
+            }
+        }
+        return result;
+    }
+
+    // Per year, the best k of the partitions' best k titles, years ascending
+    private static Map<Integer, List<Title>> mergeByYear(List<Map<Integer, List<Title>>> answers, int k) {
+        Map<Integer, List<List<Title>>> byYear = new TreeMap<>();
+        for (Map<Integer, List<Title>> answer : answers) {
+            answer.forEach((year, titles) -> byYear.computeIfAbsent(year, y -> new ArrayList<>()).add(titles));
+        }
+        Map<Integer, List<Title>> result = new LinkedHashMap<>();
+        byYear.forEach((year, lists) -> result.put(year, merge(lists, BY_VOTES_THEN_RATING, k)));
+        return result;
+    }
+
+    @Override
+    public List<CoStar> getTopCoStars(String nconst, int limit) {
+        log.info("Fetching top {} co-stars of {} from {} partitions", limit, nconst, partitions.size());
+        int partitionLimit = Math.max(limit, PARTITION_CO_STARS);
+        Map<String, CoStar> coStars = new HashMap<>();
+        for (List<CoStar> answer : scatter(partition -> partition.getTopCoStars(nconst, partitionLimit))) {
+            for (CoStar coStar : answer) {
+                coStars.merge(coStar.getPerson().getNconst(), coStar,
+                        (a, b) -> new CoStar(a.getPerson(), a.getSharedTitles() + b.getSharedTitles()));
+            }
+        }
+        return coStars.values().stream()
+                .sorted(Comparator.comparingInt(CoStar::getSharedTitles).reversed()
+                        .thenComparingInt(coStar -> ImdbIds.parseNconst(coStar.getPerson().getNconst())))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public CollaborationPath getCollaborationPath(String fromNconst, String toNconst, int maxDepth) {
+        throw new PartitionQueryUnsupportedException("Collaboration paths can cross partitions and are not supported by the coordinator");
+    }
+
+    @Override
+    public List<Title> searchTitles(String query, int limit) {
+        log.info("Searching {} titles for {} in {} partitions", limit, query, partitions.size());
+        return merge(scatter(partition -> partition.searchTitles(query, limit)), BY_VOTES, limit);
+    }
+
+    @Override
+    public List<Person> searchPersons(String query, int limit) {
+        log.info("Searching {} persons for {} in {} partitions", limit, query, partitions.size());
+        List<List<Person>> answers = scatter(partition -> partition.searchPersons(query, limit));
+        Map<String, Person> persons = new LinkedHashMap<>();
+        for (int rank = 0; persons.size() < limit; rank++) {
+            boolean any = false;
+            for (List<Person> answer : answers) {
+                if (rank < answer.size()) {
+                    any = true;
+                    persons.putIfAbsent(answer.get(rank).getNconst(), answer.get(rank));
+                }
+            }
+            if (!any) {
+                break;
+            }
+        }
+        return persons.values().stream().limit(limit).toList();
+    }
+
+    /**
+     * The candidate and match counts add up over the partitions; the elapsed time is that of the whole fan-out.
+     */
+    @Override
+    public TitleQueryResult queryTitles(TitleQuery query) {
+        log.info("Querying titles with {} in {} partitions", query, partitions.size());
+        long start = System.nanoTime();
+        List<TitleQueryResult> answers = scatter(partition -> partition.queryTitles(query));
+        long candidates = 0;
+        long matches = 0;
+        List<List<Title>> lists = new ArrayList<>(answers.size());
+        for (TitleQueryResult answer : answers) {
+            candidates += answer.getCandidates();
+            matches += answer.getMatches();
+            lists.add(answer.getTitles());
+        }
+        List<Title> titles = merge(lists, queryOrder(query), query.getK());
+        return new TitleQueryResult(titles, candidates, matches, (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    // The order of TitleQueryIndex: the sort value, then votes (rating tenths when sorting by votes), then tconst
+    private static Comparator<Title> queryOrder(TitleQuery query) {
+        Comparator<Title> primary = switch (query.getSort()) {
+            case VOTES -> Comparator.comparingLong(PartitionedImdbService::votes);
+            case RATING -> Comparator.comparingLong(PartitionedImdbService::ratingTenths);
+            case YEAR -> Comparator.comparingLong(title -> title.getStartYear() == null ? 0 : title.getStartYear());
+        };
+        Comparator<Title> secondary = query.getSort() == TitleQuery.Sort.VOTES
+                ? Comparator.comparingLong(PartitionedImdbService::ratingTenths)
+                : Comparator.comparingLong(PartitionedImdbService::votes);
+        return (query.isAscending() ? primary : primary.reversed())
+                .thenComparing(secondary.reversed())
+                .thenComparing(BY_TCONST);
+    }
+}
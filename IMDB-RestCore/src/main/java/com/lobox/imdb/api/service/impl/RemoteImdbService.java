@@ -0,0 +1,237 @@
+package com.lobox.imdb.api.service.impl;
+
+import com.lobox.imdb.api.model.ActorPair;
+import com.lobox.imdb.api.model.CoStar;
+import com.lobox.imdb.api.model.CollaborationPath;
+import com.lobox.imdb.api.model.Person;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.model.TitlePage;
+import com.lobox.imdb.api.model.TitleQuery;
+import com.lobox.imdb.api.model.TitleQueryResult;
+import com.lobox.imdb.api.service.ImdbService;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * {@link ImdbService} of one partition instance, called through its REST API. Empty answers (204) come back as
+ * empty collections, or null where the local service returns null; any other failure is thrown as the
+ * {@link org.springframework.web.client.RestClientException} of the call.
+ */
+public class RemoteImdbService implements ImdbService {
+
+    private static final String API = "/api/v1/imdb";
+
+    private final RestClient restClient;
+    private final String baseUrl;
+
+    /**
+     * @param baseUrl the partition's base URL, e.g. {@code http://localhost:8081}
+     */
+    public RemoteImdbService(RestClient restClient, String baseUrl) {
+        this.restClient = restClient;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    private Request request(String path) {
+        return new Request(new StringBuilder(baseUrl).append(API).append(path));
+    }
+
+    /**
+     * A request URI with every query value form-encoded, so that {@code +}, {@code &} and braces in search text or
+     * ids reach the partition unchanged. Null values are left out.
+     */
+    private record Request(StringBuilder uri) {
+
+        Request param(String name, Object value) {
+            if (value != null) {
+                uri.append(uri.indexOf("?") < 0 ? '?' : '&').append(name).append('=')
+                        .append(URLEncoder.encode(value.toString(), StandardCharsets.UTF_8));
+            }
+            return this;
+        }
+
+        Request params(String name, List<?> values) {
+            values.forEach(value -> param(name, value));
+            return this;
+        }
+
+        URI toUri() {
+            return URI.create(uri.toString());
+        }
+    }
+
+    private <T> T get(Request request, ParameterizedTypeReference<T> type) {
+        return restClient.get().uri(request.toUri()).accept(MediaType.APPLICATION_JSON).retrieve().body(type);
+    }
+
+    private <T> T post(Request request, Object body, ParameterizedTypeReference<T> type) {
+        return restClient.post().uri(request.toUri()).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
+                .body(body).retrieve().body(type);
+    }
+
+    private static String pathSegment(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    private static <K, V> Map<K, V> orEmpty(Map<K, V> map) {
+        return map == null ? Map.of() : map;
+    }
+
+    @Override
+    public List<Title> getTitlesBySameDirectorWriterAndAlive() {
+        return orEmpty(get(request("/titles/same-director-writer-alive"), new ParameterizedTypeReference<List<Title>>() {
+        }));
+    }
+
+    @Override
+    public TitlePage getTitlesBySameDirectorWriterAndAlive(String cursor, int limit) {
+        return get(request("/titles/same-director-writer-alive")
+                .param("limit", limit)
+                .param("cursor", cursor), new ParameterizedTypeReference<>() {
+        });
+    }
+
+    @Override
+    public Stream<Title> streamTitlesBySameDirectorWriterAndAlive() {
+        return getTitlesBySameDirectorWriterAndAlive().stream();
+    }
+
+    @Override
+    public List<Title> getTitlesByTwoActors(String actor1Nconst, String actor2Nconst) {
+        return orEmpty(get(request("/titles/common-actors")
+                .param("actor1Id", actor1Nconst)
+                .param("actor2Id", actor2Nconst), new ParameterizedTypeReference<List<Title>>() {
+        }));
+    }
+
+    @Override
+    public List<Title> getTitlesByActors(List<String> actorNconsts) {
+        return orEmpty(get(request("/titles/common-actors")
+                .params("actorIds", actorNconsts), new ParameterizedTypeReference<List<Title>>() {
+        }));
+    }
+
+    /**
+     * Pairs go to the partition's batch endpoint in one call; groups of any other size are asked one by one.
+     */
+    @Override
+    public List<List<Title>> getTitlesByActorsBatch(List<List<String>> actorGroups) {
+        if (actorGroups.stream().anyMatch(group -> group.size() != 2 || group.get(0).equals(group.get(1)))) {
+            return actorGroups.stream().map(this::getTitlesByActors).toList();
+        }
+        List<ActorPair> pairs = actorGroups.stream().map(group -> new ActorPair(group.get(0), group.get(1))).toList();
+        Map<String, List<Title>> titlesByPair = orEmpty(post(request("/titles/common-actors/batch"), pairs,
+                new ParameterizedTypeReference<Map<String, List<Title>>>() {
+                }));
+        List<List<Title>> results = new ArrayList<>(actorGroups.size());
+        for (List<String> group : actorGroups) {
+            results.add(orEmpty(titlesByPair.get(String.join(",", group))));
+        }
+        return results;
+    }
+
+    @Override
+    public Map<Integer, Title> getBestTitlesByGenreAndYear(String genre) {
+        return getBestTitlesByGenreAndYear(genre, null, null, null, 0);
+    }
+
+    @Override
+    public Map<Integer, Title> getBestTitlesByGenreAndYear(String genre, Integer fromYear, Integer toYear,
+                                                           String titleType, int minVotes) {
+        return orEmpty(get(genreFilters(request("/titles/best-by-genre"), genre, fromYear, toYear, titleType, minVotes),
+                new ParameterizedTypeReference<Map<Integer, Title>>() {
+                }));
+    }
+
+    @Override
+    public Map<Integer, List<Title>> getTopTitlesByGenreAndYear(String genre, int k, Integer fromYear, Integer toYear,
+                                                                String titleType, int minVotes) {
+        return orEmpty(get(genreFilters(request("/titles/best-by-genre"), genre, fromYear, toYear, titleType, minVotes)
+                .param("k", k), new ParameterizedTypeReference<Map<Integer, List<Title>>>() {
+        }));
+    }
+
+    @Override
+    public Map<String, Map<Integer, List<Title>>> getTopTitlesByGenresAndYear(List<String> genres, int k, Integer fromYear,
+                                                                              Integer toYear, String titleType, int minVotes) {
+        return orEmpty(post(genreFilters(request("/titles/best-by-genre/batch"), null, fromYear, toYear, titleType, minVotes)
+                .param("k", k), genres, new ParameterizedTypeReference<Map<String, Map<Integer, List<Title>>>>() {
+        }));
+    }
+
+    private static Request genreFilters(Request request, String genre, Integer fromYear, Integer toYear,
+                                        String titleType, int minVotes) {
+        return request.param("genre", genre)
+                .param("fromYear", fromYear)
+                .param("toYear", toYear)
+                .param("titleType", titleType)
+                .param("minVotes", minVotes);
+    }
+
+    @Override
+    public List<CoStar> getTopCoStars(String nconst, int limit) {
+        return orEmpty(get(request("/persons/" + pathSegment(nconst) + "/co-stars")
+                .param("limit", limit), new ParameterizedTypeReference<List<CoStar>>() {
+        }));
+    }
+
+    @Override
+    public CollaborationPath getCollaborationPath(String fromNconst, String toNconst, int maxDepth) {
+        return get(request("/persons/path")
+                .param("from", fromNconst)
+                .param("to", toNconst)
+                .param("maxDepth", maxDepth), new ParameterizedTypeReference<>() {
+        });
+    }
+
+    @Override
+    public List<Title> searchTitles(String query, int limit) {
+        return orEmpty(get(request("/titles/search")
+                .param("q", query)
+                .param("limit", limit), new ParameterizedTypeReference<List<Title>>() {
+        }));
+    }
+
+    @Override
+    public List<Person> searchPersons(String query, int limit) {
+        return orEmpty(get(request("/persons/search")
+                .param("q", query)
+                .param("limit", limit), new ParameterizedTypeReference<List<Person>>() {
+        }));
+    }
+
+    @Override
+    public TitleQueryResult queryTitles(TitleQuery query) {
+        return get(request("/titles/query")
+                .params("genres", query.getGenres())
+                .param("genreMatch", query.getGenreMatch().name().toLowerCase(Locale.ROOT))
+                .params("titleType", query.getTitleTypes())
+                .param("fromYear", query.getFromYear())
+                .param("toYear", query.getToYear())
+                .param("adult", query.getAdult())
+                .param("minVotes", query.getMinVotes())
+                .param("minRating", query.getMinRating())
+                .param("maxRating", query.getMaxRating())
+                .params("director", query.getDirectors())
+                .params("writer", query.getWriters())
+                .params("actor", query.getActors())
+                .param("sort", query.getSort().name().toLowerCase(Locale.ROOT))
+                .param("order", query.isAscending() ? "asc" : "desc")
+                .param("k", query.getK()), new ParameterizedTypeReference<>() {
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package com.lobox.imdb.api.store;
+
+/**
+ * Thrown when a query needs a cast index of {@link ImdbDataset} that is still being built in the background.
+ */
+public class CastIndexesNotReadyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CastIndexesNotReadyException() {
+        super("Cast indexes are still being built");
+    }
+}
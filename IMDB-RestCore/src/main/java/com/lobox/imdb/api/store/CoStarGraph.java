@@ -0,0 +1,444 @@
+package com.lobox.imdb.api.store;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Undirected co-appearance graph over person rows: two persons are adjacent when they are principals of a common
+ * title. Neighbours are deduplicated and stored as one CSR array pair, ascending per person.
+ * <p>
+ * Searches run on pooled scratch arrays sized to the person count and reset by bumping a stamp, so a search
+ * allocates nothing per visited node and nothing proportional to the graph. Each scratch holds three arrays of the
+ * person count (about 170 MB for the full dataset), so the pool is small and more concurrent searches wait for a
+ * scratch to be returned; the scratches allocated so far count towards {@link #estimatedBytes()}.
+ */
+public final class CoStarGraph {
+
+    public static final int DEFAULT_SEARCH_SCRATCHES = 2;
+    private static final int CHUNK_PERSONS = 4096;
+
+    private final int[] offsets;
+    private final int[] neighbours;
+    private final IntPostings personTitles;
+    // title row -> person rows of its principals
+    private final CsrPostings titleCast;
+    // a search borrows one scratch; more concurrent searches wait for one to be returned
+    private final int maxScratches;
+    private final BlockingQueue<Scratch> scratches;
+    private final AtomicInteger scratchCount = new AtomicInteger();
+
+    private CoStarGraph(int[] offsets, int[] neighbours, IntPostings personTitles, CsrPostings titleCast,
+                        int maxScratches) {
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.personTitles = personTitles;
+        this.titleCast = titleCast;
+        this.maxScratches = maxScratches;
+        this.scratches = new ArrayBlockingQueue<>(maxScratches);
+    }
+
+    public static CoStarGraph build(ImdbStore store) {
+        return build(store, DEFAULT_SEARCH_SCRATCHES);
+    }
+
+    /**
+     * @param searchScratches how many searches may run at once, each on its own scratch arrays
+     */
+    public static CoStarGraph build(ImdbStore store, int searchScratches) {
+        if (searchScratches < 1) {
+            throw new IllegalArgumentException("Co-star searches need at least one scratch, got " + searchScratches);
+        }
+        int personCount = store.personCount();
+        IntPostings personTitles = store.personTitles();
+        CsrPostings titleCast = titleCast(store);
+
+        // pass 1 counts distinct co-stars per person, pass 2 writes them at the prefix-summed offsets
+        int[] degrees = new int[personCount];
+        forEachPerson(personCount, (scratch, person) -> degrees[person] = collectCoStars(person, personTitles, titleCast, scratch, null, 0));
+        int[] offsets = new int[personCount + 1];
+        long total = 0;
+        for (int person = 0; person < personCount; person++) {
+            total += degrees[person];
+            if (total > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Co-star graph has more than " + (Integer.MAX_VALUE - 8) + " edges");
+            }
+            offsets[person + 1] = (int) total;
+        }
+        int[] neighbours = new int[(int) total];
+        forEachPerson(personCount, (scratch, person) -> {
+            collectCoStars(person, personTitles, titleCast, scratch, neighbours, offsets[person]);
+            Arrays.sort(neighbours, offsets[person], offsets[person + 1]);
+        });
+        return new CoStarGraph(offsets, neighbours, personTitles, titleCast, searchScratches);
+    }
+
+    // Title row -> person rows of its principals, dropping nconsts without a name.basics row.
+    private static CsrPostings titleCast(ImdbStore store) {
+        IntPostings principals = store.principals();
+        int titleCount = store.titleCount();
+        int[] offsets = new int[titleCount + 1];
+        for (int title = 0; title < titleCount; title++) {
+            offsets[title + 1] = offsets[title] + principals.length(title);
+        }
+        int[] values = new int[offsets[titleCount]];
+        int[] lengths = new int[titleCount];
+        IntStream.range(0, titleCount).parallel().forEach(title -> {
+            int length = 0;
+            for (int i = 0; i < principals.length(title); i++) {
+                int person = store.personRow(principals.get(title, i));
+                if (person != ImdbStore.NOT_FOUND) {
+                    values[offsets[title] + length++] = person;
+                }
+            }
+            lengths[title] = length;
+        });
+        // compact out the dropped principals
+        int write = 0;
+        for (int title = 0; title < titleCount; title++) {
+            int start = offsets[title];
+            offsets[title] = write;
+            System.arraycopy(values, start, values, write, lengths[title]);
+            write += lengths[title];
+        }
+        offsets[titleCount] = write;
+        return new CsrPostings(offsets, Arrays.copyOf(values, write));
+    }
+
+    /**
+     * Visits the distinct co-stars of {@code person} once each, writing them from {@code target[from]} when a
+     * target is given, and returns how many there are.
+     */
+    private static int collectCoStars(int person, IntPostings personTitles, CsrPostings titleCast, Scratch scratch,
+                                      int[] target, int from) {
+        int stamp = scratch.nextStamp();
+        scratch.marks[person] = stamp;
+        int count = 0;
+        int titleCount = personTitles.length(person);
+        for (int t = 0; t < titleCount; t++) {
+            int title = personTitles.get(person, t);
+            int castSize = titleCast.length(title);
+            for (int c = 0; c < castSize; c++) {
+                int coStar = titleCast.get(title, c);
+                if (scratch.marks[coStar] != stamp) {
+                    scratch.marks[coStar] = stamp;
+                    if (target != null) {
+                        target[from + count] = coStar;
+                    }
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private interface PersonTask {
+        void run(Scratch scratch, int person);
+    }
+
+    // Runs the task over every person on the common pool, one scratch per worker.
+    private static void forEachPerson(int personCount, PersonTask task) {
+        int chunks = (personCount + CHUNK_PERSONS - 1) / CHUNK_PERSONS;
+        AtomicInteger nextChunk = new AtomicInteger();
+        int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), chunks));
+        IntStream.range(0, workers).parallel().forEach(worker -> {
+            Scratch scratch = new Scratch(personCount, false);
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                int end = Math.min(personCount, (chunk + 1) * CHUNK_PERSONS);
+                for (int person = chunk * CHUNK_PERSONS; person < end; person++) {
+                    task.run(scratch, person);
+                }
+            }
+        });
+    }
+
+    public int personCount() {
+        return offsets.length - 1;
+    }
+
+    public int degree(int person) {
+        return offsets[person + 1] - offsets[person];
+    }
+
+    public int edgeCount() {
+        return neighbours.length / 2;
+    }
+
+    public long estimatedBytes() {
+        return 4L * offsets.length + 4L * neighbours.length + titleCast.estimatedBytes()
+                + Math.min(scratchCount.get(), maxScratches) * Scratch.searchBytes(personCount());
+    }
+
+    /**
+     * The co-stars of a person with the number of titles shared with each, most shared first, then by person row.
+     */
+    public record CoStars(int[] persons, int[] sharedTitles) {
+    }
+
+    public CoStars topCoStars(int person, int limit) throws InterruptedException {
+        Scratch scratch = borrowScratch();
+        try {
+            return topCoStars(person, limit, scratch);
+        } finally {
+            scratches.offer(scratch);
+        }
+    }
+
+    private CoStars topCoStars(int person, int limit, Scratch scratch) {
+        int[] marks = scratch.marks;
+        // during this search parents holds shared-title counts and queue the co-stars seen
+        int[] counts = scratch.parents;
+        int[] seen = scratch.queue;
+        int stamp = scratch.nextStamp();
+        int seenCount = 0;
+        for (int t = 0; t < personTitles.length(person); t++) {
+            int title = personTitles.get(person, t);
+            for (int c = 0; c < titleCast.length(title); c++) {
+                int coStar = titleCast.get(title, c);
+                if (coStar == person) {
+                    continue;
+                }
+                if (marks[coStar] != stamp) {
+                    marks[coStar] = stamp;
+                    counts[coStar] = 1;
+                    seen[seenCount++] = coStar;
+                } else {
+                    counts[coStar]++;
+                }
+            }
+        }
+
+        // bounded min-heap of (count, reversed row) keys keeps the best `limit` entries
+        long[] heap = new long[Math.min(limit, seenCount)];
+        int heapSize = 0;
+        for (int i = 0; i < seenCount; i++) {
+            long key = ((long) counts[seen[i]] << 32) | (Integer.MAX_VALUE - seen[i]);
+            if (heapSize < heap.length) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (heap.length > 0 && key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+        Arrays.sort(heap, 0, heapSize);
+        int[] persons = new int[heapSize];
+        int[] sharedTitles = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            long key = heap[heapSize - 1 - i];
+            persons[i] = Integer.MAX_VALUE - (int) key;
+            sharedTitles[i] = (int) (key >>> 32);
+        }
+        return new CoStars(persons, sharedTitles);
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= heap[index]) {
+                return;
+            }
+            long swap = heap[parent];
+            heap[parent] = heap[index];
+            heap[index] = swap;
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (right < size && heap[right] < heap[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            long swap = heap[smallest];
+            heap[smallest] = heap[index];
+            heap[index] = swap;
+            index = smallest;
+        }
+    }
+
+    /**
+     * First title row shared by two persons, or {@link ImdbStore#NOT_FOUND}.
+     */
+    public int sharedTitle(int person, int other) {
+        int i = 0;
+        int j = 0;
+        int length = personTitles.length(person);
+        int otherLength = personTitles.length(other);
+        while (i < length && j < otherLength) {
+            int a = personTitles.get(person, i);
+            int b = personTitles.get(other, j);
+            if (a == b) {
+                return a;
+            }
+            if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return ImdbStore.NOT_FOUND;
+    }
+
+    /**
+     * Shortest path of person rows from {@code source} to {@code target}, both included, with at most
+     * {@code maxDepth} edges; an empty array when there is none.
+     * <p>
+     * Bidirectional BFS, always expanding the smaller frontier one full level at a time. Both frontiers share one
+     * queue array, growing towards each other, since a node is enqueued by at most one side.
+     */
+    public int[] shortestPath(int source, int target, int maxDepth) throws InterruptedException {
+        if (source == target) {
+            return new int[]{source};
+        }
+        Scratch scratch = borrowScratch();
+        try {
+            return shortestPath(source, target, maxDepth, scratch);
+        } finally {
+            scratches.offer(scratch);
+        }
+    }
+
+    private int[] shortestPath(int source, int target, int maxDepth, Scratch scratch) {
+        int[] marks = scratch.marks;
+        int[] parents = scratch.parents;
+        int[] queue = scratch.queue;
+        // each side marks its nodes with its own stamp
+        int forward = scratch.nextStamp();
+        int backward = scratch.nextStamp();
+        marks[source] = forward;
+        parents[source] = -1;
+        marks[target] = backward;
+        parents[target] = -1;
+        queue[0] = source;
+        queue[queue.length - 1] = target;
+        int forwardStart = 0;
+        int forwardEnd = 1;
+        int backwardStart = queue.length - 1;
+        int backwardEnd = queue.length - 2;
+
+        for (int depth = 0; depth < maxDepth; depth++) {
+            boolean expandForward = forwardEnd - forwardStart <= backwardStart - backwardEnd;
+            if (expandForward) {
+                int levelEnd = forwardEnd;
+                for (int i = forwardStart; i < levelEnd; i++) {
+                    int node = queue[i];
+                    for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                        int next = neighbours[e];
+                        if (marks[next] == backward) {
+                            return joinPath(node, next, parents);
+                        }
+                        if (marks[next] != forward) {
+                            marks[next] = forward;
+                            parents[next] = node;
+                            queue[forwardEnd++] = next;
+                        }
+                    }
+                }
+                forwardStart = levelEnd;
+                if (forwardStart == forwardEnd) {
+                    break;
+                }
+            } else {
+                int levelEnd = backwardEnd;
+                for (int i = backwardStart; i > levelEnd; i--) {
+                    int node = queue[i];
+                    for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                        int next = neighbours[e];
+                        if (marks[next] == forward) {
+                            return joinPath(next, node, parents);
+                        }
+                        if (marks[next] != backward) {
+                            marks[next] = backward;
+                            parents[next] = node;
+                            queue[backwardEnd--] = next;
+                        }
+                    }
+                }
+                backwardStart = levelEnd;
+                if (backwardStart == backwardEnd) {
+                    break;
+                }
+            }
+        }
+        return new int[0];
+    }
+
+    // forwardNode is reached from the source, backwardNode from the target, and they are adjacent
+    private static int[] joinPath(int forwardNode, int backwardNode, int[] parents) {
+        int forwardLength = 0;
+        for (int node = forwardNode; node != -1; node = parents[node]) {
+            forwardLength++;
+        }
+        int backwardLength = 0;
+        for (int node = backwardNode; node != -1; node = parents[node]) {
+            backwardLength++;
+        }
+        int[] path = new int[forwardLength + backwardLength];
+        int i = forwardLength - 1;
+        for (int node = forwardNode; node != -1; node = parents[node]) {
+            path[i--] = node;
+        }
+        i = forwardLength;
+        for (int node = backwardNode; node != -1; node = parents[node]) {
+            path[i++] = node;
+        }
+        return path;
+    }
+
+    private Scratch borrowScratch() throws InterruptedException {
+        Scratch scratch = scratches.poll();
+        if (scratch != null) {
+            return scratch;
+        }
+        if (scratchCount.getAndIncrement() < maxScratches) {
+            return new Scratch(personCount(), true);
+        }
+        scratchCount.decrementAndGet();
+        return scratches.take();
+    }
+
+    /**
+     * Per-search node state. A node belongs to the current search only while its mark equals a stamp handed out
+     * for that search, so nothing is cleared between searches until the stamp counter wraps.
+     */
+    private static final class Scratch {
+
+        final int[] marks;
+        final int[] parents;
+        final int[] queue;
+        private int stamp;
+
+        // building the graph only needs the marks
+        Scratch(int personCount, boolean search) {
+            this.marks = new int[personCount];
+            this.parents = search ? new int[personCount] : null;
+            this.queue = search ? new int[Math.max(2, personCount)] : null;
+        }
+
+        static long searchBytes(int personCount) {
+            return 4L * personCount + 4L * personCount + 4L * Math.max(2, personCount);
+        }
+
+        int nextStamp() {
+            if (stamp == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                stamp = 0;
+            }
+            return ++stamp;
+        }
+    }
+}
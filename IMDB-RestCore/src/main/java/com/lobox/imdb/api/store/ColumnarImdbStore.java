@@ -0,0 +1,377 @@
+package com.lobox.imdb.api.store;
+
+import com.lobox.imdb.api.util.Utf8Arena;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Struct-of-arrays {@link ImdbStore}: one primitive array per column, rows sorted by numeric id.
+ * Instances are immutable once built by {@link ColumnarStoreBuilder}. Titles and names are heap strings, or UTF-8
+ * in one off-heap arena after {@link #withOffHeapText()}.
+ */
+public final class ColumnarImdbStore implements ImdbStore {
+
+    // titles
+    private final int[] tconstIds;
+    private final byte[] titleTypeCodes;
+    private final StringDictionary titleTypes;
+    private final TextColumn primaryTitles;
+    private final BitSet originalIsPrimary;
+    // null where originalIsPrimary is set
+    private final TextColumn originalTitles;
+    private final BitSet adult;
+    private final short[] startYears;
+    private final short[] endYears;
+    private final int[] runtimeMinutes;
+    private final long[] genreMasks;
+    private final StringDictionary genres;
+    private final float[] averageRatings;
+    private final int[] numVotes;
+    private final CsrPostings directors;
+    private final CsrPostings writers;
+    private final CsrPostings principals;
+
+    // persons
+    private final int[] nconstIds;
+    private final TextColumn primaryNames;
+    private final short[] birthYears;
+    private final short[] deathYears;
+    // up to four profession codes, see StringDictionary.encodeList
+    private final int[] professionCodes;
+    private final StringDictionary professions;
+    private final CsrPostings knownForTitles;
+    private final CsrPostings personTitles;
+
+    // holds the text columns in off-heap mode, otherwise null
+    private final Utf8Arena text;
+
+    ColumnarImdbStore(int[] tconstIds, byte[] titleTypeCodes, StringDictionary titleTypes, String[] primaryTitles,
+                      String[] originalTitles, BitSet adult, short[] startYears, short[] endYears, int[] runtimeMinutes,
+                      long[] genreMasks, StringDictionary genres, float[] averageRatings, int[] numVotes,
+                      CsrPostings directors, CsrPostings writers, CsrPostings principals, int[] nconstIds,
+                      String[] primaryNames, short[] birthYears, short[] deathYears, int[] professionCodes,
+                      StringDictionary professions, CsrPostings knownForTitles, CsrPostings personTitles) {
+        this(tconstIds, titleTypeCodes, titleTypes, TextColumn.onHeap(primaryTitles), originalIsPrimary(primaryTitles, originalTitles),
+                TextColumn.onHeap(distinctOriginals(primaryTitles, originalTitles)), adult, startYears, endYears,
+                runtimeMinutes, genreMasks, genres, averageRatings, numVotes, directors, writers, principals, nconstIds,
+                TextColumn.onHeap(primaryNames), birthYears, deathYears, professionCodes, professions, knownForTitles,
+                personTitles, null);
+    }
+
+    private ColumnarImdbStore(int[] tconstIds, byte[] titleTypeCodes, StringDictionary titleTypes, TextColumn primaryTitles,
+                              BitSet originalIsPrimary, TextColumn originalTitles, BitSet adult, short[] startYears,
+                              short[] endYears, int[] runtimeMinutes, long[] genreMasks, StringDictionary genres,
+                              float[] averageRatings, int[] numVotes, CsrPostings directors, CsrPostings writers,
+                              CsrPostings principals, int[] nconstIds, TextColumn primaryNames, short[] birthYears,
+                              short[] deathYears, int[] professionCodes, StringDictionary professions,
+                              CsrPostings knownForTitles, CsrPostings personTitles, Utf8Arena text) {
+        this.tconstIds = tconstIds;
+        this.titleTypeCodes = titleTypeCodes;
+        this.titleTypes = titleTypes;
+        this.primaryTitles = primaryTitles;
+        this.originalIsPrimary = originalIsPrimary;
+        this.originalTitles = originalTitles;
+        this.adult = adult;
+        this.startYears = startYears;
+        this.endYears = endYears;
+        this.runtimeMinutes = runtimeMinutes;
+        this.genreMasks = genreMasks;
+        this.genres = genres;
+        this.averageRatings = averageRatings;
+        this.numVotes = numVotes;
+        this.directors = directors;
+        this.writers = writers;
+        this.principals = principals;
+        this.nconstIds = nconstIds;
+        this.primaryNames = primaryNames;
+        this.birthYears = birthYears;
+        this.deathYears = deathYears;
+        this.professionCodes = professionCodes;
+        this.professions = professions;
+        this.knownForTitles = knownForTitles;
+        this.personTitles = personTitles;
+        this.text = text;
+    }
+
+    // original titles mostly share the primary title instance; those rows are kept as a bit instead
+    private static BitSet originalIsPrimary(String[] primaryTitles, String[] originalTitles) {
+        BitSet sameAsPrimary = new BitSet(primaryTitles.length);
+        for (int row = 0; row < primaryTitles.length; row++) {
+            if (originalTitles[row] == primaryTitles[row]) {
+                sameAsPrimary.set(row);
+            }
+        }
+        return sameAsPrimary;
+    }
+
+    private static String[] distinctOriginals(String[] primaryTitles, String[] originalTitles) {
+        String[] distinct = new String[originalTitles.length];
+        for (int row = 0; row < originalTitles.length; row++) {
+            if (originalTitles[row] != primaryTitles[row]) {
+                distinct[row] = originalTitles[row];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Returns a store with the primary titles, original titles and primary names moved into one {@link Utf8Arena}
+     * and every other column shared with this one, or this store if its text is already off-heap. Strings are then
+     * decoded per read, trading a little CPU per emitted title or person for tens of millions fewer long-lived heap
+     * objects.
+     */
+    public ColumnarImdbStore withOffHeapText() {
+        if (text != null) {
+            return this;
+        }
+        Utf8Arena arena = Utf8Arena.allocate(encodedLength(primaryTitles) + encodedLength(originalTitles)
+                + encodedLength(primaryNames));
+        return new ColumnarImdbStore(tconstIds, titleTypeCodes, titleTypes, TextColumn.inArena(arena, primaryTitles),
+                originalIsPrimary, TextColumn.inArena(arena, originalTitles), adult, startYears, endYears,
+                runtimeMinutes, genreMasks, genres, averageRatings, numVotes, directors, writers, principals, nconstIds,
+                TextColumn.inArena(arena, primaryNames), birthYears, deathYears, professionCodes, professions,
+                knownForTitles, personTitles, arena);
+    }
+
+    private static long encodedLength(TextColumn column) {
+        long length = 0;
+        for (int row = 0; row < column.size(); row++) {
+            length += Utf8Arena.encodedLength(column.get(row));
+        }
+        return length;
+    }
+
+    /**
+     * Writes every column in a fixed order, see {@link #readFrom(SnapshotInput)}.
+     */
+    void writeTo(SnapshotOutput out) throws IOException {
+        writeDictionary(out, genres);
+        writeDictionary(out, titleTypes);
+        writeDictionary(out, professions);
+        out.writeInts(tconstIds);
+        out.writeBytes(titleTypeCodes);
+        writeText(out, primaryTitles);
+        out.writeLongs(originalIsPrimary.toLongArray());
+        for (int row = 0; row < tconstIds.length; row++) {
+            if (!originalIsPrimary.get(row)) {
+                out.writeString(originalTitles.get(row));
+            }
+        }
+        out.writeLongs(adult.toLongArray());
+        out.writeShorts(startYears);
+        out.writeShorts(endYears);
+        out.writeInts(runtimeMinutes);
+        out.writeLongs(genreMasks);
+        out.writeFloats(averageRatings);
+        out.writeInts(numVotes);
+        directors.writeTo(out);
+        writers.writeTo(out);
+        principals.writeTo(out);
+
+        out.writeInts(nconstIds);
+        writeText(out, primaryNames);
+        out.writeShorts(birthYears);
+        out.writeShorts(deathYears);
+        out.writeInts(professionCodes);
+        knownForTitles.writeTo(out);
+        personTitles.writeTo(out);
+    }
+
+    // same layout as SnapshotOutput.writeStrings
+    private static void writeText(SnapshotOutput out, TextColumn column) throws IOException {
+        out.writeInt(column.size());
+        for (int row = 0; row < column.size(); row++) {
+            out.writeString(column.get(row));
+        }
+    }
+
+    private static void writeDictionary(SnapshotOutput out, StringDictionary dictionary) throws IOException {
+        out.writeStrings(dictionary.values().toArray(new String[0]));
+    }
+
+    // Codes are assigned in order, so re-encoding the values restores every code.
+    private static StringDictionary readDictionary(SnapshotInput in, StringDictionary dictionary) throws IOException {
+        for (String value : in.readStrings()) {
+            dictionary.encode(value);
+        }
+        return dictionary;
+    }
+
+    static ColumnarImdbStore readFrom(SnapshotInput in) throws IOException {
+        StringDictionary genres = readDictionary(in, StringDictionary.forMasks());
+        StringDictionary titleTypes = readDictionary(in, new StringDictionary(Byte.MAX_VALUE));
+        StringDictionary professions = readDictionary(in, StringDictionary.forLists());
+        int[] tconstIds = in.readInts();
+        byte[] titleTypeCodes = in.readBytes();
+        String[] primaryTitles = in.readStrings();
+        BitSet originalIsPrimary = BitSet.valueOf(in.readLongs());
+        String[] originalTitles = new String[tconstIds.length];
+        for (int row = 0; row < tconstIds.length; row++) {
+            originalTitles[row] = originalIsPrimary.get(row) ? null : in.readString();
+        }
+        return new ColumnarImdbStore(tconstIds, titleTypeCodes, titleTypes, TextColumn.onHeap(primaryTitles),
+                originalIsPrimary, TextColumn.onHeap(originalTitles), BitSet.valueOf(in.readLongs()), in.readShorts(),
+                in.readShorts(), in.readInts(), in.readLongs(), genres, in.readFloats(), in.readInts(),
+                CsrPostings.readFrom(in), CsrPostings.readFrom(in), CsrPostings.readFrom(in), in.readInts(),
+                TextColumn.onHeap(in.readStrings()), in.readShorts(), in.readShorts(), in.readInts(), professions,
+                CsrPostings.readFrom(in), CsrPostings.readFrom(in), null);
+    }
+
+    @Override
+    public int titleCount() {
+        return tconstIds.length;
+    }
+
+    @Override
+    public int personCount() {
+        return nconstIds.length;
+    }
+
+    @Override
+    public int titleRow(int tconstId) {
+        int row = Arrays.binarySearch(tconstIds, tconstId);
+        return row < 0 ? NOT_FOUND : row;
+    }
+
+    @Override
+    public int personRow(int nconstId) {
+        int row = Arrays.binarySearch(nconstIds, nconstId);
+        return row < 0 ? NOT_FOUND : row;
+    }
+
+    @Override
+    public int tconstId(int titleRow) {
+        return tconstIds[titleRow];
+    }
+
+    @Override
+    public int titleTypeCode(int titleRow) {
+        return titleTypeCodes[titleRow];
+    }
+
+    @Override
+    public StringDictionary titleTypes() {
+        return titleTypes;
+    }
+
+    @Override
+    public String primaryTitle(int titleRow) {
+        return primaryTitles.get(titleRow);
+    }
+
+    @Override
+    public String originalTitle(int titleRow) {
+        return originalIsPrimary.get(titleRow) ? primaryTitles.get(titleRow) : originalTitles.get(titleRow);
+    }
+
+    @Override
+    public boolean isAdult(int titleRow) {
+        return adult.get(titleRow);
+    }
+
+    @Override
+    public int startYear(int titleRow) {
+        return startYears[titleRow];
+    }
+
+    @Override
+    public int endYear(int titleRow) {
+        return endYears[titleRow];
+    }
+
+    @Override
+    public int runtimeMinutes(int titleRow) {
+        return runtimeMinutes[titleRow];
+    }
+
+    @Override
+    public long genreMask(int titleRow) {
+        return genreMasks[titleRow];
+    }
+
+    @Override
+    public StringDictionary genres() {
+        return genres;
+    }
+
+    @Override
+    public float averageRating(int titleRow) {
+        return averageRatings[titleRow];
+    }
+
+    @Override
+    public int numVotes(int titleRow) {
+        return numVotes[titleRow];
+    }
+
+    @Override
+    public CsrPostings directors() {
+        return directors;
+    }
+
+    @Override
+    public CsrPostings writers() {
+        return writers;
+    }
+
+    @Override
+    public CsrPostings principals() {
+        return principals;
+    }
+
+    @Override
+    public CsrPostings personTitles() {
+        return personTitles;
+    }
+
+    @Override
+    public int nconstId(int personRow) {
+        return nconstIds[personRow];
+    }
+
+    @Override
+    public String primaryName(int personRow) {
+        return primaryNames.get(personRow);
+    }
+
+    @Override
+    public int birthYear(int personRow) {
+        return birthYears[personRow];
+    }
+
+    @Override
+    public int deathYear(int personRow) {
+        return deathYears[personRow];
+    }
+
+    @Override
+    public String primaryProfession(int personRow) {
+        return professions.decodeList(professionCodes[personRow]);
+    }
+
+    @Override
+    public CsrPostings knownForTitles() {
+        return knownForTitles;
+    }
+
+    @Override
+    public Map<String, Long> estimatedBytes() {
+        Map<String, Long> bytes = new LinkedHashMap<>();
+        bytes.put("titles", 4L * tconstIds.length + titleTypeCodes.length + adult.size() / 8 + 2L * startYears.length
+                + 2L * endYears.length + 4L * runtimeMinutes.length + 8L * genreMasks.length
+                + 4L * averageRatings.length + 4L * numVotes.length + primaryTitles.heapBytes()
+                + originalIsPrimary.size() / 8 + originalTitles.heapBytes());
+        bytes.put("crew", directors.estimatedBytes() + writers.estimatedBytes());
+        bytes.put("principals", principals.estimatedBytes() + personTitles.estimatedBytes());
+        bytes.put("persons", 4L * nconstIds.length + primaryNames.heapBytes() + 2L * birthYears.length
+                + 2L * deathYears.length + 4L * professionCodes.length + knownForTitles.estimatedBytes());
+        if (text != null) {
+            bytes.put("offHeapText", (long) text.capacity());
+        }
+        return bytes;
+    }
+}
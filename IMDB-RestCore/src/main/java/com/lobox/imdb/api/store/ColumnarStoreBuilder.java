@@ -0,0 +1,408 @@
+package com.lobox.imdb.api.store;
+
+import com.lobox.imdb.api.util.IntArrayList;
+import com.lobox.imdb.api.util.LongArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Accumulates parsed rows into growable columns and freezes them into a {@link ColumnarImdbStore}.
+ * <p>
+ * Loading happens in two phases. Titles are added first and {@link #sealTitles()} sorts them by tconst so that
+ * {@link #titleRow(int)} works. After that, persons, crew, principals and ratings may be added concurrently with
+ * each other, as long as each of those sections is written by a single thread. Parallel parsers fill one
+ * {@link #newChunk() chunk} builder per input slice and append the chunks in file order.
+ */
+public final class ColumnarStoreBuilder {
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    private final StringDictionary genres;
+    private final StringDictionary titleTypes;
+    private final StringDictionary professions;
+
+    // titles, in insertion order until sealed
+    private int titleSize;
+    private int[] tconstIds = new int[INITIAL_CAPACITY];
+    private byte[] titleTypeCodes = new byte[INITIAL_CAPACITY];
+    private String[] primaryTitles = new String[INITIAL_CAPACITY];
+    private String[] originalTitles = new String[INITIAL_CAPACITY];
+    private boolean[] adult = new boolean[INITIAL_CAPACITY];
+    private short[] startYears = new short[INITIAL_CAPACITY];
+    private short[] endYears = new short[INITIAL_CAPACITY];
+    private int[] runtimeMinutes = new int[INITIAL_CAPACITY];
+    private long[] genreMasks = new long[INITIAL_CAPACITY];
+    private boolean titlesSealed;
+
+    // per-title sections, written after sealTitles()
+    private float[] averageRatings;
+    private int[] numVotes;
+    private final IntArrayList directorTitles = new IntArrayList(INITIAL_CAPACITY);
+    private final IntArrayList directorIds = new IntArrayList(INITIAL_CAPACITY);
+    private final IntArrayList writerTitles = new IntArrayList(INITIAL_CAPACITY);
+    private final IntArrayList writerIds = new IntArrayList(INITIAL_CAPACITY);
+    // (title row, nconst id) pairs packed into longs; appended chunks are kept as they are and concatenated once
+    private LongArrayList principals = new LongArrayList(INITIAL_CAPACITY);
+    private final List<LongArrayList> principalChunks = new ArrayList<>();
+
+    // persons, in insertion order until build()
+    private int personSize;
+    private int[] nconstIds = new int[INITIAL_CAPACITY];
+    private String[] primaryNames = new String[INITIAL_CAPACITY];
+    private short[] birthYears = new short[INITIAL_CAPACITY];
+    private short[] deathYears = new short[INITIAL_CAPACITY];
+    private int[] professionCodes = new int[INITIAL_CAPACITY];
+    // (insertion row, tconst id) pairs
+    private final IntArrayList knownForPersons = new IntArrayList(INITIAL_CAPACITY);
+    private final IntArrayList knownForIds = new IntArrayList(INITIAL_CAPACITY);
+
+    public ColumnarStoreBuilder() {
+        this(StringDictionary.forMasks(), new StringDictionary(Byte.MAX_VALUE), StringDictionary.forLists());
+    }
+
+    private ColumnarStoreBuilder(StringDictionary genres, StringDictionary titleTypes, StringDictionary professions) {
+        this.genres = genres;
+        this.titleTypes = titleTypes;
+        this.professions = professions;
+    }
+
+    /**
+     * Returns an empty builder sharing this builder's dictionaries, to be filled by one parser thread and then
+     * merged with one of the {@code append*} methods.
+     */
+    public ColumnarStoreBuilder newChunk() {
+        return new ColumnarStoreBuilder(genres, titleTypes, professions);
+    }
+
+    public void addTitle(int tconstId, String titleType, String primaryTitle, String originalTitle, boolean isAdult,
+                         int startYear, int endYear, int runtime, String[] genreNames) {
+        if (titlesSealed) {
+            throw new IllegalStateException("Titles are already sealed");
+        }
+        if (titleSize == tconstIds.length) {
+            growTitles();
+        }
+        int row = titleSize++;
+        tconstIds[row] = tconstId;
+        titleTypeCodes[row] = (byte) (titleType == null ? -1 : titleTypes.encode(titleType));
+        primaryTitles[row] = primaryTitle;
+        // most titles are released under their original name, share the instance
+        originalTitles[row] = primaryTitle != null && primaryTitle.equals(originalTitle) ? primaryTitle : originalTitle;
+        adult[row] = isAdult;
+        startYears[row] = (short) startYear;
+        endYears[row] = (short) endYear;
+        runtimeMinutes[row] = runtime;
+        genreMasks[row] = genreMask(genreNames);
+    }
+
+    private long genreMask(String[] genreNames) {
+        long mask = 0L;
+        if (genreNames != null) {
+            for (String genre : genreNames) {
+                int code = genres.encode(genre);
+                if (code >= 0) {
+                    mask |= 1L << code;
+                }
+            }
+        }
+        return mask;
+    }
+
+    public void appendTitles(ColumnarStoreBuilder chunk) {
+        if (titlesSealed) {
+            throw new IllegalStateException("Titles are already sealed");
+        }
+        while (titleSize + chunk.titleSize > tconstIds.length) {
+            growTitles();
+        }
+        int n = chunk.titleSize;
+        System.arraycopy(chunk.tconstIds, 0, tconstIds, titleSize, n);
+        System.arraycopy(chunk.titleTypeCodes, 0, titleTypeCodes, titleSize, n);
+        System.arraycopy(chunk.primaryTitles, 0, primaryTitles, titleSize, n);
+        System.arraycopy(chunk.originalTitles, 0, originalTitles, titleSize, n);
+        System.arraycopy(chunk.adult, 0, adult, titleSize, n);
+        System.arraycopy(chunk.startYears, 0, startYears, titleSize, n);
+        System.arraycopy(chunk.endYears, 0, endYears, titleSize, n);
+        System.arraycopy(chunk.runtimeMinutes, 0, runtimeMinutes, titleSize, n);
+        System.arraycopy(chunk.genreMasks, 0, genreMasks, titleSize, n);
+        titleSize += n;
+    }
+
+    /**
+     * Sorts the titles by tconst (keeping the last row of duplicated ids) and opens the per-title sections.
+     */
+    public void sealTitles() {
+        int[] order = sortedUniqueOrder(tconstIds, titleSize);
+        tconstIds = permute(tconstIds, order);
+        titleTypeCodes = permute(titleTypeCodes, order);
+        primaryTitles = permute(primaryTitles, order);
+        originalTitles = permute(originalTitles, order);
+        adult = permute(adult, order);
+        startYears = permute(startYears, order);
+        endYears = permute(endYears, order);
+        runtimeMinutes = permute(runtimeMinutes, order);
+        genreMasks = permute(genreMasks, order);
+        titleSize = order.length;
+        averageRatings = new float[titleSize];
+        numVotes = new int[titleSize];
+        titlesSealed = true;
+    }
+
+    public int titleCount() {
+        return titleSize;
+    }
+
+    public int titleRow(int tconstId) {
+        if (!titlesSealed) {
+            throw new IllegalStateException("Titles must be sealed before rows can be resolved");
+        }
+        int row = Arrays.binarySearch(tconstIds, 0, titleSize, tconstId);
+        return row < 0 ? ImdbStore.NOT_FOUND : row;
+    }
+
+    public void setRating(int titleRow, float averageRating, int votes) {
+        averageRatings[titleRow] = averageRating;
+        numVotes[titleRow] = votes;
+    }
+
+    public void addCrew(int titleRow, int[] directors, int[] writers) {
+        for (int director : directors) {
+            directorTitles.add(titleRow);
+            directorIds.add(director);
+        }
+        for (int writer : writers) {
+            writerTitles.add(titleRow);
+            writerIds.add(writer);
+        }
+    }
+
+    public void appendCrew(ColumnarStoreBuilder chunk) {
+        directorTitles.addAll(chunk.directorTitles);
+        directorIds.addAll(chunk.directorIds);
+        writerTitles.addAll(chunk.writerTitles);
+        writerIds.addAll(chunk.writerIds);
+    }
+
+    public void addPrincipal(int titleRow, int nconstId) {
+        principals.add(CsrPostings.pack(titleRow, nconstId));
+    }
+
+    public void appendPrincipals(ColumnarStoreBuilder chunk) {
+        principalChunks.add(chunk.principals);
+        principalChunks.addAll(chunk.principalChunks);
+    }
+
+    /**
+     * Adds a person with its professions in file order and the tconst ids of the titles it is known for; either
+     * may be null.
+     */
+    public void addPerson(int nconstId, String primaryName, int birthYear, int deathYear, String[] professionNames,
+                          int[] knownForTconstIds) {
+        if (personSize == nconstIds.length) {
+            growPersons();
+        }
+        int row = personSize++;
+        nconstIds[row] = nconstId;
+        primaryNames[row] = primaryName;
+        birthYears[row] = (short) birthYear;
+        deathYears[row] = (short) deathYear;
+        professionCodes[row] = professions.encodeList(professionNames);
+        if (knownForTconstIds != null) {
+            for (int tconstId : knownForTconstIds) {
+                knownForPersons.add(row);
+                knownForIds.add(tconstId);
+            }
+        }
+    }
+
+    public void appendPersons(ColumnarStoreBuilder chunk) {
+        while (personSize + chunk.personSize > nconstIds.length) {
+            growPersons();
+        }
+        int n = chunk.personSize;
+        System.arraycopy(chunk.nconstIds, 0, nconstIds, personSize, n);
+        System.arraycopy(chunk.primaryNames, 0, primaryNames, personSize, n);
+        System.arraycopy(chunk.birthYears, 0, birthYears, personSize, n);
+        System.arraycopy(chunk.deathYears, 0, deathYears, personSize, n);
+        System.arraycopy(chunk.professionCodes, 0, professionCodes, personSize, n);
+        for (int i = 0; i < chunk.knownForPersons.size(); i++) {
+            knownForPersons.add(personSize + chunk.knownForPersons.get(i));
+            knownForIds.add(chunk.knownForIds.get(i));
+        }
+        personSize += n;
+    }
+
+    public int personCount() {
+        return personSize;
+    }
+
+    public ColumnarImdbStore build() {
+        if (!titlesSealed) {
+            sealTitles();
+        }
+        int[] order = sortedUniqueOrder(nconstIds, personSize);
+        int[] sortedNconstIds = permute(nconstIds, order);
+
+        BitSet adultBits = new BitSet(titleSize);
+        for (int row = 0; row < titleSize; row++) {
+            if (adult[row]) {
+                adultBits.set(row);
+            }
+        }
+
+        // insertion row -> final row, -1 for the rows of duplicated nconsts that were dropped
+        int[] finalRows = new int[personSize];
+        Arrays.fill(finalRows, -1);
+        for (int row = 0; row < order.length; row++) {
+            finalRows[order[row]] = row;
+        }
+        IntArrayList knownForRows = new IntArrayList(knownForPersons.size());
+        IntArrayList knownForTconstIds = new IntArrayList(knownForPersons.size());
+        for (int i = 0; i < knownForPersons.size(); i++) {
+            int row = finalRows[knownForPersons.get(i)];
+            if (row >= 0) {
+                knownForRows.add(row);
+                knownForTconstIds.add(knownForIds.get(i));
+            }
+        }
+
+        // One array of pairs serves both directions. Grouping by title is cheap because the file is in tconst
+        // order; for the person side the pairs are sorted by nconst, so ids map to rows in a single merge walk.
+        long[] principalPairs = concatPrincipals();
+        CsrPostings titlePrincipals = CsrPostings.fromPackedPairs(titleSize, principalPairs);
+        Arrays.parallelSetAll(principalPairs, i -> CsrPostings.pack((int) principalPairs[i], (int) (principalPairs[i] >>> 32)));
+        CsrPostings personTitles = CsrPostings.byPersonRow(principalPairs, sortedNconstIds.length, row -> sortedNconstIds[row]);
+
+        return new ColumnarImdbStore(tconstIds, titleTypeCodes, titleTypes, primaryTitles, originalTitles, adultBits,
+                startYears, endYears, runtimeMinutes, genreMasks, genres, averageRatings, numVotes,
+                CsrPostings.fromPairs(titleSize, directorTitles, directorIds, false),
+                CsrPostings.fromPairs(titleSize, writerTitles, writerIds, false),
+                titlePrincipals,
+                sortedNconstIds, permute(primaryNames, order), permute(birthYears, order),
+                permute(deathYears, order), permute(professionCodes, order), professions,
+                CsrPostings.fromPairs(order.length, knownForRows, knownForTconstIds, false),
+                personTitles);
+    }
+
+    private long[] concatPrincipals() {
+        long size = principals.size();
+        for (LongArrayList chunk : principalChunks) {
+            size += chunk.size();
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many principals: " + size);
+        }
+        long[] pairs = new long[(int) size];
+        principals.copyTo(pairs, 0);
+        int offset = principals.size();
+        for (LongArrayList chunk : principalChunks) {
+            chunk.copyTo(pairs, offset);
+            offset += chunk.size();
+        }
+        principals = new LongArrayList();
+        principalChunks.clear();
+        return pairs;
+    }
+
+    private void growTitles() {
+        int capacity = tconstIds.length + (tconstIds.length >> 1);
+        tconstIds = Arrays.copyOf(tconstIds, capacity);
+        titleTypeCodes = Arrays.copyOf(titleTypeCodes, capacity);
+        primaryTitles = Arrays.copyOf(primaryTitles, capacity);
+        originalTitles = Arrays.copyOf(originalTitles, capacity);
+        adult = Arrays.copyOf(adult, capacity);
+        startYears = Arrays.copyOf(startYears, capacity);
+        endYears = Arrays.copyOf(endYears, capacity);
+        runtimeMinutes = Arrays.copyOf(runtimeMinutes, capacity);
+        genreMasks = Arrays.copyOf(genreMasks, capacity);
+    }
+
+    private void growPersons() {
+        int capacity = nconstIds.length + (nconstIds.length >> 1);
+        nconstIds = Arrays.copyOf(nconstIds, capacity);
+        primaryNames = Arrays.copyOf(primaryNames, capacity);
+        birthYears = Arrays.copyOf(birthYears, capacity);
+        deathYears = Arrays.copyOf(deathYears, capacity);
+        professionCodes = Arrays.copyOf(professionCodes, capacity);
+    }
+
+    /**
+     * Returns the insertion rows ordered by id. For duplicated ids only the last inserted row is kept,
+     * matching the overwrite semantics of the previous map-based loader.
+     */
+    static int[] sortedUniqueOrder(int[] ids, int size) {
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = ids[i - 1] < ids[i];
+        }
+        int[] order = new int[size];
+        if (sorted) {
+            Arrays.setAll(order, i -> i);
+            return order;
+        }
+        long[] keyed = new long[size];
+        for (int i = 0; i < size; i++) {
+            keyed[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.parallelSort(keyed);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            boolean lastOfId = i + 1 == size || (int) (keyed[i + 1] >>> 32) != (int) (keyed[i] >>> 32);
+            if (lastOfId) {
+                order[count++] = (int) keyed[i];
+            }
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    private static int[] permute(int[] column, int[] order) {
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = column[order[i]];
+        }
+        return result;
+    }
+
+    private static byte[] permute(byte[] column, int[] order) {
+        byte[] result = new byte[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = column[order[i]];
+        }
+        return result;
+    }
+
+    private static short[] permute(short[] column, int[] order) {
+        short[] result = new short[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = column[order[i]];
+        }
+        return result;
+    }
+
+    private static long[] permute(long[] column, int[] order) {
+        long[] result = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = column[order[i]];
+        }
+        return result;
+    }
+
+    private static boolean[] permute(boolean[] column, int[] order) {
+        boolean[] result = new boolean[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = column[order[i]];
+        }
+        return result;
+    }
+
+    private static String[] permute(String[] column, int[] order) {
+        String[] result = new String[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = column[order[i]];
+        }
+        return result;
+    }
+}
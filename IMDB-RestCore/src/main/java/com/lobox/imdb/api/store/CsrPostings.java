@@ -0,0 +1,169 @@
+package com.lobox.imdb.api.store;
+
+import com.lobox.imdb.api.util.IntArrayList;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Compressed sparse row postings: the values of key k live in values[offsets[k] .. offsets[k + 1]).
+ */
+public final class CsrPostings implements IntPostings {
+
+    private final int[] offsets;
+    private final int[] values;
+
+    public CsrPostings(int[] offsets, int[] values) {
+        this.offsets = offsets;
+        this.values = values;
+    }
+
+    public static CsrPostings empty(int keyCount) {
+        return new CsrPostings(new int[keyCount + 1], new int[0]);
+    }
+
+    /**
+     * Groups (key, value) pairs by key with a counting sort. Values keep their insertion order unless
+     * {@code sortUnique} is set, in which case each key's values are sorted ascending and de-duplicated.
+     */
+    public static CsrPostings fromPairs(int keyCount, IntArrayList keys, IntArrayList values, boolean sortUnique) {
+        int pairs = keys.size();
+        int[] offsets = new int[keyCount + 1];
+        for (int i = 0; i < pairs; i++) {
+            offsets[keys.get(i) + 1]++;
+        }
+        for (int k = 0; k < keyCount; k++) {
+            offsets[k + 1] += offsets[k];
+        }
+        int[] cursor = Arrays.copyOf(offsets, keyCount);
+        int[] grouped = new int[pairs];
+        for (int i = 0; i < pairs; i++) {
+            grouped[cursor[keys.get(i)]++] = values.get(i);
+        }
+        return sortUnique ? compact(offsets, grouped) : new CsrPostings(offsets, grouped);
+    }
+
+    /**
+     * Groups pairs packed as {@code key << 32 | value} by key, with each key's values sorted ascending and
+     * de-duplicated. The array is sorted in place with {@link Arrays#parallelSort(long[])} and is scratch afterwards.
+     * Keys and values must be non-negative; pairs with a key of {@code keyCount} or more are dropped.
+     */
+    public static CsrPostings fromPackedPairs(int keyCount, long[] pairs) {
+        Arrays.parallelSort(pairs);
+        return fromSortedPackedPairs(keyCount, pairs, pairs.length);
+    }
+
+    /**
+     * {@link #fromPackedPairs} for the first {@code length} pairs when they are already in ascending order.
+     */
+    public static CsrPostings fromSortedPackedPairs(int keyCount, long[] pairs, int length) {
+        int unique = 0;
+        for (int i = 0; i < length && (int) (pairs[i] >>> 32) < keyCount; i++) {
+            if (i == 0 || pairs[i] != pairs[i - 1]) {
+                unique++;
+            }
+        }
+        int[] offsets = new int[keyCount + 1];
+        int[] values = new int[unique];
+        int write = 0;
+        for (int i = 0; write < unique; i++) {
+            if (i == 0 || pairs[i] != pairs[i - 1]) {
+                offsets[(int) (pairs[i] >>> 32) + 1]++;
+                values[write++] = (int) pairs[i];
+            }
+        }
+        for (int k = 0; k < keyCount; k++) {
+            offsets[k + 1] += offsets[k];
+        }
+        return new CsrPostings(offsets, values);
+    }
+
+    /**
+     * Groups pairs packed as {@code nconst id << 32 | title row} by the store's person rows. The array is sorted in
+     * place and is scratch afterwards; nconst ids without a person row are dropped.
+     */
+    public static CsrPostings byPersonRow(long[] nconstTitlePairs, ImdbStore store) {
+        return byPersonRow(nconstTitlePairs, store.personCount(), store::nconstId);
+    }
+
+    /**
+     * {@link #byPersonRow(long[], ImdbStore)} against {@code personCount} rows whose ascending nconst ids are given
+     * by {@code nconstId}, so sorted pairs map to rows in one merge walk.
+     */
+    public static CsrPostings byPersonRow(long[] nconstTitlePairs, int personCount, IntUnaryOperator nconstId) {
+        Arrays.parallelSort(nconstTitlePairs);
+        int known = 0;
+        int personRow = 0;
+        for (long pair : nconstTitlePairs) {
+            int id = (int) (pair >>> 32);
+            while (personRow < personCount && nconstId.applyAsInt(personRow) < id) {
+                personRow++;
+            }
+            if (personRow < personCount && nconstId.applyAsInt(personRow) == id) {
+                nconstTitlePairs[known++] = pack(personRow, (int) pair);
+            }
+        }
+        return fromSortedPackedPairs(personCount, nconstTitlePairs, known);
+    }
+
+    public static long pack(int key, int value) {
+        return (long) key << 32 | value;
+    }
+
+    private static CsrPostings compact(int[] offsets, int[] grouped) {
+        int write = 0;
+        int start = 0;
+        for (int k = 0; k + 1 < offsets.length; k++) {
+            int end = offsets[k + 1];
+            Arrays.sort(grouped, start, end);
+            int keyStart = write;
+            for (int i = start; i < end; i++) {
+                if (write == keyStart || grouped[write - 1] != grouped[i]) {
+                    grouped[write++] = grouped[i];
+                }
+            }
+            offsets[k] = keyStart;
+            start = end;
+        }
+        offsets[offsets.length - 1] = write;
+        return new CsrPostings(offsets, write == grouped.length ? grouped : Arrays.copyOf(grouped, write));
+    }
+
+    @Override
+    public int keyCount() {
+        return offsets.length - 1;
+    }
+
+    @Override
+    public int length(int key) {
+        return offsets[key + 1] - offsets[key];
+    }
+
+    @Override
+    public int get(int key, int index) {
+        return values[offsets[key] + index];
+    }
+
+    @Override
+    public int[] toArray(int key) {
+        return Arrays.copyOfRange(values, offsets[key], offsets[key + 1]);
+    }
+
+    public int valueCount() {
+        return values.length;
+    }
+
+    void writeTo(SnapshotOutput out) throws IOException {
+        out.writeInts(offsets);
+        out.writeInts(values);
+    }
+
+    static CsrPostings readFrom(SnapshotInput in) throws IOException {
+        return new CsrPostings(in.readInts(), in.readInts());
+    }
+
+    public long estimatedBytes() {
+        return 4L * offsets.length + 4L * values.length;
+    }
+}
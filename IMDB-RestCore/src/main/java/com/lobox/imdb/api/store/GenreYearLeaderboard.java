@@ -0,0 +1,150 @@
+package com.lobox.imdb.api.store;
+
+import java.util.Arrays;
+
+/**
+ * Per genre and start year, every ranked title ordered best first (most votes, then highest rating).
+ * <p>
+ * Only titles with a start year, votes and a rating are ranked, as in the original best-by-genre query. Each title
+ * appears once per genre it carries, so the whole structure is a few ints per rated title, and any top-K, year
+ * range or minimum-votes question is answered from bucket prefixes instead of a scan over the catalogue.
+ */
+public final class GenreYearLeaderboard {
+
+    private final ImdbStore store;
+    private final int minYear;
+    private final int yearSpan;
+    // bucket (genreCode * yearSpan + year - minYear) -> ranked title rows
+    private final int[] offsets;
+    private final int[] titleRows;
+
+    private GenreYearLeaderboard(ImdbStore store, int minYear, int yearSpan, int[] offsets, int[] titleRows) {
+        this.store = store;
+        this.minYear = minYear;
+        this.yearSpan = yearSpan;
+        this.offsets = offsets;
+        this.titleRows = titleRows;
+    }
+
+    public static GenreYearLeaderboard build(ImdbStore store) {
+        int titleCount = store.titleCount();
+        int minYear = Integer.MAX_VALUE;
+        int maxYear = Integer.MIN_VALUE;
+        int ranked = 0;
+        int[] candidates = new int[titleCount];
+        for (int row = 0; row < titleCount; row++) {
+            if (isRanked(store, row)) {
+                candidates[ranked++] = row;
+                minYear = Math.min(minYear, store.startYear(row));
+                maxYear = Math.max(maxYear, store.startYear(row));
+            }
+        }
+        int genreCount = store.genres().size();
+        if (ranked == 0 || genreCount == 0) {
+            return new GenreYearLeaderboard(store, 0, 0, new int[1], new int[0]);
+        }
+        int[] rankOrder = rankOrder(store, Arrays.copyOf(candidates, ranked));
+
+        int yearSpan = maxYear - minYear + 1;
+        int bucketCount = genreCount * yearSpan;
+        int[] offsets = new int[bucketCount + 1];
+        for (int row : rankOrder) {
+            int yearIndex = store.startYear(row) - minYear;
+            for (long bits = store.genreMask(row); bits != 0; bits &= bits - 1) {
+                offsets[Long.numberOfTrailingZeros(bits) * yearSpan + yearIndex + 1]++;
+            }
+        }
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            offsets[bucket + 1] += offsets[bucket];
+        }
+        // stable distribution keeps every bucket in rank order
+        int[] cursor = Arrays.copyOf(offsets, bucketCount);
+        int[] titleRows = new int[offsets[bucketCount]];
+        for (int row : rankOrder) {
+            int yearIndex = store.startYear(row) - minYear;
+            for (long bits = store.genreMask(row); bits != 0; bits &= bits - 1) {
+                titleRows[cursor[Long.numberOfTrailingZeros(bits) * yearSpan + yearIndex]++] = row;
+            }
+        }
+        return new GenreYearLeaderboard(store, minYear, yearSpan, offsets, titleRows);
+    }
+
+    private static boolean isRanked(ImdbStore store, int row) {
+        return store.startYear(row) != 0 && store.numVotes(row) != 0 && store.averageRating(row) != 0
+                && store.genreMask(row) != 0;
+    }
+
+    // Sorts rows by votes desc, rating desc, row asc using packed primitive keys.
+    private static int[] rankOrder(ImdbStore store, int[] rows) {
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            long votes = Math.min(store.numVotes(row), (1 << 30) - 1);
+            long rating = Math.min(Math.round(store.averageRating(row) * 10), 127);
+            keys[i] = ((((1L << 30) - 1 - votes) << 33) | ((127 - rating) << 26)) + i;
+        }
+        if (rows.length >= 1 << 26) {
+            throw new IllegalStateException("Too many ranked titles for packed keys: " + rows.length);
+        }
+        Arrays.parallelSort(keys);
+        int[] ordered = new int[rows.length];
+        for (int i = 0; i < keys.length; i++) {
+            ordered[i] = rows[(int) (keys[i] & ((1L << 26) - 1))];
+        }
+        return ordered;
+    }
+
+    public int minYear() {
+        return minYear;
+    }
+
+    public int maxYear() {
+        return minYear + yearSpan - 1;
+    }
+
+    /**
+     * Returns up to {@code k} title rows of the given genre and year, best first, with at least {@code minVotes}
+     * votes and, if {@code titleType} is not null, of that type.
+     */
+    public int[] top(int genreCode, int year, int k, int minVotes, String titleType) {
+        if (genreCode < 0 || genreCode >= offsets.length / Math.max(yearSpan, 1) || year < minYear
+                || year >= minYear + yearSpan || k <= 0) {
+            return new int[0];
+        }
+        int typeCode = titleType == null ? -1 : store.titleTypes().code(titleType);
+        if (titleType != null && typeCode < 0) {
+            return new int[0];
+        }
+        int bucket = genreCode * yearSpan + year - minYear;
+        int start = offsets[bucket];
+        int end = firstBelowVotes(start, offsets[bucket + 1], minVotes);
+        int[] result = new int[Math.min(k, end - start)];
+        int size = 0;
+        for (int i = start; i < end && size < result.length; i++) {
+            int row = titleRows[i];
+            if (titleType == null || store.titleTypeCode(row) == typeCode) {
+                result[size++] = row;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    // Buckets are sorted by votes descending, so the rows meeting minVotes form a prefix.
+    private int firstBelowVotes(int start, int end, int minVotes) {
+        int low = start;
+        int high = end - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (store.numVotes(titleRows[mid]) >= minVotes) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public long estimatedBytes() {
+        return 4L * offsets.length + 4L * titleRows.length;
+    }
+}
@@ -0,0 +1,166 @@
+package com.lobox.imdb.api.store;
+
+import com.lobox.imdb.api.util.IntArrayList;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A loaded {@link ImdbStore} together with the indexes derived from it. Derived indexes are rebuilt from the store
+ * after every load, whether it came from the TSV files or a snapshot, so they never need their own file format.
+ *
+ * @param generation   increases by one with every successful load, starting at 1
+ * @param titleSearch  primary and original titles, ranked by votes
+ * @param castIndexes  the indexes that need every crew or principal row, see {@link CastIndexes}
+ */
+public record ImdbDataset(long generation, ImdbStore store, GenreYearLeaderboard leaderboard, TextSearchIndex titleSearch,
+                          CastIndexes castIndexes) {
+
+    public static ImdbDataset of(long generation, ImdbStore store) {
+        return of(generation, store, CoStarGraph.DEFAULT_SEARCH_SCRATCHES);
+    }
+
+    /**
+     * @param coStarSearchScratches co-star and path searches that may run at once, see {@link CoStarGraph}
+     */
+    public static ImdbDataset of(long generation, ImdbStore store, int coStarSearchScratches) {
+        CastIndexes castIndexes = new CastIndexes(store, coStarSearchScratches);
+        if (!store.castOnDemand()) {
+            castIndexes.buildAll();
+        }
+        return new ImdbDataset(generation, store, GenreYearLeaderboard.build(store), TextSearchIndex.forTitles(store),
+                castIndexes);
+    }
+
+    /**
+     * Ascending rows of the titles whose single director is also their single writer and is still alive.
+     */
+    public int[] sameDirectorWriterAlive() {
+        return castIndexes.sameDirectorWriterAlive.get();
+    }
+
+    /**
+     * Persons linked by shared titles.
+     */
+    public CoStarGraph coStarGraph() {
+        return castIndexes.coStarGraph.get();
+    }
+
+    /**
+     * Primary names, ranked by the votes of the person's titles.
+     */
+    public TextSearchIndex personSearch() {
+        return castIndexes.personSearch.get();
+    }
+
+    /**
+     * Bitmaps answering filtered top-K title queries.
+     */
+    public TitleQueryIndex queryIndex() {
+        return castIndexes.queryIndex.get();
+    }
+
+    /**
+     * Estimated heap bytes of every structure of this generation, the store's column groups first. Cast indexes not
+     * built yet are left out.
+     */
+    public Map<String, Long> estimatedBytes() {
+        Map<String, Long> bytes = new LinkedHashMap<>(store.estimatedBytes());
+        bytes.put("leaderboard", leaderboard.estimatedBytes());
+        castIndexes.sameDirectorWriterAlive.ifBuilt(rows -> bytes.put("sameDirectorWriterAlive", 4L * rows.length));
+        castIndexes.coStarGraph.ifBuilt(graph -> bytes.put("coStarGraph", graph.estimatedBytes()));
+        bytes.put("titleSearch", titleSearch.estimatedBytes());
+        castIndexes.personSearch.ifBuilt(search -> bytes.put("personSearch", search.estimatedBytes()));
+        castIndexes.queryIndex.ifBuilt(index -> bytes.put("queryIndex", index.estimatedBytes()));
+        return bytes;
+    }
+
+    /**
+     * The derived indexes that make a pass over all crew or principals. They are built with the dataset, unless the
+     * store reads its cast on demand ({@link ImdbStore#castOnDemand()}): then {@link #buildAll()}, which starts with
+     * the store's {@link ImdbStore#buildPersonTitles() person titles}, is left to a background thread, and until it
+     * has built an index, its accessor throws {@link CastIndexesNotReadyException} rather than building it on, or
+     * blocking, the caller's thread.
+     */
+    public static final class CastIndexes {
+
+        private final Lazy<int[]> sameDirectorWriterAlive;
+        private final Lazy<CoStarGraph> coStarGraph;
+        private final Lazy<TextSearchIndex> personSearch;
+        private final Lazy<TitleQueryIndex> queryIndex;
+        private final ImdbStore store;
+
+        CastIndexes(ImdbStore store, int coStarSearchScratches) {
+            this.store = store;
+            this.sameDirectorWriterAlive = new Lazy<>(() -> ImdbDataset.sameDirectorWriterAlive(store));
+            this.coStarGraph = new Lazy<>(() -> CoStarGraph.build(store, coStarSearchScratches));
+            this.personSearch = new Lazy<>(() -> TextSearchIndex.forPersons(store));
+            this.queryIndex = new Lazy<>(() -> TitleQueryIndex.build(store));
+        }
+
+        public void buildAll() {
+            // first, so that common-actors queries are answered as soon as possible; co-stars and person search need it
+            store.buildPersonTitles();
+            sameDirectorWriterAlive.build();
+            coStarGraph.build();
+            personSearch.build();
+            queryIndex.build();
+        }
+
+        public boolean isBuilt() {
+            return sameDirectorWriterAlive.value != null && coStarGraph.value != null && personSearch.value != null
+                    && queryIndex.value != null;
+        }
+    }
+
+    private static final class Lazy<T> {
+
+        private final Supplier<T> builder;
+        private volatile T value;
+
+        Lazy(Supplier<T> builder) {
+            this.builder = builder;
+        }
+
+        T get() {
+            T current = value;
+            if (current == null) {
+                throw new CastIndexesNotReadyException();
+            }
+            return current;
+        }
+
+        synchronized void build() {
+            if (value == null) {
+                value = builder.get();
+            }
+        }
+
+        void ifBuilt(Consumer<T> action) {
+            T current = value;
+            if (current != null) {
+                action.accept(current);
+            }
+        }
+    }
+
+    private static int[] sameDirectorWriterAlive(ImdbStore store) {
+        IntPostings directors = store.directors();
+        IntPostings writers = store.writers();
+        IntArrayList rows = new IntArrayList();
+        for (int titleRow = 0; titleRow < store.titleCount(); titleRow++) {
+            if (directors.length(titleRow) == 1 && writers.length(titleRow) == 1) {
+                int directorId = directors.get(titleRow, 0);
+                if (directorId == writers.get(titleRow, 0)) {
+                    int personRow = store.personRow(directorId);
+                    if (personRow != ImdbStore.NOT_FOUND && store.deathYear(personRow) == 0) {
+                        rows.add(titleRow);
+                    }
+                }
+            }
+        }
+        return rows.toArray();
+    }
+}
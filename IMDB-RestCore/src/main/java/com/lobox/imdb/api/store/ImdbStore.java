@@ -0,0 +1,181 @@
+package com.lobox.imdb.api.store;
+
+import com.lobox.imdb.api.model.Person;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.util.ImdbIds;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Read-only view of the loaded IMDB dataset. Titles and persons are addressed by dense row indexes; tconst/nconst
+ * are kept as their numeric suffix. {@link Title} and {@link Person} objects are only built at the response edge.
+ */
+public interface ImdbStore {
+
+    int NOT_FOUND = -1;
+
+    int titleCount();
+
+    int personCount();
+
+    /**
+     * Estimated heap bytes of the store by column group (titles, crew, principals, persons), in a stable order.
+     */
+    Map<String, Long> estimatedBytes();
+
+    /**
+     * Returns the row of the title with the given numeric tconst, or {@link #NOT_FOUND}.
+     */
+    int titleRow(int tconstId);
+
+    /**
+     * Returns the row of the person with the given numeric nconst, or {@link #NOT_FOUND}.
+     */
+    int personRow(int nconstId);
+
+    default int titleRow(String tconst) {
+        int id = ImdbIds.parseTconst(tconst);
+        return id < 0 ? NOT_FOUND : titleRow(id);
+    }
+
+    default int personRow(String nconst) {
+        int id = ImdbIds.parseNconst(nconst);
+        return id < 0 ? NOT_FOUND : personRow(id);
+    }
+
+    // Title columns
+
+    int tconstId(int titleRow);
+
+    /**
+     * Code of the title type in {@link #titleTypes()}, or -1 when unknown.
+     */
+    int titleTypeCode(int titleRow);
+
+    StringDictionary titleTypes();
+
+    default String titleType(int titleRow) {
+        int code = titleTypeCode(titleRow);
+        return code < 0 ? null : titleTypes().value(code);
+    }
+
+    String primaryTitle(int titleRow);
+
+    String originalTitle(int titleRow);
+
+    boolean isAdult(int titleRow);
+
+    /**
+     * Start year, or 0 when unknown. The same convention applies to the other numeric columns.
+     */
+    int startYear(int titleRow);
+
+    int endYear(int titleRow);
+
+    int runtimeMinutes(int titleRow);
+
+    long genreMask(int titleRow);
+
+    StringDictionary genres();
+
+    float averageRating(int titleRow);
+
+    int numVotes(int titleRow);
+
+    /**
+     * Title row -> director nconst ids.
+     */
+    IntPostings directors();
+
+    /**
+     * Title row -> writer nconst ids.
+     */
+    IntPostings writers();
+
+    /**
+     * Title row -> nconst ids of its principals, ascending.
+     */
+    IntPostings principals();
+
+    /**
+     * Person row -> rows of the titles the person is a principal of, ascending.
+     */
+    IntPostings personTitles();
+
+    /**
+     * Builds {@link #personTitles()} when this store derives it from a whole-file pass on demand; until then it
+     * throws {@link CastIndexesNotReadyException}. Does nothing for stores that hold it already.
+     */
+    default void buildPersonTitles() {
+    }
+
+    /**
+     * True when crew and principals are read from their files on access instead of being held in memory, so that
+     * whole-file passes over them are worth deferring until they are needed.
+     */
+    default boolean castOnDemand() {
+        return false;
+    }
+
+    // Person columns
+
+    int nconstId(int personRow);
+
+    String primaryName(int personRow);
+
+    int birthYear(int personRow);
+
+    int deathYear(int personRow);
+
+    /**
+     * Comma separated professions in file order, or null. Equal lists share one instance.
+     */
+    String primaryProfession(int personRow);
+
+    /**
+     * Person row -> tconst ids of the titles the person is known for, in file order.
+     */
+    IntPostings knownForTitles();
+
+    default Title toTitle(int titleRow) {
+        boolean rated = numVotes(titleRow) != 0;
+        return new Title(ImdbIds.formatTconst(tconstId(titleRow)), titleType(titleRow), primaryTitle(titleRow),
+                originalTitle(titleRow), isAdult(titleRow), startYear(titleRow), endYear(titleRow),
+                runtimeMinutes(titleRow), genres().decodeMask(genreMask(titleRow)),
+                formatIds(directors(), titleRow, ImdbIds::formatNconst), formatIds(writers(), titleRow, ImdbIds::formatNconst),
+                rated ? Double.valueOf(Float.toString(averageRating(titleRow))) : null,
+                rated ? numVotes(titleRow) : null);
+    }
+
+    default Person toPerson(int personRow) {
+        int birthYear = birthYear(personRow);
+        int deathYear = deathYear(personRow);
+        return new Person(ImdbIds.formatNconst(nconstId(personRow)), primaryName(personRow),
+                birthYear == 0 ? null : birthYear, deathYear == 0 ? null : deathYear, primaryProfession(personRow),
+                formatIds(knownForTitles(), personRow, ImdbIds::formatTconst));
+    }
+
+    default List<Title> toTitles(int[] titleRows) {
+        List<Title> result = new ArrayList<>(titleRows.length);
+        for (int titleRow : titleRows) {
+            result.add(toTitle(titleRow));
+        }
+        return result;
+    }
+
+    private static List<String> formatIds(IntPostings postings, int row, IntFunction<String> format) {
+        int length = postings.length(row);
+        if (length == 0) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            ids.add(format.apply(postings.get(row, i)));
+        }
+        return ids;
+    }
+}
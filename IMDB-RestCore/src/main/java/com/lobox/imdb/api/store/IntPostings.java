@@ -0,0 +1,31 @@
+package com.lobox.imdb.api.store;
+
+/**
+ * Read-only int multimap keyed by a dense row index (title row -> nconst ids, person row -> title rows, ...).
+ */
+public interface IntPostings {
+
+    int keyCount();
+
+    int length(int key);
+
+    int get(int key, int index);
+
+    default int[] toArray(int key) {
+        int[] values = new int[length(key)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(key, i);
+        }
+        return values;
+    }
+
+    default boolean contains(int key, int value) {
+        int length = length(key);
+        for (int i = 0; i < length; i++) {
+            if (get(key, i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,178 @@
+package com.lobox.imdb.api.store;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Reader counterpart of {@link SnapshotOutput}. The checksum is accumulated while reading and compared with the
+ * trailer by {@link #verifyChecksum()}.
+ */
+final class SnapshotInput implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    private final CRC32C checksum = new CRC32C();
+    private final long payloadEnd;
+    private long position;
+
+    SnapshotInput(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.payloadEnd = channel.size() - Long.BYTES;
+        if (payloadEnd < 0) {
+            throw new EOFException("Snapshot is truncated: " + file);
+        }
+        buffer.limit(0);
+    }
+
+    int readInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    long readLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    byte[] readBytes() throws IOException {
+        int length = readLength();
+        byte[] values = new byte[length];
+        int read = 0;
+        while (read < length) {
+            require(1);
+            int n = Math.min(length - read, buffer.remaining());
+            buffer.get(values, read, n);
+            read += n;
+        }
+        return values;
+    }
+
+    String readString() throws IOException {
+        require(Integer.BYTES);
+        int length = buffer.getInt(buffer.position());
+        if (length == -1) {
+            buffer.getInt();
+            return null;
+        }
+        return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    String[] readStrings() throws IOException {
+        String[] values = new String[readLength()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString();
+        }
+        return values;
+    }
+
+    int[] readInts() throws IOException {
+        int[] values = new int[readLength()];
+        int read = 0;
+        while (read < values.length) {
+            require(Integer.BYTES);
+            int n = Math.min(values.length - read, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().get(values, read, n);
+            buffer.position(buffer.position() + n * Integer.BYTES);
+            read += n;
+        }
+        return values;
+    }
+
+    short[] readShorts() throws IOException {
+        short[] values = new short[readLength()];
+        int read = 0;
+        while (read < values.length) {
+            require(Short.BYTES);
+            int n = Math.min(values.length - read, buffer.remaining() / Short.BYTES);
+            buffer.asShortBuffer().get(values, read, n);
+            buffer.position(buffer.position() + n * Short.BYTES);
+            read += n;
+        }
+        return values;
+    }
+
+    long[] readLongs() throws IOException {
+        long[] values = new long[readLength()];
+        int read = 0;
+        while (read < values.length) {
+            require(Long.BYTES);
+            int n = Math.min(values.length - read, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().get(values, read, n);
+            buffer.position(buffer.position() + n * Long.BYTES);
+            read += n;
+        }
+        return values;
+    }
+
+    float[] readFloats() throws IOException {
+        float[] values = new float[readLength()];
+        int read = 0;
+        while (read < values.length) {
+            require(Float.BYTES);
+            int n = Math.min(values.length - read, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().get(values, read, n);
+            buffer.position(buffer.position() + n * Float.BYTES);
+            read += n;
+        }
+        return values;
+    }
+
+    /**
+     * Returns true when the whole payload was consumed and matches the trailing CRC32C.
+     */
+    boolean verifyChecksum() throws IOException {
+        if (buffer.hasRemaining() || position != payloadEnd) {
+            return false;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+        while (trailer.hasRemaining()) {
+            if (channel.read(trailer, payloadEnd + trailer.position()) < 0) {
+                return false;
+            }
+        }
+        return trailer.getLong(0) == checksum.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int readLength() throws IOException {
+        int length = readInt();
+        if (length < 0 || length > payloadEnd) {
+            throw new IOException("Corrupt snapshot: invalid length " + length);
+        }
+        return length;
+    }
+
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            int start = buffer.position();
+            int capacity = (int) Math.min(buffer.remaining(), payloadEnd - position);
+            if (capacity <= 0) {
+                throw new EOFException("Unexpected end of snapshot");
+            }
+            buffer.limit(start + capacity);
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of snapshot");
+            }
+            checksum.update(buffer.duplicate().flip().position(start));
+            position += read;
+            buffer.limit(buffer.capacity());
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,141 @@
+package com.lobox.imdb.api.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Buffered, checksummed writer for snapshot files. Primitive arrays are copied in bulk through a direct buffer.
+ */
+final class SnapshotOutput implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    private final CRC32C checksum = new CRC32C();
+
+    SnapshotOutput(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    void writeInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void writeLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    void writeBytes(byte[] values) throws IOException {
+        writeInt(values.length);
+        int written = 0;
+        while (written < values.length) {
+            ensure(1);
+            int n = Math.min(values.length - written, buffer.remaining());
+            buffer.put(values, written, n);
+            written += n;
+        }
+    }
+
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            writeInt(-1);
+        } else {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    void writeStrings(String[] values) throws IOException {
+        writeInt(values.length);
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    void writeInts(int[] values) throws IOException {
+        writeInt(values.length);
+        int written = 0;
+        while (written < values.length) {
+            ensure(Integer.BYTES);
+            int n = Math.min(values.length - written, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, written, n);
+            buffer.position(buffer.position() + n * Integer.BYTES);
+            written += n;
+        }
+    }
+
+    void writeShorts(short[] values) throws IOException {
+        writeInt(values.length);
+        int written = 0;
+        while (written < values.length) {
+            ensure(Short.BYTES);
+            int n = Math.min(values.length - written, buffer.remaining() / Short.BYTES);
+            buffer.asShortBuffer().put(values, written, n);
+            buffer.position(buffer.position() + n * Short.BYTES);
+            written += n;
+        }
+    }
+
+    void writeLongs(long[] values) throws IOException {
+        writeInt(values.length);
+        int written = 0;
+        while (written < values.length) {
+            ensure(Long.BYTES);
+            int n = Math.min(values.length - written, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().put(values, written, n);
+            buffer.position(buffer.position() + n * Long.BYTES);
+            written += n;
+        }
+    }
+
+    void writeFloats(float[] values) throws IOException {
+        writeInt(values.length);
+        int written = 0;
+        while (written < values.length) {
+            ensure(Float.BYTES);
+            int n = Math.min(values.length - written, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().put(values, written, n);
+            buffer.position(buffer.position() + n * Float.BYTES);
+            written += n;
+        }
+    }
+
+    /**
+     * Flushes the payload and appends its CRC32C, which is not part of the checksummed bytes.
+     */
+    void finish() throws IOException {
+        flush();
+        ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES).putLong(0, checksum.getValue());
+        while (trailer.hasRemaining()) {
+            channel.write(trailer);
+        }
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,74 @@
+package com.lobox.imdb.api.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Versioned, checksummed binary image of a fully joined {@link ColumnarImdbStore}.
+ * <p>
+ * Layout: magic, format version, source fingerprint, the store columns, then a CRC32C of everything before it.
+ * A snapshot is only used when its format version and source fingerprint match the running loader.
+ */
+@Slf4j
+public final class StoreSnapshot {
+
+    private static final long MAGIC = 0x494D4442534E4150L; // "IMDBSNAP"
+    public static final int FORMAT_VERSION = 2;
+
+    private StoreSnapshot() {
+    }
+
+    /**
+     * Writes the snapshot to a temporary sibling and atomically moves it into place.
+     */
+    public static void write(ColumnarImdbStore store, String sourceFingerprint, Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (SnapshotOutput out = new SnapshotOutput(temporary)) {
+            out.writeLong(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeString(sourceFingerprint);
+            store.writeTo(out);
+            out.finish();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot if it exists and was written from the same sources by the same format version.
+     */
+    public static Optional<ColumnarImdbStore> read(Path file, String expectedFingerprint) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            log.info("No snapshot found at {}.", file);
+            return Optional.empty();
+        }
+        try (SnapshotInput in = new SnapshotInput(file)) {
+            if (in.readLong() != MAGIC) {
+                log.warn("Ignoring {}: not a snapshot file.", file);
+                return Optional.empty();
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                log.info("Ignoring snapshot {}: format version {} but {} is required.", file, version, FORMAT_VERSION);
+                return Optional.empty();
+            }
+            if (!expectedFingerprint.equals(in.readString())) {
+                log.info("Ignoring snapshot {}: source files changed since it was written.", file);
+                return Optional.empty();
+            }
+            ColumnarImdbStore store = ColumnarImdbStore.readFrom(in);
+            if (!in.verifyChecksum()) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            return Optional.of(store);
+        }
+    }
+}
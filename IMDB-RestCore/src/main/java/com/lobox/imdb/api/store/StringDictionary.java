@@ -0,0 +1,150 @@
+package com.lobox.imdb.api.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns small dense codes to a low-cardinality set of strings (genres, title types, professions). Codes are
+ * stable once assigned, so a code can be used as a bit position in a {@code long} mask as long as the dictionary
+ * stays within 64 entries, or as one byte of a packed list within 255 entries.
+ * <p>
+ * Registering takes a lock and republishes the values as a new array; reads, which come from every query once the
+ * store is loaded, only read that array.
+ */
+public final class StringDictionary {
+
+    public static final int MASK_CAPACITY = Long.SIZE;
+    public static final int LIST_CAPACITY = 255;
+    // values per packed list, one byte each
+    public static final int MAX_LIST_LENGTH = Integer.BYTES;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final Object registerLock = new Object();
+    // copy on write: replaced, never modified, so readers need no lock
+    private volatile String[] values = new String[0];
+    private final Map<Long, List<String>> decodedMasks = new ConcurrentHashMap<>();
+    private final Map<Integer, String> decodedLists = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    public StringDictionary(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public static StringDictionary forMasks() {
+        return new StringDictionary(MASK_CAPACITY);
+    }
+
+    public static StringDictionary forLists() {
+        return new StringDictionary(LIST_CAPACITY);
+    }
+
+    /**
+     * Returns the code of {@code value}, registering it if needed, or -1 once the dictionary is full.
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (registerLock) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (current.length >= capacity) {
+                return -1;
+            }
+            String[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = value.intern();
+            // publish the value before its code, so a code read from the map always decodes
+            values = grown;
+            codes.put(grown[current.length], current.length);
+            return current.length;
+        }
+    }
+
+    /**
+     * Returns the code of {@code value} without registering it, or -1 if unknown.
+     */
+    public int code(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    public String value(int code) {
+        return values[code];
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public List<String> values() {
+        return List.of(values);
+    }
+
+    public long mask(String value) {
+        int code = code(value);
+        return code < 0 || code >= MASK_CAPACITY ? 0L : 1L << code;
+    }
+
+    /**
+     * Decodes a bit mask into its (alphabetically sorted) values. Distinct masks are few, so results are cached.
+     */
+    public List<String> decodeMask(long mask) {
+        if (mask == 0L) {
+            return Collections.emptyList();
+        }
+        return decodedMasks.computeIfAbsent(mask, m -> {
+            List<String> decoded = new ArrayList<>(Long.bitCount(m));
+            for (long bits = m; bits != 0; bits &= bits - 1) {
+                decoded.add(value(Long.numberOfTrailingZeros(bits)));
+            }
+            Collections.sort(decoded);
+            return List.copyOf(decoded);
+        });
+    }
+
+    /**
+     * Packs the codes of up to {@link #MAX_LIST_LENGTH} values into an int, keeping their order: one byte per value
+     * holding its code plus one, lowest byte first. Values beyond the limit or the dictionary capacity are dropped.
+     */
+    public int encodeList(String[] values) {
+        int packed = 0;
+        int length = 0;
+        if (values != null) {
+            for (String value : values) {
+                int code = value.isEmpty() || length == MAX_LIST_LENGTH ? -1 : encode(value);
+                if (code >= 0 && code < LIST_CAPACITY) {
+                    packed |= (code + 1) << (Byte.SIZE * length++);
+                }
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Decodes a packed list back into its comma separated form, or null for an empty list. Distinct lists are
+     * few, so the joined strings are cached and shared.
+     */
+    public String decodeList(int packed) {
+        if (packed == 0) {
+            return null;
+        }
+        return decodedLists.computeIfAbsent(packed, p -> {
+            StringBuilder joined = new StringBuilder();
+            for (int bits = p; bits != 0; bits >>>= Byte.SIZE) {
+                if (joined.length() > 0) {
+                    joined.append(',');
+                }
+                joined.append(value((bits & 0xFF) - 1));
+            }
+            return joined.toString();
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package com.lobox.imdb.api.store;
+
+import com.lobox.imdb.api.util.Utf8Arena;
+
+/**
+ * Strings of one store column by row, either as heap {@code String}s or as offsets into a shared {@link Utf8Arena}.
+ */
+interface TextColumn {
+
+    String get(int row);
+
+    int size();
+
+    /**
+     * Estimated heap bytes; the bytes of an arena are counted once by its owner.
+     */
+    long heapBytes();
+
+    static TextColumn onHeap(String[] values) {
+        return new OnHeap(values);
+    }
+
+    /**
+     * Appends every value of {@code column} to {@code arena}.
+     */
+    static TextColumn inArena(Utf8Arena arena, TextColumn column) {
+        int[] offsets = new int[column.size()];
+        for (int row = 0; row < offsets.length; row++) {
+            offsets[row] = arena.append(column.get(row));
+        }
+        return new InArena(arena, offsets);
+    }
+
+    record OnHeap(String[] values) implements TextColumn {
+
+        @Override
+        public String get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public long heapBytes() {
+            long bytes = 4L * values.length;
+            for (String value : values) {
+                bytes += stringBytes(value);
+            }
+            return bytes;
+        }
+
+        // object header, hash and coder plus a Latin-1 byte array; close enough for titles and names
+        private static long stringBytes(String value) {
+            return value == null ? 0 : 40L + value.length();
+        }
+    }
+
+    record InArena(Utf8Arena arena, int[] offsets) implements TextColumn {
+
+        @Override
+        public String get(int row) {
+            return arena.get(offsets[row]);
+        }
+
+        @Override
+        public int size() {
+            return offsets.length;
+        }
+
+        @Override
+        public long heapBytes() {
+            return 4L * offsets.length;
+        }
+    }
+}
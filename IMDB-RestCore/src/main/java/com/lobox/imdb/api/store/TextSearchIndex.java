@@ -0,0 +1,410 @@
+package com.lobox.imdb.api.store;
+
+import com.lobox.imdb.api.util.IntArrayList;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Case- and accent-insensitive substring search over one or more text fields of a set of rows, returning the best
+ * ranked matches first.
+ * <p>
+ * Every row gets a document id equal to its rank, so trigram postings ascending by document id are also ordered
+ * best first: a query intersects the postings of its trigrams, checks each candidate against the actual text and
+ * stops as soon as it has enough matches. Postings are stored as varint deltas in one byte array.
+ */
+public final class TextSearchIndex {
+
+    // a trigram is three UTF-16 units of the normalized text packed into 48 bits
+    private static final long EMPTY_KEY = -1L;
+    private static final int BLOCK_DOCS = 1 << 16;
+
+    private final List<IntFunction<String>> fields;
+    // document id -> row
+    private final int[] rows;
+    private final long[] trigramKeys;
+    private final int[] trigramIds;
+    private final int[] postingCounts;
+    private final int[] postingOffsets;
+    private final byte[] postings;
+
+    private TextSearchIndex(List<IntFunction<String>> fields, int[] rows, long[] trigramKeys, int[] trigramIds,
+                            int[] postingCounts, int[] postingOffsets, byte[] postings) {
+        this.fields = fields;
+        this.rows = rows;
+        this.trigramKeys = trigramKeys;
+        this.trigramIds = trigramIds;
+        this.postingCounts = postingCounts;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+    }
+
+    public static TextSearchIndex forTitles(ImdbStore store) {
+        long[] votes = new long[store.titleCount()];
+        for (int row = 0; row < votes.length; row++) {
+            votes[row] = store.numVotes(row);
+        }
+        return build(rankOrder(votes), List.of(store::primaryTitle, row -> {
+            String original = store.originalTitle(row);
+            return original == null || original.equals(store.primaryTitle(row)) ? null : original;
+        }));
+    }
+
+    /**
+     * Persons are ranked by the total votes of the titles they are a principal of.
+     */
+    public static TextSearchIndex forPersons(ImdbStore store) {
+        IntPostings personTitles = store.personTitles();
+        long[] votes = new long[store.personCount()];
+        for (int row = 0; row < votes.length; row++) {
+            for (int i = 0; i < personTitles.length(row); i++) {
+                votes[row] += store.numVotes(personTitles.get(row, i));
+            }
+        }
+        return build(rankOrder(votes), List.of(store::primaryName));
+    }
+
+    // Rows by score descending, then row ascending.
+    private static int[] rankOrder(long[] scores) {
+        long[] keys = new long[scores.length];
+        for (int row = 0; row < scores.length; row++) {
+            keys[row] = ((Integer.MAX_VALUE - Math.min(scores[row], Integer.MAX_VALUE)) << 32) | row;
+        }
+        Arrays.parallelSort(keys);
+        int[] rows = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            rows[i] = (int) keys[i];
+        }
+        return rows;
+    }
+
+    static TextSearchIndex build(int[] rows, List<IntFunction<String>> fields) {
+        TrigramTable table = new TrigramTable();
+        IntArrayList lastDocs = new IntArrayList();
+        IntArrayList counts = new IntArrayList();
+        IntArrayList sizes = new IntArrayList();
+        String[] texts = new String[BLOCK_DOCS * fields.size()];
+        // pass 1 assigns trigram ids and sizes every list; a trigram seen twice in one document is kept once
+        for (int doc = 0; doc < rows.length; doc++) {
+            if (doc % BLOCK_DOCS == 0) {
+                indexedTexts(rows, doc, fields, texts);
+            }
+            for (int f = 0; f < fields.size(); f++) {
+                String text = texts[(doc % BLOCK_DOCS) * fields.size() + f];
+                for (int i = 0; i + 3 <= text.length(); i++) {
+                    int id = table.idOrAdd(trigram(text, i));
+                    if (id == counts.size()) {
+                        lastDocs.add(-1);
+                        counts.add(0);
+                        sizes.add(0);
+                    }
+                    int last = lastDocs.get(id);
+                    if (last != doc) {
+                        counts.set(id, counts.get(id) + 1);
+                        sizes.set(id, sizes.get(id) + varintSize(doc - last));
+                        lastDocs.set(id, doc);
+                    }
+                }
+            }
+        }
+        int trigramCount = counts.size();
+        int[] offsets = new int[trigramCount + 1];
+        long total = 0;
+        for (int id = 0; id < trigramCount; id++) {
+            total += sizes.get(id);
+            if (total > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Search postings exceed " + (Integer.MAX_VALUE - 8) + " bytes");
+            }
+            offsets[id + 1] = (int) total;
+        }
+
+        // pass 2 writes the deltas
+        byte[] postings = new byte[(int) total];
+        int[] cursors = Arrays.copyOf(offsets, trigramCount);
+        int[] last = new int[trigramCount];
+        Arrays.fill(last, -1);
+        for (int doc = 0; doc < rows.length; doc++) {
+            if (doc % BLOCK_DOCS == 0) {
+                indexedTexts(rows, doc, fields, texts);
+            }
+            for (int f = 0; f < fields.size(); f++) {
+                String text = texts[(doc % BLOCK_DOCS) * fields.size() + f];
+                for (int i = 0; i + 3 <= text.length(); i++) {
+                    int id = table.id(trigram(text, i));
+                    if (last[id] != doc) {
+                        cursors[id] = writeVarint(postings, cursors[id], doc - last[id]);
+                        last[id] = doc;
+                    }
+                }
+            }
+        }
+        return new TextSearchIndex(fields, rows, table.keys, table.ids, counts.toArray(), offsets, postings);
+    }
+
+    // Normalizes the fields of the block of documents starting at `from` in parallel; the postings are then
+    // written sequentially, in document order.
+    private static void indexedTexts(int[] rows, int from, List<IntFunction<String>> fields, String[] texts) {
+        int to = Math.min(rows.length, from + BLOCK_DOCS);
+        IntStream.range(from, to).parallel().forEach(doc -> {
+            for (int f = 0; f < fields.size(); f++) {
+                texts[(doc - from) * fields.size() + f] = indexedText(fields.get(f).apply(rows[doc]));
+            }
+        });
+    }
+
+    /**
+     * Returns up to {@code limit} rows whose text contains the normalized query, best ranked first. A two character
+     * query only matches at the start of a word; a shorter one matches nothing.
+     */
+    public int[] search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.length() < 2 || limit <= 0) {
+            return new int[0];
+        }
+        String pattern = normalized.length() == 2 ? " " + normalized : normalized;
+
+        int[] lists = distinctTrigrams(pattern);
+        if (lists == null) {
+            return new int[0];
+        }
+        // the rarest list drives the intersection, the others are advanced to its candidates
+        sortByCount(lists);
+        int[] positions = new int[lists.length];
+        int[] docs = new int[lists.length];
+        int[] remaining = new int[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            positions[i] = postingOffsets[lists[i]];
+            docs[i] = -1;
+            remaining[i] = postingCounts[lists[i]];
+        }
+
+        int[] result = new int[Math.min(limit, postingCounts[lists[0]])];
+        int size = 0;
+        candidates:
+        while (size < result.length && remaining[0] > 0) {
+            advance(0, positions, docs, remaining);
+            int candidate = docs[0];
+            for (int i = 1; i < lists.length; i++) {
+                while (docs[i] < candidate) {
+                    if (remaining[i] == 0) {
+                        break candidates;
+                    }
+                    advance(i, positions, docs, remaining);
+                }
+                if (docs[i] != candidate) {
+                    continue candidates;
+                }
+            }
+            if (matches(rows[candidate], pattern)) {
+                result[size++] = rows[candidate];
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private void advance(int list, int[] positions, int[] docs, int[] remaining) {
+        int position = positions[list];
+        int delta = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = postings[position++];
+            delta |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        positions[list] = position;
+        docs[list] += delta;
+        remaining[list]--;
+    }
+
+    private boolean matches(int row, String pattern) {
+        for (IntFunction<String> field : fields) {
+            if (indexedText(field.apply(row)).contains(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Trigram ids of the pattern, each once, or null when one of them never occurs.
+    private int[] distinctTrigrams(String pattern) {
+        int[] ids = new int[pattern.length() - 2];
+        int count = 0;
+        for (int i = 0; i + 3 <= pattern.length(); i++) {
+            int id = lookup(trigram(pattern, i));
+            if (id < 0) {
+                return null;
+            }
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = ids[j] == id;
+            }
+            if (!seen) {
+                ids[count++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private void sortByCount(int[] lists) {
+        for (int i = 1; i < lists.length; i++) {
+            int list = lists[i];
+            int j = i - 1;
+            while (j >= 0 && postingCounts[lists[j]] > postingCounts[list]) {
+                lists[j + 1] = lists[j];
+                j--;
+            }
+            lists[j + 1] = list;
+        }
+    }
+
+    private int lookup(long key) {
+        int mask = trigramKeys.length - 1;
+        for (int slot = TrigramTable.hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (trigramKeys[slot] == key) {
+                return trigramIds[slot];
+            }
+            if (trigramKeys[slot] == EMPTY_KEY) {
+                return -1;
+            }
+        }
+    }
+
+    public int documentCount() {
+        return rows.length;
+    }
+
+    public int trigramCount() {
+        return postingCounts.length;
+    }
+
+    public long estimatedBytes() {
+        return 4L * rows.length + 12L * trigramKeys.length + 8L * postingCounts.length + postings.length;
+    }
+
+    /**
+     * Lower-cases, strips accents and turns every run of characters other than letters and digits into a single
+     * space, without leading or trailing spaces.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        String decomposed = ascii ? text : Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(Character.toLowerCase(c));
+            } else if (!isMark(c)) {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isMark(char c) {
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    // The leading space lets a query match at the start of the first word as well.
+    private static String indexedText(String text) {
+        return text == null ? "" : " " + normalize(text);
+    }
+
+    private static long trigram(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    private static int varintSize(int value) {
+        return value < 1 << 7 ? 1 : value < 1 << 14 ? 2 : value < 1 << 21 ? 3 : value < 1 << 28 ? 4 : 5;
+    }
+
+    private static int writeVarint(byte[] target, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Open-addressing trigram key -> dense id table, grown while building.
+     */
+    private static final class TrigramTable {
+
+        long[] keys = newKeys(1 << 12);
+        int[] ids = new int[1 << 12];
+        private int size;
+
+        static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY_KEY);
+            return keys;
+        }
+
+        int id(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return ids[slot];
+        }
+
+        int idOrAdd(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY_KEY) {
+                if (keys[slot] == key) {
+                    return ids[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            ids[slot] = size;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = newKeys(oldKeys.length * 2);
+            ids = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY_KEY) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (keys[slot] != EMPTY_KEY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.lobox.imdb.api.store;
+
+import com.lobox.imdb.api.model.TitleQuery;
+import com.lobox.imdb.api.util.CompressedBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compressed bitmaps of title rows per genre, title type, start year, vote bucket and rating bucket, plus the
+ * titles of every director and writer, answering {@link TitleQuery} filters with bitmap AND/OR instead of a scan.
+ * <p>
+ * The filter bitmaps are intersected smallest first. Small results are checked row by row; large ones are walked
+ * through the buckets of the sort column, best bucket first, into a bounded heap that stops at the first bucket
+ * boundary once it holds {@code k} titles, since every later bucket ranks strictly lower. Vote counts and ratings
+ * fall into buckets wider than one value, so their bounds are checked again on each candidate.
+ * <p>
+ * Titles without the sort value (unrated ones for votes and rating, ones without a start year for year) are not
+ * returned.
+ */
+public final class TitleQueryIndex {
+
+    // candidate sets up to this size are checked directly instead of bucket by bucket
+    private static final int DIRECT_SCAN_MAX = 1 << 16;
+    // votes v > 0 fall into bucket 32 - numberOfLeadingZeros(v), i.e. [2^(b-1), 2^b)
+    private static final int VOTE_BUCKETS = 33;
+    // ratings in tenths r fall into bucket r / 5, i.e. half-point steps from 0.0 to 10.0
+    private static final int RATING_BUCKETS = 21;
+
+    private final ImdbStore store;
+    private final CompressedBitmap[] genres;
+    private final CompressedBitmap[] titleTypes;
+    private final int minYear;
+    private final CompressedBitmap[] years;
+    private final CompressedBitmap adult;
+    private final CompressedBitmap[] voteBuckets;
+    private final CompressedBitmap[] ratingBuckets;
+    // person row -> ascending title rows
+    private final CsrPostings directedTitles;
+    private final CsrPostings writtenTitles;
+
+    private TitleQueryIndex(ImdbStore store, CompressedBitmap[] genres, CompressedBitmap[] titleTypes, int minYear,
+                            CompressedBitmap[] years, CompressedBitmap adult, CompressedBitmap[] voteBuckets,
+                            CompressedBitmap[] ratingBuckets, CsrPostings directedTitles, CsrPostings writtenTitles) {
+        this.store = store;
+        this.genres = genres;
+        this.titleTypes = titleTypes;
+        this.minYear = minYear;
+        this.years = years;
+        this.adult = adult;
+        this.voteBuckets = voteBuckets;
+        this.ratingBuckets = ratingBuckets;
+        this.directedTitles = directedTitles;
+        this.writtenTitles = writtenTitles;
+    }
+
+    public static TitleQueryIndex build(ImdbStore store) {
+        int titleCount = store.titleCount();
+        int minYear = Integer.MAX_VALUE;
+        int maxYear = Integer.MIN_VALUE;
+        for (int row = 0; row < titleCount; row++) {
+            int year = store.startYear(row);
+            if (year != 0) {
+                minYear = Math.min(minYear, year);
+                maxYear = Math.max(maxYear, year);
+            }
+        }
+        if (minYear > maxYear) {
+            minYear = maxYear = 0;
+        }
+        // rows ascend, so every bitmap is appended to in order during a single pass
+        CompressedBitmap.Appender[] genres = appenders(store.genres().size());
+        CompressedBitmap.Appender[] titleTypes = appenders(store.titleTypes().size());
+        CompressedBitmap.Appender[] years = appenders(maxYear - minYear + 1);
+        CompressedBitmap.Appender adult = new CompressedBitmap.Appender();
+        CompressedBitmap.Appender[] voteBuckets = appenders(VOTE_BUCKETS);
+        CompressedBitmap.Appender[] ratingBuckets = appenders(RATING_BUCKETS);
+        for (int row = 0; row < titleCount; row++) {
+            for (long bits = store.genreMask(row); bits != 0; bits &= bits - 1) {
+                genres[Long.numberOfTrailingZeros(bits)].add(row);
+            }
+            int typeCode = store.titleTypeCode(row);
+            if (typeCode >= 0) {
+                titleTypes[typeCode].add(row);
+            }
+            int year = store.startYear(row);
+            if (year != 0) {
+                years[year - minYear].add(row);
+            }
+            if (store.isAdult(row)) {
+                adult.add(row);
+            }
+            int votes = store.numVotes(row);
+            if (votes > 0) {
+                voteBuckets[voteBucket(votes)].add(row);
+                ratingBuckets[ratingBucket(ratingTenths(store, row))].add(row);
+            }
+        }
+        return new TitleQueryIndex(store, build(genres), build(titleTypes), minYear, build(years), adult.build(),
+                build(voteBuckets), build(ratingBuckets), byPerson(store, store.directors()),
+                byPerson(store, store.writers()));
+    }
+
+    private static CompressedBitmap.Appender[] appenders(int count) {
+        CompressedBitmap.Appender[] appenders = new CompressedBitmap.Appender[count];
+        Arrays.setAll(appenders, i -> new CompressedBitmap.Appender());
+        return appenders;
+    }
+
+    private static CompressedBitmap[] build(CompressedBitmap.Appender[] appenders) {
+        CompressedBitmap[] bitmaps = new CompressedBitmap[appenders.length];
+        Arrays.setAll(bitmaps, i -> appenders[i].build());
+        return bitmaps;
+    }
+
+    // Inverts title -> nconst postings to person row -> title rows.
+    private static CsrPostings byPerson(ImdbStore store, IntPostings byTitle) {
+        int pairCount = 0;
+        for (int row = 0; row < byTitle.keyCount(); row++) {
+            pairCount += byTitle.length(row);
+        }
+        long[] pairs = new long[pairCount];
+        int size = 0;
+        for (int row = 0; row < byTitle.keyCount(); row++) {
+            for (int i = 0; i < byTitle.length(row); i++) {
+                pairs[size++] = CsrPostings.pack(byTitle.get(row, i), row);
+            }
+        }
+        return CsrPostings.byPersonRow(pairs, store);
+    }
+
+    private static int voteBucket(int votes) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(votes);
+    }
+
+    private static int ratingBucket(int tenths) {
+        return Math.min(RATING_BUCKETS - 1, Math.max(0, tenths / 5));
+    }
+
+    private static int ratingTenths(ImdbStore store, int row) {
+        return Math.round(store.averageRating(row) * 10f);
+    }
+
+    /**
+     * Rows of the top {@code k} titles, best first, and what it took to find them.
+     *
+     * @param candidates rows left by the bitmap filters and checked one by one
+     * @param matches    candidates within the vote and rating bounds
+     */
+    public record Result(int[] titleRows, long candidates, long matches) {
+
+        static final Result EMPTY = new Result(new int[0], 0, 0);
+    }
+
+    public Result query(TitleQuery query) {
+        List<CompressedBitmap> filters = new ArrayList<>();
+        if (!addFilters(query, filters)) {
+            return Result.EMPTY;
+        }
+        CompressedBitmap candidates = filters.isEmpty() ? null : CompressedBitmap.and(filters);
+        if (candidates != null && query.getAdult() == Boolean.FALSE) {
+            candidates = candidates.andNot(adult);
+        }
+        Scan scan = new Scan(query);
+        if (candidates != null && candidates.cardinality() <= DIRECT_SCAN_MAX) {
+            candidates.forEach(scan::offer);
+            return scan.result();
+        }
+        CompressedBitmap[] buckets = sortBuckets(query.getSort());
+        for (int i = 0; i < buckets.length && !scan.full(); i++) {
+            CompressedBitmap bucket = buckets[query.isAscending() ? i : buckets.length - 1 - i];
+            if (candidates != null) {
+                bucket = bucket.and(candidates);
+            } else if (query.getAdult() == Boolean.FALSE) {
+                bucket = bucket.andNot(adult);
+            }
+            bucket.forEach(scan::offer);
+        }
+        return scan.result();
+    }
+
+    // Adds one bitmap per filter; returns false when some filter cannot match anything.
+    private boolean addFilters(TitleQuery query, List<CompressedBitmap> filters) {
+        List<String> genreNames = query.getGenres() == null ? List.of() : query.getGenres();
+        if (!genreNames.isEmpty()) {
+            List<CompressedBitmap> matching = new ArrayList<>();
+            for (String genre : genreNames) {
+                int code = store.genres().code(genre);
+                if (code >= 0) {
+                    matching.add(genres[code]);
+                } else if (query.getGenreMatch() != TitleQuery.GenreMatch.ANY) {
+                    return false;
+                }
+            }
+            if (matching.isEmpty()) {
+                return false;
+            }
+            if (query.getGenreMatch() == TitleQuery.GenreMatch.ANY) {
+                filters.add(CompressedBitmap.or(matching));
+            } else {
+                filters.addAll(matching);
+            }
+        }
+        List<String> typeNames = query.getTitleTypes() == null ? List.of() : query.getTitleTypes();
+        if (!typeNames.isEmpty()) {
+            List<CompressedBitmap> matching = new ArrayList<>();
+            for (String titleType : typeNames) {
+                int code = store.titleTypes().code(titleType);
+                if (code >= 0) {
+                    matching.add(titleTypes[code]);
+                }
+            }
+            if (matching.isEmpty()) {
+                return false;
+            }
+            filters.add(CompressedBitmap.or(matching));
+        }
+        if (query.getFromYear() != null || query.getToYear() != null) {
+            int from = Math.max(query.getFromYear() == null ? minYear : query.getFromYear(), minYear);
+            int to = Math.min(query.getToYear() == null ? minYear + years.length - 1 : query.getToYear(), minYear + years.length - 1);
+            if (from > to) {
+                return false;
+            }
+            filters.add(CompressedBitmap.or(Arrays.asList(years).subList(from - minYear, to - minYear + 1)));
+        }
+        if (query.getAdult() == Boolean.TRUE) {
+            filters.add(adult);
+        }
+        if (query.getMinVotes() > 0) {
+            filters.add(CompressedBitmap.or(Arrays.asList(voteBuckets).subList(voteBucket(query.getMinVotes()), VOTE_BUCKETS)));
+        }
+        if (query.getMinRating() != null || query.getMaxRating() != null) {
+            int from = ratingBucket(minTenths(query));
+            int to = ratingBucket(maxTenths(query));
+            if (from > to) {
+                return false;
+            }
+            filters.add(CompressedBitmap.or(Arrays.asList(ratingBuckets).subList(from, to + 1)));
+        }
+        return addPersonFilters(query.getDirectors(), directedTitles, filters)
+                && addPersonFilters(query.getWriters(), writtenTitles, filters)
+                && addPersonFilters(query.getActors(), store.personTitles(), filters);
+    }
+
+    private boolean addPersonFilters(List<String> nconsts, IntPostings titlesByPerson, List<CompressedBitmap> filters) {
+        if (nconsts == null) {
+            return true;
+        }
+        for (String nconst : nconsts) {
+            int personRow = store.personRow(nconst);
+            if (personRow == ImdbStore.NOT_FOUND) {
+                return false;
+            }
+            filters.add(CompressedBitmap.of(titlesByPerson.toArray(personRow)));
+        }
+        return true;
+    }
+
+    private CompressedBitmap[] sortBuckets(TitleQuery.Sort sort) {
+        return switch (sort) {
+            case VOTES -> voteBuckets;
+            case RATING -> ratingBuckets;
+            case YEAR -> years;
+        };
+    }
+
+    private static int minTenths(TitleQuery query) {
+        return query.getMinRating() == null ? 0 : (int) Math.ceil(query.getMinRating() * 10 - 1e-6);
+    }
+
+    private static int maxTenths(TitleQuery query) {
+        return query.getMaxRating() == null ? 100 : (int) Math.floor(query.getMaxRating() * 10 + 1e-6);
+    }
+
+    /**
+     * Checks candidates against the bounds the buckets only approximate and keeps the best {@code k} in a min-heap
+     * whose root is the worst kept title. A key packs the sort value (negated when ascending) above the tie-break
+     * value, so titles compare as single longs; equal keys prefer the lower row.
+     */
+    private final class Scan {
+
+        private final TitleQuery.Sort sort;
+        private final boolean ascending;
+        private final int minVotes;
+        private final int minTenths;
+        private final int maxTenths;
+        private final long[] keys;
+        private final int[] rows;
+        private int size;
+        private long candidates;
+        private long matches;
+
+        private Scan(TitleQuery query) {
+            this.sort = query.getSort();
+            this.ascending = query.isAscending();
+            this.minVotes = query.getMinVotes();
+            this.minTenths = minTenths(query);
+            this.maxTenths = maxTenths(query);
+            this.keys = new long[query.getK()];
+            this.rows = new int[query.getK()];
+        }
+
+        boolean full() {
+            return size == keys.length;
+        }
+
+        void offer(int row) {
+            candidates++;
+            int votes = store.numVotes(row);
+            int tenths = votes == 0 ? 0 : ratingTenths(store, row);
+            if (votes < minVotes || (votes == 0 && (minTenths > 0 || maxTenths < 100)) || tenths < minTenths || tenths > maxTenths) {
+                return;
+            }
+            int primary;
+            int secondary;
+            switch (sort) {
+                case VOTES -> {
+                    primary = votes;
+                    secondary = tenths;
+                }
+                case RATING -> {
+                    primary = tenths;
+                    secondary = votes;
+                }
+                default -> {
+                    primary = store.startYear(row);
+                    secondary = votes;
+                }
+            }
+            if ((sort == TitleQuery.Sort.YEAR ? primary : votes) == 0) {
+                return;
+            }
+            matches++;
+            long key = (long) (ascending ? -primary : primary) << 32 | secondary;
+            if (size < keys.length) {
+                keys[size] = key;
+                rows[size] = row;
+                siftUp(size++);
+            } else if (worse(keys[0], rows[0], key, row)) {
+                keys[0] = key;
+                rows[0] = row;
+                siftDown(0);
+            }
+        }
+
+        // true when (keyA, rowA) ranks below (keyB, rowB)
+        private boolean worse(long keyA, int rowA, long keyB, int rowB) {
+            return keyA < keyB || (keyA == keyB && rowA > rowB);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!worse(keys[index], rows[index], keys[parent], rows[parent])) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int worst = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                    if (worse(keys[child], rows[child], keys[worst], rows[worst])) {
+                        worst = child;
+                    }
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long key = keys[a];
+            keys[a] = keys[b];
+            keys[b] = key;
+            int row = rows[a];
+            rows[a] = rows[b];
+            rows[b] = row;
+        }
+
+        Result result() {
+            // popping the worst title each time fills the result from the back
+            int[] titleRows = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                titleRows[i] = rows[0];
+                size--;
+                swap(0, size);
+                siftDown(0);
+            }
+            return new Result(titleRows, candidates, matches);
+        }
+    }
+
+    public long estimatedBytes() {
+        long bytes = directedTitles.estimatedBytes() + writtenTitles.estimatedBytes() + adult.estimatedBytes();
+        for (CompressedBitmap[] bitmaps : List.of(genres, titleTypes, years, voteBuckets, ratingBuckets)) {
+            for (CompressedBitmap bitmap : bitmaps) {
+                bytes += bitmap.estimatedBytes();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,439 @@
+package com.lobox.imdb.api.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable compressed bitmap of non-negative ints in the Roaring layout: values are grouped by their high 16 bits
+ * into containers, each holding the low 16 bits either as a sorted {@code char[]} (sparse, up to 4096 values) or
+ * as a 1024-word {@code long[]} bitmap (dense). AND, OR and AND-NOT work container by container, so their cost
+ * follows the compressed size of the operands rather than the range of values they cover.
+ */
+public final class CompressedBitmap {
+
+    public static final CompressedBitmap EMPTY = new CompressedBitmap(new char[0], new Object[0], 0);
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    // high 16 bits of the values in each container, ascending
+    private final char[] keys;
+    // char[] (sorted low bits) or long[] (BITMAP_WORDS words), aligned with keys
+    private final Object[] containers;
+    private final int cardinality;
+
+    private CompressedBitmap(char[] keys, Object[] containers, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Builds a bitmap from ascending, duplicate-free values.
+     */
+    public static CompressedBitmap of(int[] sorted) {
+        return of(sorted, 0, sorted.length);
+    }
+
+    public static CompressedBitmap of(int[] sorted, int from, int to) {
+        Appender appender = new Appender();
+        for (int i = from; i < to; i++) {
+            appender.add(sorted[i]);
+        }
+        return appender.build();
+    }
+
+    /**
+     * Every value in {@code [0, size)}.
+     */
+    public static CompressedBitmap range(int size) {
+        Builder builder = new Builder();
+        for (int base = 0; base < size; base += 1 << 16) {
+            int count = Math.min(1 << 16, size - base);
+            long[] words = new long[BITMAP_WORDS];
+            for (int low = 0; low < count; low++) {
+                words[low >>> 6] |= 1L << low;
+            }
+            builder.add((char) (base >>> 16), count <= ARRAY_MAX ? toArray(words, count) : words, count);
+        }
+        return builder.build();
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, (char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        return containers[index] instanceof long[] words ? (words[low >>> 6] & 1L << low) != 0
+                : Arrays.binarySearch((char[]) containers[index], low) >= 0;
+    }
+
+    /**
+     * Passes every value to {@code consumer} in ascending order.
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int c = 0; c < keys.length; c++) {
+            int base = keys[c] << 16;
+            if (containers[c] instanceof long[] words) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    for (long bits = words[w]; bits != 0; bits &= bits - 1) {
+                        consumer.accept(base | w << 6 | Long.numberOfTrailingZeros(bits));
+                    }
+                }
+            } else {
+                for (char low : (char[]) containers[c]) {
+                    consumer.accept(base | low);
+                }
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] values = new int[cardinality];
+        int[] size = new int[1];
+        forEach(value -> values[size[0]++] = value);
+        return values;
+    }
+
+    public CompressedBitmap and(CompressedBitmap other) {
+        Builder builder = new Builder();
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                builder.addIfNotEmpty(keys[i], and(containers[i], other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    public CompressedBitmap or(CompressedBitmap other) {
+        Builder builder = new Builder();
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                builder.add(keys[i], containers[i], size(containers[i]));
+                i++;
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                builder.add(other.keys[j], other.containers[j], size(other.containers[j]));
+                j++;
+            } else {
+                builder.addIfNotEmpty(keys[i], or(containers[i], other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        Builder builder = new Builder();
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.keys.length && other.keys[j] == keys[i]) {
+                builder.addIfNotEmpty(keys[i], andNot(containers[i], other.containers[j]));
+            } else {
+                builder.add(keys[i], containers[i], size(containers[i]));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Intersects all bitmaps, smallest first so every step is bounded by the smallest intermediate result.
+     */
+    public static CompressedBitmap and(List<CompressedBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return EMPTY;
+        }
+        CompressedBitmap[] ordered = bitmaps.toArray(new CompressedBitmap[0]);
+        Arrays.sort(ordered, (a, b) -> Integer.compare(a.cardinality, b.cardinality));
+        CompressedBitmap result = ordered[0];
+        for (int i = 1; i < ordered.length && !result.isEmpty(); i++) {
+            result = result.and(ordered[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Unions all bitmaps pairwise, so each value is copied about log2(n) times instead of n times.
+     */
+    public static CompressedBitmap or(List<CompressedBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return EMPTY;
+        }
+        CompressedBitmap[] level = bitmaps.toArray(new CompressedBitmap[0]);
+        int size = level.length;
+        while (size > 1) {
+            int next = 0;
+            for (int i = 0; i < size; i += 2) {
+                level[next++] = i + 1 < size ? level[i].or(level[i + 1]) : level[i];
+            }
+            size = next;
+        }
+        return level[0];
+    }
+
+    public long estimatedBytes() {
+        long bytes = 2L * keys.length + 4L * containers.length;
+        for (Object container : containers) {
+            bytes += 16 + (container instanceof long[] words ? 8L * words.length : 2L * ((char[]) container).length);
+        }
+        return bytes;
+    }
+
+    private static int size(Object container) {
+        return container instanceof long[] words ? bitCount(words) : ((char[]) container).length;
+    }
+
+    private static int bitCount(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Containers are returned with their size as a Sized pair so the builder does not count twice.
+    private record Sized(Object container, int size) {
+    }
+
+    private static Sized and(Object a, Object b) {
+        if (a instanceof long[] wordsA && b instanceof long[] wordsB) {
+            long[] words = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] = wordsA[w] & wordsB[w];
+                count += Long.bitCount(words[w]);
+            }
+            return count <= ARRAY_MAX ? new Sized(toArray(words, count), count) : new Sized(words, count);
+        }
+        if (a instanceof long[] words) {
+            return filter((char[]) b, words, true);
+        }
+        if (b instanceof long[] words) {
+            return filter((char[]) a, words, true);
+        }
+        char[] valuesA = (char[]) a;
+        char[] valuesB = (char[]) b;
+        char[] out = new char[Math.min(valuesA.length, valuesB.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < valuesA.length && j < valuesB.length) {
+            if (valuesA[i] < valuesB[j]) {
+                i++;
+            } else if (valuesA[i] > valuesB[j]) {
+                j++;
+            } else {
+                out[count++] = valuesA[i];
+                i++;
+                j++;
+            }
+        }
+        return new Sized(count == out.length ? out : Arrays.copyOf(out, count), count);
+    }
+
+    private static Sized or(Object a, Object b) {
+        if (a instanceof long[] wordsA) {
+            return new Sized(orInto(wordsA.clone(), b), -1);
+        }
+        if (b instanceof long[] wordsB) {
+            return new Sized(orInto(wordsB.clone(), a), -1);
+        }
+        char[] valuesA = (char[]) a;
+        char[] valuesB = (char[]) b;
+        char[] out = new char[valuesA.length + valuesB.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < valuesA.length || j < valuesB.length) {
+            if (j == valuesB.length || (i < valuesA.length && valuesA[i] < valuesB[j])) {
+                out[count++] = valuesA[i++];
+            } else if (i == valuesA.length || valuesA[i] > valuesB[j]) {
+                out[count++] = valuesB[j++];
+            } else {
+                out[count++] = valuesA[i];
+                i++;
+                j++;
+            }
+        }
+        if (count > ARRAY_MAX) {
+            long[] words = new long[BITMAP_WORDS];
+            for (int k = 0; k < count; k++) {
+                words[out[k] >>> 6] |= 1L << out[k];
+            }
+            return new Sized(words, count);
+        }
+        return new Sized(count == out.length ? out : Arrays.copyOf(out, count), count);
+    }
+
+    private static long[] orInto(long[] words, Object other) {
+        if (other instanceof long[] otherWords) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] |= otherWords[w];
+            }
+        } else {
+            for (char low : (char[]) other) {
+                words[low >>> 6] |= 1L << low;
+            }
+        }
+        return words;
+    }
+
+    private static Sized andNot(Object a, Object b) {
+        if (a instanceof long[] wordsA) {
+            long[] words = wordsA.clone();
+            if (b instanceof long[] wordsB) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] &= ~wordsB[w];
+                }
+            } else {
+                for (char low : (char[]) b) {
+                    words[low >>> 6] &= ~(1L << low);
+                }
+            }
+            int count = bitCount(words);
+            return count <= ARRAY_MAX ? new Sized(toArray(words, count), count) : new Sized(words, count);
+        }
+        if (b instanceof long[] words) {
+            return filter((char[]) a, words, false);
+        }
+        char[] valuesA = (char[]) a;
+        char[] valuesB = (char[]) b;
+        char[] out = new char[valuesA.length];
+        int count = 0;
+        int j = 0;
+        for (char value : valuesA) {
+            while (j < valuesB.length && valuesB[j] < value) {
+                j++;
+            }
+            if (j == valuesB.length || valuesB[j] != value) {
+                out[count++] = value;
+            }
+        }
+        return new Sized(count == out.length ? out : Arrays.copyOf(out, count), count);
+    }
+
+    // Keeps the values whose bit is set (keep == true) or clear (keep == false) in words.
+    private static Sized filter(char[] values, long[] words, boolean keep) {
+        char[] out = new char[values.length];
+        int count = 0;
+        for (char value : values) {
+            if (((words[value >>> 6] & 1L << value) != 0) == keep) {
+                out[count++] = value;
+            }
+        }
+        return new Sized(count == out.length ? out : Arrays.copyOf(out, count), count);
+    }
+
+    private static char[] toArray(long[] words, int count) {
+        char[] values = new char[count];
+        int size = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            for (long bits = words[w]; bits != 0; bits &= bits - 1) {
+                values[size++] = (char) (w << 6 | Long.numberOfTrailingZeros(bits));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Builds a bitmap from values added in ascending order without duplicates. Only the container being filled is
+     * held uncompressed, so many bitmaps can be built side by side in one pass over the rows.
+     */
+    public static final class Appender {
+
+        private final Builder builder = new Builder();
+        private int key = -1;
+        private char[] values = new char[16];
+        private long[] words;
+        private int count;
+
+        public void add(int value) {
+            if (value >>> 16 != key) {
+                flush();
+                key = value >>> 16;
+            }
+            char low = (char) value;
+            if (words != null) {
+                words[low >>> 6] |= 1L << low;
+            } else if (count == ARRAY_MAX) {
+                words = new long[BITMAP_WORDS];
+                for (int i = 0; i < count; i++) {
+                    words[values[i] >>> 6] |= 1L << values[i];
+                }
+                words[low >>> 6] |= 1L << low;
+            } else {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_MAX, count * 2));
+                }
+                values[count] = low;
+            }
+            count++;
+        }
+
+        public CompressedBitmap build() {
+            flush();
+            return builder.build();
+        }
+
+        private void flush() {
+            if (count > 0) {
+                builder.add((char) key, words != null ? words : Arrays.copyOf(values, count), count);
+            }
+            words = null;
+            values = new char[16];
+            count = 0;
+        }
+    }
+
+    private static final class Builder {
+
+        private char[] keys = new char[4];
+        private Object[] containers = new Object[4];
+        private int size;
+        private int cardinality;
+
+        void add(char key, Object container, int count) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+            }
+            keys[size] = key;
+            containers[size++] = container;
+            cardinality += count;
+        }
+
+        void addIfNotEmpty(char key, Sized sized) {
+            int count = sized.size() >= 0 ? sized.size() : size(sized.container());
+            if (count > 0) {
+                add(key, sized.container(), count);
+            }
+        }
+
+        CompressedBitmap build() {
+            return size == 0 ? EMPTY : new CompressedBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size), cardinality);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.lobox.imdb.api.util;
+
+/**
+ * Converts IMDB identifiers ("tt0000001", "nm0000001") to and from their numeric suffix.
+ */
+public final class ImdbIds {
+
+    private static final int MIN_DIGITS = 7;
+
+    private ImdbIds() {
+    }
+
+    public static int parseTconst(CharSequence tconst) {
+        return parse(tconst, 't', 't');
+    }
+
+    public static int parseNconst(CharSequence nconst) {
+        return parse(nconst, 'n', 'm');
+    }
+
+    public static String formatTconst(int id) {
+        return format("tt", id);
+    }
+
+    public static String formatNconst(int id) {
+        return format("nm", id);
+    }
+
+    private static int parse(CharSequence value, char first, char second) {
+        if (value == null || value.length() < 3 || value.charAt(0) != first || value.charAt(1) != second) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = 2; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9' || result > (Integer.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static String format(String prefix, int id) {
+        String digits = Integer.toString(id);
+        StringBuilder sb = new StringBuilder(prefix.length() + Math.max(MIN_DIGITS, digits.length()));
+        sb.append(prefix);
+        for (int i = digits.length(); i < MIN_DIGITS; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+}
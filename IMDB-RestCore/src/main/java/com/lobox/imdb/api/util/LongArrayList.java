@@ -0,0 +1,53 @@
+package com.lobox.imdb.api.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive longs, used while collecting packed id pairs during load.
+ */
+public final class LongArrayList {
+
+    private long[] values;
+    private int size;
+
+    public LongArrayList() {
+        this(4);
+    }
+
+    public LongArrayList(int initialCapacity) {
+        this.values = new long[Math.max(1, initialCapacity)];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size + (size >> 1) + 1);
+        }
+        values[size++] = value;
+    }
+
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copies the values into {@code target} starting at {@code offset}.
+     */
+    public void copyTo(long[] target, int offset) {
+        System.arraycopy(values, 0, target, offset, size);
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,81 @@
+package com.lobox.imdb.api.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Operations over ascending, duplicate-free int posting lists.
+ */
+public final class PostingLists {
+
+    public static final int[] EMPTY = new int[0];
+
+    private PostingLists() {
+    }
+
+    public static int[] unique(int[] sorted) {
+        if (sorted.length < 2) {
+            return sorted;
+        }
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    /**
+     * Intersects all lists, starting from the shortest so the cost is bounded by the smallest posting list.
+     */
+    public static int[] intersect(int[]... lists) {
+        if (lists.length == 0) {
+            return EMPTY;
+        }
+        int[][] ordered = lists.clone();
+        Arrays.sort(ordered, Comparator.comparingInt(list -> list.length));
+        int[] result = ordered[0];
+        for (int i = 1; i < ordered.length && result.length > 0; i++) {
+            result = intersect(result, ordered[i]);
+        }
+        return result == lists[0] ? result.clone() : result;
+    }
+
+    public static int[] intersect(int[] small, int[] large) {
+        if (small.length > large.length) {
+            return intersect(large, small);
+        }
+        int[] out = new int[small.length];
+        int size = 0;
+        int from = 0;
+        for (int i = 0; i < small.length && from < large.length; i++) {
+            int value = small[i];
+            from = gallop(large, from, value);
+            if (from < large.length && large[from] == value) {
+                out[size++] = value;
+                from++;
+            }
+        }
+        return size == out.length ? out : Arrays.copyOf(out, size);
+    }
+
+    // Exponential search for the first index >= value, starting at from.
+    private static int gallop(int[] list, int from, int value) {
+        int bound = 1;
+        while (from + bound < list.length && list[from + bound] < value) {
+            bound <<= 1;
+        }
+        int low = from + (bound >> 1);
+        int high = Math.min(from + bound, list.length - 1);
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (list[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
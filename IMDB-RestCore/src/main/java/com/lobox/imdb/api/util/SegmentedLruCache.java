@@ -0,0 +1,200 @@
+package com.lobox.imdb.api.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Concurrent cache bounded by total weight, evicting with a segmented LRU policy.
+ * <p>
+ * New entries start in a probation segment and move to a protected segment when hit again. Eviction takes the
+ * least recently used probation entry first, so a burst of one-off keys cannot flush the entries that keep being
+ * asked for. Keys are spread over independently locked stripes, each owning an equal share of the weight.
+ */
+public final class SegmentedLruCache<K, V> {
+
+    private static final int DEFAULT_STRIPES = 16;
+    // share of a stripe's weight reserved for protected entries, in percent
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final Stripe<K, V>[] stripes;
+    private final ToIntFunction<V> weigher;
+    private final long maxWeight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SegmentedLruCache(long maxWeight, ToIntFunction<V> weigher) {
+        this(maxWeight, DEFAULT_STRIPES, weigher);
+    }
+
+    public SegmentedLruCache(long maxWeight, int stripeCount, ToIntFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.stripes = newStripes(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>(maxWeight / stripeCount);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Stripe<K, V>[] newStripes(int count) {
+        return (Stripe<K, V>[]) new Stripe<?, ?>[count];
+    }
+
+    public V get(K key) {
+        V value = stripe(key).get(key);
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    /**
+     * Adds or replaces an entry. A value heavier than a whole stripe is not cached.
+     */
+    public void put(K key, V value) {
+        int weight = weigher.applyAsInt(value);
+        Stripe<K, V> stripe = stripe(key);
+        if (weight <= stripe.maxWeight) {
+            evictions.add(stripe.put(key, value, weight));
+        }
+    }
+
+    public void invalidateAll() {
+        for (Stripe<K, V> stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public long weight() {
+        long weight = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            weight += stripe.weight();
+        }
+        return weight;
+    }
+
+    public long maxWeight() {
+        return maxWeight;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Stripe<K, V> stripe(K key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return stripes[(h >>> 16) % stripes.length];
+    }
+
+    private record Entry<V>(V value, int weight) {
+    }
+
+    private static final class Stripe<K, V> {
+
+        private final long maxWeight;
+        private final long maxProtectedWeight;
+        // both in least to most recently used order
+        private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>();
+        private final LinkedHashMap<K, Entry<V>> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+        private long probationWeight;
+        private long protectedWeight;
+
+        Stripe(long maxWeight) {
+            this.maxWeight = maxWeight;
+            this.maxProtectedWeight = maxWeight * PROTECTED_PERCENT / 100;
+        }
+
+        synchronized V get(K key) {
+            Entry<V> entry = protectedEntries.get(key);
+            if (entry != null) {
+                return entry.value();
+            }
+            entry = probation.remove(key);
+            if (entry == null) {
+                return null;
+            }
+            probationWeight -= entry.weight();
+            protectedEntries.put(key, entry);
+            protectedWeight += entry.weight();
+            demoteOverflow();
+            return entry.value();
+        }
+
+        // Returns how many entries were evicted to make room.
+        synchronized int put(K key, V value, int weight) {
+            Entry<V> entry = new Entry<>(value, weight);
+            Entry<V> previous = protectedEntries.get(key);
+            if (previous != null) {
+                protectedEntries.put(key, entry);
+                protectedWeight += weight - previous.weight();
+                demoteOverflow();
+            } else {
+                previous = probation.remove(key);
+                if (previous != null) {
+                    probationWeight -= previous.weight();
+                }
+                probation.put(key, entry);
+                probationWeight += weight;
+            }
+            int evicted = 0;
+            while (probationWeight + protectedWeight > maxWeight) {
+                LinkedHashMap<K, Entry<V>> victims = probation.isEmpty() ? protectedEntries : probation;
+                Iterator<Map.Entry<K, Entry<V>>> eldest = victims.entrySet().iterator();
+                int victimWeight = eldest.next().getValue().weight();
+                eldest.remove();
+                if (victims == probation) {
+                    probationWeight -= victimWeight;
+                } else {
+                    protectedWeight -= victimWeight;
+                }
+                evicted++;
+            }
+            return evicted;
+        }
+
+        // Moves least recently used protected entries back to the most recently used end of probation.
+        private void demoteOverflow() {
+            while (protectedWeight > maxProtectedWeight) {
+                Iterator<Map.Entry<K, Entry<V>>> eldest = protectedEntries.entrySet().iterator();
+                Map.Entry<K, Entry<V>> demoted = eldest.next();
+                eldest.remove();
+                protectedWeight -= demoted.getValue().weight();
+                probation.put(demoted.getKey(), demoted.getValue());
+                probationWeight += demoted.getValue().weight();
+            }
+        }
+
+        synchronized void clear() {
+            probation.clear();
+            protectedEntries.clear();
+            probationWeight = 0;
+            protectedWeight = 0;
+        }
+
+        synchronized int size() {
+            return probation.size() + protectedEntries.size();
+        }
+
+        synchronized long weight() {
+            return probationWeight + protectedWeight;
+        }
+    }
+}
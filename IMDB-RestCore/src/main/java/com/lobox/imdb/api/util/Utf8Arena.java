@@ -0,0 +1,118 @@
+package com.lobox.imdb.api.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Append-only UTF-8 strings in one direct buffer outside the Java heap, each addressed by the int offset of its
+ * varint length prefix. The garbage collector sees a single buffer object instead of one {@code String} and one
+ * {@code byte[]} per value; values are decoded into short-lived strings when read.
+ * <p>
+ * Appends must happen from one thread before the arena is published; reads use absolute positions only and are
+ * safe from any number of threads. The memory is released when the arena becomes unreachable, and counts against
+ * {@code -XX:MaxDirectMemorySize} (by default the maximum heap size).
+ */
+public final class Utf8Arena {
+
+    /**
+     * Offset standing for a null value.
+     */
+    public static final int NULL = -1;
+
+    private final ByteBuffer bytes;
+
+    private Utf8Arena(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Allocates an arena of exactly {@code capacity} bytes; size it with {@link #encodedLength(String)}.
+     */
+    public static Utf8Arena allocate(long capacity) {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Strings need " + capacity + " bytes, more than one arena can address");
+        }
+        return new Utf8Arena(ByteBuffer.allocateDirect((int) capacity));
+    }
+
+    /**
+     * Bytes {@code value} takes in an arena, length prefix included; 0 for null, which is not stored.
+     */
+    public static int encodedLength(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = utf8Length(value);
+        return varintLength(length) + length;
+    }
+
+    /**
+     * Appends {@code value} and returns its offset, or {@link #NULL} for null.
+     */
+    public int append(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        int offset = bytes.position();
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        int length = utf8.length;
+        while (length >= 0x80) {
+            bytes.put((byte) (length | 0x80));
+            length >>>= 7;
+        }
+        bytes.put((byte) length);
+        bytes.put(utf8);
+        return offset;
+    }
+
+    public String get(int offset) {
+        if (offset == NULL) {
+            return null;
+        }
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes.get(offset++);
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        byte[] utf8 = new byte[length];
+        bytes.get(offset, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Bytes appended so far.
+     */
+    public int size() {
+        return bytes.position();
+    }
+
+    public int capacity() {
+        return bytes.capacity();
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while (value >= 0x80) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static int utf8Length(String value) {
+        int length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x800) {
+                // a surrogate pair is 4 bytes for its 2 chars
+                length += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,78 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.config.AdmissionProperties;
+import com.lobox.imdb.api.interceptor.AdmissionControlFilter;
+import com.lobox.imdb.api.model.AdmissionMetrics;
+import com.lobox.imdb.api.service.AdmissionControlService;
+import com.lobox.imdb.api.service.AdmissionControlService.Gate;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlServiceTest {
+
+    private static final String ROUTE = "/api/v1/imdb/titles/same-director-writer-alive";
+
+    @Test
+    void testTryAcquire_limitsConcurrencyAndCountsShedding() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setLimits(Map.of(ROUTE, 1));
+        properties.setQueueCapacity(1);
+        properties.setQueueTimeoutMs(10);
+        AdmissionControlService service = new AdmissionControlService(properties);
+        Gate gate = service.gate(ROUTE);
+
+        assertNull(service.gate("/api/v1/imdb/titles/search"));
+        assertTrue(service.tryAcquire(gate));
+        // the single queue slot waits and times out while the permit is held
+        assertFalse(service.tryAcquire(gate));
+        gate.release();
+        assertTrue(service.tryAcquire(gate));
+        gate.release();
+
+        AdmissionMetrics metrics = service.getAdmissionMetrics().get(0);
+        assertEquals(ROUTE, metrics.getRoute());
+        assertEquals(1, metrics.getLimit());
+        assertEquals(0, metrics.getInFlight());
+        assertEquals(2, metrics.getAdmitted());
+        assertEquals(1, metrics.getTimedOut());
+    }
+
+    @Test
+    void testTryAcquire_rejectsAtOnceWhenQueueIsFull() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setLimits(Map.of(ROUTE, 1));
+        properties.setQueueCapacity(0);
+        AdmissionControlService service = new AdmissionControlService(properties);
+        Gate gate = service.gate(ROUTE);
+
+        assertTrue(service.tryAcquire(gate));
+        long start = System.nanoTime();
+        assertFalse(service.tryAcquire(gate));
+        assertTrue(System.nanoTime() - start < 100_000_000L);
+        assertEquals(1, service.getAdmissionMetrics().get(0).getRejected());
+        assertEquals(1, service.getAdmissionMetrics().get(0).getInFlight());
+    }
+
+    @Test
+    void testFilter_limitsRouteWithPathParametersOrEncoding() throws Exception {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setLimits(Map.of(ROUTE, 1));
+        properties.setQueueCapacity(0);
+        AdmissionControlService service = new AdmissionControlService(properties);
+        AdmissionControlFilter filter = new AdmissionControlFilter(service, properties);
+        assertTrue(service.tryAcquire(service.gate(ROUTE)));
+
+        for (String uri : List.of(ROUTE, ROUTE + ";x=1", "/api/v1/imdb/titles/same-director-writer-%61live")) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", uri), response, (request, ignored) -> fail(uri));
+            assertEquals(503, response.getStatus(), uri);
+        }
+        assertEquals(3, service.getAdmissionMetrics().get(0).getRejected());
+    }
+}
@@ -0,0 +1,46 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.loader.ChunkedTsvReader;
+import com.lobox.imdb.api.loader.TsvChunk;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedTsvReaderTest {
+
+    @Test
+    void testReadChunks_cutsAtLineEndsAndGrowsForLongLines() throws IOException {
+        String longLine = "tt0000002\t" + "x".repeat(100) + "\n";
+        String text = "tconst\tvalue\ntt0000001\ta\n" + longLine + "tt0000003\tc";
+
+        List<TsvChunk> chunks = ChunkedTsvReader.readChunks(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), 16);
+
+        StringBuilder joined = new StringBuilder();
+        for (TsvChunk chunk : chunks) {
+            byte[] bytes = new byte[chunk.data().remaining()];
+            chunk.data().duplicate().get(bytes);
+            String part = new String(bytes, StandardCharsets.UTF_8);
+            assertEquals(joined.length(), chunk.offset());
+            assertTrue(part.endsWith("\n") || joined.length() + part.length() == text.length(), part);
+            joined.append(part);
+        }
+        assertEquals(text, joined.toString());
+        assertTrue(chunks.stream().anyMatch(chunk -> chunk.data().remaining() > longLine.length() - 1));
+    }
+
+    @Test
+    void testReadChunks_rejectsLineOverLimit() {
+        byte[] unterminated = new byte[(1 << 20) + 2];
+        Arrays.fill(unterminated, (byte) 'x');
+
+        IOException e = assertThrows(IOException.class,
+                () -> ChunkedTsvReader.readChunks(new ByteArrayInputStream(unterminated), 4096));
+        assertTrue(e.getMessage().contains("longer than"), e.getMessage());
+    }
+}
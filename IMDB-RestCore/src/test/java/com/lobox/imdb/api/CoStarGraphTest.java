@@ -0,0 +1,85 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.store.CoStarGraph;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbStore;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoStarGraphTest {
+
+    @Test
+    void testShortestPathAndTopCoStars() throws InterruptedException {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        for (int id = 1; id <= 5; id++) {
+            builder.addTitle(id, "movie", "Title " + id, "Title " + id, false, 2000, 0, 90, new String[]{"Drama"});
+        }
+        builder.sealTitles();
+        addCast(builder, 1, 1, 2, 3, 99);
+        addCast(builder, 2, 3, 4);
+        addCast(builder, 3, 4, 5);
+        addCast(builder, 4, 1, 2);
+        addCast(builder, 5, 6);
+        for (int id = 1; id <= 6; id++) {
+            builder.addPerson(id, "Person " + id, 1950, 0, new String[]{"actor"}, null);
+        }
+        ImdbStore store = builder.build();
+        CoStarGraph graph = CoStarGraph.build(store);
+
+        assertEquals(6, graph.personCount());
+        assertEquals(5, graph.edgeCount());
+        assertEquals(2, graph.degree(store.personRow(1)));
+        assertEquals(0, graph.degree(store.personRow(6)));
+
+        assertArrayEquals(persons(store, 1, 3, 4, 5), graph.shortestPath(store.personRow(1), store.personRow(5), 6));
+        assertArrayEquals(persons(store, 5, 4, 3, 1), graph.shortestPath(store.personRow(5), store.personRow(1), 3));
+        assertEquals(0, graph.shortestPath(store.personRow(1), store.personRow(5), 2).length);
+        assertEquals(0, graph.shortestPath(store.personRow(1), store.personRow(6), 6).length);
+        assertArrayEquals(persons(store, 2), graph.shortestPath(store.personRow(2), store.personRow(2), 6));
+
+        CoStarGraph.CoStars coStars = graph.topCoStars(store.personRow(1), 10);
+        assertArrayEquals(persons(store, 2, 3), coStars.persons());
+        assertArrayEquals(new int[]{2, 1}, coStars.sharedTitles());
+        assertArrayEquals(persons(store, 2), graph.topCoStars(store.personRow(1), 1).persons());
+        assertEquals(0, graph.topCoStars(store.personRow(6), 10).persons().length);
+
+        assertEquals(store.titleRow(2), graph.sharedTitle(store.personRow(3), store.personRow(4)));
+        assertEquals(ImdbStore.NOT_FOUND, graph.sharedTitle(store.personRow(1), store.personRow(5)));
+    }
+
+    @Test
+    void testEstimatedBytes_includesPooledSearchScratches() throws InterruptedException {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        builder.addTitle(1, "movie", "Title 1", "Title 1", false, 2000, 0, 90, new String[]{"Drama"});
+        builder.sealTitles();
+        addCast(builder, 1, 1, 2);
+        for (int id = 1; id <= 2; id++) {
+            builder.addPerson(id, "Person " + id, 1950, 0, new String[]{"actor"}, null);
+        }
+        ImdbStore store = builder.build();
+        CoStarGraph graph = CoStarGraph.build(store, 1);
+        long before = graph.estimatedBytes();
+
+        graph.topCoStars(store.personRow(1), 10);
+        graph.shortestPath(store.personRow(1), store.personRow(2), 6);
+
+        // one scratch of three arrays of two persons, reused by the second search
+        assertEquals(before + 3 * 4 * 2, graph.estimatedBytes());
+        assertThrows(IllegalArgumentException.class, () -> CoStarGraph.build(store, 0));
+    }
+
+    private static void addCast(ColumnarStoreBuilder builder, int tconstId, int... nconstIds) {
+        for (int nconstId : nconstIds) {
+            builder.addPrincipal(builder.titleRow(tconstId), nconstId);
+        }
+    }
+
+    private static int[] persons(ImdbStore store, int... nconstIds) {
+        int[] rows = new int[nconstIds.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = store.personRow(nconstIds[i]);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,114 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.model.Person;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarStoreBuilderTest {
+
+    @Test
+    void testBuild_sortsRowsAndJoinsSections() {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        builder.addTitle(5, "movie", "Second", "Second", false, 2000, 0, 90, new String[]{"Drama", "Action"});
+        builder.addTitle(1, "short", "First", "Premier", true, 1894, 0, 1, new String[]{"Short"});
+        builder.sealTitles();
+
+        builder.setRating(builder.titleRow(5), 7.9f, 100);
+        builder.addCrew(builder.titleRow(5), new int[]{10}, new int[]{10, 11});
+        builder.addPrincipal(builder.titleRow(5), 10);
+        builder.addPrincipal(builder.titleRow(5), 10);
+        builder.addPrincipal(builder.titleRow(1), 10);
+        builder.addPerson(10, "Fred Astaire", 1899, 1987, new String[]{"actor"}, new int[]{5});
+
+        ImdbStore store = builder.build();
+
+        assertEquals(2, store.titleCount());
+        assertEquals(0, store.titleRow("tt0000001"));
+        assertEquals(ImdbStore.NOT_FOUND, store.titleRow("tt0000002"));
+
+        Title title = store.toTitle(store.titleRow(5));
+        assertEquals("tt0000005", title.getTconst());
+        assertEquals(List.of("Action", "Drama"), title.getGenres());
+        assertEquals(List.of("nm0000010"), title.getDirectorNconsts());
+        assertEquals(List.of("nm0000010", "nm0000011"), title.getWriterNconsts());
+        assertEquals(7.9, title.getAverageRating());
+        assertEquals(100, title.getNumVotes());
+        assertNull(store.toTitle(0).getNumVotes());
+
+        assertArrayEquals(new int[]{10}, store.principals().toArray(store.titleRow(5)));
+        assertArrayEquals(new int[]{0, 1}, store.personTitles().toArray(store.personRow("nm0000010")));
+    }
+
+    @Test
+    void testBuild_groupsPrincipalsFromChunks() {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        for (int id = 1; id <= 3; id++) {
+            builder.addTitle(id, "movie", "T" + id, "T" + id, false, 2000, 0, 90, null);
+        }
+        builder.sealTitles();
+        ColumnarStoreBuilder first = builder.newChunk();
+        first.addPrincipal(builder.titleRow(3), 20);
+        first.addPrincipal(builder.titleRow(1), 20);
+        ColumnarStoreBuilder second = builder.newChunk();
+        second.addPrincipal(builder.titleRow(1), 10);
+        second.addPrincipal(builder.titleRow(1), 20);
+        second.addPrincipal(builder.titleRow(2), 99);
+        builder.appendPrincipals(first);
+        builder.appendPrincipals(second);
+        builder.addPrincipal(builder.titleRow(3), 10);
+        builder.addPerson(10, "Ten", 0, 0, null, null);
+        builder.addPerson(20, "Twenty", 0, 0, null, null);
+
+        ImdbStore store = builder.build();
+
+        assertArrayEquals(new int[]{10, 20}, store.principals().toArray(store.titleRow(1)));
+        // principals without a person row stay on the title but have no person postings
+        assertArrayEquals(new int[]{99}, store.principals().toArray(store.titleRow(2)));
+        assertArrayEquals(new int[]{10, 20}, store.principals().toArray(store.titleRow(3)));
+        assertArrayEquals(new int[]{0, 2}, store.personTitles().toArray(store.personRow(10)));
+        assertArrayEquals(new int[]{0, 2}, store.personTitles().toArray(store.personRow(20)));
+    }
+
+    @Test
+    void testBuild_dictionaryEncodesLowCardinalityColumns() {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        ColumnarStoreBuilder chunk = builder.newChunk();
+        chunk.addTitle(2, "movie", "B", "B", false, 2000, 0, 90, null);
+        builder.addTitle(1, "movie", "A", "A", false, 2000, 0, 90, null);
+        builder.addTitle(3, null, "C", "C", false, 2000, 0, 90, null);
+        builder.appendTitles(chunk);
+        builder.sealTitles();
+        chunk = builder.newChunk();
+        chunk.addPerson(30, "Duplicate", 0, 0, null, new int[]{9});
+        chunk.addPerson(20, "Second", 0, 0, new String[]{"writer", "actor"}, new int[]{3, 1});
+        builder.addPerson(10, "First", 0, 0, new String[]{"actor", "writer", "producer"}, new int[]{2});
+        builder.appendPersons(chunk);
+        builder.addPerson(30, "Last", 0, 0, new String[]{"actor"}, null);
+
+        ImdbStore store = builder.build();
+
+        assertEquals(1, store.titleTypes().size());
+        assertEquals("movie", store.titleType(store.titleRow(2)));
+        assertSame(store.titleType(store.titleRow(1)), store.titleType(store.titleRow(2)));
+        assertNull(store.titleType(store.titleRow(3)));
+
+        Person first = store.toPerson(store.personRow(10));
+        assertEquals("actor,writer,producer", first.getPrimaryProfession());
+        assertEquals(List.of("tt0000002"), first.getKnownForTitles());
+        Person second = store.toPerson(store.personRow(20));
+        assertEquals("writer,actor", second.getPrimaryProfession());
+        assertEquals(List.of("tt0000003", "tt0000001"), second.getKnownForTitles());
+        // the last row of a duplicated nconst wins, including its known-for titles
+        Person last = store.toPerson(store.personRow(30));
+        assertEquals("Last", last.getPrimaryName());
+        assertEquals("actor", last.getPrimaryProfession());
+        assertEquals(List.of(), last.getKnownForTitles());
+        assertSame(store.primaryProfession(store.personRow(30)), store.primaryProfession(store.personRow(30)));
+    }
+}
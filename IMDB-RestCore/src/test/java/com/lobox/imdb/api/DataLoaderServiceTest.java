@@ -1,11 +1,34 @@
 package com.lobox.imdb.api;
 
+import com.lobox.imdb.api.config.CoordinatorProperties;
+import com.lobox.imdb.api.config.LoaderProperties;
+import com.lobox.imdb.api.health.DatasetHealthIndicator;
+import com.lobox.imdb.api.model.LoaderFileStats;
+import com.lobox.imdb.api.model.LoaderStageStats;
+import com.lobox.imdb.api.model.LoaderStatus;
+import com.lobox.imdb.api.model.ReloadStatus;
+import com.lobox.imdb.api.model.Title;
 import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.store.ImdbDataset;
+import com.lobox.imdb.api.store.ImdbStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -15,11 +38,169 @@ class DataLoaderServiceTest {
 
     @BeforeEach
     void setUp() {
-        dataLoaderService = Mockito.spy(new DataLoaderService());
+        dataLoaderService = Mockito.spy(new DataLoaderService(new LoaderProperties()));
     }
 
     @Test
     void testLoadData_executesWithoutException() {
+        mockDataFiles(dataLoaderService);
+
+        // Run data loading
+        assertDoesNotThrow(() -> dataLoaderService.loadData());
+
+        // Check if the store is filled as expected
+        assertEquals(1, dataLoaderService.getStore().personCount());
+        assertEquals(1, dataLoaderService.getStore().titleCount());
+    }
+
+    @Test
+    void testLoadData_mappedAndOpenCsvParsersAgree() {
+        LoaderProperties openCsvProperties = new LoaderProperties();
+        openCsvProperties.setParser(LoaderProperties.Parser.OPENCSV);
+        DataLoaderService openCsvLoader = Mockito.spy(new DataLoaderService(openCsvProperties));
+        mockDataFiles(dataLoaderService);
+        mockDataFiles(openCsvLoader);
+
+        dataLoaderService.loadData();
+        openCsvLoader.loadData();
+
+        ImdbStore mapped = dataLoaderService.getStore();
+        ImdbStore openCsv = openCsvLoader.getStore();
+        Title title = mapped.toTitle(mapped.titleRow("tt0000001"));
+        assertEquals(openCsv.toTitle(openCsv.titleRow("tt0000001")), title);
+        assertEquals(openCsv.toPerson(openCsv.personRow("nm0000001")), mapped.toPerson(mapped.personRow("nm0000001")));
+        assertEquals(5.6, title.getAverageRating());
+        assertEquals(0, title.getEndYear());
+    }
+
+    @Test
+    void testTriggerReload_swapsInNextGeneration() throws InterruptedException {
+        mockDataFiles(dataLoaderService);
+        dataLoaderService.loadData();
+        ImdbDataset first = dataLoaderService.getDataset();
+        assertEquals(1, first.generation());
+
+        mockDataFiles(dataLoaderService);
+        assertTrue(dataLoaderService.triggerReload("test"));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (dataLoaderService.getDataset() == first && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        ImdbDataset second = dataLoaderService.getDataset();
+        assertEquals(2, second.generation());
+        assertEquals(1, second.store().titleCount());
+        // readers still holding the old generation keep a complete view
+        assertEquals(1, first.store().titleCount());
+        ReloadStatus status = dataLoaderService.getReloadStatus();
+        assertEquals(2, status.getGeneration());
+        assertEquals("test", status.getTrigger());
+        assertEquals(5, status.getFilesLoaded());
+    }
+
+    @Test
+    void testFailedStartupLoad_staysFailedAndBreaksLivenessUntilReloaded() throws InterruptedException {
+        List<Object> events = new CopyOnWriteArrayList<>();
+        DataLoaderService loader = Mockito.spy(new DataLoaderService(new LoaderProperties(), new CoordinatorProperties(), events::add));
+        Mockito.doThrow(new IllegalStateException("Required data file not found: title.basics.tsv")).when(loader).getResourceStream("title.basics.tsv");
+
+        loader.startLoading();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (events.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertNull(loader.getDataset());
+        assertEquals(ReloadStatus.State.FAILED, loader.getLoaderStatus().getState());
+        assertEquals(List.of(LivenessState.BROKEN), livenessChanges(events));
+        Health health = new DatasetHealthIndicator(loader).health();
+        assertEquals(Status.DOWN, health.getStatus());
+        assertEquals(ReloadStatus.State.FAILED, health.getDetails().get("state"));
+
+        mockDataFiles(loader);
+        assertTrue(loader.triggerReload("admin"));
+        while (events.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertNotNull(loader.getDataset());
+        assertEquals(ReloadStatus.State.IDLE, loader.getReloadStatus().getState());
+        assertEquals(List.of(LivenessState.BROKEN, LivenessState.CORRECT), livenessChanges(events));
+    }
+
+    private static List<LivenessState> livenessChanges(List<Object> events) {
+        return events.stream().map(event -> (LivenessState) ((AvailabilityChangeEvent<?>) event).getState()).toList();
+    }
+
+    @Test
+    void testLoaderStatus_reportsFilesStagesAndMemory() {
+        mockDataFiles(dataLoaderService);
+        String ratings = "tconst\taverageRating\tnumVotes\ntt0000001\t5.6\t1600\ntt0000002\t7.0";
+        Mockito.doReturn(new ByteArrayInputStream(ratings.getBytes())).when(dataLoaderService).getResourceStream("title.ratings.tsv");
+
+        dataLoaderService.loadData();
+
+        LoaderStatus status = dataLoaderService.getLoaderStatus();
+        assertEquals(1, status.getGeneration());
+        assertNull(status.getStage());
+        assertEquals(5, status.getFiles().size());
+        for (LoaderFileStats file : status.getFiles()) {
+            assertEquals(LoaderFileStats.State.DONE, file.getState(), file.getFile());
+            assertEquals(file.getTotalBytes(), file.getBytesRead(), file.getFile());
+        }
+        LoaderFileStats ratingStats = status.getFiles().get(4);
+        assertEquals("title.ratings.tsv", ratingStats.getFile());
+        assertEquals(ratings.length(), ratingStats.getBytesRead());
+        assertEquals(2, ratingStats.getRows());
+        assertEquals(1, ratingStats.getParseErrors());
+        assertEquals(0, status.getFiles().get(0).getParseErrors());
+
+        List<String> stages = status.getStages().stream().map(LoaderStageStats::getStage).toList();
+        assertTrue(stages.containsAll(List.of("parsing title.basics.tsv", "building columnar store", "building derived indexes")));
+        assertTrue(status.getStages().stream().noneMatch(LoaderStageStats::isRunning));
+        assertTrue(status.getMemoryBytes().get("titles") > 0);
+        assertTrue(status.getMemoryBytes().containsKey("coStarGraph"));
+    }
+
+    @Test
+    void testLoadData_readsPlainAndGzipFilesFromDataDir(@TempDir Path dataDir) throws IOException {
+        mockDataFiles(dataLoaderService);
+        for (String name : List.of("title.basics.tsv", "name.basics.tsv", "title.crew.tsv", "title.principals.tsv", "title.ratings.tsv")) {
+            byte[] data;
+            try (InputStream in = dataLoaderService.getResourceStream(name)) {
+                data = in.readAllBytes();
+            }
+            if (name.startsWith("title.")) {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dataDir.resolve(name + ".gz")))) {
+                    out.write(data);
+                }
+            } else {
+                Files.write(dataDir.resolve(name), data);
+            }
+        }
+        mockDataFiles(dataLoaderService);
+        dataLoaderService.loadData();
+
+        for (LoaderProperties.Parser parser : LoaderProperties.Parser.values()) {
+            LoaderProperties properties = new LoaderProperties();
+            properties.setDataDir(dataDir.toString());
+            properties.setParser(parser);
+            properties.getSnapshot().setEnabled(false);
+            DataLoaderService fileLoader = new DataLoaderService(properties);
+            assertEquals(dataDir.resolve("title.ratings.tsv.gz"), fileLoader.resolveDataFile("title.ratings.tsv"));
+            assertEquals(dataDir.resolve("name.basics.tsv"), fileLoader.resolveDataFile("name.basics.tsv"));
+
+            fileLoader.loadData();
+
+            ImdbStore expected = dataLoaderService.getStore();
+            ImdbStore loaded = fileLoader.getStore();
+            assertEquals(expected.toTitle(expected.titleRow("tt0000001")), loaded.toTitle(loaded.titleRow("tt0000001")), parser.name());
+            assertEquals(expected.toPerson(expected.personRow("nm0000001")), loaded.toPerson(loaded.personRow("nm0000001")), parser.name());
+            assertTrue(fileLoader.getLoaderStatus().getFiles().stream().allMatch(file -> file.getRows() > 0), parser.name());
+        }
+    }
+
+    private static void mockDataFiles(DataLoaderService dataLoaderService) {
         // Mocking the getResourceStream method to return dummy data for each file
         String dummyPersonData = "nconst\tprimaryName\tbirthYear\tdeathYear\tprimaryProfession\tknownForTitles\n" + "nm0000001\tFred Astaire\t1899\t1987\tactor,soundtrack,miscellaneous\ttt0072308,tt0050419";
 
@@ -35,13 +216,6 @@ class DataLoaderServiceTest {
         Mockito.doReturn(new ByteArrayInputStream("tconst\tordering\tnconst\tcategory\tjob\tcharacters\ntt0000001\t1\tnm0000001\tactor\t\t[]".getBytes())).when(dataLoaderService).getResourceStream("title.principals.tsv");
 
         Mockito.doReturn(new ByteArrayInputStream("tconst\taverageRating\tnumVotes\ntt0000001\t5.6\t1600".getBytes())).when(dataLoaderService).getResourceStream("title.ratings.tsv");
-
-        // Run data loading
-        assertDoesNotThrow(() -> dataLoaderService.loadData());
-
-        // Check if data maps are filled as expected
-        assertFalse(dataLoaderService.getPersons().isEmpty());
-        assertFalse(dataLoaderService.getTitles().isEmpty());
     }
 
     @Test
@@ -0,0 +1,47 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.GenreYearLeaderboard;
+import com.lobox.imdb.api.store.ImdbStore;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenreYearLeaderboardTest {
+
+    @Test
+    void testTop_ranksByVotesThenRatingAndAppliesFilters() {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        builder.addTitle(1, "movie", "A", "A", false, 2000, 0, 90, new String[]{"Drama"});
+        builder.addTitle(2, "movie", "B", "B", false, 2000, 0, 90, new String[]{"Drama", "Comedy"});
+        builder.addTitle(3, "tvSeries", "C", "C", false, 2000, 0, 90, new String[]{"Drama"});
+        builder.addTitle(4, "movie", "D", "D", false, 2001, 0, 90, new String[]{"Drama"});
+        builder.addTitle(5, "movie", "Unrated", "Unrated", false, 2000, 0, 90, new String[]{"Drama"});
+        builder.sealTitles();
+        builder.setRating(builder.titleRow(1), 6.0f, 500);
+        builder.setRating(builder.titleRow(2), 8.0f, 500);
+        builder.setRating(builder.titleRow(3), 9.0f, 50);
+        builder.setRating(builder.titleRow(4), 7.0f, 10);
+        ImdbStore store = builder.build();
+        GenreYearLeaderboard leaderboard = GenreYearLeaderboard.build(store);
+        int drama = store.genres().code("Drama");
+
+        assertEquals(2000, leaderboard.minYear());
+        assertEquals(2001, leaderboard.maxYear());
+        assertArrayEquals(rows(store, 2, 1, 3), leaderboard.top(drama, 2000, 10, 0, null));
+        assertArrayEquals(rows(store, 2), leaderboard.top(drama, 2000, 1, 0, null));
+        assertArrayEquals(rows(store, 2, 1), leaderboard.top(drama, 2000, 10, 100, null));
+        assertArrayEquals(rows(store, 3), leaderboard.top(drama, 2000, 10, 0, "tvSeries"));
+        assertArrayEquals(rows(store, 2), leaderboard.top(store.genres().code("Comedy"), 2000, 10, 0, null));
+        assertEquals(0, leaderboard.top(drama, 1999, 10, 0, null).length);
+        assertEquals(0, leaderboard.top(drama, 2001, 10, 11, null).length);
+    }
+
+    private static int[] rows(ImdbStore store, int... tconstIds) {
+        int[] rows = new int[tconstIds.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = store.titleRow(tconstIds[i]);
+        }
+        return rows;
+    }
+}
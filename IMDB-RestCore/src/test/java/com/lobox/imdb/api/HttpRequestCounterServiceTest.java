@@ -0,0 +1,60 @@
+package com.lobox.imdb.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lobox.imdb.api.controller.ImdbController;
+import com.lobox.imdb.api.interceptor.RequestCounterInterceptor;
+import com.lobox.imdb.api.model.EndpointMetrics;
+import com.lobox.imdb.api.service.AdmissionControlService;
+import com.lobox.imdb.api.service.HttpRequestCounterService;
+import com.lobox.imdb.api.service.ImdbService;
+import com.lobox.imdb.api.service.ResponseCacheService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpRequestCounterServiceTest {
+
+    private HttpRequestCounterService counterService;
+    private RequestCounterInterceptor interceptor;
+    private ImdbController controller;
+
+    @BeforeEach
+    void setUp() {
+        counterService = new HttpRequestCounterService();
+        interceptor = new RequestCounterInterceptor(counterService);
+        controller = new ImdbController(Mockito.mock(ImdbService.class), counterService,
+                Mockito.mock(ResponseCacheService.class), Mockito.mock(AdmissionControlService.class), new ObjectMapper());
+    }
+
+    @Test
+    void testRequestCount_includesTheRequestReadingIt() {
+        assertEquals(1L, countRequest());
+        assertEquals(2L, countRequest());
+    }
+
+    @Test
+    void testRequestCount_ignoresRequestsThatNeverReachAHandler() {
+        countRequest();
+        // a 503 from the readiness gate and a 404 are only seen by the metrics filter
+        counterService.record("GET", null, 503, 1_000_000);
+        counterService.record("GET", null, 404, 1_000_000);
+
+        assertEquals(2L, countRequest());
+        List<EndpointMetrics> metrics = counterService.getEndpointMetrics();
+        assertEquals(1, metrics.size());
+        assertEquals(Map.of(503, 1L, 404, 1L), metrics.get(0).getStatusCounts());
+    }
+
+    // one request to /metrics/http-requests-count: counted on entry, then answered by the controller
+    private Long countRequest() {
+        interceptor.preHandle(Mockito.mock(HttpServletRequest.class), Mockito.mock(HttpServletResponse.class), controller);
+        return controller.getHttpRequestCount().getBody();
+    }
+}
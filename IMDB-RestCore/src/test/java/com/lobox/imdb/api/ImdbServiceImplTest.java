@@ -0,0 +1,96 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.model.TitlePage;
+import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.service.impl.ImdbServiceImpl;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImdbServiceImplTest {
+
+    private ImdbServiceImpl imdbService;
+
+    @BeforeEach
+    void setUp() {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        for (int id = 1; id <= 5; id++) {
+            builder.addTitle(id, "movie", "Title " + id, "Title " + id, false, 2000, 0, 90, new String[]{"Drama"});
+        }
+        builder.sealTitles();
+        builder.addCrew(builder.titleRow(1), new int[]{1}, new int[]{1});
+        builder.addCrew(builder.titleRow(2), new int[]{1}, new int[]{2});
+        builder.addCrew(builder.titleRow(3), new int[]{2}, new int[]{2});
+        builder.addCrew(builder.titleRow(4), new int[]{3}, new int[]{3});
+        builder.addCrew(builder.titleRow(5), new int[]{1}, new int[]{1});
+        builder.setRating(builder.titleRow(1), 7.0f, 100);
+        builder.setRating(builder.titleRow(2), 8.0f, 100);
+        builder.setRating(builder.titleRow(3), 6.0f, 100);
+        builder.addPrincipal(builder.titleRow(1), 1);
+        builder.addPrincipal(builder.titleRow(1), 2);
+        builder.addPrincipal(builder.titleRow(2), 1);
+        builder.addPrincipal(builder.titleRow(2), 2);
+        builder.addPrincipal(builder.titleRow(2), 3);
+        builder.addPrincipal(builder.titleRow(3), 3);
+        builder.addPerson(1, "Alive", 1950, 0, new String[]{"director"}, null);
+        builder.addPerson(2, "Dead", 1900, 1980, new String[]{"director"}, null);
+        builder.addPerson(3, "Also Alive", 1960, 0, new String[]{"director"}, null);
+
+        DataLoaderService dataLoaderService = Mockito.mock(DataLoaderService.class);
+        Mockito.doReturn(ImdbDataset.of(1, builder.build())).when(dataLoaderService).getDataset();
+        imdbService = new ImdbServiceImpl(dataLoaderService);
+    }
+
+    @Test
+    void testSameDirectorWriterAlive_pagesWithCursor() {
+        assertEquals(List.of("tt0000001", "tt0000004", "tt0000005"), tconsts(imdbService.getTitlesBySameDirectorWriterAndAlive()));
+
+        TitlePage first = imdbService.getTitlesBySameDirectorWriterAndAlive(null, 2);
+        assertEquals(List.of("tt0000001", "tt0000004"), tconsts(first.getTitles()));
+        assertEquals("tt0000004", first.getNextCursor());
+
+        TitlePage last = imdbService.getTitlesBySameDirectorWriterAndAlive(first.getNextCursor(), 2);
+        assertEquals(List.of("tt0000005"), tconsts(last.getTitles()));
+        assertNull(last.getNextCursor());
+
+        // a cursor between result titles resumes after it
+        assertEquals(List.of("tt0000004", "tt0000005"), tconsts(imdbService.getTitlesBySameDirectorWriterAndAlive("tt0000002", 10).getTitles()));
+        assertEquals(List.of("tt0000001", "tt0000004", "tt0000005"), tconsts(imdbService.streamTitlesBySameDirectorWriterAndAlive().toList()));
+    }
+
+    @Test
+    void testBatchQueries_matchSingleQueries() {
+        List<List<Title>> byPairs = imdbService.getTitlesByActorsBatch(List.of(
+                List.of("nm0000001", "nm0000002"), List.of("nm0000002", "nm0000003"), List.of("nm0000001", "nm0009999")));
+        assertEquals(3, byPairs.size());
+        for (int i = 0; i < 2; i++) {
+            List<String> pair = i == 0 ? List.of("nm0000001", "nm0000002") : List.of("nm0000002", "nm0000003");
+            assertEquals(tconsts(imdbService.getTitlesByActors(pair)), tconsts(byPairs.get(i)));
+        }
+        assertEquals(List.of("tt0000001", "tt0000002"), tconsts(byPairs.get(0)));
+        assertEquals(List.of("tt0000002"), tconsts(byPairs.get(1)));
+        assertTrue(byPairs.get(2).isEmpty());
+        // a title in several results is built once
+        assertSame(byPairs.get(0).get(1), byPairs.get(1).get(0));
+
+        Map<String, Map<Integer, List<Title>>> byGenre = imdbService.getTopTitlesByGenresAndYear(
+                List.of("Drama", "Unknown", "Drama"), 2, null, null, null, 0);
+        assertEquals(List.of("Drama", "Unknown"), List.copyOf(byGenre.keySet()));
+        assertEquals(List.of("tt0000002", "tt0000001"), tconsts(byGenre.get("Drama").get(2000)));
+        assertEquals(tconsts(imdbService.getTopTitlesByGenreAndYear("Drama", 2, null, null, null, 0).get(2000)),
+                tconsts(byGenre.get("Drama").get(2000)));
+        assertTrue(byGenre.get("Unknown").isEmpty());
+    }
+
+    private static List<String> tconsts(List<Title> titles) {
+        return titles.stream().map(Title::getTconst).toList();
+    }
+}
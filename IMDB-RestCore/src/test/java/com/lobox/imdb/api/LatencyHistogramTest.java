@@ -0,0 +1,60 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.metrics.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testQuantiles_withinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(millis * 1_000_000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.count());
+        assertEquals(100_000, snapshot.maxMicros());
+        assertWithin(50_000, snapshot.quantileMicros(0.50));
+        assertWithin(90_000, snapshot.quantileMicros(0.90));
+        assertWithin(99_000, snapshot.quantileMicros(0.99));
+        assertEquals(100_000, snapshot.quantileMicros(1.0));
+    }
+
+    @Test
+    void testEmptyAndTinyValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().quantileMicros(0.99));
+        histogram.record(3_000);
+        assertEquals(3, histogram.snapshot().quantileMicros(0.5));
+    }
+
+    @Test
+    void testConcurrentRecording_losesNothing() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long maxMicros = (t + 1) * 1_000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i % 2 == 0 ? 5_000 : maxMicros * 1_000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(40_000, snapshot.count());
+        assertEquals(4_000, snapshot.maxMicros());
+        assertEquals(5, snapshot.quantileMicros(0.5));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.125, "expected ~" + expected + " but was " + actual);
+    }
+}
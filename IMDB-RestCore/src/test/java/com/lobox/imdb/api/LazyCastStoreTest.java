@@ -0,0 +1,159 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.config.LoaderProperties;
+import com.lobox.imdb.api.health.DatasetHealthIndicator;
+import com.lobox.imdb.api.loader.ChunkedTsvReader;
+import com.lobox.imdb.api.loader.LazyCastStore;
+import com.lobox.imdb.api.loader.LoadProgress;
+import com.lobox.imdb.api.loader.MappedTsvLoader;
+import com.lobox.imdb.api.loader.TitlePartition;
+import com.lobox.imdb.api.loader.TsvBlockIndex;
+import com.lobox.imdb.api.loader.TsvSource;
+import com.lobox.imdb.api.model.ReloadStatus;
+import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.store.CastIndexesNotReadyException;
+import com.lobox.imdb.api.store.CoStarGraph;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbDataset;
+import com.lobox.imdb.api.store.ImdbStore;
+import com.lobox.imdb.api.tools.SyntheticImdbGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyCastStoreTest {
+
+    @TempDir
+    Path dataDir;
+
+    private ExecutorService executor;
+    private ImdbStore eager;
+    private LazyCastStore lazy;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new SyntheticImdbGenerator(0.001, 11).writeTo(dataDir);
+        executor = Executors.newFixedThreadPool(2);
+        eager = load(true);
+        // small blocks and a cache of a few blocks, so that titles straddle blocks and blocks get evicted
+        lazy = LazyCastStore.open(load(false), dataDir.resolve("title.crew.tsv"), dataDir.resolve("title.principals.tsv"),
+                4096, 64 * 1024);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testCast_matchesEagerStore() {
+        assertEquals(eager.titleCount(), lazy.titleCount());
+        for (int titleRow = 0; titleRow < eager.titleCount(); titleRow++) {
+            assertEquals(eager.toTitle(titleRow), lazy.toTitle(titleRow));
+            assertArrayEquals(eager.principals().toArray(titleRow), lazy.principals().toArray(titleRow));
+        }
+        assertTrue(lazy.cachedBlocks() > 0);
+        assertTrue(lazy.cachedBytes() <= 64 * 1024);
+        assertThrows(CastIndexesNotReadyException.class, lazy::personTitles);
+        lazy.buildPersonTitles();
+        for (int personRow = 0; personRow < eager.personCount(); personRow++) {
+            assertArrayEquals(eager.personTitles().toArray(personRow), lazy.personTitles().toArray(personRow));
+        }
+    }
+
+    @Test
+    void testDataset_castIndexesAreNotReadyUntilBuilt() throws InterruptedException {
+        ImdbDataset expected = ImdbDataset.of(1, eager);
+        ImdbDataset dataset = ImdbDataset.of(1, lazy);
+        assertFalse(dataset.castIndexes().isBuilt());
+        assertFalse(dataset.estimatedBytes().containsKey("coStarGraph"));
+        assertThrows(CastIndexesNotReadyException.class, dataset::coStarGraph);
+
+        dataset.castIndexes().buildAll();
+        assertTrue(dataset.castIndexes().isBuilt());
+        assertArrayEquals(expected.sameDirectorWriterAlive(), dataset.sameDirectorWriterAlive());
+        int person = eager.personRow("nm0000001");
+        CoStarGraph.CoStars coStars = dataset.coStarGraph().topCoStars(person, 10);
+        assertArrayEquals(expected.coStarGraph().topCoStars(person, 10).persons(), coStars.persons());
+        assertTrue(dataset.estimatedBytes().containsKey("coStarGraph"));
+    }
+
+    @Test
+    void testLoader_buildsCastIndexesInBackgroundAfterPublishing() throws InterruptedException {
+        LoaderProperties properties = new LoaderProperties();
+        properties.setDataDir(dataDir.toString());
+        properties.getLazyCast().setEnabled(true);
+        properties.getSnapshot().setEnabled(false);
+        DataLoaderService loader = new DataLoaderService(properties);
+
+        loader.loadData();
+        ImdbDataset dataset = loader.getDataset();
+        assertTrue(dataset.store().castOnDemand());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!dataset.castIndexes().isBuilt() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(dataset.castIndexes().isBuilt());
+        assertArrayEquals(ImdbDataset.of(1, eager).sameDirectorWriterAlive(), dataset.sameDirectorWriterAlive());
+        loader.shutdownReloads();
+    }
+
+    @Test
+    void testHealth_isDegradedWhileAFailedCastIndexBuildIsRetried() {
+        DataLoaderService loader = Mockito.mock(DataLoaderService.class);
+        Mockito.doReturn(true).when(loader).holdsData();
+        Mockito.doReturn(ImdbDataset.of(1, lazy)).when(loader).getDataset();
+        ReloadStatus idle = new ReloadStatus();
+        idle.setState(ReloadStatus.State.IDLE);
+        Mockito.doReturn(idle).when(loader).getReloadStatus();
+        DatasetHealthIndicator indicator = new DatasetHealthIndicator(loader);
+
+        Health building = indicator.health();
+        assertEquals(Status.UP, building.getStatus());
+        assertEquals("building", building.getDetails().get("castIndexes"));
+
+        Mockito.doReturn("Java heap space").when(loader).getCastIndexError();
+        Health failed = indicator.health();
+        assertEquals("DEGRADED", failed.getStatus().getCode());
+        assertEquals("Java heap space", failed.getDetails().get("castIndexError"));
+    }
+
+    @Test
+    void testBlockIndex_rejectsUnsortedFile() throws Exception {
+        Path file = dataDir.resolve("unsorted.tsv");
+        Files.writeString(file, "tconst\tdirectors\twriters\ntt0000002\tnm0000001\t\\N\ntt0000001\tnm0000002\t\\N\n");
+        assertEquals(1, TsvBlockIndex.build(file, 1 << 20).blockCount());
+        assertThrows(IllegalStateException.class, () -> TsvBlockIndex.build(file, 8));
+    }
+
+    private ImdbStore load(boolean withCast) throws Exception {
+        MappedTsvLoader loader = new MappedTsvLoader(executor, new LoadProgress(List.of()), TitlePartition.ALL);
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        loader.loadTitlesBasics(chunks("title.basics.tsv"), builder);
+        builder.sealTitles();
+        loader.loadPersons(chunks("name.basics.tsv"), builder);
+        if (withCast) {
+            loader.loadTitlesCrew(chunks("title.crew.tsv"), builder);
+            loader.loadTitlesPrincipals(chunks("title.principals.tsv"), builder);
+        }
+        loader.loadTitlesRatings(chunks("title.ratings.tsv"), builder);
+        return builder.build();
+    }
+
+    private TsvSource chunks(String name) throws Exception {
+        return TsvSource.of(ChunkedTsvReader.mapChunks(dataDir.resolve(name), 64 * 1024));
+    }
+}
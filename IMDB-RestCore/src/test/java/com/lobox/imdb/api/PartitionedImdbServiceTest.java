@@ -0,0 +1,154 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.loader.ChunkedTsvReader;
+import com.lobox.imdb.api.loader.LoadProgress;
+import com.lobox.imdb.api.loader.MappedTsvLoader;
+import com.lobox.imdb.api.loader.TitlePartition;
+import com.lobox.imdb.api.loader.TsvSource;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.model.TitlePage;
+import com.lobox.imdb.api.model.TitleQuery;
+import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.service.ImdbService;
+import com.lobox.imdb.api.service.PartitionQueryUnsupportedException;
+import com.lobox.imdb.api.service.impl.ImdbServiceImpl;
+import com.lobox.imdb.api.service.impl.PartitionedImdbService;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbDataset;
+import com.lobox.imdb.api.tools.SyntheticImdbGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedImdbServiceTest {
+
+    private static final int PARTITIONS = 3;
+
+    private ImdbDataset fullDataset;
+    private final List<ImdbDataset> partitionDatasets = new ArrayList<>();
+    private ImdbService single;
+    private PartitionedImdbService partitioned;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Map<String, byte[]> files = new SyntheticImdbGenerator(0.001, 5).generate();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            fullDataset = load(files, TitlePartition.ALL, executor);
+            List<ImdbService> partitions = new ArrayList<>();
+            for (int index = 0; index < PARTITIONS; index++) {
+                ImdbDataset dataset = load(files, new TitlePartition(index, PARTITIONS), executor);
+                partitionDatasets.add(dataset);
+                partitions.add(service(dataset));
+            }
+            single = service(fullDataset);
+            partitioned = new PartitionedImdbService(partitions);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        partitioned.close();
+    }
+
+    @Test
+    void testPartitions_splitTitlesAndKeepEveryPerson() {
+        int titles = 0;
+        for (ImdbDataset dataset : partitionDatasets) {
+            assertTrue(dataset.store().titleCount() > 0);
+            assertEquals(fullDataset.store().personCount(), dataset.store().personCount());
+            titles += dataset.store().titleCount();
+        }
+        assertEquals(fullDataset.store().titleCount(), titles);
+    }
+
+    @Test
+    void testTitleQueries_matchSingleInstance() {
+        List<Title> sameDirectorWriter = single.getTitlesBySameDirectorWriterAndAlive();
+        assertFalse(sameDirectorWriter.isEmpty());
+        assertEquals(sameDirectorWriter, partitioned.getTitlesBySameDirectorWriterAndAlive());
+
+        List<Title> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            TitlePage page = partitioned.getTitlesBySameDirectorWriterAndAlive(cursor, 7);
+            assertEquals(single.getTitlesBySameDirectorWriterAndAlive(cursor, 7), page);
+            paged.addAll(page.getTitles());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(sameDirectorWriter, paged);
+
+        List<Title> commonTitles = single.getTitlesByTwoActors("nm0000001", "nm0000002");
+        assertFalse(commonTitles.isEmpty());
+        assertEquals(commonTitles, partitioned.getTitlesByTwoActors("nm0000001", "nm0000002"));
+        List<List<String>> actorGroups = List.of(List.of("nm0000001", "nm0000003"), List.of("nm0000002", "nm9999999"),
+                List.of("nm0000001", "nm0000002", "nm0000004"));
+        assertEquals(single.getTitlesByActorsBatch(actorGroups), partitioned.getTitlesByActorsBatch(actorGroups));
+
+        assertEquals(single.getBestTitlesByGenreAndYear("Drama"), partitioned.getBestTitlesByGenreAndYear("Drama"));
+        assertEquals(single.getTopTitlesByGenreAndYear("Comedy", 3, 1990, 2020, "movie", 10),
+                partitioned.getTopTitlesByGenreAndYear("Comedy", 3, 1990, 2020, "movie", 10));
+        List<String> genres = List.of("Drama", "Western", "Drama", "Documentary");
+        assertEquals(single.getTopTitlesByGenresAndYear(genres, 2, null, null, null, 0),
+                partitioned.getTopTitlesByGenresAndYear(genres, 2, null, null, null, 0));
+
+        assertEquals(single.searchTitles("title 12", 20), partitioned.searchTitles("title 12", 20));
+        assertEquals(single.getTopCoStars("nm0000001", 10), partitioned.getTopCoStars("nm0000001", 10));
+    }
+
+    @Test
+    void testQueryTitles_matchesSingleInstance() {
+        TitleQuery byVotes = new TitleQuery();
+        TitleQuery byRating = new TitleQuery();
+        byRating.setSort(TitleQuery.Sort.RATING);
+        byRating.setMinVotes(100);
+        byRating.setGenres(List.of("Drama"));
+        TitleQuery byYear = new TitleQuery();
+        byYear.setSort(TitleQuery.Sort.YEAR);
+        byYear.setAscending(true);
+        byYear.setK(50);
+        for (TitleQuery query : List.of(byVotes, byRating, byYear)) {
+            assertEquals(single.queryTitles(query).getTitles(), partitioned.queryTitles(query).getTitles(), query.toString());
+        }
+        assertEquals(single.queryTitles(byRating).getMatches(), partitioned.queryTitles(byRating).getMatches());
+    }
+
+    @Test
+    void testCollaborationPath_isNotSupported() {
+        assertThrows(PartitionQueryUnsupportedException.class, () -> partitioned.getCollaborationPath("nm0000001", "nm0000002", 6));
+    }
+
+    private static ImdbDataset load(Map<String, byte[]> files, TitlePartition partition, ExecutorService executor) throws Exception {
+        MappedTsvLoader loader = new MappedTsvLoader(executor, new LoadProgress(List.of()), partition);
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        loader.loadTitlesBasics(chunks(files, "title.basics.tsv"), builder);
+        builder.sealTitles();
+        loader.loadPersons(chunks(files, "name.basics.tsv"), builder);
+        loader.loadTitlesCrew(chunks(files, "title.crew.tsv"), builder);
+        loader.loadTitlesPrincipals(chunks(files, "title.principals.tsv"), builder);
+        loader.loadTitlesRatings(chunks(files, "title.ratings.tsv"), builder);
+        return ImdbDataset.of(1, builder.build());
+    }
+
+    private static TsvSource chunks(Map<String, byte[]> files, String name) throws Exception {
+        return TsvSource.of(ChunkedTsvReader.readChunks(new ByteArrayInputStream(files.get(name)), 64 * 1024));
+    }
+
+    private static ImdbService service(ImdbDataset dataset) {
+        DataLoaderService dataLoaderService = Mockito.mock(DataLoaderService.class);
+        Mockito.doReturn(dataset).when(dataLoaderService).getDataset();
+        return new ImdbServiceImpl(dataLoaderService);
+    }
+}
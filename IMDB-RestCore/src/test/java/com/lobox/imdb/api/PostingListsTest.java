@@ -0,0 +1,48 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.store.CsrPostings;
+import com.lobox.imdb.api.util.ImdbIds;
+import com.lobox.imdb.api.util.PostingLists;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListsTest {
+
+    @Test
+    void testIntersect_twoLists() {
+        int[] result = PostingLists.intersect(new int[]{1, 3, 5, 7, 9}, new int[]{2, 3, 4, 9, 10, 11});
+        assertArrayEquals(new int[]{3, 9}, result);
+    }
+
+    @Test
+    void testIntersect_manyListsStartsFromShortest() {
+        int[] a = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        int[] b = {2, 4, 6, 8, 10};
+        int[] c = {4, 10};
+        assertArrayEquals(new int[]{4, 10}, PostingLists.intersect(a, b, c));
+        assertArrayEquals(new int[0], PostingLists.intersect(a, b, new int[0]));
+    }
+
+    @Test
+    void testByPersonRow_mapsNconstsToRowsAndDropsUnknown() {
+        int[] nconstIds = {3, 7, 20};
+        long[] pairs = {CsrPostings.pack(20, 1), CsrPostings.pack(3, 4), CsrPostings.pack(5, 0), CsrPostings.pack(3, 2),
+                CsrPostings.pack(20, 1), CsrPostings.pack(99, 3)};
+
+        CsrPostings byPerson = CsrPostings.byPersonRow(pairs, nconstIds.length, row -> nconstIds[row]);
+
+        assertEquals(3, byPerson.keyCount());
+        assertArrayEquals(new int[]{2, 4}, byPerson.toArray(0));
+        assertArrayEquals(new int[0], byPerson.toArray(1));
+        assertArrayEquals(new int[]{1}, byPerson.toArray(2));
+    }
+
+    @Test
+    void testImdbIds_roundTrip() {
+        assertEquals(1, ImdbIds.parseTconst("tt0000001"));
+        assertEquals("tt0000001", ImdbIds.formatTconst(1));
+        assertEquals("nm12345678", ImdbIds.formatNconst(12345678));
+        assertEquals(-1, ImdbIds.parseNconst("tt0000001"));
+    }
+}
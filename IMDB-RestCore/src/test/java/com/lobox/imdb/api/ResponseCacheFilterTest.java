@@ -0,0 +1,74 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.config.ResponseCacheProperties;
+import com.lobox.imdb.api.interceptor.ResponseCacheFilter;
+import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.service.HttpRequestCounterService;
+import com.lobox.imdb.api.service.ResponseCacheService;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheFilterTest {
+
+    private static final String ROUTE = "/api/v1/imdb/titles/best-by-genre";
+
+    private ResponseCacheFilter filter;
+    private final AtomicInteger rendered = new AtomicInteger();
+    // stands in for the controller: CBOR when asked for, JSON otherwise
+    private final FilterChain handler = (request, response) -> {
+        rendered.incrementAndGet();
+        String accept = ((MockHttpServletRequest) request).getHeader(HttpHeaders.ACCEPT);
+        boolean cbor = MediaType.APPLICATION_CBOR_VALUE.equals(accept);
+        response.setContentType(cbor ? MediaType.APPLICATION_CBOR_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write((cbor ? "cbor" : "[]").getBytes(StandardCharsets.UTF_8));
+    };
+
+    @BeforeEach
+    void setUp() {
+        DataLoaderService dataLoaderService = Mockito.mock(DataLoaderService.class);
+        Mockito.doReturn(2L).when(dataLoaderService).currentGeneration();
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        filter = new ResponseCacheFilter(new ResponseCacheService(dataLoaderService, properties), properties,
+                new HttpRequestCounterService());
+    }
+
+    @Test
+    void testEtag_differsPerRepresentation() throws Exception {
+        MockHttpServletResponse json = get(MediaType.APPLICATION_JSON_VALUE, null);
+        assertEquals(200, json.getStatus());
+        assertEquals("\"g2-json\"", json.getHeader(HttpHeaders.ETAG));
+        get(MediaType.APPLICATION_CBOR_VALUE, null);
+
+        // the JSON validator must not revalidate the CBOR representation
+        MockHttpServletResponse cbor = get(MediaType.APPLICATION_CBOR_VALUE, "\"g2-json\"");
+        assertEquals(200, cbor.getStatus());
+        assertEquals("\"g2-cbor\"", cbor.getHeader(HttpHeaders.ETAG));
+        assertEquals("cbor", cbor.getContentAsString());
+
+        assertEquals(304, get(MediaType.APPLICATION_CBOR_VALUE, "\"g2-cbor\"").getStatus());
+        assertEquals(304, get(MediaType.APPLICATION_JSON_VALUE, "\"g2-json\"").getStatus());
+        assertEquals(2, rendered.get());
+    }
+
+    private MockHttpServletResponse get(String accept, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", ROUTE);
+        request.addHeader(HttpHeaders.ACCEPT, accept);
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, handler);
+        return response;
+    }
+}
@@ -0,0 +1,56 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.util.SegmentedLruCache;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedLruCacheTest {
+
+    @Test
+    void testPut_evictsLeastRecentlyUsedWithinWeight() {
+        SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(30, 1, String::length);
+        cache.put("a", "0123456789");
+        cache.put("b", "0123456789");
+        cache.put("c", "0123456789");
+        cache.put("d", "0123456789");
+
+        assertNull(cache.get("a"));
+        assertEquals("0123456789", cache.get("d"));
+        assertEquals(3, cache.size());
+        assertEquals(30, cache.weight());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+
+        cache.put("huge", "x".repeat(31));
+        assertNull(cache.get("huge"));
+    }
+
+    @Test
+    void testGet_protectsEntriesHitAgainFromScans() {
+        SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(100, 1, String::length);
+        cache.put("hot", "0123456789");
+        assertNotNull(cache.get("hot"));
+        for (int i = 0; i < 50; i++) {
+            cache.put("scan" + i, "0123456789");
+        }
+
+        assertNotNull(cache.get("hot"));
+        assertNull(cache.get("scan0"));
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    void testInvalidateAll() {
+        SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(1000, String::length);
+        for (int i = 0; i < 20; i++) {
+            cache.put("key" + i, "value");
+        }
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+        assertNull(cache.get("key1"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.store.ColumnarImdbStore;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.StoreSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ColumnarImdbStore sampleStore() {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        builder.addTitle(1, "short", "Carmencita", "Carmencita", false, 1894, 0, 1, new String[]{"Documentary", "Short"});
+        builder.addTitle(2, "movie", "Le clown", "Le clown et ses chiens", true, 1892, 0, 5, null);
+        builder.sealTitles();
+        builder.setRating(0, 5.6f, 1600);
+        builder.addCrew(0, new int[]{5}, new int[]{5, 6});
+        builder.addPrincipal(0, 5);
+        builder.addPrincipal(1, 5);
+        builder.addPerson(5, "William K.L. Dickson", 1860, 1935, new String[]{"director", "producer"}, new int[]{1});
+        return builder.build();
+    }
+
+    @Test
+    void testSnapshot_roundTrip() throws IOException {
+        ColumnarImdbStore store = sampleStore();
+        Path file = tempDir.resolve("imdb.snapshot");
+        StoreSnapshot.write(store, "sources-v1", file);
+
+        ColumnarImdbStore restored = StoreSnapshot.read(file, "sources-v1").orElseThrow();
+
+        assertEquals(store.titleCount(), restored.titleCount());
+        for (int row = 0; row < store.titleCount(); row++) {
+            assertEquals(store.toTitle(row), restored.toTitle(row));
+        }
+        assertEquals(store.toPerson(0), restored.toPerson(0));
+        assertArrayEquals(store.personTitles().toArray(0), restored.personTitles().toArray(0));
+    }
+
+    @Test
+    void testOffHeapText_matchesHeapStoreAndSnapshot() throws IOException {
+        ColumnarImdbStore store = sampleStore();
+        ColumnarImdbStore offHeap = store.withOffHeapText();
+
+        for (int row = 0; row < store.titleCount(); row++) {
+            assertEquals(store.toTitle(row), offHeap.toTitle(row));
+        }
+        assertEquals(store.toPerson(0), offHeap.toPerson(0));
+        assertTrue(offHeap.estimatedBytes().get("offHeapText") > 0);
+        assertSame(offHeap, offHeap.withOffHeapText());
+
+        Path file = tempDir.resolve("imdb.snapshot");
+        StoreSnapshot.write(offHeap, "sources-v1", file);
+        ColumnarImdbStore restored = StoreSnapshot.read(file, "sources-v1").orElseThrow();
+        for (int row = 0; row < store.titleCount(); row++) {
+            assertEquals(store.toTitle(row), restored.toTitle(row));
+        }
+        assertEquals(store.toPerson(0), restored.toPerson(0));
+    }
+
+    @Test
+    void testSnapshot_ignoredWhenSourcesChange() throws IOException {
+        Path file = tempDir.resolve("imdb.snapshot");
+        StoreSnapshot.write(sampleStore(), "sources-v1", file);
+
+        assertEquals(Optional.empty(), StoreSnapshot.read(file, "sources-v2"));
+        assertEquals(Optional.empty(), StoreSnapshot.read(tempDir.resolve("missing.snapshot"), "sources-v1"));
+    }
+
+    @Test
+    void testSnapshot_corruptionIsDetected() throws IOException {
+        Path file = tempDir.resolve("imdb.snapshot");
+        StoreSnapshot.write(sampleStore(), "sources-v1", file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 20);
+            raf.write(raf.read() ^ 0xFF);
+        }
+
+        assertThrows(IOException.class, () -> StoreSnapshot.read(file, "sources-v1"));
+    }
+}
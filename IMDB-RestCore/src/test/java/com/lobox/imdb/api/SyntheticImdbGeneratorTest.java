@@ -0,0 +1,53 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.config.LoaderProperties;
+import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.store.ImdbStore;
+import com.lobox.imdb.api.tools.SyntheticImdbGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticImdbGeneratorTest {
+
+    @Test
+    void testGenerate_isDeterministicPerSeed() throws Exception {
+        Map<String, byte[]> first = new SyntheticImdbGenerator(0.0001, 7).generate();
+        Map<String, byte[]> second = new SyntheticImdbGenerator(0.0001, 7).generate();
+        Map<String, byte[]> otherSeed = new SyntheticImdbGenerator(0.0001, 8).generate();
+
+        assertEquals(5, first.size());
+        for (String file : first.keySet()) {
+            assertArrayEquals(first.get(file), second.get(file), file);
+        }
+        assertFalse(Arrays.equals(first.get("title.principals.tsv"), otherSeed.get("title.principals.tsv")));
+    }
+
+    @Test
+    void testGeneratedFiles_loadWithEveryParser() throws Exception {
+        SyntheticImdbGenerator generator = new SyntheticImdbGenerator(0.0002, 42);
+        Map<String, byte[]> files = generator.generate();
+
+        for (LoaderProperties.Parser parser : LoaderProperties.Parser.values()) {
+            LoaderProperties properties = new LoaderProperties();
+            properties.setParser(parser);
+            DataLoaderService dataLoaderService = Mockito.spy(new DataLoaderService(properties));
+            Mockito.doAnswer(invocation -> new ByteArrayInputStream(files.get(invocation.<String>getArgument(0))))
+                    .when(dataLoaderService).getResourceStream(Mockito.anyString());
+
+            dataLoaderService.loadData();
+
+            ImdbStore store = dataLoaderService.getStore();
+            assertEquals(generator.titleCount(), store.titleCount(), parser.name());
+            assertEquals(generator.personCount(), store.personCount(), parser.name());
+            // the most popular person is cast far more often than average
+            assertTrue(store.personTitles().length(store.personRow(1)) > 10, parser.name());
+            assertFalse(dataLoaderService.getDataset().sameDirectorWriterAlive().length == 0, parser.name());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbStore;
+import com.lobox.imdb.api.store.TextSearchIndex;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextSearchIndexTest {
+
+    @Test
+    void testSearch_matchesSubstringsIgnoringCaseAndAccentsRankedByVotes() {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        builder.addTitle(1, "movie", "Matrix Reloaded", "Matrix Reloaded", false, 2003, 0, 138, new String[]{"Action"});
+        builder.addTitle(2, "movie", "The Matrix", "The Matrix", false, 1999, 0, 136, new String[]{"Action"});
+        builder.addTitle(3, "movie", "Amélie", "Le Fabuleux Destin d'Amélie Poulain", false, 2001, 0, 122, new String[]{"Comedy"});
+        builder.addTitle(4, "movie", "Das Boot", "Das Boot", false, 1981, 0, 149, new String[]{"Drama"});
+        builder.sealTitles();
+        builder.setRating(builder.titleRow(1), 7.2f, 500);
+        builder.setRating(builder.titleRow(2), 8.7f, 1000);
+        builder.setRating(builder.titleRow(3), 8.3f, 300);
+        builder.setRating(builder.titleRow(4), 8.4f, 200);
+        ImdbStore store = builder.build();
+        TextSearchIndex index = TextSearchIndex.forTitles(store);
+
+        assertArrayEquals(rows(store, 2, 1), index.search("matrix", 10));
+        assertArrayEquals(rows(store, 2, 1), index.search("  MATR ", 10));
+        assertArrayEquals(rows(store, 2), index.search("matrix", 1));
+        assertArrayEquals(rows(store, 1), index.search("trix rel", 10));
+        assertArrayEquals(rows(store, 3), index.search("AMELIE", 10));
+        assertArrayEquals(rows(store, 3), index.search("fabuleux destin", 10));
+        assertArrayEquals(rows(store, 3), index.search("d amélie", 10));
+        // two characters only match at the start of a word
+        assertArrayEquals(rows(store, 2, 1), index.search("ma", 10));
+        assertArrayEquals(rows(store, 4), index.search("bo", 10));
+        assertEquals(0, index.search("x", 10).length);
+        assertEquals(0, index.search("zzz", 10).length);
+        assertEquals(0, index.search("matrix boot", 10).length);
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("le fabuleux destin d amelie", TextSearchIndex.normalize("  Le Fabuleux -- Destin d'Amélie!"));
+        assertEquals("", TextSearchIndex.normalize("?!"));
+        assertEquals("", TextSearchIndex.normalize(null));
+    }
+
+    private static int[] rows(ImdbStore store, int... tconstIds) {
+        int[] rows = new int[tconstIds.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = store.titleRow(tconstIds[i]);
+        }
+        return rows;
+    }
+}
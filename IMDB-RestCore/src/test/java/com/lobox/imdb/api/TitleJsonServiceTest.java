@@ -0,0 +1,55 @@
+package com.lobox.imdb.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lobox.imdb.api.config.JacksonConfig;
+import com.lobox.imdb.api.config.TitleJsonProperties;
+import com.lobox.imdb.api.model.Title;
+import com.lobox.imdb.api.service.DataLoaderService;
+import com.lobox.imdb.api.service.TitleJsonService;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbDataset;
+import com.lobox.imdb.api.store.ImdbStore;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleJsonServiceTest {
+
+    @Test
+    void testFragments_matchBeanSerializationAndFollowGeneration() throws Exception {
+        ImdbDataset first = ImdbDataset.of(1, store("Első \"film\""));
+        DataLoaderService dataLoaderService = Mockito.mock(DataLoaderService.class);
+        Mockito.doReturn(first).when(dataLoaderService).getDataset();
+        TitleJsonService titleJsonService = new TitleJsonService(dataLoaderService, new TitleJsonProperties());
+        ObjectMapper plain = new ObjectMapper();
+        ObjectMapper fragments = new ObjectMapper().registerModule(new JacksonConfig().titleFragmentModule(titleJsonService));
+
+        List<Title> titles = first.store().toTitles(new int[]{0, 1});
+        Map<String, Object> response = Map.of("titles", titles, "best", Map.of(2000, titles.get(1)));
+        byte[] expected = plain.writeValueAsBytes(response);
+        // the second write copies the fragments rendered by the first
+        assertArrayEquals(expected, fragments.writeValueAsBytes(response));
+        assertArrayEquals(expected, fragments.writeValueAsBytes(response));
+        assertEquals(plain.writerWithDefaultPrettyPrinter().writeValueAsString(titles),
+                fragments.writerWithDefaultPrettyPrinter().writeValueAsString(titles));
+
+        // after a reload, titles are written as the new generation has them
+        ImdbDataset second = ImdbDataset.of(2, store("Second"));
+        Mockito.doReturn(second).when(dataLoaderService).getDataset();
+        assertEquals(plain.writeValueAsString(second.store().toTitle(0)), fragments.writeValueAsString(titles.get(0)));
+    }
+
+    private static ImdbStore store(String primaryTitle) {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        builder.addTitle(1, "movie", primaryTitle, "Original", false, 2000, 0, 90, new String[]{"Drama", "Comedy"});
+        builder.addTitle(2, "short", "Two", "Two", true, 2000, 2001, 0, null);
+        builder.sealTitles();
+        builder.setRating(builder.titleRow(2), 7.5f, 100);
+        builder.addCrew(builder.titleRow(1), new int[]{1}, new int[]{2});
+        return builder.build();
+    }
+}
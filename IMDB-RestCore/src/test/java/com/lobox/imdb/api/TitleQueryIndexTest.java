@@ -0,0 +1,251 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.model.TitleQuery;
+import com.lobox.imdb.api.store.ColumnarStoreBuilder;
+import com.lobox.imdb.api.store.ImdbStore;
+import com.lobox.imdb.api.store.TitleQueryIndex;
+import com.lobox.imdb.api.util.CompressedBitmap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleQueryIndexTest {
+
+    private static final String[] GENRES = {"Drama", "Comedy", "Action", "Horror", "Documentary"};
+    private static final String[] TYPES = {"movie", "short", "tvSeries"};
+
+    @Test
+    void testQuery_appliesFiltersAndSorts() {
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        builder.addTitle(1, "movie", "A", "A", false, 2000, 0, 90, new String[]{"Drama"});
+        builder.addTitle(2, "movie", "B", "B", false, 2001, 0, 90, new String[]{"Drama", "Comedy"});
+        builder.addTitle(3, "tvSeries", "C", "C", false, 2002, 0, 90, new String[]{"Comedy"});
+        builder.addTitle(4, "movie", "D", "D", true, 2003, 0, 90, new String[]{"Drama"});
+        builder.addTitle(5, "movie", "Unrated", "Unrated", false, 2004, 0, 90, new String[]{"Drama"});
+        builder.sealTitles();
+        builder.setRating(builder.titleRow(1), 6.0f, 500);
+        builder.setRating(builder.titleRow(2), 8.0f, 300);
+        builder.setRating(builder.titleRow(3), 9.0f, 50);
+        builder.setRating(builder.titleRow(4), 7.5f, 1000);
+        builder.addCrew(builder.titleRow(1), new int[]{10}, new int[]{11});
+        builder.addCrew(builder.titleRow(2), new int[]{10}, new int[]{10});
+        builder.addPrincipal(builder.titleRow(2), 12);
+        builder.addPrincipal(builder.titleRow(3), 12);
+        for (int id = 10; id <= 12; id++) {
+            builder.addPerson(id, "Person " + id, 1950, 0, new String[]{"actor"}, null);
+        }
+        ImdbStore store = builder.build();
+        TitleQueryIndex index = TitleQueryIndex.build(store);
+
+        assertArrayEquals(rows(store, 4, 1, 2, 3), index.query(new TitleQuery()).titleRows());
+        assertArrayEquals(rows(store, 1, 2, 3), index.query(query(q -> q.setAdult(false))).titleRows());
+        assertArrayEquals(rows(store, 2), index.query(query(q -> q.setGenres(List.of("Drama", "Comedy")))).titleRows());
+        assertArrayEquals(rows(store, 4, 1, 2, 3), index.query(query(q -> {
+            q.setGenres(List.of("Drama", "Comedy"));
+            q.setGenreMatch(TitleQuery.GenreMatch.ANY);
+        })).titleRows());
+        assertArrayEquals(rows(store, 3, 2, 4), index.query(query(q -> {
+            q.setSort(TitleQuery.Sort.RATING);
+            q.setMinRating(7.5);
+        })).titleRows());
+        assertArrayEquals(rows(store, 1, 4), index.query(query(q -> {
+            q.setSort(TitleQuery.Sort.RATING);
+            q.setAscending(true);
+            q.setMaxRating(7.5);
+        })).titleRows());
+        assertArrayEquals(rows(store, 5, 4), index.query(query(q -> {
+            q.setSort(TitleQuery.Sort.YEAR);
+            q.setK(2);
+        })).titleRows());
+        assertArrayEquals(rows(store, 2, 3), index.query(query(q -> {
+            q.setFromYear(2001);
+            q.setToYear(2002);
+            q.setMinVotes(50);
+        })).titleRows());
+        assertArrayEquals(rows(store, 3), index.query(query(q -> q.setTitleTypes(List.of("tvSeries", "videoGame")))).titleRows());
+        assertArrayEquals(rows(store, 1, 2), index.query(query(q -> q.setDirectors(List.of("nm0000010")))).titleRows());
+        assertArrayEquals(rows(store, 2), index.query(query(q -> {
+            q.setDirectors(List.of("nm0000010"));
+            q.setWriters(List.of("nm0000010"));
+        })).titleRows());
+        assertArrayEquals(rows(store, 2, 3), index.query(query(q -> q.setActors(List.of("nm0000012")))).titleRows());
+
+        assertEquals(0, index.query(query(q -> q.setGenres(List.of("Western")))).titleRows().length);
+        assertEquals(0, index.query(query(q -> q.setActors(List.of("nm0000099")))).titleRows().length);
+        assertEquals(0, index.query(query(q -> q.setFromYear(2010))).titleRows().length);
+
+        TitleQueryIndex.Result result = index.query(query(q -> q.setMinVotes(400)));
+        assertArrayEquals(rows(store, 4, 1), result.titleRows());
+        assertEquals(2, result.matches());
+    }
+
+    @Test
+    void testQuery_matchesBruteForce() {
+        Random random = new Random(11);
+        ColumnarStoreBuilder builder = new ColumnarStoreBuilder();
+        int titleCount = 150_000;
+        for (int id = 1; id <= titleCount; id++) {
+            String[] genres = random.ints(random.nextInt(3), 0, GENRES.length).distinct().mapToObj(i -> GENRES[i]).toArray(String[]::new);
+            int year = random.nextInt(10) == 0 ? 0 : 1990 + random.nextInt(30);
+            builder.addTitle(id * 3, TYPES[random.nextInt(TYPES.length)], "T" + id, "T" + id, random.nextInt(20) == 0,
+                    year, 0, 90, genres);
+        }
+        builder.sealTitles();
+        for (int row = 0; row < titleCount; row++) {
+            if (random.nextInt(4) != 0) {
+                builder.setRating(row, (10 + random.nextInt(91)) / 10f, 1 + (int) Math.pow(2, random.nextDouble() * 20));
+            }
+            builder.addCrew(row, new int[]{1 + random.nextInt(50)}, new int[]{1 + random.nextInt(50)});
+            builder.addPrincipal(row, 1 + random.nextInt(50));
+        }
+        for (int id = 1; id <= 50; id++) {
+            builder.addPerson(id, "Person " + id, 1950, 0, new String[]{"actor"}, null);
+        }
+        ImdbStore store = builder.build();
+        TitleQueryIndex index = TitleQueryIndex.build(store);
+
+        List<TitleQuery> queries = List.of(
+                new TitleQuery(),
+                query(q -> q.setAscending(true)),
+                query(q -> q.setSort(TitleQuery.Sort.RATING)),
+                query(q -> {
+                    q.setSort(TitleQuery.Sort.YEAR);
+                    q.setAscending(true);
+                    q.setAdult(false);
+                }),
+                query(q -> {
+                    q.setGenres(List.of("Drama", "Comedy"));
+                    q.setMinVotes(1000);
+                    q.setMinRating(6.3);
+                    q.setMaxRating(8.7);
+                }),
+                query(q -> {
+                    q.setGenres(List.of("Horror", "Documentary"));
+                    q.setGenreMatch(TitleQuery.GenreMatch.ANY);
+                    q.setTitleTypes(List.of("movie"));
+                    q.setFromYear(2000);
+                    q.setToYear(2005);
+                    q.setSort(TitleQuery.Sort.RATING);
+                    q.setK(100);
+                }),
+                query(q -> {
+                    q.setDirectors(List.of("nm0000007"));
+                    q.setActors(List.of("nm0000003"));
+                    q.setSort(TitleQuery.Sort.YEAR);
+                }),
+                query(q -> {
+                    q.setAdult(true);
+                    q.setWriters(List.of("nm0000042"));
+                    q.setMinVotes(50_000);
+                }));
+        for (TitleQuery query : queries) {
+            assertArrayEquals(bruteForce(store, query), index.query(query).titleRows(), query.toString());
+        }
+    }
+
+    @Test
+    void testCompressedBitmap_setOperations() {
+        Random random = new Random(5);
+        for (int round = 0; round < 20; round++) {
+            int[] a = randomSet(random);
+            int[] b = randomSet(random);
+            CompressedBitmap bitmapA = CompressedBitmap.of(a);
+            CompressedBitmap bitmapB = CompressedBitmap.of(b);
+
+            assertArrayEquals(a, bitmapA.toArray());
+            assertEquals(a.length, bitmapA.cardinality());
+            assertArrayEquals(IntStream.of(a).filter(v -> Arrays.binarySearch(b, v) >= 0).toArray(), bitmapA.and(bitmapB).toArray());
+            assertArrayEquals(IntStream.concat(IntStream.of(a), IntStream.of(b)).sorted().distinct().toArray(), bitmapA.or(bitmapB).toArray());
+            assertArrayEquals(IntStream.of(a).filter(v -> Arrays.binarySearch(b, v) < 0).toArray(), bitmapA.andNot(bitmapB).toArray());
+            if (a.length > 0) {
+                assertTrue(bitmapA.contains(a[a.length / 2]));
+            }
+        }
+        assertArrayEquals(IntStream.range(0, 70_000).toArray(), CompressedBitmap.range(70_000).toArray());
+        assertTrue(CompressedBitmap.and(List.of(CompressedBitmap.range(10), CompressedBitmap.EMPTY)).isEmpty());
+    }
+
+    // values spread over a few 65536-wide blocks, dense in some and sparse in others
+    private static int[] randomSet(Random random) {
+        IntStream.Builder values = IntStream.builder();
+        for (int block = 0; block < 4; block++) {
+            double density = random.nextInt(3) == 0 ? 0.5 : random.nextDouble() * 0.05;
+            for (int low = 0; low < 1 << 16; low++) {
+                if (random.nextDouble() < density) {
+                    values.add(block << 16 | low);
+                }
+            }
+        }
+        return values.build().toArray();
+    }
+
+    private static int[] bruteForce(ImdbStore store, TitleQuery query) {
+        Comparator<Integer> bySort = Comparator.comparingLong(row -> key(store, query, row));
+        return IntStream.range(0, store.titleCount()).boxed()
+                .filter(row -> matches(store, query, row))
+                .sorted(bySort.reversed().thenComparing(Comparator.naturalOrder()))
+                .limit(query.getK())
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static boolean matches(ImdbStore store, TitleQuery query, int row) {
+        int votes = store.numVotes(row);
+        int tenths = Math.round(store.averageRating(row) * 10f);
+        List<String> genres = store.genres().decodeMask(store.genreMask(row));
+        boolean hasSortValue = query.getSort() == TitleQuery.Sort.YEAR ? store.startYear(row) != 0 : votes > 0;
+        boolean ratingFiltered = query.getMinRating() != null || query.getMaxRating() != null;
+        return hasSortValue
+                && (query.getGenreMatch() == TitleQuery.GenreMatch.ALL
+                ? genres.containsAll(query.getGenres())
+                : query.getGenres().isEmpty() || query.getGenres().stream().anyMatch(genres::contains))
+                && (query.getTitleTypes().isEmpty() || query.getTitleTypes().contains(store.titleType(row)))
+                && (query.getFromYear() == null || (store.startYear(row) != 0 && store.startYear(row) >= query.getFromYear()))
+                && (query.getToYear() == null || (store.startYear(row) != 0 && store.startYear(row) <= query.getToYear()))
+                && (query.getAdult() == null || query.getAdult() == store.isAdult(row))
+                && votes >= query.getMinVotes()
+                && (!ratingFiltered || votes > 0)
+                && (query.getMinRating() == null || tenths >= Math.round(query.getMinRating() * 10))
+                && (query.getMaxRating() == null || tenths <= Math.round(query.getMaxRating() * 10))
+                && query.getDirectors().stream().allMatch(nconst -> has(store.directors().toArray(row), nconst))
+                && query.getWriters().stream().allMatch(nconst -> has(store.writers().toArray(row), nconst))
+                && query.getActors().stream().allMatch(nconst -> has(store.principals().toArray(row), nconst));
+    }
+
+    private static boolean has(int[] nconstIds, String nconst) {
+        return IntStream.of(nconstIds).anyMatch(id -> id == Integer.parseInt(nconst.substring(2)));
+    }
+
+    private static long key(ImdbStore store, TitleQuery query, int row) {
+        int votes = store.numVotes(row);
+        int tenths = votes == 0 ? 0 : Math.round(store.averageRating(row) * 10f);
+        long primary = switch (query.getSort()) {
+            case VOTES -> votes;
+            case RATING -> tenths;
+            case YEAR -> store.startYear(row);
+        };
+        long secondary = query.getSort() == TitleQuery.Sort.VOTES ? tenths : votes;
+        return (query.isAscending() ? -primary : primary) << 32 | secondary;
+    }
+
+    private static TitleQuery query(Consumer<TitleQuery> filters) {
+        TitleQuery query = new TitleQuery();
+        filters.accept(query);
+        return query;
+    }
+
+    private static int[] rows(ImdbStore store, int... tconstIds) {
+        int[] rows = new int[tconstIds.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = store.titleRow(tconstIds[i]);
+        }
+        return rows;
+    }
+}
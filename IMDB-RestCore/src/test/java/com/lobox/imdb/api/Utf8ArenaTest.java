@@ -0,0 +1,45 @@
+package com.lobox.imdb.api;
+
+import com.lobox.imdb.api.util.Utf8Arena;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Utf8ArenaTest {
+
+    @Test
+    void testAppendAndGet_roundTripsAnyText() {
+        List<String> values = List.of("Carmencita", "", "Le clown et ses chiens", "Amélie", "千と千尋の神隠し",
+                "🎬 Emoji", "x".repeat(300), "y".repeat(20_000));
+        long capacity = 0;
+        for (String value : values) {
+            capacity += Utf8Arena.encodedLength(value);
+        }
+        Utf8Arena arena = Utf8Arena.allocate(capacity);
+        int[] offsets = new int[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            offsets[i] = arena.append(values.get(i));
+        }
+
+        assertEquals(capacity, arena.size());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i), arena.get(offsets[i]));
+        }
+    }
+
+    @Test
+    void testNull_isNotStored() {
+        Utf8Arena arena = Utf8Arena.allocate(0);
+
+        assertEquals(0, Utf8Arena.encodedLength(null));
+        assertEquals(Utf8Arena.NULL, arena.append(null));
+        assertNull(arena.get(Utf8Arena.NULL));
+    }
+
+    @Test
+    void testAllocate_rejectsMoreThanIntOffsetsAddress() {
+        assertThrows(IllegalStateException.class, () -> Utf8Arena.allocate(Integer.MAX_VALUE + 1L));
+    }
+}
@@ -0,0 +1,291 @@
+package com.lobox.imdb.api.tools;
+
+import com.lobox.imdb.api.util.ImdbIds;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Writes the five IMDB TSV files with synthetic but realistically skewed content, for load and scale testing.
+ * <p>
+ * Scale 1.0 approximates the production dump (about 11M titles, 14M persons, 90M principals). Output depends only on
+ * the scale and the seed. Skew follows the real data: cast sizes are Pareto-distributed, a few persons appear in a
+ * large share of all casts, genres and title types follow their real mix, and only a minority of titles is rated,
+ * with heavy-tailed vote counts.
+ * <p>
+ * Test and benchmark code only, so it stays out of the application jar. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.lobox.imdb.api.tools.SyntheticImdbGenerator -Dexec.args="<dir> [scale] [seed]"}.
+ */
+@Slf4j
+public final class SyntheticImdbGenerator {
+
+    public static final long PRODUCTION_TITLES = 11_000_000L;
+    public static final long PRODUCTION_PERSONS = 14_000_000L;
+
+    private static final String[] TITLE_TYPES = {"tvEpisode", "short", "movie", "video", "tvSeries", "tvMovie",
+            "tvMiniSeries", "tvSpecial", "videoGame", "tvShort"};
+    private static final double[] TITLE_TYPE_WEIGHTS = {0.72, 0.09, 0.06, 0.03, 0.025, 0.013, 0.005, 0.004, 0.003, 0.002};
+    private static final String[] GENRES = {"Drama", "Comedy", "Talk-Show", "Short", "Documentary", "Romance",
+            "Family", "News", "Reality-TV", "Animation", "Crime", "Action", "Adventure", "Music", "Game-Show", "Adult",
+            "Sport", "Fantasy", "Mystery", "Horror", "Thriller", "History", "Biography", "Sci-Fi", "Musical", "War",
+            "Western", "Film-Noir"};
+    private static final double[] GENRE_WEIGHTS = {0.22, 0.15, 0.07, 0.06, 0.06, 0.05, 0.04, 0.04, 0.04, 0.035, 0.03,
+            0.03, 0.025, 0.02, 0.02, 0.02, 0.015, 0.015, 0.015, 0.015, 0.012, 0.01, 0.008, 0.008, 0.006, 0.004,
+            0.003, 0.001};
+    private static final String[] PROFESSIONS = {"actor", "actress", "director", "writer", "producer",
+            "miscellaneous", "camera_department", "composer", "editor", "soundtrack"};
+    private static final String[] CATEGORIES = {"actor", "actress", "self", "director", "writer", "producer",
+            "composer", "cinematographer", "editor"};
+    private static final int MAX_CAST = 60;
+    private static final int MAX_VOTES = 3_000_000;
+
+    private final long titleCount;
+    private final long personCount;
+    private final long seed;
+
+    public SyntheticImdbGenerator(double scale, long seed) {
+        if (!(scale > 0)) {
+            throw new IllegalArgumentException("Scale must be positive: " + scale);
+        }
+        this.titleCount = Math.max(1, Math.round(PRODUCTION_TITLES * scale));
+        this.personCount = Math.max(1, Math.round(PRODUCTION_PERSONS * scale));
+        this.seed = seed;
+    }
+
+    public long titleCount() {
+        return titleCount;
+    }
+
+    public long personCount() {
+        return personCount;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticImdbGenerator <output directory> [scale, default 0.01] [seed, default 42]");
+            System.exit(1);
+        }
+        double scale = args.length > 1 ? Double.parseDouble(args[1]) : 0.01;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        new SyntheticImdbGenerator(scale, seed).writeTo(Path.of(args[0]));
+    }
+
+    /**
+     * Writes title.basics.tsv, name.basics.tsv, title.crew.tsv, title.principals.tsv and title.ratings.tsv into
+     * {@code directory}, replacing existing files.
+     */
+    public void writeTo(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        long start = System.currentTimeMillis();
+        try (OutputStream basics = Files.newOutputStream(directory.resolve("title.basics.tsv"));
+             OutputStream crew = Files.newOutputStream(directory.resolve("title.crew.tsv"));
+             OutputStream principals = Files.newOutputStream(directory.resolve("title.principals.tsv"));
+             OutputStream ratings = Files.newOutputStream(directory.resolve("title.ratings.tsv"));
+             OutputStream names = Files.newOutputStream(directory.resolve("name.basics.tsv"))) {
+            write(basics, crew, principals, ratings, names);
+        }
+        log.info("Generated {} titles and {} persons in {} in {} ms.", titleCount, personCount, directory, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Generates the files in memory, keyed by file name. Meant for small scales in tests and benchmarks.
+     */
+    public Map<String, byte[]> generate() throws IOException {
+        ByteArrayOutputStream basics = new ByteArrayOutputStream();
+        ByteArrayOutputStream crew = new ByteArrayOutputStream();
+        ByteArrayOutputStream principals = new ByteArrayOutputStream();
+        ByteArrayOutputStream ratings = new ByteArrayOutputStream();
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        write(basics, crew, principals, ratings, names);
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("title.basics.tsv", basics.toByteArray());
+        files.put("name.basics.tsv", names.toByteArray());
+        files.put("title.crew.tsv", crew.toByteArray());
+        files.put("title.principals.tsv", principals.toByteArray());
+        files.put("title.ratings.tsv", ratings.toByteArray());
+        return files;
+    }
+
+    private void write(OutputStream basicsOut, OutputStream crewOut, OutputStream principalsOut, OutputStream ratingsOut,
+                       OutputStream namesOut) throws IOException {
+        Writer basics = writer(basicsOut);
+        Writer crew = writer(crewOut);
+        Writer principals = writer(principalsOut);
+        Writer ratings = writer(ratingsOut);
+        Writer names = writer(namesOut);
+        basics.write("tconst\ttitleType\tprimaryTitle\toriginalTitle\tisAdult\tstartYear\tendYear\truntimeMinutes\tgenres\n");
+        crew.write("tconst\tdirectors\twriters\n");
+        principals.write("tconst\tordering\tnconst\tcategory\tjob\tcharacters\n");
+        ratings.write("tconst\taverageRating\tnumVotes\n");
+        names.write("nconst\tprimaryName\tbirthYear\tdeathYear\tprimaryProfession\tknownForTitles\n");
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (long id = 1; id <= titleCount; id++) {
+            writeTitle((int) id, random, basics, crew, principals, ratings);
+        }
+        // persons come from their own stream, so the title files do not change when only the person part does
+        SplittableRandom personRandom = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        for (long id = 1; id <= personCount; id++) {
+            writePerson((int) id, personRandom, names);
+        }
+        for (Writer writer : new Writer[]{basics, crew, principals, ratings, names}) {
+            writer.flush();
+        }
+    }
+
+    private void writeTitle(int id, SplittableRandom random, Writer basics, Writer crew, Writer principals,
+                            Writer ratings) throws IOException {
+        String tconst = ImdbIds.formatTconst(id);
+        String titleType = TITLE_TYPES[weighted(random, TITLE_TYPE_WEIGHTS)];
+        // titles pile up towards recent years
+        int startYear = 1890 + (int) (136 * Math.sqrt(random.nextDouble()));
+        basics.write(tconst);
+        basics.write('\t');
+        basics.write(titleType);
+        basics.write("\tTitle ");
+        basics.write(Integer.toString(id));
+        basics.write("\tTitle ");
+        basics.write(Integer.toString(id));
+        basics.write(random.nextInt(50) == 0 ? "\t1\t" : "\t0\t");
+        basics.write(random.nextInt(10) == 0 ? "\\N" : Integer.toString(startYear));
+        basics.write('\t');
+        basics.write(titleType.endsWith("Series") && random.nextBoolean() ? Integer.toString(startYear + 1 + random.nextInt(10)) : "\\N");
+        basics.write('\t');
+        basics.write(random.nextInt(10) < 6 ? "\\N" : Integer.toString(1 + (int) pareto(random, 20, 2.5, 600)));
+        basics.write('\t');
+        writeGenres(random, basics);
+        basics.write('\n');
+
+        int director = random.nextInt(10) < 4 ? 0 : popularPerson(random);
+        int writer = random.nextInt(4) == 0 ? director : random.nextInt(10) < 5 ? 0 : popularPerson(random);
+        crew.write(tconst);
+        crew.write('\t');
+        crew.write(director == 0 ? "\\N" : ImdbIds.formatNconst(director));
+        crew.write('\t');
+        crew.write(writer == 0 ? "\\N" : ImdbIds.formatNconst(writer));
+        crew.write('\n');
+
+        int cast = (int) pareto(random, 4, 2, MAX_CAST);
+        for (int ordering = 1; ordering <= cast; ordering++) {
+            principals.write(tconst);
+            principals.write('\t');
+            principals.write(Integer.toString(ordering));
+            principals.write('\t');
+            principals.write(ImdbIds.formatNconst(popularPerson(random)));
+            principals.write('\t');
+            principals.write(CATEGORIES[Math.min(CATEGORIES.length - 1, (int) pareto(random, 1, 1.5, CATEGORIES.length) - 1)]);
+            principals.write("\t\\N\t\\N\n");
+        }
+
+        if (random.nextInt(100) < 14) {
+            double rating = Math.max(1.0, Math.min(10.0, 6.8 + 1.3 * random.nextGaussian()));
+            ratings.write(tconst);
+            ratings.write('\t');
+            ratings.write(Double.toString(Math.round(rating * 10) / 10.0));
+            ratings.write('\t');
+            ratings.write(Integer.toString((int) pareto(random, 5, 1.1, MAX_VOTES)));
+            ratings.write('\n');
+        }
+    }
+
+    private void writePerson(int id, SplittableRandom random, Writer names) throws IOException {
+        boolean birthKnown = random.nextInt(5) == 0;
+        int birthYear = 1850 + random.nextInt(160);
+        names.write(ImdbIds.formatNconst(id));
+        names.write("\tPerson ");
+        names.write(Integer.toString(id));
+        names.write('\t');
+        names.write(birthKnown ? Integer.toString(birthYear) : "\\N");
+        names.write('\t');
+        names.write(birthKnown && birthYear < 1960 && random.nextInt(3) > 0 ? Integer.toString(birthYear + 30 + random.nextInt(60)) : "\\N");
+        names.write('\t');
+        int professions = random.nextInt(4);
+        if (professions == 0) {
+            names.write("\\N");
+        }
+        for (int i = 0; i < professions; i++) {
+            if (i > 0) {
+                names.write(',');
+            }
+            names.write(PROFESSIONS[(i * 3 + random.nextInt(PROFESSIONS.length)) % PROFESSIONS.length]);
+        }
+        names.write('\t');
+        int knownFor = random.nextInt(5);
+        if (knownFor == 0) {
+            names.write("\\N");
+        }
+        for (int i = 0; i < knownFor; i++) {
+            if (i > 0) {
+                names.write(',');
+            }
+            names.write(ImdbIds.formatTconst(1 + (int) (random.nextDouble() * titleCount)));
+        }
+        names.write('\n');
+    }
+
+    private static void writeGenres(SplittableRandom random, Writer basics) throws IOException {
+        if (random.nextInt(10) == 0) {
+            basics.write("\\N");
+            return;
+        }
+        int count = 1 + random.nextInt(3);
+        long chosen = 0;
+        for (int i = 0; i < count; i++) {
+            chosen |= 1L << weighted(random, GENRE_WEIGHTS);
+        }
+        boolean first = true;
+        for (int genre = 0; genre < GENRES.length; genre++) {
+            if ((chosen & (1L << genre)) != 0) {
+                if (!first) {
+                    basics.write(',');
+                }
+                basics.write(GENRES[genre]);
+                first = false;
+            }
+        }
+    }
+
+    // Low nconsts are cast far more often than high ones, a power law over popularity rank. At full scale the most
+    // frequent person appears in about 0.03% of all casts, close to the busiest talk-show hosts in the real dump.
+    private int popularPerson(SplittableRandom random) {
+        double u = random.nextDouble();
+        return 1 + (int) (u * u * (personCount - 1));
+    }
+
+    // Pareto draw with minimum xm and shape alpha, truncated at max.
+    private static double pareto(SplittableRandom random, double xm, double alpha, double max) {
+        double u = 1.0 - random.nextDouble();
+        return Math.min(max, xm / Math.pow(u, 1.0 / alpha));
+    }
+
+    private static int weighted(SplittableRandom random, double[] weights) {
+        double u = random.nextDouble();
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        u *= total;
+        for (int i = 0; i < weights.length - 1; i++) {
+            u -= weights[i];
+            if (u < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static Writer writer(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+    }
+}